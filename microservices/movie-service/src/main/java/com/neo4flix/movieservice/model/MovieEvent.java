@@ -0,0 +1,32 @@
+package com.neo4flix.movieservice.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.neo4j.core.schema.*;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Outbox entry recording that a movie was created, updated or deleted.
+ * Written in the same transaction as the change itself, so a change is never lost or
+ * reported without having happened; every Recommendation Service replica reads these
+ * nodes in occurredAt order, and they are purged once old enough for all to have done so.
+ *
+ * occurredAt is set by the database server (see MovieEventRepository.record), so that
+ * readers compare it with the same clock whatever JVM wrote it.
+ */
+@Data
+@NoArgsConstructor
+@Node("MovieEvent")
+public class MovieEvent {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @Property("movieId")
+    private String movieId;
+
+    @Property("occurredAt")
+    private ZonedDateTime occurredAt;
+}
@@ -0,0 +1,20 @@
+package com.neo4flix.movieservice.repository;
+
+import com.neo4flix.movieservice.model.MovieEvent;
+import org.springframework.data.neo4j.repository.Neo4jRepository;
+import org.springframework.data.neo4j.repository.query.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository interface for the MovieEvent outbox
+ */
+@Repository
+public interface MovieEventRepository extends Neo4jRepository<MovieEvent, Long> {
+
+    /**
+     * Record a movie change, stamped with the database server's time
+     */
+    @Query("CREATE (:MovieEvent {movieId: $movieId, occurredAt: datetime()})")
+    void record(@Param("movieId") String movieId);
+}
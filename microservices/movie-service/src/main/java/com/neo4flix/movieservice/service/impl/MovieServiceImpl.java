@@ -4,6 +4,7 @@ import com.neo4flix.movieservice.dto.*;
 import com.neo4flix.movieservice.exception.MovieNotFoundException;
 import com.neo4flix.movieservice.exception.DuplicateMovieException;
 import com.neo4flix.movieservice.model.*;
+import com.neo4flix.movieservice.repository.MovieEventRepository;
 import com.neo4flix.movieservice.repository.MovieRepository;
 import com.neo4flix.movieservice.service.MovieService;
 import com.neo4flix.movieservice.service.FileStorageService;
@@ -29,6 +30,7 @@ import java.util.stream.Collectors;
 public class MovieServiceImpl implements MovieService {
 
     private final MovieRepository movieRepository;
+    private final MovieEventRepository movieEventRepository;
     private final FileStorageService fileStorageService;
 
     @Override
@@ -77,6 +79,7 @@ public class MovieServiceImpl implements MovieService {
 
         // Save movie with uploaded file URLs
         Movie savedMovie = movieRepository.save(movie);
+        movieEventRepository.record(savedMovie.getId());
         return savedMovie.mapMovieToResponse();
     }
 
@@ -126,6 +129,7 @@ public class MovieServiceImpl implements MovieService {
         }
 
         Movie updatedMovie = movieRepository.save(movie);
+        movieEventRepository.record(movieId);
         return updatedMovie.mapMovieToResponse();
     }
 
@@ -135,6 +139,7 @@ public class MovieServiceImpl implements MovieService {
             throw new MovieNotFoundException("Movie not found with ID: " + movieId);
         }
         movieRepository.deleteById(movieId);
+        movieEventRepository.record(movieId);
     }
 
     @Override
@@ -365,6 +370,7 @@ public class MovieServiceImpl implements MovieService {
             .orElseThrow(() -> new MovieNotFoundException("Movie not found with ID: " + movieId));
         movie.setPosterUrl(posterUrl);
         movieRepository.save(movie);
+        movieEventRepository.record(movieId);
     }
 
     @Override
@@ -373,6 +379,7 @@ public class MovieServiceImpl implements MovieService {
             .orElseThrow(() -> new MovieNotFoundException("Movie not found with ID: " + movieId));
         movie.setTrailerUrl(trailerUrl);
         movieRepository.save(movie);
+        movieEventRepository.record(movieId);
     }
 
     /**
@@ -0,0 +1,42 @@
+package com.neo4flix.ratingservice.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.neo4j.core.schema.*;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Outbox entry recording one change of a rating.
+ * Written in the same transaction as the rating itself, so a change is never lost or
+ * reported without having happened; every Recommendation Service replica reads these
+ * nodes in occurredAt order, and they are purged once old enough for all to have done so.
+ *
+ * previousRating is null for a new rating and newRating is null for a deleted one.
+ * occurredAt is set by the database server (see RatingEventRepository.record), so that
+ * readers compare it with the same clock whatever JVM wrote it.
+ */
+@Data
+@NoArgsConstructor
+@Node("RatingEvent")
+public class RatingEvent {
+
+    @Id
+    @GeneratedValue
+    private Long id;
+
+    @Property("userId")
+    private String userId;
+
+    @Property("movieId")
+    private String movieId;
+
+    @Property("previousRating")
+    private Double previousRating;
+
+    @Property("newRating")
+    private Double newRating;
+
+    @Property("occurredAt")
+    private ZonedDateTime occurredAt;
+}
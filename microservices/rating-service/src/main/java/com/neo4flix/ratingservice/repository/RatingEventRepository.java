@@ -0,0 +1,22 @@
+package com.neo4flix.ratingservice.repository;
+
+import com.neo4flix.ratingservice.model.RatingEvent;
+import org.springframework.data.neo4j.repository.Neo4jRepository;
+import org.springframework.data.neo4j.repository.query.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository interface for the RatingEvent outbox
+ */
+@Repository
+public interface RatingEventRepository extends Neo4jRepository<RatingEvent, Long> {
+
+    /**
+     * Record a rating change, stamped with the database server's time
+     */
+    @Query("CREATE (:RatingEvent {userId: $userId, movieId: $movieId, " +
+           "previousRating: $previousRating, newRating: $newRating, occurredAt: datetime()})")
+    void record(@Param("userId") String userId, @Param("movieId") String movieId,
+                @Param("previousRating") Double previousRating, @Param("newRating") Double newRating);
+}
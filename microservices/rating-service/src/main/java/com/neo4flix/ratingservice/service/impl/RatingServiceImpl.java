@@ -1,14 +1,13 @@
 package com.neo4flix.ratingservice.service.impl;
 
-import com.neo4flix.ratingservice.client.RecommendationClient;
 import com.neo4flix.ratingservice.dto.*;
 import com.neo4flix.ratingservice.exception.*;
 import com.neo4flix.ratingservice.model.Rating;
+import com.neo4flix.ratingservice.repository.RatingEventRepository;
 import com.neo4flix.ratingservice.repository.MovieRepository;
 import com.neo4flix.ratingservice.repository.RatingRepository;
 import com.neo4flix.ratingservice.repository.UserRepository;
 import com.neo4flix.ratingservice.service.RatingService;
-import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,8 +15,6 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -36,17 +33,17 @@ public class RatingServiceImpl implements RatingService {
     private final RatingRepository ratingRepository;
     private final UserRepository userRepository;
     private final MovieRepository movieRepository;
-    private final RecommendationClient recommendationClient;
+    private final RatingEventRepository ratingEventRepository;
 
     @Autowired
     public RatingServiceImpl(RatingRepository ratingRepository,
                            UserRepository userRepository,
                            MovieRepository movieRepository,
-                           RecommendationClient recommendationClient) {
+                           RatingEventRepository ratingEventRepository) {
         this.ratingRepository = ratingRepository;
         this.userRepository = userRepository;
         this.movieRepository = movieRepository;
-        this.recommendationClient = recommendationClient;
+        this.ratingEventRepository = ratingEventRepository;
     }
 
     @Override
@@ -73,8 +70,8 @@ public class RatingServiceImpl implements RatingService {
 
         logger.info("Rating created successfully with id: {}", savedRating.getId());
 
-        // Trigger recommendation generation asynchronously
-        triggerRecommendationRefresh(userId);
+        // Let the recommendation service know, in the same transaction as the rating
+        recordRatingEvent(userId, request.getMovieId(), null, savedRating.getRating());
 
         return new RatingResponse(savedRating);
     }
@@ -88,6 +85,7 @@ public class RatingServiceImpl implements RatingService {
         Rating rating = ratingRepository.findByUserIdAndMovieId(userId, movieId)
                 .orElseThrow(() -> new RatingNotFoundException(userId, movieId));
 
+        Double previousRating = rating.getRating();
         rating.setRating(request.getRating());
         rating.setReview(request.getReview());
         rating.setLastModified(LocalDateTime.now());
@@ -99,8 +97,8 @@ public class RatingServiceImpl implements RatingService {
 
         logger.info("Rating updated successfully with id: {}", updatedRating.getId());
 
-        // Trigger recommendation generation asynchronously
-        triggerRecommendationRefresh(userId);
+        // Let the recommendation service know, in the same transaction as the rating
+        recordRatingEvent(userId, movieId, previousRating, updatedRating.getRating());
 
         return new RatingResponse(updatedRating);
     }
@@ -109,9 +107,8 @@ public class RatingServiceImpl implements RatingService {
     public void deleteRating(String userId, String movieId) {
         logger.info("Deleting rating for user {} and movie {}", userId, movieId);
 
-        if (!ratingRepository.findByUserIdAndMovieId(userId, movieId).isPresent()) {
-            throw new RatingNotFoundException(userId, movieId);
-        }
+        Rating rating = ratingRepository.findByUserIdAndMovieId(userId, movieId)
+                .orElseThrow(() -> new RatingNotFoundException(userId, movieId));
 
         ratingRepository.deleteByUserIdAndMovieId(userId, movieId);
 
@@ -119,6 +116,8 @@ public class RatingServiceImpl implements RatingService {
         ratingRepository.updateMovieRatingStats(movieId);
 
         logger.info("Rating deleted successfully for user {} and movie {}", userId, movieId);
+
+        recordRatingEvent(userId, movieId, rating.getRating(), null);
     }
 
     @Override
@@ -218,40 +217,12 @@ public class RatingServiceImpl implements RatingService {
     }
 
     /**
-     * Trigger recommendation generation for a user asynchronously
-     * This method extracts the JWT token from the current request and calls the recommendation service
-     */
-    private void triggerRecommendationRefresh(String userId) {
-        try {
-            String jwtToken = extractJwtToken();
-            if (jwtToken != null) {
-                logger.info("Triggering recommendation refresh for user: {}", userId);
-                recommendationClient.triggerRecommendationRefresh(userId, jwtToken);
-            } else {
-                logger.warn("Cannot trigger recommendation refresh - no JWT token found in request");
-            }
-        } catch (Exception e) {
-            // Don't fail the rating operation if recommendation trigger fails
-            logger.error("Error triggering recommendation refresh for user {}: {}", userId, e.getMessage());
-        }
-    }
-
-    /**
-     * Extract JWT token from the current HTTP request
+     * Record a rating change in the RatingEvent outbox.
+     * The recommendation service drains the outbox in batches, so a burst of ratings
+     * costs it one refresh instead of one HTTP call and regeneration per rating, and a
+     * change committed while it is down is applied once it is back.
      */
-    private String extractJwtToken() {
-        try {
-            ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
-            if (attributes != null) {
-                HttpServletRequest request = attributes.getRequest();
-                String authHeader = request.getHeader("Authorization");
-                if (authHeader != null && authHeader.startsWith("Bearer ")) {
-                    return authHeader.substring(7); // Remove "Bearer " prefix
-                }
-            }
-        } catch (Exception e) {
-            logger.warn("Failed to extract JWT token from request: {}", e.getMessage());
-        }
-        return null;
+    private void recordRatingEvent(String userId, String movieId, Double previousRating, Double newRating) {
+        ratingEventRepository.record(userId, movieId, previousRating, newRating);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,123 @@
+package com.neo4flix.movieservice.algorithm;
+
+import com.neo4flix.movieservice.model.Recommendation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Runs the branches of a hybrid algorithm concurrently on the bounded hybrid executor.
+ *
+ * A branch's deadline is counted from when a pool thread starts running it, so time spent
+ * queued behind other requests' branches does not eat into it; a branch still queued after
+ * queue-timeout-ms is dropped without running. A branch that misses its deadline is
+ * interrupted, so that it frees its thread. A branch that fails, is rejected by a saturated
+ * pool or times out yields an empty list, so the hybrid merges whatever finished in time
+ * instead of waiting for the slowest branch.
+ */
+@Component
+public class AlgorithmFanOut {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlgorithmFanOut.class);
+
+    private final Executor executor;
+    private final long branchTimeoutMs;
+    private final long queueTimeoutMs;
+
+    public AlgorithmFanOut(@Qualifier("hybridExecutor") Executor executor,
+                           @Value("${neo4flix.recommendation.hybrid.branch-timeout-ms:2000}") long branchTimeoutMs,
+                           @Value("${neo4flix.recommendation.hybrid.queue-timeout-ms:1000}") long queueTimeoutMs) {
+        this.executor = executor;
+        this.branchTimeoutMs = branchTimeoutMs;
+        this.queueTimeoutMs = queueTimeoutMs;
+    }
+
+    /**
+     * Start a branch. The returned future always completes normally.
+     */
+    public CompletableFuture<List<Recommendation>> submit(String branch, Supplier<List<Recommendation>> task) {
+        Branch running = new Branch(task);
+        try {
+            executor.execute(running);
+        } catch (RuntimeException e) {
+            // Rejected because the hybrid pool and its queue are full
+            logger.warn("{} branch could not be scheduled: {}", branch, e.getMessage());
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        CompletableFuture.delayedExecutor(queueTimeoutMs, TimeUnit.MILLISECONDS)
+                .execute(() -> running.timeOutIfQueued("still queued after " + queueTimeoutMs + " ms"));
+
+        return running.result.exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof TimeoutException) {
+                logger.warn("{} branch dropped, {} - merging without it", branch, cause.getMessage());
+            } else {
+                logger.warn("{} branch failed: {}", branch, cause.getMessage());
+            }
+            return new ArrayList<>();
+        });
+    }
+
+    /**
+     * One branch: its result, and the thread running it while it runs.
+     */
+    private final class Branch implements Runnable {
+
+        final CompletableFuture<List<Recommendation>> result = new CompletableFuture<>();
+        private final Supplier<List<Recommendation>> task;
+        private Thread runner;
+        private boolean started;
+
+        Branch(Supplier<List<Recommendation>> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (result.isDone()) {
+                    // Timed out while queued
+                    return;
+                }
+                started = true;
+                runner = Thread.currentThread();
+            }
+            CompletableFuture.delayedExecutor(branchTimeoutMs, TimeUnit.MILLISECONDS)
+                    .execute(() -> timeOut("missed its " + branchTimeoutMs + " ms deadline"));
+            try {
+                result.complete(task.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+                // A timed-out task may leave the interrupt set: clear it before the pool reuses the thread
+                Thread.interrupted();
+            }
+        }
+
+        synchronized void timeOutIfQueued(String reason) {
+            if (!started) {
+                result.completeExceptionally(new TimeoutException(reason));
+            }
+        }
+
+        synchronized void timeOut(String reason) {
+            if (result.completeExceptionally(new TimeoutException(reason)) && runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+}
@@ -3,8 +3,13 @@ package com.neo4flix.movieservice.algorithm;
 import com.neo4flix.movieservice.dto.MovieRecommendationDTO;
 import com.neo4flix.movieservice.dto.RecommendationRequest;
 import com.neo4flix.movieservice.dto.UserSimilarity;
+import com.neo4flix.movieservice.engine.IdInterner;
+import com.neo4flix.movieservice.engine.SparseRatingMatrix;
+import com.neo4flix.movieservice.engine.TopK;
+import com.neo4flix.movieservice.engine.UserBasedScorer;
 import com.neo4flix.movieservice.model.Recommendation;
 import com.neo4flix.movieservice.repository.RecommendationRepository;
+import com.neo4flix.movieservice.service.RatingMatrixService;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
 import org.slf4j.Logger;
@@ -14,12 +19,17 @@ import org.springframework.stereotype.Component;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * Collaborative Filtering Algorithm Implementation
  * Uses user-based collaborative filtering to recommend movies
  * Can optionally filter by specific genres
+ *
+ * Similar users and scores are computed in process over the in-memory rating matrix
+ * (RatingMatrixService / UserBasedScorer). The Cypher queries are only used until the
+ * matrix has been loaded, or for users that are not in it yet.
  * En gros : "les utilisateurs qui ont aimé les mêmes films que toi aiment aussi celui-là".
  */
 @Component
@@ -28,7 +38,11 @@ public class CollaborativeFilteringAlgorithm implements RecommendationAlgorithm
 
     private static final Logger logger = LoggerFactory.getLogger(CollaborativeFilteringAlgorithm.class);
 
+    // Neighbours considered per user, as in the original findSimilarUsers call
+    private static final int NEIGHBOURHOOD_SIZE = 50;
+
     private final RecommendationRepository recommendationRepository;
+    private final RatingMatrixService ratingMatrix;
 
     @Override
     public String getAlgorithmName() {
@@ -50,6 +64,11 @@ public class CollaborativeFilteringAlgorithm implements RecommendationAlgorithm
             double minSimilarity = 0.3;
             double minRating = request.getMinRating() != null ? request.getMinRating() : 3.5;
 
+            int user = ratingMatrix.isLoaded() ? ratingMatrix.getUserIds().indexOf(request.getUserId()) : -1;
+            if (user >= 0) {
+                return generateFromMatrix(request, user, minCommonRatings, minSimilarity, minRating, hasGenreFilter);
+            }
+
             // Get collaborative recommendations from Neo4j
             List<MovieRecommendationDTO> rawRecommendations;
 
@@ -76,7 +95,7 @@ public class CollaborativeFilteringAlgorithm implements RecommendationAlgorithm
 
             for (MovieRecommendationDTO row : rawRecommendations) {
                 // Create recommendation with explanation
-                String reason = buildReasonMessage(row, hasGenreFilter, request.getGenre());
+                String reason = buildReasonMessage(row.getMovieRating(), hasGenreFilter, request.getGenre());
 
                 Recommendation recommendation = Recommendation.builder()
                         .userId(request.getUserId())
@@ -99,12 +118,70 @@ public class CollaborativeFilteringAlgorithm implements RecommendationAlgorithm
         }
     }
 
+    /**
+     * Score candidates from the in-memory rating matrix, then apply the genre filter (if any) in one query
+     */
+    private List<Recommendation> generateFromMatrix(RecommendationRequest request, int user, int minCommonRatings,
+                                                    double minSimilarity, double minRating, boolean hasGenreFilter) {
+        SparseRatingMatrix matrix = ratingMatrix.getMatrix();
+        IdInterner movieIds = ratingMatrix.getMovieIds();
+
+        UserBasedScorer.Neighbours neighbours = UserBasedScorer.similarUsers(
+                matrix, user, minCommonRatings, minSimilarity, NEIGHBOURHOOD_SIZE);
+        int fetchLimit = GenreFilter.fetchLimit(request);
+        TopK top = UserBasedScorer.recommend(matrix, user, neighbours, (float) minRating, fetchLimit, null);
+
+        Set<String> allowed = GenreFilter.allowed(recommendationRepository, request, top.size(),
+                rank -> movieIds.idOf(top.id(rank)));
+
+        List<Recommendation> recommendations = new ArrayList<>();
+        for (int rank = 0; rank < top.size() && recommendations.size() < request.getLimit(); rank++) {
+            String movieId = movieIds.idOf(top.id(rank));
+            if (allowed != null && !allowed.contains(movieId)) {
+                continue;
+            }
+
+            recommendations.add(Recommendation.builder()
+                    .userId(request.getUserId())
+                    .score((double) top.score(rank))
+                    .movieId(movieId)
+                    .algorithm(getAlgorithmName())
+                    .reason(buildReasonMessage(matrix.meanRatingOfMovie(top.id(rank)), hasGenreFilter, request.getGenre()))
+                    .build());
+        }
+
+        logger.info("Generated {} collaborative filtering recommendations from {} similar users (in-memory)",
+                recommendations.size(), neighbours.size());
+        return recommendations;
+    }
+
+    /**
+     * Find users with similar rating patterns, from the in-memory matrix when it is loaded
+     */
+    public List<UserSimilarity> findSimilarUsers(String userId, int limit) {
+        int user = ratingMatrix.isLoaded() ? ratingMatrix.getUserIds().indexOf(userId) : -1;
+        if (user < 0) {
+            return recommendationRepository.findSimilarUsers(userId, 3, 0.3, limit);
+        }
+
+        UserBasedScorer.Neighbours neighbours = UserBasedScorer.similarUsers(
+                ratingMatrix.getMatrix(), user, 3, 0.3, limit);
+        List<UserSimilarity> similarUsers = new ArrayList<>(neighbours.size());
+        for (int rank = 0; rank < neighbours.size(); rank++) {
+            similarUsers.add(new UserSimilarity(userId,
+                    ratingMatrix.getUserIds().idOf(neighbours.user(rank)),
+                    (double) neighbours.similarity(rank),
+                    neighbours.commonRatings(rank)));
+        }
+        return similarUsers;
+    }
+
     /**
      * Build reason message for collaborative filtering recommendations
      */
-    private String buildReasonMessage(MovieRecommendationDTO row, boolean hasGenreFilter, List<String> genres) {
+    private String buildReasonMessage(double movieRating, boolean hasGenreFilter, List<String> genres) {
         StringBuilder reason = new StringBuilder();
-        reason.append(String.format("Users with similar taste rated this %.1f/5", row.getMovieRating()));
+        reason.append(String.format("Users with similar taste rated this %.1f/5", movieRating));
 
         if (hasGenreFilter && genres != null && !genres.isEmpty()) {
             reason.append(" - ");
@@ -118,7 +195,6 @@ public class CollaborativeFilteringAlgorithm implements RecommendationAlgorithm
         return reason.toString();
     }
 
-
     /**
      * Format genre list for display in reason messages
      */
@@ -139,6 +215,15 @@ public class CollaborativeFilteringAlgorithm implements RecommendationAlgorithm
     @Override
     public double calculateScore(String userId, String movieId) {
         try {
+            int user = ratingMatrix.isLoaded() ? ratingMatrix.getUserIds().indexOf(userId) : -1;
+            int movie = ratingMatrix.getMovieIds().indexOf(movieId);
+            if (user >= 0 && movie >= 0) {
+                SparseRatingMatrix matrix = ratingMatrix.getMatrix();
+                float predicted = UserBasedScorer.predict(matrix, movie,
+                        UserBasedScorer.similarUsers(matrix, user, 3, 0.3, NEIGHBOURHOOD_SIZE));
+                return Float.isNaN(predicted) ? 0.0 : predicted;
+            }
+
             // Get similar users
             List<UserSimilarity> similarUsers = recommendationRepository.findSimilarUsers(
                     userId, 3, 0.3, 50
@@ -5,6 +5,7 @@ import com.neo4flix.movieservice.dto.RecommendationRequest;
 import com.neo4flix.movieservice.model.Recommendation;
 import com.neo4flix.movieservice.repository.RecommendationRepository;
 import com.neo4flix.movieservice.repository.UserRepository;
+import com.neo4flix.movieservice.service.UserProfileService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +27,10 @@ import java.util.List;
  * (et éventuellement) résumé, année, durée, etc.
  * Exemple : si tu as aimé Black Panther, on va te recommander Captain America ou Avengers
  * parce qu'ils partagent le genre "Action/Super-Héros" et le même réalisateur ou acteur.
+ *
+ * Scores come from the user's preference profile (see UserProfileService), one in-memory
+ * pass over the catalogue. The genre and director queries are only used while profiles
+ * are being built, or for users the profiles do not know yet.
  */
 @Component
 @RequiredArgsConstructor
@@ -35,6 +40,7 @@ public class ContentBasedFilteringAlgorithm implements RecommendationAlgorithm {
 
     private final RecommendationRepository recommendationRepository;
     private final UserRepository userRepository;
+    private final UserProfileService userProfiles;
 
     @Override
     public String getAlgorithmName() {
@@ -53,6 +59,13 @@ public class ContentBasedFilteringAlgorithm implements RecommendationAlgorithm {
         List<Recommendation> allRecommendations = new ArrayList<>();
 
         try {
+            List<Recommendation> profileRecommendations = generateProfileRecommendations(request, hasGenreFilter);
+            if (profileRecommendations != null) {
+                logger.info("Generated {} content-based recommendations from the user profile",
+                        profileRecommendations.size());
+                return profileRecommendations;
+            }
+
             // Get genre-based recommendations
             List<Recommendation> genreRecommendations = generateGenreBasedRecommendations(request, hasGenreFilter);
             allRecommendations.addAll(genreRecommendations);
@@ -81,6 +94,34 @@ public class ContentBasedFilteringAlgorithm implements RecommendationAlgorithm {
         }
     }
 
+    /**
+     * Recommendations scored against the user's preference profile, or null if there is
+     * no profile to score against yet.
+     */
+    private List<Recommendation> generateProfileRecommendations(RecommendationRequest request, boolean hasGenreFilter) {
+        List<UserProfileService.ContentMatch> matches = userProfiles.recommend(
+                request.getUserId(),
+                request.getLimit(),
+                hasGenreFilter ? request.getGenre() : null,
+                request.getSafeMinAverageMovieRating()
+        );
+        if (matches == null) {
+            return null;
+        }
+
+        List<Recommendation> recommendations = new ArrayList<>(matches.size());
+        for (UserProfileService.ContentMatch match : matches) {
+            recommendations.add(Recommendation.builder()
+                    .userId(request.getUserId())
+                    .score(match.getScore())
+                    .movieId(match.getMovieId())
+                    .algorithm(getAlgorithmName())
+                    .reason(buildProfileReasonMessage(match, hasGenreFilter, request.getGenre()))
+                    .build());
+        }
+        return recommendations;
+    }
+
     private List<Recommendation> generateGenreBasedRecommendations(RecommendationRequest request, boolean hasGenreFilter) {
         List<MovieRecommendationDTO> rawRecommendations;
 
@@ -157,6 +198,33 @@ public class ContentBasedFilteringAlgorithm implements RecommendationAlgorithm {
         return recommendations;
     }
 
+    /**
+     * Build reason message for profile-based recommendations, naming the feature of the
+     * movie that matched the user's taste best
+     */
+    private String buildProfileReasonMessage(UserProfileService.ContentMatch match, boolean hasGenreFilter, List<String> genres) {
+        StringBuilder reason = new StringBuilder();
+        UserProfileService.Feature feature = match.getStrongestFeature();
+        if (feature == null) {
+            reason.append("Based on your preferences");
+        } else {
+            switch (feature.getKind()) {
+                case GENRE -> reason.append("Because you like ").append(feature.getName()).append(" movies");
+                case DIRECTOR -> reason.append("Directed by ").append(feature.getName()).append(", whose movies you rated highly");
+                case ACTOR -> reason.append("Starring ").append(feature.getName()).append(", whose movies you rated highly");
+                case DECADE -> reason.append("Because you like movies from the ").append(feature.getName()).append("s");
+            }
+        }
+        reason.append(String.format(" (%.1f/5 rating)", match.getAverageRating()));
+
+        if (hasGenreFilter && genres != null && !genres.isEmpty()) {
+            reason.append(" - filtered for ");
+            reason.append(formatGenreList(genres));
+        }
+
+        return reason.toString();
+    }
+
     /**
      * Build reason message for genre-based recommendations
      */
@@ -208,10 +276,7 @@ public class ContentBasedFilteringAlgorithm implements RecommendationAlgorithm {
     @Override
     public double calculateScore(String userId, String movieId) {
         try {
-            // This would require a more complex implementation to calculate
-            // content similarity between user preferences and movie features
-            // For now, return a basic score
-            return 0.5;
+            return userProfiles.affinity(userId, movieId);
 
         } catch (Exception e) {
             logger.error("Error calculating content-based score for user {} and movie {}: {}",
@@ -239,9 +304,7 @@ public class ContentBasedFilteringAlgorithm implements RecommendationAlgorithm {
      * Calculate genre preference score for a user
      */
     public double calculateGenrePreference(String userId, String genre) {
-        // This would analyze user's rating history for movies in this genre
-        // and return an average preference score
-        return 0.0;
+        return userProfiles.genreAffinity(userId, genre);
     }
 
     /**
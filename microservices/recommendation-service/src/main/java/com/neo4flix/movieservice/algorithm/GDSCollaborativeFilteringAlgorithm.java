@@ -4,6 +4,7 @@ import com.neo4flix.movieservice.dto.MovieRecommendationDTO;
 import com.neo4flix.movieservice.dto.RecommendationRequest;
 import com.neo4flix.movieservice.model.Recommendation;
 import com.neo4flix.movieservice.repository.GDSRecommendationRepository;
+import com.neo4flix.movieservice.service.UserSimilarityIndex;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,9 +19,9 @@ import java.util.List;
  * for user-based collaborative filtering recommendations.
  *
  * This algorithm:
- * 1. Creates a graph projection of User-Rating-Movie relationships
- * 2. Uses GDS Node Similarity to find similar users based on rating patterns
- * 3. Recommends movies that similar users have rated highly
+ * 1. Reads the user's neighbours from the SIMILAR_TASTE index, which UserSimilarityIndex
+ *    precomputes with GDS Node Similarity over the live graph projection
+ * 2. Recommends movies that similar users have rated highly
  */
 @Component
 @RequiredArgsConstructor
@@ -29,6 +30,7 @@ public class GDSCollaborativeFilteringAlgorithm implements RecommendationAlgorit
     private static final Logger logger = LoggerFactory.getLogger(GDSCollaborativeFilteringAlgorithm.class);
 
     private final GDSRecommendationRepository gdsRepository;
+    private final UserSimilarityIndex similarityIndex;
 
     @Override
     public String getAlgorithmName() {
@@ -45,11 +47,7 @@ public class GDSCollaborativeFilteringAlgorithm implements RecommendationAlgorit
         }
 
         try {
-            // Step 1: Create or use existing graph projection
-            String graphName = "user-movie-ratings";
-            gdsRepository.createUserMovieGraphProjection(graphName);
-
-            // Step 2: Run Node Similarity algorithm to find similar users
+            // Step 1: Similarity threshold for neighbours in the SIMILAR_TASTE index
             double minSimilarity = request.getMinRating() != null && request.getMinRating() > 0
                 ? request.getMinRating() / 5.0  // Normalize to 0-1 range
                 : 0.3;
@@ -58,7 +56,6 @@ public class GDSCollaborativeFilteringAlgorithm implements RecommendationAlgorit
 
             if (hasGenreFilter) {
                 rawRecommendations = gdsRepository.getGDSCollaborativeRecommendationsWithGenre(
-                    graphName,
                     request.getUserId(),
                     minSimilarity,
                     request.getGenre(),
@@ -66,14 +63,18 @@ public class GDSCollaborativeFilteringAlgorithm implements RecommendationAlgorit
                 );
             } else {
                 rawRecommendations = gdsRepository.getGDSCollaborativeRecommendations(
-                    graphName,
                     request.getUserId(),
                     minSimilarity,
                     request.getLimit()
                 );
             }
 
-            // Step 3: Convert to Recommendation objects
+            if (rawRecommendations.isEmpty() && !Boolean.TRUE.equals(gdsRepository.hasSimilarUsers(request.getUserId()))) {
+                // New or recently active user not covered by the last batch run
+                similarityIndex.markDirty(request.getUserId());
+            }
+
+            // Step 2: Convert to Recommendation objects
             List<Recommendation> recommendations = new ArrayList<>();
 
             for (MovieRecommendationDTO row : rawRecommendations) {
@@ -0,0 +1,139 @@
+package com.neo4flix.movieservice.algorithm;
+
+import com.neo4flix.movieservice.dto.RecommendationRequest;
+import com.neo4flix.movieservice.model.Recommendation;
+import com.neo4flix.movieservice.repository.GDSRecommendationRepository;
+import com.neo4flix.movieservice.service.CommunityIndex;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Neo4j GDS Community Detection (Louvain) based Algorithm.
+ * Recommends the best rated movies of the user's taste community.
+ *
+ * Communities are detected in batch by CommunityIndex after each projection refresh,
+ * so a request only looks up the user's communityId, takes the community's ranked
+ * movies from memory and filters out movies the user has already rated.
+ */
+@Component
+@RequiredArgsConstructor
+public class GDSCommunityAlgorithm implements RecommendationAlgorithm {
+
+    private static final Logger logger = LoggerFactory.getLogger(GDSCommunityAlgorithm.class);
+
+    private final GDSRecommendationRepository gdsRepository;
+    private final CommunityIndex communityIndex;
+
+    @Override
+    public String getAlgorithmName() {
+        return "gds-community";
+    }
+
+    @Override
+    public List<Recommendation> generateRecommendations(RecommendationRequest request) {
+        logger.info("Generating GDS community recommendations for user: {}", request.getUserId());
+
+        boolean hasGenreFilter = request.getGenre() != null && !request.getGenre().isEmpty();
+
+        try {
+            Long communityId = gdsRepository.getUserCommunityId(request.getUserId());
+            CommunityIndex.RankedMovies topMovies = communityId != null ? communityIndex.getTopMovies(communityId) : null;
+            if (topMovies == null) {
+                logger.info("No community assigned to user {} yet", request.getUserId());
+                return new ArrayList<>();
+            }
+
+            double minRating = request.getMinRating() != null ? request.getMinRating() : 3.5;
+
+            List<String> candidateIds = new ArrayList<>();
+            for (int i = 0; i < topMovies.size(); i++) {
+                if (topMovies.avgRating(i) >= minRating) {
+                    candidateIds.add(topMovies.movieId(i));
+                }
+            }
+            if (candidateIds.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            Set<String> allowed = new HashSet<>(hasGenreFilter
+                    ? gdsRepository.findUnratedMovieIdsWithGenre(request.getUserId(), candidateIds, request.getGenre())
+                    : gdsRepository.findUnratedMovieIds(request.getUserId(), candidateIds));
+
+            // Walk the community ranking so the result keeps its precomputed order
+            List<Recommendation> recommendations = new ArrayList<>();
+            for (int i = 0; i < topMovies.size() && recommendations.size() < request.getLimit(); i++) {
+                if (!allowed.contains(topMovies.movieId(i))) {
+                    continue;
+                }
+
+                recommendations.add(Recommendation.builder()
+                        .userId(request.getUserId())
+                        .score(topMovies.score(i))
+                        .movieId(topMovies.movieId(i))
+                        .algorithm(getAlgorithmName())
+                        .reason(buildReasonMessage(topMovies.avgRating(i), hasGenreFilter, request.getGenre()))
+                        .build());
+            }
+
+            logger.info("Generated {} GDS community recommendations", recommendations.size());
+            return recommendations;
+
+        } catch (Exception e) {
+            logger.error("Error generating GDS community recommendations for user {}: {}",
+                    request.getUserId(), e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public double calculateScore(String userId, String movieId) {
+        try {
+            Long communityId = gdsRepository.getUserCommunityId(userId);
+            CommunityIndex.RankedMovies topMovies = communityId != null ? communityIndex.getTopMovies(communityId) : null;
+            if (topMovies != null) {
+                for (int i = 0; i < topMovies.size(); i++) {
+                    if (topMovies.movieId(i).equals(movieId)) {
+                        return topMovies.score(i);
+                    }
+                }
+            }
+            return 0.0;
+        } catch (Exception e) {
+            logger.error("Error calculating community score: {}", e.getMessage());
+            return 0.0;
+        }
+    }
+
+    @Override
+    public boolean isApplicable(RecommendationRequest request) {
+        // Users only get a community once they have rated something and a batch run has picked them up
+        return communityIndex.isReady();
+    }
+
+    /**
+     * Build a human-readable reason for the recommendation
+     */
+    private String buildReasonMessage(double avgRating, boolean hasGenreFilter, List<String> genres) {
+        StringBuilder reason = new StringBuilder();
+        reason.append("Popular with viewers in your taste community");
+
+        if (hasGenreFilter && genres != null && !genres.isEmpty()) {
+            reason.append(" for ");
+            reason.append(genres.size() > 1 ? "genres: " : "genre: ");
+            reason.append(String.join(", ", genres));
+        }
+
+        reason.append(". Average rating: ");
+        reason.append(String.format("%.1f", avgRating));
+        reason.append("/5.0");
+
+        return reason.toString();
+    }
+}
@@ -1,14 +1,19 @@
 package com.neo4flix.movieservice.algorithm;
 
 import com.neo4flix.movieservice.dto.RecommendationRequest;
+import com.neo4flix.movieservice.engine.IdInterner;
+import com.neo4flix.movieservice.engine.ScoreMerger;
+import com.neo4flix.movieservice.engine.TopK;
 import com.neo4flix.movieservice.model.Recommendation;
+import com.neo4flix.movieservice.service.RatingMatrixService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * GDS-based Hybrid Recommendation Algorithm.
@@ -19,6 +24,10 @@ import java.util.stream.Collectors;
  *
  * This provides the best of all approaches while leveraging Neo4j GDS library's
  * optimized graph algorithms for better performance.
+ *
+ * The GDS sub-algorithms only read precomputed GDS results; none of them creates a
+ * projection on the request path. They run concurrently through AlgorithmFanOut and a
+ * branch that misses its deadline is left out of the merge.
  */
 @Component
 @RequiredArgsConstructor
@@ -31,9 +40,18 @@ public class GDSHybridAlgorithm implements RecommendationAlgorithm {
     private static final double CONTENT_WEIGHT = 0.30;
     private static final double PAGERANK_WEIGHT = 0.30;
 
+    // Branch indexes in the score merger, and their weights in that order
+    private static final int COLLABORATIVE = 0;
+    private static final int CONTENT = 1;
+    private static final int PAGERANK = 2;
+    private static final float[] BRANCH_WEIGHTS = {
+            (float) COLLABORATIVE_WEIGHT, (float) CONTENT_WEIGHT, (float) PAGERANK_WEIGHT};
+
     private final GDSCollaborativeFilteringAlgorithm gdsCollaborative;
     private final GDSContentBasedAlgorithm gdsContentBased;
     private final GDSPageRankAlgorithm gdsPageRank;
+    private final AlgorithmFanOut fanOut;
+    private final RatingMatrixService ratingMatrix;
 
     @Override
     public String getAlgorithmName() {
@@ -54,84 +72,48 @@ public class GDSHybridAlgorithm implements RecommendationAlgorithm {
                     .minRating(request.getMinRating())
                     .build();
 
-            // Get recommendations from all three GDS algorithms in parallel
-            List<Recommendation> collaborativeRecs = new ArrayList<>();
-            List<Recommendation> contentRecs = new ArrayList<>();
-            List<Recommendation> pageRankRecs;
-
-            // Try collaborative filtering if applicable
-            if (gdsCollaborative.isApplicable(extendedRequest)) {
-                try {
-                    collaborativeRecs = gdsCollaborative.generateRecommendations(extendedRequest);
-                    logger.info("GDS Collaborative: {} recommendations", collaborativeRecs.size());
-                } catch (Exception e) {
-                    logger.warn("GDS Collaborative filtering failed: {}", e.getMessage());
-                }
-            }
-
-            // Try content-based filtering if applicable
-            if (gdsContentBased.isApplicable(extendedRequest)) {
-                try {
-                    contentRecs = gdsContentBased.generateRecommendations(extendedRequest);
-                    logger.info("GDS Content-based: {} recommendations", contentRecs.size());
-                } catch (Exception e) {
-                    logger.warn("GDS Content-based filtering failed: {}", e.getMessage());
-                }
-            }
-
+            // Get recommendations from all three GDS algorithms in parallel.
+            // Applicability checks hit the database too, so they run inside their branch.
+            CompletableFuture<List<Recommendation>> collaborativeFuture = fanOut.submit("GDS Collaborative", () ->
+                    gdsCollaborative.isApplicable(extendedRequest)
+                            ? gdsCollaborative.generateRecommendations(extendedRequest)
+                            : new ArrayList<>());
+            CompletableFuture<List<Recommendation>> contentFuture = fanOut.submit("GDS Content-based", () ->
+                    gdsContentBased.isApplicable(extendedRequest)
+                            ? gdsContentBased.generateRecommendations(extendedRequest)
+                            : new ArrayList<>());
             // PageRank is always applicable (handles cold start)
-            try {
-                pageRankRecs = gdsPageRank.generateRecommendations(extendedRequest);
-                logger.info("GDS PageRank: {} recommendations", pageRankRecs.size());
-            } catch (Exception e) {
-                logger.error("GDS PageRank failed: {}", e.getMessage());
-                pageRankRecs = new ArrayList<>();
-            }
-
-            // Combine and score recommendations
-            Map<String, CombinedRecommendation> combinedMap = new HashMap<>();
-
-            // Add collaborative recommendations
-            for (Recommendation rec : collaborativeRecs) {
-                combinedMap.computeIfAbsent(rec.getMovieId(), k -> new CombinedRecommendation(rec.getMovieId()))
-                        .setCollaborativeScore(rec.getScore())
-                        .setCollaborativeReason(rec.getReason());
-            }
-
-            // Add content-based recommendations
-            for (Recommendation rec : contentRecs) {
-                combinedMap.computeIfAbsent(rec.getMovieId(), k -> new CombinedRecommendation(rec.getMovieId()))
-                        .setContentScore(rec.getScore())
-                        .setContentReason(rec.getReason());
-            }
-
-            // Add PageRank recommendations
-            for (Recommendation rec : pageRankRecs) {
-                combinedMap.computeIfAbsent(rec.getMovieId(), k -> new CombinedRecommendation(rec.getMovieId()))
-                        .setPageRankScore(rec.getScore())
-                        .setPageRankReason(rec.getReason());
+            CompletableFuture<List<Recommendation>> pageRankFuture = fanOut.submit("GDS PageRank",
+                    () -> gdsPageRank.generateRecommendations(extendedRequest));
+
+            List<Recommendation> collaborativeRecs = collaborativeFuture.join();
+            List<Recommendation> contentRecs = contentFuture.join();
+            List<Recommendation> pageRankRecs = pageRankFuture.join();
+            logger.info("GDS Collaborative: {}, Content-based: {}, PageRank: {} recommendations",
+                    collaborativeRecs.size(), contentRecs.size(), pageRankRecs.size());
+
+            // Merge by movie index and keep the best with a bounded heap
+            IdInterner movieIds = ratingMatrix.getMovieIds();
+            ScoreMerger merger = ScoreMerger.begin(BRANCH_WEIGHTS.length);
+            addBranch(merger, movieIds, COLLABORATIVE, collaborativeRecs);
+            addBranch(merger, movieIds, CONTENT, contentRecs);
+            addBranch(merger, movieIds, PAGERANK, pageRankRecs);
+            TopK top = merger.select(request.getLimit(), BRANCH_WEIGHTS, 0f, 0L);
+
+            List<Recommendation> finalRecommendations = new ArrayList<>(top.size());
+            for (int rank = 0; rank < top.size(); rank++) {
+                int movie = top.id(rank);
+                finalRecommendations.add(Recommendation.builder()
+                        .userId(request.getUserId())
+                        .movieId(movieIds.idOf(movie))
+                        .score((double) top.score(rank))
+                        .algorithm(getAlgorithmName())
+                        .reason(buildCombinedReason(merger, movie))
+                        .build());
             }
 
-            // Calculate weighted scores and create final recommendations
-            List<Recommendation> finalRecommendations = combinedMap.values().stream()
-                    .map(combined -> {
-                        double weightedScore = calculateWeightedScore(combined);
-                        String reason = buildCombinedReason(combined);
-
-                        return Recommendation.builder()
-                                .userId(request.getUserId())
-                                .movieId(combined.getMovieId())
-                                .score(weightedScore)
-                                .algorithm(getAlgorithmName())
-                                .reason(reason)
-                                .build();
-                    })
-                    .sorted((r1, r2) -> Double.compare(r2.getScore(), r1.getScore()))
-                    .limit(request.getLimit())
-                    .collect(Collectors.toList());
-
             logger.info("Generated {} GDS hybrid recommendations from {} unique movies",
-                    finalRecommendations.size(), combinedMap.size());
+                    finalRecommendations.size(), merger.size());
 
             return finalRecommendations;
 
@@ -183,112 +165,36 @@ public class GDSHybridAlgorithm implements RecommendationAlgorithm {
         return true;
     }
 
-    /**
-     * Calculate weighted score from all algorithm scores
-     */
-    private double calculateWeightedScore(CombinedRecommendation combined) {
-        double score = 0.0;
-        double totalWeight = 0.0;
-
-        if (combined.getCollaborativeScore() > 0) {
-            score += combined.getCollaborativeScore() * COLLABORATIVE_WEIGHT;
-            totalWeight += COLLABORATIVE_WEIGHT;
-        }
-
-        if (combined.getContentScore() > 0) {
-            score += combined.getContentScore() * CONTENT_WEIGHT;
-            totalWeight += CONTENT_WEIGHT;
-        }
-
-        if (combined.getPageRankScore() > 0) {
-            score += combined.getPageRankScore() * PAGERANK_WEIGHT;
-            totalWeight += PAGERANK_WEIGHT;
+    private static void addBranch(ScoreMerger merger, IdInterner movieIds, int branch,
+                                  List<Recommendation> recommendations) {
+        for (Recommendation rec : recommendations) {
+            if (rec.getMovieId() != null && rec.getScore() != null) {
+                merger.add(branch, movieIds.intern(rec.getMovieId()), rec.getScore().floatValue());
+            }
         }
-
-        return totalWeight > 0 ? score / totalWeight : 0.0;
     }
 
     /**
      * Build a combined reason explaining why this movie was recommended
      */
-    private String buildCombinedReason(CombinedRecommendation combined) {
+    private String buildCombinedReason(ScoreMerger merger, int movie) {
         List<String> reasons = new ArrayList<>();
 
-        if (combined.getCollaborativeScore() > 0) {
-            reasons.add(String.format("Similar users (score: %.2f)", combined.getCollaborativeScore()));
+        float collaborativeScore = merger.branchScore(movie, COLLABORATIVE);
+        if (collaborativeScore > 0) {
+            reasons.add(String.format("Similar users (score: %.2f)", collaborativeScore));
         }
 
-        if (combined.getContentScore() > 0) {
-            reasons.add(String.format("Similar content (score: %.2f)", combined.getContentScore()));
+        float contentScore = merger.branchScore(movie, CONTENT);
+        if (contentScore > 0) {
+            reasons.add(String.format("Similar content (score: %.2f)", contentScore));
         }
 
-        if (combined.getPageRankScore() > 0) {
-            reasons.add(String.format("Popular choice (score: %.2f)", combined.getPageRankScore()));
+        float pageRankScore = merger.branchScore(movie, PAGERANK);
+        if (pageRankScore > 0) {
+            reasons.add(String.format("Popular choice (score: %.2f)", pageRankScore));
         }
 
         return "GDS Hybrid: " + String.join(" + ", reasons);
     }
-
-    /**
-     * Helper class to combine recommendations from different algorithms
-     */
-    private static class CombinedRecommendation {
-        private final String movieId;
-        private double collaborativeScore = 0.0;
-        private double contentScore = 0.0;
-        private double pageRankScore = 0.0;
-        private String collaborativeReason;
-        private String contentReason;
-        private String pageRankReason;
-
-        public CombinedRecommendation(String movieId) {
-            this.movieId = movieId;
-        }
-
-        public String getMovieId() {
-            return movieId;
-        }
-
-        public double getCollaborativeScore() {
-            return collaborativeScore;
-        }
-
-        public CombinedRecommendation setCollaborativeScore(double collaborativeScore) {
-            this.collaborativeScore = collaborativeScore;
-            return this;
-        }
-
-        public double getContentScore() {
-            return contentScore;
-        }
-
-        public CombinedRecommendation setContentScore(double contentScore) {
-            this.contentScore = contentScore;
-            return this;
-        }
-
-        public double getPageRankScore() {
-            return pageRankScore;
-        }
-
-        public CombinedRecommendation setPageRankScore(double pageRankScore) {
-            this.pageRankScore = pageRankScore;
-            return this;
-        }
-
-        public CombinedRecommendation setCollaborativeReason(String reason) {
-            this.collaborativeReason = reason;
-            return this;
-        }
-
-        public CombinedRecommendation setContentReason(String reason) {
-            this.contentReason = reason;
-            return this;
-        }
-
-        public CombinedRecommendation setPageRankReason(String reason) {
-            this.pageRankReason = reason;
-            return this;
-        }
-    }
 }
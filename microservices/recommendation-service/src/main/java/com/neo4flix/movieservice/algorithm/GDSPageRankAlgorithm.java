@@ -1,16 +1,19 @@
 package com.neo4flix.movieservice.algorithm;
 
-import com.neo4flix.movieservice.dto.MovieRecommendationDTO;
 import com.neo4flix.movieservice.dto.RecommendationRequest;
 import com.neo4flix.movieservice.model.Recommendation;
 import com.neo4flix.movieservice.repository.GDSRecommendationRepository;
+import com.neo4flix.movieservice.service.CommunityIndex;
+import com.neo4flix.movieservice.service.PageRankSnapshot;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Neo4j GDS PageRank-based Popularity Algorithm.
@@ -21,6 +24,9 @@ import java.util.List;
  * - The "importance" of users who rated it (users who rate many movies have higher influence)
  *
  * This provides a more sophisticated popularity metric than simple rating counts.
+ * Scores are global, so they are precomputed by PageRankSnapshot after each projection
+ * refresh and its in-memory ranking is walked here, a chunk of candidates at a time,
+ * keeping the movies the user has not rated.
  */
 @Component
 @RequiredArgsConstructor
@@ -28,7 +34,11 @@ public class GDSPageRankAlgorithm implements RecommendationAlgorithm {
 
     private static final Logger logger = LoggerFactory.getLogger(GDSPageRankAlgorithm.class);
 
+    // Candidates checked per filter query, as a multiple of the requested limit
+    private static final int CANDIDATES_PER_LIMIT = 4;
+
     private final GDSRecommendationRepository gdsRepository;
+    private final PageRankSnapshot pageRankSnapshot;
 
     @Override
     public String getAlgorithmName() {
@@ -45,45 +55,53 @@ public class GDSPageRankAlgorithm implements RecommendationAlgorithm {
         }
 
         try {
-            // Create or use existing graph projection
-            String graphName = "user-movie-ratings";
-            gdsRepository.createUserMovieGraphProjection(graphName);
-
-            double minRating = request.getMinRating() != null ? request.getMinRating() : 3.5;
-
-            List<MovieRecommendationDTO> rawRecommendations;
-
-            if (hasGenreFilter) {
-                rawRecommendations = gdsRepository.getGDSPageRankRecommendationsWithGenre(
-                    graphName,
-                    request.getUserId(),
-                    minRating,
-                    request.getGenre(),
-                    request.getLimit()
-                );
-            } else {
-                rawRecommendations = gdsRepository.getGDSPageRankRecommendations(
-                    graphName,
-                    request.getUserId(),
-                    minRating,
-                    request.getLimit()
-                );
+            CommunityIndex.RankedMovies ranking = pageRankSnapshot.getRanking();
+            if (ranking == null) {
+                logger.info("PageRank ranking not loaded yet");
+                return new ArrayList<>();
             }
 
+            double minRating = request.getMinRating() != null ? request.getMinRating() : 3.5;
+            int chunkSize = Math.max(request.getLimit() * CANDIDATES_PER_LIMIT, 1);
             List<Recommendation> recommendations = new ArrayList<>();
 
-            for (MovieRecommendationDTO row : rawRecommendations) {
-                String reason = buildReasonMessage(row, hasGenreFilter, request.getGenre());
-
-                Recommendation recommendation = Recommendation.builder()
-                        .userId(request.getUserId())
-                        .score(row.getScore())
-                        .movieId(row.getMovie().getId())
-                        .algorithm(getAlgorithmName())
-                        .reason(reason)
-                        .build();
-
-                recommendations.add(recommendation);
+            int next = 0;
+            while (next < ranking.size() && recommendations.size() < request.getLimit()) {
+                List<Integer> candidates = new ArrayList<>();
+                for (; next < ranking.size() && candidates.size() < chunkSize; next++) {
+                    if (ranking.avgRating(next) >= minRating) {
+                        candidates.add(next);
+                    }
+                }
+                if (candidates.isEmpty()) {
+                    break;
+                }
+
+                List<String> candidateIds = new ArrayList<>(candidates.size());
+                for (int index : candidates) {
+                    candidateIds.add(ranking.movieId(index));
+                }
+                Set<String> allowed = new HashSet<>(hasGenreFilter
+                        ? gdsRepository.findUnratedMovieIdsWithGenre(request.getUserId(), candidateIds, request.getGenre())
+                        : gdsRepository.findUnratedMovieIds(request.getUserId(), candidateIds));
+
+                // Walk the chunk in ranking order so the result keeps the precomputed order
+                for (int index : candidates) {
+                    if (recommendations.size() == request.getLimit()) {
+                        break;
+                    }
+                    if (!allowed.contains(ranking.movieId(index))) {
+                        continue;
+                    }
+                    recommendations.add(Recommendation.builder()
+                            .userId(request.getUserId())
+                            .score(ranking.score(index))
+                            .movieId(ranking.movieId(index))
+                            .algorithm(getAlgorithmName())
+                            .reason(buildReasonMessage(ranking.avgRating(index), ranking.score(index),
+                                    hasGenreFilter, request.getGenre()))
+                            .build());
+                }
             }
 
             logger.info("Generated {} GDS PageRank recommendations", recommendations.size());
@@ -101,13 +119,8 @@ public class GDSPageRankAlgorithm implements RecommendationAlgorithm {
         // For PageRank, score is based on movie's network influence
         // Not personalized per user, so userId is ignored
         try {
-            String graphName = "user-movie-ratings";
-            gdsRepository.createUserMovieGraphProjection(graphName);
-
-            // This is a simplified implementation - in production you'd want to cache PageRank scores
-            // For now, return a default value indicating this method should use generateRecommendations instead
-            logger.warn("calculateScore not fully implemented for PageRank - use generateRecommendations instead");
-            return 0.0;
+            Double pageRank = gdsRepository.getMoviePageRank(movieId);
+            return pageRank != null ? pageRank : 0.0;
         } catch (Exception e) {
             logger.error("Error calculating PageRank score: {}", e.getMessage());
             return 0.0;
@@ -124,7 +137,7 @@ public class GDSPageRankAlgorithm implements RecommendationAlgorithm {
     /**
      * Build a human-readable reason for the recommendation
      */
-    private String buildReasonMessage(MovieRecommendationDTO dto, boolean hasGenreFilter, List<String> genres) {
+    private String buildReasonMessage(double avgRating, double score, boolean hasGenreFilter, List<String> genres) {
         StringBuilder reason = new StringBuilder();
         reason.append("Highly influential movie in the network");
 
@@ -139,11 +152,11 @@ public class GDSPageRankAlgorithm implements RecommendationAlgorithm {
         }
 
         reason.append(". Average rating: ");
-        reason.append(String.format("%.1f", dto.getMovieRating()));
+        reason.append(String.format("%.1f", avgRating));
         reason.append("/5.0");
 
         reason.append(". (GDS PageRank Score: ");
-        reason.append(String.format("%.2f", dto.getScore()));
+        reason.append(String.format("%.2f", score));
         reason.append(")");
 
         return reason.toString();
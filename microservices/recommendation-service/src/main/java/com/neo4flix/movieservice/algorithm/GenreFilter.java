@@ -0,0 +1,59 @@
+package com.neo4flix.movieservice.algorithm;
+
+import com.neo4flix.movieservice.dto.RecommendationRequest;
+import com.neo4flix.movieservice.repository.RecommendationRepository;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Genre filter of the in-memory algorithms, which rank movies without knowing their genres.
+ *
+ * They select more candidates than requested when the request has a genre filter, then
+ * keep those in the genres with a single findMovieIdsInGenres query, instead of reading
+ * the genres of every movie they rank.
+ */
+public final class GenreFilter {
+
+    /** Candidates selected per requested result when a genre filter has to be applied afterwards */
+    public static final int OVERFETCH = 5;
+
+    private GenreFilter() {
+    }
+
+    public static boolean applies(RecommendationRequest request) {
+        return request.getGenre() != null && !request.getGenre().isEmpty();
+    }
+
+    /**
+     * Number of candidates to select for the request.
+     */
+    public static int fetchLimit(RecommendationRequest request) {
+        return applies(request) ? request.getLimit() * OVERFETCH : request.getLimit();
+    }
+
+    /**
+     * Ids of the candidates in the request's genres, or null if the request has no genre
+     * filter and every candidate is allowed.
+     *
+     * @param count    number of candidates
+     * @param idOfRank movie id of the candidate at each rank, 0 to count - 1
+     */
+    public static Set<String> allowed(RecommendationRepository repository, RecommendationRequest request,
+                                      int count, IntFunction<String> idOfRank) {
+        if (!applies(request)) {
+            return null;
+        }
+        if (count == 0) {
+            return Set.of();
+        }
+        List<String> candidateIds = new ArrayList<>(count);
+        for (int rank = 0; rank < count; rank++) {
+            candidateIds.add(idOfRank.apply(rank));
+        }
+        return new HashSet<>(repository.findMovieIdsInGenres(candidateIds, request.getGenre()));
+    }
+}
@@ -1,18 +1,26 @@
 package com.neo4flix.movieservice.algorithm;
 
 import com.neo4flix.movieservice.dto.RecommendationRequest;
+import com.neo4flix.movieservice.engine.IdInterner;
+import com.neo4flix.movieservice.engine.ScoreMerger;
+import com.neo4flix.movieservice.engine.TopK;
 import com.neo4flix.movieservice.model.Recommendation;
+import com.neo4flix.movieservice.service.RatingMatrixService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Hybrid Recommendation Algorithm Implementation
  * Combines collaborative filtering, content-based filtering, and popularity-based recommendations
+ *
+ * The three sub-algorithms run concurrently through AlgorithmFanOut; a branch that misses
+ * its deadline is left out of the merge.
  */
 @Component
 @RequiredArgsConstructor
@@ -23,12 +31,24 @@ public class HybridRecommendationAlgorithm implements RecommendationAlgorithm {
     private final CollaborativeFilteringAlgorithm collaborativeAlgorithm;
     private final ContentBasedFilteringAlgorithm contentBasedAlgorithm;
     private final PopularityBasedAlgorithm popularityAlgorithm;
+    private final AlgorithmFanOut fanOut;
+    private final RatingMatrixService ratingMatrix;
 
     // Weights for combining different algorithms
     private static final double COLLABORATIVE_WEIGHT = 0.5;
     private static final double CONTENT_WEIGHT = 0.3;
     private static final double POPULARITY_WEIGHT = 0.2;
 
+    // Branch indexes in the score merger, and their weights in that order
+    private static final int COLLABORATIVE = 0;
+    private static final int CONTENT = 1;
+    private static final int POPULARITY = 2;
+    private static final float[] BRANCH_WEIGHTS = {
+            (float) COLLABORATIVE_WEIGHT, (float) CONTENT_WEIGHT, (float) POPULARITY_WEIGHT};
+
+    private static final float DIVERSITY_JITTER = 0.1f;
+    private static final long DIVERSITY_PERIOD_MS = 3_600_000L;
+
 
     @Override
     public String getAlgorithmName() {
@@ -47,27 +67,42 @@ public class HybridRecommendationAlgorithm implements RecommendationAlgorithm {
             RecommendationRequest contentRequest = createAlgorithmRequest(request, "content", algorithmLimit);
             RecommendationRequest popularityRequest = createAlgorithmRequest(request, "popular", algorithmLimit);
 
-            // Get recommendations from each algorithm
-            List<Recommendation> collaborativeRecs = collaborativeAlgorithm.generateRecommendations(collaborativeRequest);
-            List<Recommendation> contentRecs = contentBasedAlgorithm.generateRecommendations(contentRequest);
-            List<Recommendation> popularityRecs = popularityAlgorithm.generateRecommendations(popularityRequest);
-
-            // Combine and weight the recommendations
-            Map<String, CombinedRecommendation> combinedRecommendations = combineRecommendations(
-                    collaborativeRecs, contentRecs, popularityRecs
-            );
-
-            // Convert to final recommendations and add randomization for diversity
-            List<Recommendation> finalRecommendations = combinedRecommendations.values().stream()
-                    .map(this::createFinalRecommendation)
-                    .sorted((r1, r2) -> {
-                        // Add slight randomization to scores within 10% range to provide diversity
-                        double score1 = r1.getScore() * (0.95 + Math.random() * 0.1);
-                        double score2 = r2.getScore() * (0.95 + Math.random() * 0.1);
-                        return Double.compare(score2, score1);
-                    })
-                    .limit(request.getLimit())
-                    .collect(Collectors.toList());
+            // Get recommendations from each algorithm concurrently
+            CompletableFuture<List<Recommendation>> collaborativeFuture = fanOut.submit("Collaborative",
+                    () -> collaborativeAlgorithm.generateRecommendations(collaborativeRequest));
+            CompletableFuture<List<Recommendation>> contentFuture = fanOut.submit("Content-based",
+                    () -> contentBasedAlgorithm.generateRecommendations(contentRequest));
+            CompletableFuture<List<Recommendation>> popularityFuture = fanOut.submit("Popularity",
+                    () -> popularityAlgorithm.generateRecommendations(popularityRequest));
+
+            List<Recommendation> collaborativeRecs = collaborativeFuture.join();
+            List<Recommendation> contentRecs = contentFuture.join();
+            List<Recommendation> popularityRecs = popularityFuture.join();
+
+            // Merge by movie index, weight, and keep the best with a bounded heap
+            IdInterner movieIds = ratingMatrix.getMovieIds();
+            ScoreMerger merger = ScoreMerger.begin(BRANCH_WEIGHTS.length);
+            addBranch(merger, movieIds, COLLABORATIVE, collaborativeRecs);
+            addBranch(merger, movieIds, CONTENT, contentRecs);
+            addBranch(merger, movieIds, POPULARITY, popularityRecs);
+
+            // Slight randomization of scores within a 10% range for diversity; the seed changes
+            // hourly, so repeated requests in between return the same order
+            long seed = request.getUserId().hashCode() * 0x9E3779B97F4A7C15L
+                    + System.currentTimeMillis() / DIVERSITY_PERIOD_MS;
+            TopK top = merger.select(request.getLimit(), BRANCH_WEIGHTS, DIVERSITY_JITTER, seed);
+
+            List<Recommendation> finalRecommendations = new ArrayList<>(top.size());
+            for (int rank = 0; rank < top.size(); rank++) {
+                int movie = top.id(rank);
+                finalRecommendations.add(Recommendation.builder()
+                        .userId(request.getUserId())
+                        .score((double) top.score(rank))
+                        .movieId(movieIds.idOf(movie))
+                        .algorithm(getAlgorithmName())
+                        .reason(buildCombinedReason(merger, movie))
+                        .build());
+            }
 
             logger.info("==============================================================================");
             logger.info("Generated {} hybrid recommendations (from {} collaborative, {} content, {} popularity)",
@@ -99,80 +134,25 @@ public class HybridRecommendationAlgorithm implements RecommendationAlgorithm {
         return request;
     }
 
-    private Map<String, CombinedRecommendation> combineRecommendations(
-            List<Recommendation> collaborative,
-            List<Recommendation> content,
-            List<Recommendation> popularity) {
-
-        Map<String, CombinedRecommendation> combined = new HashMap<>();
-
-        // Add collaborative filtering recommendations
-        for (Recommendation rec : collaborative) {
-            combined.computeIfAbsent(rec.getMovieId(), k -> new CombinedRecommendation(rec.getUserId(), rec.getMovieId()))
-                    .addCollaborativeScore(rec.getScore(), rec.getReason());
-        }
-
-        // Add content-based recommendations
-        for (Recommendation rec : content) {
-            combined.computeIfAbsent(rec.getMovieId(), k -> new CombinedRecommendation(rec.getUserId(), rec.getMovieId()))
-                    .addContentScore(rec.getScore(), rec.getReason());
-        }
-
-        // Add popularity-based recommendations
-        for (Recommendation rec : popularity) {
-            combined.computeIfAbsent(rec.getMovieId(), k -> new CombinedRecommendation(rec.getUserId(), rec.getMovieId()))
-                    .addPopularityScore(rec.getScore(), rec.getReason());
-        }
-
-        return combined;
-    }
-
-    private Recommendation createFinalRecommendation(CombinedRecommendation combined) {
-        double finalScore = calculateWeightedScore(combined);
-        String reason = buildCombinedReason(combined);
-
-        return Recommendation.builder()
-                .userId(combined.getUserId())
-                .score(finalScore)
-                .movieId(combined.getMovieId())
-                .algorithm(getAlgorithmName())
-                .reason(reason)
-                .build();
-    }
-
-    private double calculateWeightedScore(CombinedRecommendation combined) {
-        double score = 0.0;
-        double totalWeight = 0.0;
-
-        if (combined.getCollaborativeScore() > 0) {
-            score += combined.getCollaborativeScore() * COLLABORATIVE_WEIGHT;
-            totalWeight += COLLABORATIVE_WEIGHT;
+    private static void addBranch(ScoreMerger merger, IdInterner movieIds, int branch,
+                                  List<Recommendation> recommendations) {
+        for (Recommendation rec : recommendations) {
+            if (rec.getMovieId() != null && rec.getScore() != null) {
+                merger.add(branch, movieIds.intern(rec.getMovieId()), rec.getScore().floatValue());
+            }
         }
-
-        if (combined.getContentScore() > 0) {
-            score += combined.getContentScore() * CONTENT_WEIGHT;
-            totalWeight += CONTENT_WEIGHT;
-        }
-
-        if (combined.getPopularityScore() > 0) {
-            score += combined.getPopularityScore() * POPULARITY_WEIGHT;
-            totalWeight += POPULARITY_WEIGHT;
-        }
-
-        // Normalize by actual total weight (in case not all algorithms contributed)
-        return totalWeight > 0 ? score / totalWeight : 0.0;
     }
 
-    private String buildCombinedReason(CombinedRecommendation combined) {
+    private String buildCombinedReason(ScoreMerger merger, int movie) {
         List<String> reasons = new ArrayList<>();
 
-        if (combined.getCollaborativeReason() != null) {
+        if (merger.branchScore(movie, COLLABORATIVE) > 0) {
             reasons.add("Similar users liked this");
         }
-        if (combined.getContentReason() != null) {
+        if (merger.branchScore(movie, CONTENT) > 0) {
             reasons.add("Matches your preferences");
         }
-        if (combined.getPopularityReason() != null) {
+        if (merger.branchScore(movie, POPULARITY) > 0) {
             reasons.add("Highly rated by many users");
         }
 
@@ -201,48 +181,4 @@ public class HybridRecommendationAlgorithm implements RecommendationAlgorithm {
     public boolean isApplicable(RecommendationRequest request) {
         return "hybrid".equals(request.getAlgorithm());
     }
-
-    /**
-     * Helper class to combine recommendations from different algorithms
-     */
-    private static class CombinedRecommendation {
-        private final String userId;
-        private final String movieId;
-        private double collaborativeScore = 0.0;
-        private double contentScore = 0.0;
-        private double popularityScore = 0.0;
-        private String collaborativeReason;
-        private String contentReason;
-        private String popularityReason;
-
-        public CombinedRecommendation(String userId, String movieId) {
-            this.userId = userId;
-            this.movieId = movieId;
-        }
-
-        public void addCollaborativeScore(double score, String reason) {
-            this.collaborativeScore = score;
-            this.collaborativeReason = reason;
-        }
-
-        public void addContentScore(double score, String reason) {
-            this.contentScore = score;
-            this.contentReason = reason;
-        }
-
-        public void addPopularityScore(double score, String reason) {
-            this.popularityScore = score;
-            this.popularityReason = reason;
-        }
-
-        // Getters
-        public String getUserId() { return userId; }
-        public String getMovieId() { return movieId; }
-        public double getCollaborativeScore() { return collaborativeScore; }
-        public double getContentScore() { return contentScore; }
-        public double getPopularityScore() { return popularityScore; }
-        public String getCollaborativeReason() { return collaborativeReason; }
-        public String getContentReason() { return contentReason; }
-        public String getPopularityReason() { return popularityReason; }
-    }
-}
\ No newline at end of file
+}
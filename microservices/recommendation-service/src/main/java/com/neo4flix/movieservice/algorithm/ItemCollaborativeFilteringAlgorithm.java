@@ -0,0 +1,131 @@
+package com.neo4flix.movieservice.algorithm;
+
+import com.neo4flix.movieservice.dto.RecommendationRequest;
+import com.neo4flix.movieservice.engine.IdInterner;
+import com.neo4flix.movieservice.engine.ItemNeighbourIndex;
+import com.neo4flix.movieservice.engine.SparseRatingMatrix;
+import com.neo4flix.movieservice.engine.TopK;
+import com.neo4flix.movieservice.model.Recommendation;
+import com.neo4flix.movieservice.repository.RecommendationRepository;
+import com.neo4flix.movieservice.service.ItemNeighbourService;
+import com.neo4flix.movieservice.service.RatingMatrixService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Item-based Collaborative Filtering Algorithm.
+ * "Viewers who liked the movies you rated also liked these."
+ *
+ * Each movie's top-K most similar movies (adjusted cosine) are precomputed by
+ * ItemNeighbourService. A request aggregates the neighbour lists of the movies the
+ * user has rated, weighted by how far each rating is from the user's mean, so no
+ * database query is needed unless a genre filter has to be applied.
+ */
+@Component
+@RequiredArgsConstructor
+public class ItemCollaborativeFilteringAlgorithm implements RecommendationAlgorithm {
+
+    private static final Logger logger = LoggerFactory.getLogger(ItemCollaborativeFilteringAlgorithm.class);
+
+    private final ItemNeighbourService itemNeighbours;
+    private final RatingMatrixService ratingMatrix;
+    private final RecommendationRepository recommendationRepository;
+
+    @Override
+    public String getAlgorithmName() {
+        return "item-collaborative";
+    }
+
+    @Override
+    public List<Recommendation> generateRecommendations(RecommendationRequest request) {
+        logger.info("Generating item-based collaborative recommendations for user: {}", request.getUserId());
+
+        try {
+            ItemNeighbourIndex index = itemNeighbours.getIndex();
+            SparseRatingMatrix matrix = ratingMatrix.getMatrix();
+            IdInterner movieIds = ratingMatrix.getMovieIds();
+            int user = ratingMatrix.getUserIds().indexOf(request.getUserId());
+            if (index == null || user < 0) {
+                logger.info("Item neighbour index not ready or no ratings for user {}", request.getUserId());
+                return new ArrayList<>();
+            }
+
+            int fetchLimit = GenreFilter.fetchLimit(request);
+            TopK top = index.recommend(matrix, user, fetchLimit, null);
+
+            Set<String> allowed = GenreFilter.allowed(recommendationRepository, request, top.size(),
+                    rank -> movieIds.idOf(top.id(rank)));
+
+            double minRating = request.getMinRating() != null ? request.getMinRating() : 0.0;
+            List<Recommendation> recommendations = new ArrayList<>();
+            for (int rank = 0; rank < top.size() && recommendations.size() < request.getLimit(); rank++) {
+                String movieId = movieIds.idOf(top.id(rank));
+                float predicted = top.score(rank);
+                if (predicted < minRating || (allowed != null && !allowed.contains(movieId))) {
+                    continue;
+                }
+
+                recommendations.add(Recommendation.builder()
+                        .userId(request.getUserId())
+                        .score((double) predicted)
+                        .movieId(movieId)
+                        .algorithm(getAlgorithmName())
+                        .reason(String.format("Similar to movies you rated - predicted rating %.1f/5", predicted))
+                        .build());
+            }
+
+            logger.info("Generated {} item-based collaborative recommendations", recommendations.size());
+            return recommendations;
+
+        } catch (Exception e) {
+            logger.error("Error generating item-based collaborative recommendations for user {}: {}",
+                    request.getUserId(), e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public double calculateScore(String userId, String movieId) {
+        try {
+            ItemNeighbourIndex index = itemNeighbours.getIndex();
+            int user = ratingMatrix.getUserIds().indexOf(userId);
+            int movie = ratingMatrix.getMovieIds().indexOf(movieId);
+            if (index == null || user < 0 || movie < 0) {
+                return 0.0;
+            }
+
+            SparseRatingMatrix matrix = ratingMatrix.getMatrix();
+            float userMean = matrix.meanRatingOfUser(user);
+            double numerator = 0.0;
+            double denominator = 0.0;
+            // Neighbour lists are stored per rated movie, so look for the target in each of them
+            for (int i = matrix.rowStart(user); i < matrix.rowEnd(user); i++) {
+                int rated = matrix.rowMovie(i);
+                for (int n = 0; n < index.neighbourCount(rated); n++) {
+                    if (index.neighbour(rated, n) == movie) {
+                        numerator += index.similarity(rated, n) * (matrix.rowRating(i) - userMean);
+                        denominator += Math.abs(index.similarity(rated, n));
+                        break;
+                    }
+                }
+            }
+            return denominator > 0 ? userMean + numerator / denominator : 0.0;
+        } catch (Exception e) {
+            logger.error("Error calculating item-based score: {}", e.getMessage());
+            return 0.0;
+        }
+    }
+
+    @Override
+    public boolean isApplicable(RecommendationRequest request) {
+        int user = ratingMatrix.getUserIds().indexOf(request.getUserId());
+        return itemNeighbours.getIndex() != null && user >= 0
+                && ratingMatrix.getMatrix().ratingCountOfUser(user) > 0;
+    }
+}
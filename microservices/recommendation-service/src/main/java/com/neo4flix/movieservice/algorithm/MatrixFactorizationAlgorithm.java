@@ -0,0 +1,116 @@
+package com.neo4flix.movieservice.algorithm;
+
+import com.neo4flix.movieservice.dto.RecommendationRequest;
+import com.neo4flix.movieservice.engine.IdInterner;
+import com.neo4flix.movieservice.engine.MatrixFactorization;
+import com.neo4flix.movieservice.engine.SparseRatingMatrix;
+import com.neo4flix.movieservice.engine.TopK;
+import com.neo4flix.movieservice.model.Recommendation;
+import com.neo4flix.movieservice.repository.RecommendationRepository;
+import com.neo4flix.movieservice.service.MatrixFactorizationService;
+import com.neo4flix.movieservice.service.RatingMatrixService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Matrix Factorization (ALS) Recommendation Algorithm.
+ * Learns latent user and movie factors from all ratings and recommends the movies
+ * with the highest predicted rating.
+ *
+ * The model is trained offline by MatrixFactorizationService. Serving folds the user's
+ * current ratings into the model and scores every movie with one dot product, so the
+ * cost depends on the catalogue size and factor rank, not on the size of the graph.
+ */
+@Component
+@RequiredArgsConstructor
+public class MatrixFactorizationAlgorithm implements RecommendationAlgorithm {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixFactorizationAlgorithm.class);
+
+    private final MatrixFactorizationService mfService;
+    private final RatingMatrixService ratingMatrix;
+    private final RecommendationRepository recommendationRepository;
+
+    @Override
+    public String getAlgorithmName() {
+        return "mf";
+    }
+
+    @Override
+    public List<Recommendation> generateRecommendations(RecommendationRequest request) {
+        logger.info("Generating matrix factorization recommendations for user: {}", request.getUserId());
+
+        try {
+            MatrixFactorization model = mfService.getModel();
+            SparseRatingMatrix matrix = ratingMatrix.getMatrix();
+            IdInterner movieIds = ratingMatrix.getMovieIds();
+            int user = ratingMatrix.getUserIds().indexOf(request.getUserId());
+            if (model == null || user < 0) {
+                logger.info("Matrix factorization model not ready or no ratings for user {}", request.getUserId());
+                return new ArrayList<>();
+            }
+
+            int fetchLimit = GenreFilter.fetchLimit(request);
+            TopK top = model.recommend(matrix, user, fetchLimit, null);
+
+            Set<String> allowed = GenreFilter.allowed(recommendationRepository, request, top.size(),
+                    rank -> movieIds.idOf(top.id(rank)));
+
+            double minRating = request.getMinRating() != null ? request.getMinRating() : 0.0;
+            List<Recommendation> recommendations = new ArrayList<>();
+            for (int rank = 0; rank < top.size() && recommendations.size() < request.getLimit(); rank++) {
+                String movieId = movieIds.idOf(top.id(rank));
+                float predicted = top.score(rank);
+                if (predicted < minRating || (allowed != null && !allowed.contains(movieId))) {
+                    continue;
+                }
+
+                recommendations.add(Recommendation.builder()
+                        .userId(request.getUserId())
+                        .score((double) predicted)
+                        .movieId(movieId)
+                        .algorithm(getAlgorithmName())
+                        .reason(String.format("Matches your taste profile - predicted rating %.1f/5", predicted))
+                        .build());
+            }
+
+            logger.info("Generated {} matrix factorization recommendations", recommendations.size());
+            return recommendations;
+
+        } catch (Exception e) {
+            logger.error("Error generating matrix factorization recommendations for user {}: {}",
+                    request.getUserId(), e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public double calculateScore(String userId, String movieId) {
+        try {
+            MatrixFactorization model = mfService.getModel();
+            int user = ratingMatrix.getUserIds().indexOf(userId);
+            int movie = ratingMatrix.getMovieIds().indexOf(movieId);
+            if (model == null || user < 0 || movie < 0) {
+                return 0.0;
+            }
+            float predicted = model.predict(ratingMatrix.getMatrix(), user, movie);
+            return Float.isNaN(predicted) ? 0.0 : predicted;
+        } catch (Exception e) {
+            logger.error("Error calculating matrix factorization score: {}", e.getMessage());
+            return 0.0;
+        }
+    }
+
+    @Override
+    public boolean isApplicable(RecommendationRequest request) {
+        int user = ratingMatrix.getUserIds().indexOf(request.getUserId());
+        return mfService.getModel() != null && user >= 0
+                && ratingMatrix.getMatrix().ratingCountOfUser(user) > 0;
+    }
+}
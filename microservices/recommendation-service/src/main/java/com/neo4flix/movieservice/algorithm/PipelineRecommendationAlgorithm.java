@@ -0,0 +1,58 @@
+package com.neo4flix.movieservice.algorithm;
+
+import com.neo4flix.movieservice.dto.RecommendationRequest;
+import com.neo4flix.movieservice.model.Recommendation;
+import com.neo4flix.movieservice.pipeline.RecommendationPipeline;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Candidate generation and re-ranking through RecommendationPipeline.
+ * Genre neighbours, similar users, the item index and popularity each propose a bounded
+ * number of candidates, which are then scored together on normalized features.
+ */
+@Component
+@RequiredArgsConstructor
+public class PipelineRecommendationAlgorithm implements RecommendationAlgorithm {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineRecommendationAlgorithm.class);
+
+    private final RecommendationPipeline pipeline;
+
+    @Override
+    public String getAlgorithmName() {
+        return "pipeline";
+    }
+
+    @Override
+    public List<Recommendation> generateRecommendations(RecommendationRequest request) {
+        logger.info("Generating pipeline recommendations for user: {}", request.getUserId());
+
+        try {
+            List<Recommendation> recommendations = pipeline.recommend(request, getAlgorithmName());
+            logger.info("Generated {} pipeline recommendations", recommendations.size());
+            return recommendations;
+
+        } catch (Exception e) {
+            logger.error("Error generating pipeline recommendations for user {}: {}",
+                    request.getUserId(), e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public double calculateScore(String userId, String movieId) {
+        // Scores are relative to the other candidates of the same user, so a single movie has none
+        return 0.0;
+    }
+
+    @Override
+    public boolean isApplicable(RecommendationRequest request) {
+        return pipeline.isApplicable(request.getUserId());
+    }
+}
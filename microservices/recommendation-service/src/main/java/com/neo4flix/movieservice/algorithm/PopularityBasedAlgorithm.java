@@ -2,8 +2,12 @@ package com.neo4flix.movieservice.algorithm;
 
 import com.neo4flix.movieservice.dto.MovieRecommendationDTO;
 import com.neo4flix.movieservice.dto.RecommendationRequest;
+import com.neo4flix.movieservice.engine.RankedList;
+import com.neo4flix.movieservice.engine.SparseRatingMatrix;
 import com.neo4flix.movieservice.model.Recommendation;
 import com.neo4flix.movieservice.repository.RecommendationRepository;
+import com.neo4flix.movieservice.service.PopularityLeaderboard;
+import com.neo4flix.movieservice.service.RatingMatrixService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,12 +15,16 @@ import org.springframework.data.neo4j.core.Neo4jClient;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 /**
  * Popularity-Based Algorithm Implementation
  * Recommends movies based on overall popularity and ratings
  * Can optionally filter by genres
+ *
+ * Served from the in-memory PopularityLeaderboard once it and the rating matrix are
+ * loaded, falling back to the database queries before that.
  */
 @Component
 @RequiredArgsConstructor
@@ -26,6 +34,8 @@ public class PopularityBasedAlgorithm implements RecommendationAlgorithm {
 
     private final RecommendationRepository recommendationRepository;
     private final Neo4jClient neo4jClient;
+    private final PopularityLeaderboard leaderboard;
+    private final RatingMatrixService ratingMatrixService;
 
     @Override
     public String getAlgorithmName() {
@@ -39,6 +49,12 @@ public class PopularityBasedAlgorithm implements RecommendationAlgorithm {
         try {
 
             boolean hasGenreFilter = request.getGenre() != null && !request.getGenre().isEmpty();
+            List<Recommendation> ranked = generateFromLeaderboard(request, hasGenreFilter);
+            if (ranked != null) {
+                logger.info("Generated {} popularity-based recommendations from the leaderboard", ranked.size());
+                return ranked;
+            }
+
             List<MovieRecommendationDTO> rawRecommendations;
 
             if (hasGenreFilter) {
@@ -63,7 +79,7 @@ public class PopularityBasedAlgorithm implements RecommendationAlgorithm {
             List<Recommendation> recommendations = new ArrayList<>();
 
             for (MovieRecommendationDTO row : rawRecommendations) {
-                String reason = buildReasonMessage(row, hasGenreFilter, request.getGenre());
+                String reason = buildReasonMessage(row.getMovieRating(), hasGenreFilter, request.getGenre());
 
                 Recommendation recommendation = Recommendation.builder()
                         .userId(request.getUserId())
@@ -86,12 +102,84 @@ public class PopularityBasedAlgorithm implements RecommendationAlgorithm {
         }
     }
 
+    /**
+     * One pass over the precomputed ranking(s), skipping the movies the user has rated and
+     * those below the rating thresholds. Genre lists are merged by score, without duplicates.
+     * Returns null when the leaderboard cannot answer, so that the caller queries instead.
+     */
+    private List<Recommendation> generateFromLeaderboard(RecommendationRequest request, boolean hasGenreFilter) {
+        PopularityLeaderboard.Snapshot snapshot = leaderboard.getSnapshot();
+        if (snapshot == null || !ratingMatrixService.isLoaded()) {
+            return null;
+        }
+
+        List<RankedList> lists = new ArrayList<>();
+        if (hasGenreFilter) {
+            for (String genre : request.getGenre()) {
+                lists.add(snapshot.getPopularInGenre(genre));
+            }
+        } else {
+            lists.add(snapshot.getPopular());
+        }
+
+        SparseRatingMatrix matrix = ratingMatrixService.getMatrix();
+        int user = ratingMatrixService.getUserIds().indexOf(request.getUserId());
+        double minRating = request.getSafeMinRating();
+        // Same thresholds as the queries, which take the minimum average as a minimum rating count
+        double minRatingCount = request.getSafeMinAverageMovieRating();
+        int limit = request.getLimit() != null ? request.getLimit() : 10;
+
+        List<Recommendation> recommendations = new ArrayList<>();
+        BitSet seen = new BitSet();
+        int[] positions = new int[lists.size()];
+        while (recommendations.size() < limit) {
+            // Next highest score across the lists
+            int best = -1;
+            for (int i = 0; i < lists.size(); i++) {
+                if (positions[i] < lists.get(i).size()
+                        && (best < 0 || lists.get(i).score(positions[i]) > lists.get(best).score(positions[best]))) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            RankedList list = lists.get(best);
+            int movie = list.id(positions[best]);
+            float score = list.score(positions[best]++);
+
+            if (seen.get(movie)) {
+                continue;
+            }
+            seen.set(movie);
+            float average = snapshot.averageRating(movie);
+            if ((user >= 0 && matrix.hasRated(user, movie))
+                    || average < minRating || snapshot.ratingCount(movie) < minRatingCount) {
+                continue;
+            }
+
+            recommendations.add(Recommendation.builder()
+                    .userId(request.getUserId())
+                    .score((double) score)
+                    .movieId(leaderboard.getMovieIds().idOf(movie))
+                    .algorithm(getAlgorithmName())
+                    .reason(buildReasonMessage((double) average, hasGenreFilter, request.getGenre()))
+                    .build());
+        }
+
+        if (recommendations.size() < limit && lists.stream().anyMatch(snapshot::isTruncated)) {
+            // Everything kept was filtered out; the rest of the ranking only exists in the database
+            return null;
+        }
+        return recommendations;
+    }
+
     /**
      * Build a descriptive reason message for the recommendation
      */
-    private String buildReasonMessage(MovieRecommendationDTO row, boolean hasGenreFilter, List<String> genres) {
+    private String buildReasonMessage(Double movieRating, boolean hasGenreFilter, List<String> genres) {
         StringBuilder reason = new StringBuilder();
-        reason.append(String.format("Popular movie with %.1f/5 rating from many users", row.getMovieRating()));
+        reason.append(String.format("Popular movie with %.1f/5 rating from many users", movieRating));
 
         if (hasGenreFilter && genres != null && !genres.isEmpty()) {
             reason.append(" in ");
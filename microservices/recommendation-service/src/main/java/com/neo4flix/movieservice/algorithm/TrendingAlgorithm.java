@@ -0,0 +1,118 @@
+package com.neo4flix.movieservice.algorithm;
+
+import com.neo4flix.movieservice.dto.RecommendationRequest;
+import com.neo4flix.movieservice.engine.RankedList;
+import com.neo4flix.movieservice.engine.SparseRatingMatrix;
+import com.neo4flix.movieservice.model.Recommendation;
+import com.neo4flix.movieservice.repository.RecommendationRepository;
+import com.neo4flix.movieservice.service.PopularityLeaderboard;
+import com.neo4flix.movieservice.service.RatingMatrixService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Trending Algorithm.
+ * Recommends the movies that received the most new ratings recently, each rating
+ * counting less the older it is (see PopularityLeaderboard).
+ *
+ * The ranking is the same for every user and kept in memory, so a request only skips
+ * the movies its user has rated. Not applicable until the leaderboard is loaded, in
+ * which case the generator falls back to popular.
+ */
+@Component
+@RequiredArgsConstructor
+public class TrendingAlgorithm implements RecommendationAlgorithm {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrendingAlgorithm.class);
+
+    private final PopularityLeaderboard leaderboard;
+    private final RatingMatrixService ratingMatrix;
+    private final RecommendationRepository recommendationRepository;
+
+    @Override
+    public String getAlgorithmName() {
+        return "trending";
+    }
+
+    @Override
+    public List<Recommendation> generateRecommendations(RecommendationRequest request) {
+        logger.info("Generating trending recommendations for user: {}", request.getUserId());
+
+        try {
+            PopularityLeaderboard.Snapshot snapshot = leaderboard.getSnapshot();
+            if (snapshot == null) {
+                return new ArrayList<>();
+            }
+            RankedList trending = snapshot.getTrending();
+            SparseRatingMatrix matrix = ratingMatrix.getMatrix();
+            int user = ratingMatrix.getUserIds().indexOf(request.getUserId());
+
+            int fetchLimit = GenreFilter.fetchLimit(request);
+            List<Integer> candidates = new ArrayList<>();
+            for (int rank = 0; rank < trending.size() && candidates.size() < fetchLimit; rank++) {
+                if (user < 0 || !matrix.hasRated(user, trending.id(rank))) {
+                    candidates.add(rank);
+                }
+            }
+
+            Set<String> allowed = GenreFilter.allowed(recommendationRepository, request, candidates.size(),
+                    rank -> leaderboard.getMovieIds().idOf(trending.id(candidates.get(rank))));
+
+            double minRating = request.getMinRating() != null ? request.getMinRating() : 0.0;
+            List<Recommendation> recommendations = new ArrayList<>();
+            for (int i = 0; i < candidates.size() && recommendations.size() < request.getLimit(); i++) {
+                int movie = trending.id(candidates.get(i));
+                String movieId = leaderboard.getMovieIds().idOf(movie);
+                float average = snapshot.averageRating(movie);
+                if (average < minRating || (allowed != null && !allowed.contains(movieId))) {
+                    continue;
+                }
+
+                recommendations.add(Recommendation.builder()
+                        .userId(request.getUserId())
+                        .score((double) trending.score(candidates.get(i)))
+                        .movieId(movieId)
+                        .algorithm(getAlgorithmName())
+                        .reason(String.format("Trending now - rated %.1f/5 by %d users",
+                                average, snapshot.ratingCount(movie)))
+                        .build());
+            }
+
+            logger.info("Generated {} trending recommendations", recommendations.size());
+            return recommendations;
+
+        } catch (Exception e) {
+            logger.error("Error generating trending recommendations for user {}: {}",
+                    request.getUserId(), e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public double calculateScore(String userId, String movieId) {
+        PopularityLeaderboard.Snapshot snapshot = leaderboard.getSnapshot();
+        int movie = leaderboard.getMovieIds().indexOf(movieId);
+        if (snapshot == null || movie < 0) {
+            return 0.0;
+        }
+        RankedList trending = snapshot.getTrending();
+        for (int rank = 0; rank < trending.size(); rank++) {
+            if (trending.id(rank) == movie) {
+                return trending.score(rank);
+            }
+        }
+        return 0.0;
+    }
+
+    @Override
+    public boolean isApplicable(RecommendationRequest request) {
+        PopularityLeaderboard.Snapshot snapshot = leaderboard.getSnapshot();
+        return snapshot != null && snapshot.getTrending().size() > 0 && ratingMatrix.isLoaded();
+    }
+}
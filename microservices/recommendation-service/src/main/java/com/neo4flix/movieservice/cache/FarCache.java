@@ -0,0 +1,44 @@
+package com.neo4flix.movieservice.cache;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Shared (far) tier of TwoTierCache: a byte store visible to every replica, plus a
+ * broadcast channel for invalidations.
+ *
+ * Entries are grouped by cache and scope (a user id, or "global" for entries that belong
+ * to no user) so that all of a user's entries can be dropped with one call.
+ *
+ * Implementations never throw: when the store is unreachable, reads are misses and writes
+ * and broadcasts are dropped, so requests fall back to the local tier and the database.
+ */
+public interface FarCache {
+
+    String GLOBAL_SCOPE = "global";
+
+    byte[] get(String cache, String scope, String key);
+
+    void put(String cache, String scope, String key, byte[] value, Duration ttl);
+
+    void evict(String cache, String scope, String key);
+
+    void evictScope(String cache, String scope);
+
+    /**
+     * Time (epoch millis) before which every entry of the cache counts as cleared, 0 if never cleared.
+     */
+    long clearedAt(String cache);
+
+    void markCleared(String cache, long clearedAt);
+
+    /**
+     * Send a message to the listeners of every other replica.
+     */
+    void publish(String message);
+
+    /**
+     * Receive the messages published by other replicas.
+     */
+    void subscribe(Consumer<String> listener);
+}
@@ -0,0 +1,215 @@
+package com.neo4flix.movieservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.neo4flix.movieservice.config.UserScopedKeyGenerator;
+import com.neo4flix.movieservice.dto.RecommendationResponse;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.data.domain.Page;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caffeine cache whose keys are indexed by user, by the movies in their value and by
+ * their string form, so that the entries of a user or containing a movie are evicted
+ * by looking them up rather than by scanning the whole cache.
+ *
+ * The index is updated on every write and, through Caffeine's eviction listener, when
+ * entries expire or are pushed out by size. A value replaced under the same key may
+ * leave its old movies pointing at the key, which at worst evicts that entry early.
+ */
+public class IndexedCaffeineCache extends CaffeineCache {
+
+    private final Index index;
+
+    private IndexedCaffeineCache(String name, Cache<Object, Object> cache, Index index) {
+        super(name, cache);
+        this.index = index;
+    }
+
+    /**
+     * Build the Caffeine cache from the builder, with the index listening to its evictions.
+     */
+    public static IndexedCaffeineCache build(String name, Caffeine<Object, Object> builder) {
+        Index index = new Index();
+        Cache<Object, Object> cache = builder
+                .evictionListener((Object key, Object value, RemovalCause cause) -> index.removed(key, value))
+                .build();
+        return new IndexedCaffeineCache(name, cache, index);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        T value = super.get(key, () -> {
+            T loaded = valueLoader.call();
+            index.added(key, loaded);
+            return loaded;
+        });
+        // Again, in case a concurrent clear dropped the index entry while loading
+        index.added(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        super.put(key, value);
+        index.added(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = super.putIfAbsent(key, value);
+        if (existing == null) {
+            index.added(key, value);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remove(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return remove(key);
+    }
+
+    @Override
+    public void clear() {
+        index.clear();
+        super.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        index.clear();
+        return super.invalidate();
+    }
+
+    /**
+     * Drop every entry of the given users; returns the number of entries dropped.
+     */
+    public int evictUsers(Collection<String> userIds) {
+        int evicted = 0;
+        for (String userId : userIds) {
+            evicted += removeAll(index.keysByUser.remove(userId));
+        }
+        return evicted;
+    }
+
+    /**
+     * Drop every entry whose value contains the movie; returns the number of entries dropped.
+     */
+    public int evictMovie(String movieId) {
+        return removeAll(index.keysByMovie.remove(movieId));
+    }
+
+    /**
+     * Drop the entries whose key has the given string form, e.g. named by another replica.
+     */
+    public int evictNamed(String name) {
+        return removeAll(index.keysByName.remove(name));
+    }
+
+    private int removeAll(Set<Object> keys) {
+        if (keys == null) {
+            return 0;
+        }
+        int removed = 0;
+        for (Object key : keys) {
+            if (remove(key)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private boolean remove(Object key) {
+        Object value = getNativeCache().asMap().remove(key);
+        if (value == null) {
+            return false;
+        }
+        index.removed(key, value);
+        return true;
+    }
+
+    /**
+     * Keys by user, by movie and by string form.
+     */
+    private static final class Index {
+
+        private final Map<String, Set<Object>> keysByUser = new ConcurrentHashMap<>();
+        private final Map<String, Set<Object>> keysByMovie = new ConcurrentHashMap<>();
+        private final Map<String, Set<Object>> keysByName = new ConcurrentHashMap<>();
+
+        void added(Object key, Object value) {
+            add(keysByName, key.toString(), key);
+            String userId = userOf(key);
+            if (userId != null) {
+                add(keysByUser, userId, key);
+            }
+            for (String movieId : moviesOf(value)) {
+                add(keysByMovie, movieId, key);
+            }
+        }
+
+        void removed(Object key, Object value) {
+            if (key == null) {
+                return;
+            }
+            remove(keysByName, key.toString(), key);
+            String userId = userOf(key);
+            if (userId != null) {
+                remove(keysByUser, userId, key);
+            }
+            for (String movieId : moviesOf(value)) {
+                remove(keysByMovie, movieId, key);
+            }
+        }
+
+        void clear() {
+            keysByUser.clear();
+            keysByMovie.clear();
+            keysByName.clear();
+        }
+
+        private static void add(Map<String, Set<Object>> index, String id, Object key) {
+            index.compute(id, (ignored, keys) -> {
+                Set<Object> updated = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                updated.add(key);
+                return updated;
+            });
+        }
+
+        private static void remove(Map<String, Set<Object>> index, String id, Object key) {
+            index.computeIfPresent(id, (ignored, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+
+        private static String userOf(Object key) {
+            return key instanceof UserScopedKeyGenerator.UserScopedKey scoped ? scoped.getUserId() : null;
+        }
+
+        private static List<String> moviesOf(Object value) {
+            Iterable<?> results = value instanceof Page<?> page ? page.getContent()
+                    : value instanceof Collection<?> collection ? collection : List.of();
+            List<String> movieIds = new ArrayList<>();
+            for (Object result : results) {
+                if (result instanceof RecommendationResponse response && response.getMovieId() != null) {
+                    movieIds.add(response.getMovieId());
+                }
+            }
+            return movieIds;
+        }
+    }
+}
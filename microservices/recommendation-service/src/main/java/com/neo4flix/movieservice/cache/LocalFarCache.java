@@ -0,0 +1,117 @@
+package com.neo4flix.movieservice.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in for the shared cache tier, used by the test profile and by setups
+ * without Redis.
+ *
+ * Several instances created over the same Store behave like replicas sharing one Redis:
+ * they see each other's entries, and a message published by one reaches the listeners of
+ * all the others.
+ */
+public class LocalFarCache implements FarCache {
+
+    private final Store store;
+
+    public LocalFarCache() {
+        this(new Store());
+    }
+
+    public LocalFarCache(Store store) {
+        this.store = store;
+    }
+
+    @Override
+    public byte[] get(String cache, String scope, String key) {
+        Entry entry = store.scopes.getOrDefault(scopeKey(cache, scope), Map.of()).get(key);
+        if (entry == null || entry.expiresAt < System.currentTimeMillis()) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public void put(String cache, String scope, String key, byte[] value, Duration ttl) {
+        store.scopes.computeIfAbsent(scopeKey(cache, scope), k -> new ConcurrentHashMap<>())
+                .put(key, new Entry(value, System.currentTimeMillis() + ttl.toMillis()));
+    }
+
+    @Override
+    public void evict(String cache, String scope, String key) {
+        Map<String, Entry> entries = store.scopes.get(scopeKey(cache, scope));
+        if (entries != null) {
+            entries.remove(key);
+        }
+    }
+
+    @Override
+    public void evictScope(String cache, String scope) {
+        store.scopes.remove(scopeKey(cache, scope));
+    }
+
+    @Override
+    public long clearedAt(String cache) {
+        return store.clearedAt.getOrDefault(cache, 0L);
+    }
+
+    @Override
+    public void markCleared(String cache, long clearedAt) {
+        store.clearedAt.merge(cache, clearedAt, Math::max);
+    }
+
+    @Override
+    public void publish(String message) {
+        for (Subscription subscription : store.subscriptions) {
+            if (subscription.owner != this) {
+                subscription.listener.accept(message);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        store.subscriptions.add(new Subscription(this, listener));
+    }
+
+    private static String scopeKey(String cache, String scope) {
+        return cache + '|' + scope;
+    }
+
+    /**
+     * Entries and subscribers shared by the LocalFarCache instances created over it.
+     */
+    public static final class Store {
+
+        private final Map<String, Map<String, Entry>> scopes = new ConcurrentHashMap<>();
+        private final Map<String, Long> clearedAt = new ConcurrentHashMap<>();
+        private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    }
+
+    private static final class Entry {
+
+        private final byte[] value;
+        private final long expiresAt;
+
+        Entry(byte[] value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Subscription {
+
+        private final LocalFarCache owner;
+        private final Consumer<String> listener;
+
+        Subscription(LocalFarCache owner, Consumer<String> listener) {
+            this.owner = owner;
+            this.listener = listener;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.neo4flix.movieservice.cache;
+
+import com.neo4flix.movieservice.dto.RecommendationResponse;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compact binary encoding of cached recommendation results for the shared cache tier:
+ * lists and pages of RecommendationResponse.
+ *
+ * Each response is written as a bit mask of its non-null fields followed by those fields
+ * only, so a typical list of 20 takes a few kilobytes, several times less than JSON or
+ * Java serialization. Strings are written as their UTF-8 length and bytes, so there is
+ * no limit on their length. The first byte is a format version; data of another version
+ * is treated as a miss, so replicas running different releases never misread each other.
+ * Data that cannot be read fails with an UncheckedIOException.
+ */
+public final class RecommendationCodec {
+
+    private static final byte VERSION = 3;
+    private static final byte LIST = 1;
+    private static final byte PAGE = 2;
+
+    private static final int ID = 1;
+    private static final int MOVIE_ID = 1 << 1;
+    private static final int MOVIE_TITLE = 1 << 2;
+    private static final int MOVIE_PLOT = 1 << 3;
+    private static final int MOVIE_YEAR = 1 << 4;
+    private static final int MOVIE_RATING = 1 << 5;
+    private static final int SCORE = 1 << 6;
+    private static final int ALGORITHM = 1 << 7;
+    private static final int REASON = 1 << 8;
+    private static final int RECOMMENDED_AT = 1 << 9;
+    private static final int CLICKED = 1 << 10;
+    private static final int WATCHED = 1 << 11;
+    private static final int MOVIE_POSTER_URL = 1 << 12;
+
+    private RecommendationCodec() {
+    }
+
+    /**
+     * Encoded value, or null if the value is not a list or page of RecommendationResponse.
+     */
+    public static byte[] encode(Object value) {
+        try {
+            if (value instanceof Page<?> page && isResponses(page.getContent())) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + page.getNumberOfElements() * 128);
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(VERSION);
+                out.writeByte(PAGE);
+                writePageable(out, page.getPageable());
+                out.writeLong(page.getTotalElements());
+                writeResponses(out, page.getContent());
+                return bytes.toByteArray();
+            }
+            if (value instanceof List<?> list && isResponses(list)) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + list.size() * 128);
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(VERSION);
+                out.writeByte(LIST);
+                writeResponses(out, list);
+                return bytes.toByteArray();
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decoded value, or null if the data was written by another format version.
+     */
+    public static Object decode(byte[] data, int offset) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, offset, data.length - offset));
+            if (in.readByte() != VERSION) {
+                return null;
+            }
+            byte kind = in.readByte();
+            if (kind == PAGE) {
+                Pageable pageable = readPageable(in);
+                long total = in.readLong();
+                return new PageImpl<>(readResponses(in), pageable, total);
+            }
+            return kind == LIST ? readResponses(in) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isResponses(Collection<?> values) {
+        for (Object value : values) {
+            if (!(value instanceof RecommendationResponse)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writePageable(DataOutputStream out, Pageable pageable) throws IOException {
+        out.writeBoolean(pageable.isPaged());
+        if (!pageable.isPaged()) {
+            return;
+        }
+        out.writeInt(pageable.getPageNumber());
+        out.writeInt(pageable.getPageSize());
+        List<Sort.Order> orders = pageable.getSort().toList();
+        out.writeShort(orders.size());
+        for (Sort.Order order : orders) {
+            writeString(out, order.getProperty());
+            out.writeBoolean(order.isAscending());
+        }
+    }
+
+    private static Pageable readPageable(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return Pageable.unpaged();
+        }
+        int number = in.readInt();
+        int size = in.readInt();
+        int count = in.readShort();
+        List<Sort.Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String property = readString(in);
+            orders.add(in.readBoolean() ? Sort.Order.asc(property) : Sort.Order.desc(property));
+        }
+        return PageRequest.of(number, size, Sort.by(orders));
+    }
+
+    private static void writeResponses(DataOutputStream out, List<?> responses) throws IOException {
+        out.writeInt(responses.size());
+        for (Object value : responses) {
+            RecommendationResponse response = (RecommendationResponse) value;
+            int fields = 0;
+            fields |= response.getId() != null ? ID : 0;
+            fields |= response.getMovieId() != null ? MOVIE_ID : 0;
+            fields |= response.getMovieTitle() != null ? MOVIE_TITLE : 0;
+            fields |= response.getMoviePlot() != null ? MOVIE_PLOT : 0;
+            fields |= response.getMovieYear() != null ? MOVIE_YEAR : 0;
+            fields |= response.getMovieRating() != null ? MOVIE_RATING : 0;
+            fields |= response.getScore() != null ? SCORE : 0;
+            fields |= response.getAlgorithm() != null ? ALGORITHM : 0;
+            fields |= response.getReason() != null ? REASON : 0;
+            fields |= response.getRecommendedAt() != null ? RECOMMENDED_AT : 0;
+            fields |= response.getClicked() != null ? CLICKED : 0;
+            fields |= response.getWatched() != null ? WATCHED : 0;
+            fields |= response.getMoviePosterUrl() != null ? MOVIE_POSTER_URL : 0;
+            out.writeShort(fields);
+
+            if ((fields & ID) != 0) {
+                writeString(out, response.getId());
+            }
+            if ((fields & MOVIE_ID) != 0) {
+                writeString(out, response.getMovieId());
+            }
+            if ((fields & MOVIE_TITLE) != 0) {
+                writeString(out, response.getMovieTitle());
+            }
+            if ((fields & MOVIE_PLOT) != 0) {
+                writeString(out, response.getMoviePlot());
+            }
+            if ((fields & MOVIE_YEAR) != 0) {
+                out.writeShort(response.getMovieYear());
+            }
+            if ((fields & MOVIE_RATING) != 0) {
+                out.writeDouble(response.getMovieRating());
+            }
+            if ((fields & SCORE) != 0) {
+                out.writeDouble(response.getScore());
+            }
+            if ((fields & ALGORITHM) != 0) {
+                writeString(out, response.getAlgorithm());
+            }
+            if ((fields & REASON) != 0) {
+                writeString(out, response.getReason());
+            }
+            if ((fields & RECOMMENDED_AT) != 0) {
+                out.writeLong(response.getRecommendedAt().toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(response.getRecommendedAt().getNano());
+            }
+            if ((fields & CLICKED) != 0) {
+                out.writeBoolean(response.getClicked());
+            }
+            if ((fields & WATCHED) != 0) {
+                out.writeBoolean(response.getWatched());
+            }
+            if ((fields & MOVIE_POSTER_URL) != 0) {
+                writeString(out, response.getMoviePosterUrl());
+            }
+        }
+    }
+
+    private static List<RecommendationResponse> readResponses(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > in.available()) {
+            throw new IOException("Invalid list size " + count);
+        }
+        List<RecommendationResponse> responses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int fields = in.readShort();
+            RecommendationResponse response = new RecommendationResponse();
+            if ((fields & ID) != 0) {
+                response.setId(readString(in));
+            }
+            if ((fields & MOVIE_ID) != 0) {
+                response.setMovieId(readString(in));
+            }
+            if ((fields & MOVIE_TITLE) != 0) {
+                response.setMovieTitle(readString(in));
+            }
+            if ((fields & MOVIE_PLOT) != 0) {
+                response.setMoviePlot(readString(in));
+            }
+            if ((fields & MOVIE_YEAR) != 0) {
+                response.setMovieYear((int) in.readShort());
+            }
+            if ((fields & MOVIE_RATING) != 0) {
+                response.setMovieRating(in.readDouble());
+            }
+            if ((fields & SCORE) != 0) {
+                response.setScore(in.readDouble());
+            }
+            if ((fields & ALGORITHM) != 0) {
+                response.setAlgorithm(readString(in));
+            }
+            if ((fields & REASON) != 0) {
+                response.setReason(readString(in));
+            }
+            if ((fields & RECOMMENDED_AT) != 0) {
+                response.setRecommendedAt(LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC));
+            }
+            if ((fields & CLICKED) != 0) {
+                response.setClicked(in.readBoolean());
+            }
+            if ((fields & WATCHED) != 0) {
+                response.setWatched(in.readBoolean());
+            }
+            if ((fields & MOVIE_POSTER_URL) != 0) {
+                response.setMoviePosterUrl(readString(in));
+            }
+            responses.add(response);
+        }
+        return responses;
+    }
+}
@@ -0,0 +1,137 @@
+package com.neo4flix.movieservice.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Shared cache tier in Redis.
+ *
+ * Each (cache, scope) is one Redis hash, {@code neo4flix:rec:<cache>:<scope>}, whose fields
+ * are the cache keys, so a user's entries are dropped with a single DEL. The hash expires
+ * as a whole, its expiry pushed back on every write; TwoTierCache checks the write time
+ * stored in each value to expire individual entries. Invalidations are broadcast on one
+ * pub/sub channel, tagged with this replica's id so that it ignores its own messages.
+ *
+ * After a Redis error the tier is skipped for the retry interval instead of making every
+ * request wait for a timeout.
+ */
+public class RedisFarCache implements FarCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisFarCache.class);
+
+    private static final String KEY_PREFIX = "neo4flix:rec:";
+    private static final String CHANNEL = KEY_PREFIX + "invalidations";
+    private static final char ORIGIN_SEPARATOR = '\t';
+
+    private final RedisTemplate<String, byte[]> bytesTemplate;
+    private final HashOperations<String, String, byte[]> hashes;
+    private final StringRedisTemplate stringTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final long retryAfterMs;
+    private final String origin = UUID.randomUUID().toString();
+
+    private volatile long unavailableUntil;
+
+    public RedisFarCache(RedisTemplate<String, byte[]> bytesTemplate,
+                         StringRedisTemplate stringTemplate,
+                         RedisMessageListenerContainer listenerContainer,
+                         long retryAfterMs) {
+        this.bytesTemplate = bytesTemplate;
+        this.hashes = bytesTemplate.opsForHash();
+        this.stringTemplate = stringTemplate;
+        this.listenerContainer = listenerContainer;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    @Override
+    public byte[] get(String cache, String scope, String key) {
+        return call(() -> hashes.get(scopeKey(cache, scope), key), null);
+    }
+
+    @Override
+    public void put(String cache, String scope, String key, byte[] value, Duration ttl) {
+        String scopeKey = scopeKey(cache, scope);
+        call(() -> {
+            hashes.put(scopeKey, key, value);
+            return bytesTemplate.expire(scopeKey, ttl);
+        }, null);
+    }
+
+    @Override
+    public void evict(String cache, String scope, String key) {
+        call(() -> hashes.delete(scopeKey(cache, scope), key), null);
+    }
+
+    @Override
+    public void evictScope(String cache, String scope) {
+        call(() -> bytesTemplate.delete(scopeKey(cache, scope)), null);
+    }
+
+    @Override
+    public long clearedAt(String cache) {
+        String value = call(() -> stringTemplate.opsForValue().get(clearedAtKey(cache)), null);
+        return value != null ? Long.parseLong(value) : 0L;
+    }
+
+    @Override
+    public void markCleared(String cache, long clearedAt) {
+        call(() -> {
+            stringTemplate.opsForValue().set(clearedAtKey(cache), Long.toString(clearedAt));
+            return null;
+        }, null);
+    }
+
+    @Override
+    public void publish(String message) {
+        call(() -> stringTemplate.convertAndSend(CHANNEL, origin + ORIGIN_SEPARATOR + message), null);
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            int separator = body.indexOf(ORIGIN_SEPARATOR);
+            if (separator < 0 || body.startsWith(origin)) {
+                return;
+            }
+            try {
+                listener.accept(body.substring(separator + 1));
+            } catch (Exception e) {
+                logger.warn("Could not apply cache invalidation '{}': {}", body, e.getMessage());
+            }
+        }, new ChannelTopic(CHANNEL));
+    }
+
+    private <T> T call(Supplier<T> operation, T fallback) {
+        if (System.currentTimeMillis() < unavailableUntil) {
+            return fallback;
+        }
+        try {
+            return operation.get();
+        } catch (RuntimeException e) {
+            unavailableUntil = System.currentTimeMillis() + retryAfterMs;
+            logger.warn("Redis cache tier unavailable, using the local tier only for {} ms: {}",
+                    retryAfterMs, e.getMessage());
+            return fallback;
+        }
+    }
+
+    private static String scopeKey(String cache, String scope) {
+        return KEY_PREFIX + cache + ':' + scope;
+    }
+
+    private static String clearedAtKey(String cache) {
+        return KEY_PREFIX + cache + ":cleared-at";
+    }
+}
@@ -0,0 +1,236 @@
+package com.neo4flix.movieservice.cache;
+
+import com.neo4flix.movieservice.config.UserScopedKeyGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Near / far cache: a per-replica Caffeine cache in front of a FarCache shared by all
+ * replicas.
+ *
+ * Reads try the local tier, then the shared one, and copy shared hits into the local tier.
+ * Writes go to both tiers; values the RecommendationCodec cannot encode stay local, and
+ * shared data it cannot decode is a miss. Each
+ * shared value is prefixed with its write time, so entries outlive neither the local
+ * tier's expireAfterWrite nor the last clear of the cache, however long the shared
+ * store keeps them. Evictions and clears are applied to both tiers and broadcast so
+ * that the other replicas drop their local copies too.
+ */
+public class TwoTierCache implements Cache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TwoTierCache.class);
+
+    private static final String EVICT = "K";
+    private static final String CLEAR = "C";
+
+    private final String name;
+    private final IndexedCaffeineCache near;
+    private final FarCache far;
+    private final Duration ttl;
+    private final Counter farHits;
+    private final Counter farMisses;
+
+    private volatile long clearedAt;
+
+    public TwoTierCache(String name, IndexedCaffeineCache near, FarCache far, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.near = near;
+        this.far = far;
+        this.ttl = near.getNativeCache().policy().expireAfterWrite()
+                .map(expiration -> Duration.ofMillis(expiration.getExpiresAfter(TimeUnit.MILLISECONDS)))
+                .orElse(Duration.ofMinutes(10));
+        this.farHits = farCounter(meterRegistry, name, "hit");
+        this.farMisses = farCounter(meterRegistry, name, "miss");
+        this.clearedAt = far.clearedAt(name);
+        far.subscribe(this::onBroadcast);
+    }
+
+    private static Counter farCounter(MeterRegistry meterRegistry, String cache, String result) {
+        return Counter.builder("neo4flix.cache.far")
+                .description("Local cache misses looked up in the shared cache tier")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The local Caffeine cache.
+     */
+    @Override
+    public com.github.benmanes.caffeine.cache.Cache<Object, Object> getNativeCache() {
+        return near.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper local = near.get(key);
+        if (local != null) {
+            return local;
+        }
+        Object value = getFar(key);
+        if (value == null) {
+            return null;
+        }
+        near.put(key, value);
+        return new SimpleValueWrapper(value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return near.get(key, () -> {
+            Object shared = getFar(key);
+            if (shared != null) {
+                return (T) shared;
+            }
+            T value = valueLoader.call();
+            putFar(key, value);
+            return value;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        near.put(key, value);
+        putFar(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        near.evict(key);
+        far.evict(name, scopeOf(key), key.toString());
+        far.publish(String.join("\t", EVICT, name, key.toString()));
+    }
+
+    @Override
+    public void clear() {
+        near.clear();
+        long now = System.currentTimeMillis();
+        expireSharedBefore(now);
+        far.markCleared(name, now);
+        far.publish(String.join("\t", CLEAR, name, Long.toString(now)));
+    }
+
+    /**
+     * Drop the given users' entries from both tiers. Does not broadcast.
+     */
+    public void evictScopes(Collection<String> userIds) {
+        evictScopesLocally(userIds);
+        for (String userId : userIds) {
+            far.evictScope(name, userId);
+        }
+    }
+
+    /**
+     * Drop the given users' entries from the local tier only, e.g. on another replica's broadcast.
+     */
+    public void evictScopesLocally(Collection<String> userIds) {
+        near.evictUsers(userIds);
+    }
+
+    /**
+     * Drop the local entries containing the movie. Does not touch the shared tier.
+     */
+    public int evictMovieLocally(String movieId) {
+        return near.evictMovie(movieId);
+    }
+
+    /**
+     * Treat every shared entry written before the given time as absent.
+     */
+    public void expireSharedBefore(long time) {
+        if (time > clearedAt) {
+            clearedAt = time;
+        }
+    }
+
+    private void onBroadcast(String message) {
+        String[] parts = message.split("\t", 3);
+        if (parts.length < 3 || !name.equals(parts[1])) {
+            return;
+        }
+        if (EVICT.equals(parts[0])) {
+            // Keys are looked up by their string form, which is what the message carries
+            near.evictNamed(parts[2]);
+        } else if (CLEAR.equals(parts[0])) {
+            near.clear();
+            expireSharedBefore(Long.parseLong(parts[2]));
+        }
+    }
+
+    private Object getFar(Object key) {
+        byte[] data = far.get(name, scopeOf(key), key.toString());
+        if (data == null || data.length < Long.BYTES) {
+            farMisses.increment();
+            return null;
+        }
+        long writtenAt = ByteBuffer.wrap(data).getLong();
+        Object value = null;
+        if (writtenAt >= clearedAt && System.currentTimeMillis() - writtenAt < ttl.toMillis()) {
+            try {
+                value = RecommendationCodec.decode(data, Long.BYTES);
+            } catch (UncheckedIOException e) {
+                // Corrupt or truncated: the loader recomputes the value and overwrites it
+                logger.debug("Could not decode shared entry {} of cache {}: {}", key, name, e.getMessage());
+            }
+        }
+        if (value == null) {
+            farMisses.increment();
+        } else {
+            farHits.increment();
+        }
+        return value;
+    }
+
+    private void putFar(Object key, Object value) {
+        byte[] encoded;
+        try {
+            encoded = value != null ? RecommendationCodec.encode(value) : null;
+        } catch (UncheckedIOException e) {
+            logger.debug("Could not encode entry {} of cache {}, keeping it local: {}", key, name, e.getMessage());
+            return;
+        }
+        if (encoded == null) {
+            return;
+        }
+        byte[] data = ByteBuffer.allocate(Long.BYTES + encoded.length)
+                .putLong(System.currentTimeMillis())
+                .put(encoded)
+                .array();
+        far.put(name, scopeOf(key), key.toString(), data, ttl);
+    }
+
+    private static String scopeOf(Object key) {
+        if (key instanceof UserScopedKeyGenerator.UserScopedKey scoped && scoped.getUserId() != null) {
+            return scoped.getUserId();
+        }
+        return FarCache.GLOBAL_SCOPE;
+    }
+}
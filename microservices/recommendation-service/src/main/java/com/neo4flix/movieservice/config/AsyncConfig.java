@@ -0,0 +1,128 @@
+package com.neo4flix.movieservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Configuration for background work in the Recommendation Service.
+ * Enables @Async / @Scheduled and provides the executors used for
+ * long-running jobs such as GDS projection rebuilds and for the
+ * request-path fan-out of hybrid algorithms, the coordinator and per-user workers
+ * of batch generation jobs, plus the fork/join pool used to train in-memory models.
+ */
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class AsyncConfig {
+
+    @Value("${neo4flix.recommendation.background.pool-size:4}")
+    private int backgroundPoolSize;
+
+    @Value("${neo4flix.recommendation.background.queue-capacity:100}")
+    private int backgroundQueueCapacity;
+
+    @Value("${neo4flix.recommendation.training.parallelism:0}")
+    private int trainingParallelism;
+
+    @Value("${neo4flix.recommendation.hybrid.pool-size:16}")
+    private int hybridPoolSize;
+
+    @Value("${neo4flix.recommendation.hybrid.queue-capacity:200}")
+    private int hybridQueueCapacity;
+
+    @Value("${neo4flix.recommendation.batch.max-concurrency:8}")
+    private int batchMaxConcurrency;
+
+    /**
+     * Default executor for @Async methods and background jobs.
+     * Named "taskExecutor" so Spring picks it for @Async even when other executors exist.
+     */
+    @Bean(name = "taskExecutor")
+    public ThreadPoolTaskExecutor taskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(backgroundPoolSize);
+        executor.setMaxPoolSize(backgroundPoolSize);
+        executor.setQueueCapacity(backgroundQueueCapacity);
+        executor.setThreadNamePrefix("reco-bg-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Executor for the sub-algorithms a hybrid algorithm runs concurrently.
+     * Kept separate from the background pool so batch jobs cannot starve user requests.
+     * Tasks are rejected rather than queued without bound when the pool is saturated.
+     */
+    @Bean(name = "hybridExecutor")
+    public ThreadPoolTaskExecutor hybridExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hybridPoolSize);
+        executor.setMaxPoolSize(hybridPoolSize);
+        executor.setQueueCapacity(hybridQueueCapacity);
+        executor.setThreadNamePrefix("reco-hybrid-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Single thread running batch generation jobs one after another, each handing its
+     * users to the batch workers. Kept off the background pool, which a long job would
+     * otherwise hold for its whole run.
+     */
+    @Bean(name = "batchCoordinatorExecutor")
+    public ThreadPoolTaskExecutor batchCoordinatorExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(backgroundQueueCapacity);
+        executor.setThreadNamePrefix("reco-batch-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Workers for batch generation jobs, sized to the batch engine's maximum concurrency.
+     * The engine's adaptive limiter decides how many of them are busy at a time; should a
+     * task still be rejected, it runs on the job's coordinator thread instead, unless the
+     * pool is shut down, in which case the rejection reaches the coordinator.
+     */
+    @Bean(name = "batchExecutor")
+    public ThreadPoolTaskExecutor batchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(batchMaxConcurrency);
+        executor.setMaxPoolSize(batchMaxConcurrency);
+        executor.setQueueCapacity(batchMaxConcurrency);
+        executor.setThreadNamePrefix("reco-batch-");
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            if (pool.isShutdown()) {
+                throw new RejectedExecutionException("Batch executor is shut down");
+            }
+            task.run();
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Fork/join pool for CPU-bound model training (item neighbours, matrix factorization).
+     * Defaults to one worker per core; training runs rarely and in the background.
+     */
+    @Bean(name = "modelTrainingPool", destroyMethod = "shutdown")
+    public ForkJoinPool modelTrainingPool() {
+        int parallelism = trainingParallelism > 0 ? trainingParallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(parallelism);
+    }
+}
@@ -1,32 +1,122 @@
 package com.neo4flix.movieservice.config;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.neo4flix.movieservice.cache.FarCache;
+import com.neo4flix.movieservice.cache.IndexedCaffeineCache;
+import com.neo4flix.movieservice.cache.LocalFarCache;
+import com.neo4flix.movieservice.cache.TwoTierCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Page;
 
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Cache configuration for Recommendation Service
  * Uses Caffeine cache for high-performance caching
+ *
+ * Each cache has its own Caffeine spec. Caches holding result lists are bounded by
+ * maximumWeight, weighed by the number of results, so one long list does not count as
+ * much as one short one. Hit / miss statistics are exported to Micrometer (cache.gets,
+ * cache.puts, cache.evictions). Keys come from UserScopedKeyGenerator, and entries are
+ * invalidated per user or movie by RecommendationCacheInvalidator rather than by TTL alone;
+ * IndexedCaffeineCache indexes the keys so that doing so does not scan the cache.
+ *
+ * When a shared tier is configured (caches.far.type: redis, or local in tests), the
+ * recommendation result caches become TwoTierCaches, so replicas share each other's results.
  */
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
-    @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+    /** Pages of a user's stored recommendations */
+    public static final String RECOMMENDATIONS = "recommendations";
+    /** Freshly generated recommendation lists, per full request */
+    public static final String GENERATED = "generatedRecommendations";
+    public static final String STATS = "recommendationStats";
+    public static final String SIMILAR_USERS = "similarUsers";
+
+    @Value("${neo4flix.recommendation.caches.recommendations:maximumWeight=200000,expireAfterWrite=10m,recordStats}")
+    private String recommendationsSpec;
+
+    @Value("${neo4flix.recommendation.caches.generated:maximumWeight=200000,expireAfterWrite=5m,recordStats}")
+    private String generatedSpec;
 
-        // Configure cache with TTL and maximum size
-        cacheManager.setCaffeine(Caffeine.newBuilder()
-                .expireAfterWrite(30, TimeUnit.MINUTES) // Cache expires after 30 minutes
-                .maximumSize(1000) // Maximum 1000 entries
-                .recordStats()); // Enable cache statistics
+    @Value("${neo4flix.recommendation.caches.stats:maximumSize=10000,expireAfterWrite=5m,recordStats}")
+    private String statsSpec;
 
+    @Value("${neo4flix.recommendation.caches.similar-users:maximumWeight=100000,expireAfterWrite=30m,recordStats}")
+    private String similarUsersSpec;
+
+    @Bean
+    public CacheManager cacheManager(ObjectProvider<FarCache> farCache, MeterRegistry meterRegistry) {
+        FarCache far = farCache.getIfAvailable();
+        List<org.springframework.cache.Cache> caches = new ArrayList<>();
+        caches.add(shared(build(RECOMMENDATIONS, recommendationsSpec), far, meterRegistry));
+        caches.add(shared(build(GENERATED, generatedSpec), far, meterRegistry));
+        caches.add(build(STATS, statsSpec));
+        caches.add(build(SIMILAR_USERS, similarUsersSpec));
+
+        // Only the caches above exist: a typo in a cache name fails instead of creating an unbounded cache
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(caches);
         return cacheManager;
     }
-}
\ No newline at end of file
+
+    /**
+     * In-process shared tier, standing in for Redis in tests.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "neo4flix.recommendation.caches.far.type", havingValue = "local")
+    public FarCache localFarCache() {
+        return new LocalFarCache();
+    }
+
+    @Bean
+    public KeyGenerator userScopedKeyGenerator() {
+        return new UserScopedKeyGenerator();
+    }
+
+    private static org.springframework.cache.Cache shared(IndexedCaffeineCache near, FarCache far,
+                                                          MeterRegistry meterRegistry) {
+        if (far == null) {
+            return near;
+        }
+        // Spring Boot only binds statistics of CaffeineCache instances, so bind the local tier here
+        String name = near.getName();
+        CaffeineCacheMetrics.monitor(meterRegistry, near.getNativeCache(), name, Tags.of("cache.manager", "cacheManager"));
+        return new TwoTierCache(name, near, far, meterRegistry);
+    }
+
+    private static IndexedCaffeineCache build(String name, String spec) {
+        Caffeine<Object, Object> builder = Caffeine.from(CaffeineSpec.parse(spec));
+        if (spec.contains("maximumWeight")) {
+            builder = builder.weigher(RESULT_COUNT);
+        }
+        return IndexedCaffeineCache.build(name, builder);
+    }
+
+    private static final Weigher<Object, Object> RESULT_COUNT = (key, value) -> {
+        if (value instanceof Collection<?> collection) {
+            return Math.max(1, collection.size());
+        }
+        if (value instanceof Page<?> page) {
+            return Math.max(1, page.getNumberOfElements());
+        }
+        return 1;
+    };
+}
@@ -16,15 +16,42 @@ import java.io.InputStream;
 import java.util.*;
 
 /**
- * Database initializer that loads movie data from JSON file on startup
- * if the database is empty. This allows the application to run in new
- * environments without requiring external API calls.
+ * Database initializer that creates the indexes and constraints the queries rely on,
+ * then loads movie data from JSON file on startup if the database is empty.
+ * This allows the application to run in new environments without requiring
+ * external API calls.
  */
 @Component
 public class DatabaseInitializer implements ApplicationRunner {
 
     private static final Logger logger = LoggerFactory.getLogger(DatabaseInitializer.class);
 
+    /**
+     * Indexes and constraints created on every startup. Rating nodes are stand-alone and
+     * refer to their user and movie by id, so every join from a rating is an index seek
+     * on one of these rather than a label scan.
+     */
+    public static final List<String> SCHEMA_STATEMENTS = List.of(
+            "CREATE CONSTRAINT movie_id IF NOT EXISTS FOR (m:Movie) REQUIRE m.id IS UNIQUE",
+            "CREATE CONSTRAINT user_id IF NOT EXISTS FOR (u:User) REQUIRE u.id IS UNIQUE",
+            "CREATE CONSTRAINT genre_name IF NOT EXISTS FOR (g:Genre) REQUIRE g.name IS UNIQUE",
+            "CREATE CONSTRAINT director_id IF NOT EXISTS FOR (d:Director) REQUIRE d.id IS UNIQUE",
+            "CREATE CONSTRAINT actor_id IF NOT EXISTS FOR (a:Actor) REQUIRE a.id IS UNIQUE",
+            // Lets replicas MERGE the same maintenance lease concurrently without duplicating it
+            "CREATE CONSTRAINT maintenance_lease_name IF NOT EXISTS FOR (l:MaintenanceLease) REQUIRE l.name IS UNIQUE",
+            "CREATE INDEX rating_user_id IF NOT EXISTS FOR (r:Rating) ON (r.userId)",
+            "CREATE INDEX rating_movie_id IF NOT EXISTS FOR (r:Rating) ON (r.movieId)",
+            "CREATE INDEX rating_rated_at IF NOT EXISTS FOR (r:Rating) ON (r.ratedAt)",
+            // Outbox of rating changes, paged in occurredAt order and purged by age by RatingEventConsumer
+            "CREATE INDEX rating_event_occurred_at IF NOT EXISTS FOR (e:RatingEvent) ON (e.occurredAt)",
+            // Outbox of movie changes, read the same way by MovieEventConsumer
+            "CREATE INDEX movie_event_occurred_at IF NOT EXISTS FOR (e:MovieEvent) ON (e.occurredAt)",
+            // Seeked by the scheduled purge of old recommendations
+            "CREATE INDEX recommended_at IF NOT EXISTS FOR ()-[r:RECOMMENDED]-() ON (r.recommendedAt)",
+            // Seeked by the scheduled purge of old interactions
+            "CREATE INDEX interaction_occurred_at IF NOT EXISTS FOR (i:Interaction) ON (i.occurredAt)"
+    );
+
     private final Driver neo4jDriver;
     private final ObjectMapper objectMapper;
 
@@ -41,6 +68,8 @@ public class DatabaseInitializer implements ApplicationRunner {
 
     @Override
     public void run(ApplicationArguments args) throws Exception {
+        createSchema();
+
         if (!autoSeed) {
             logger.info("Auto-seed is disabled. Skipping database initialization.");
             return;
@@ -64,6 +93,25 @@ public class DatabaseInitializer implements ApplicationRunner {
         }
     }
 
+    /**
+     * Create the indexes and constraints that do not exist yet. A statement that fails,
+     * e.g. a constraint over existing duplicates, is logged and the others still run.
+     */
+    private void createSchema() {
+        try (Session session = neo4jDriver.session()) {
+            for (String statement : SCHEMA_STATEMENTS) {
+                try {
+                    session.run(statement).consume();
+                } catch (Exception e) {
+                    logger.warn("Could not apply schema statement '{}': {}", statement, e.getMessage());
+                }
+            }
+            logger.info("Schema checked: {} indexes and constraints", SCHEMA_STATEMENTS.size());
+        } catch (Exception e) {
+            logger.error("Failed to create the database schema: {}", e.getMessage(), e);
+        }
+    }
+
     /**
      * Check if database already contains movies
      */
@@ -0,0 +1,48 @@
+package com.neo4flix.movieservice.config;
+
+import com.neo4flix.movieservice.cache.FarCache;
+import com.neo4flix.movieservice.cache.RedisFarCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Redis as the shared tier of the recommendation caches (caches.far.type: redis).
+ * The connection itself comes from the spring.data.redis properties.
+ */
+@Configuration
+@ConditionalOnProperty(name = "neo4flix.recommendation.caches.far.type", havingValue = "redis")
+public class RedisCacheConfig {
+
+    @Value("${neo4flix.recommendation.caches.far.retry-after-ms:30000}")
+    private long retryAfterMs;
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    @Bean
+    public FarCache redisFarCache(RedisConnectionFactory connectionFactory,
+                                  StringRedisTemplate stringRedisTemplate,
+                                  RedisMessageListenerContainer cacheInvalidationListenerContainer) {
+        // Values are already encoded by RecommendationCodec, so they are stored as raw bytes
+        RedisTemplate<String, byte[]> bytesTemplate = new RedisTemplate<>();
+        bytesTemplate.setConnectionFactory(connectionFactory);
+        bytesTemplate.setKeySerializer(RedisSerializer.string());
+        bytesTemplate.setHashKeySerializer(RedisSerializer.string());
+        bytesTemplate.setValueSerializer(RedisSerializer.byteArray());
+        bytesTemplate.setHashValueSerializer(RedisSerializer.byteArray());
+        bytesTemplate.afterPropertiesSet();
+
+        return new RedisFarCache(bytesTemplate, stringRedisTemplate, cacheInvalidationListenerContainer, retryAfterMs);
+    }
+}
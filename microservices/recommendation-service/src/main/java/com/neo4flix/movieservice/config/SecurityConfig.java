@@ -67,6 +67,7 @@ public class SecurityConfig {
                 // Admin only endpoints
                 .requestMatchers(
                     "/api/v1/recommendations/batch-generate",
+                    "/api/v1/recommendations/batch-generate/**",
                     "/api/v1/recommendations/cleanup"
                 ).hasRole("ADMIN")
                 // All other endpoints require authentication
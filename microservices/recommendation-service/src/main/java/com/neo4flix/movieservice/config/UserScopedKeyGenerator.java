@@ -0,0 +1,78 @@
+package com.neo4flix.movieservice.config;
+
+import com.neo4flix.movieservice.dto.RecommendationRequest;
+import org.springframework.cache.interceptor.KeyGenerator;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Cache keys made of the method name and every argument (page, sort, limit, filters...),
+ * tagged with the user they belong to so that a user's entries can be evicted together.
+ *
+ * The user is the first String argument, or the user of a RecommendationRequest argument.
+ */
+public class UserScopedKeyGenerator implements KeyGenerator {
+
+    @Override
+    public Object generate(Object target, Method method, Object... params) {
+        return new UserScopedKey(userOf(params), method.getName(), params);
+    }
+
+    private static String userOf(Object[] params) {
+        for (Object param : params) {
+            if (param instanceof String userId) {
+                return userId;
+            }
+            if (param instanceof RecommendationRequest request) {
+                return request.getUserId();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Key of a cached result; equal when the method and all arguments are equal.
+     */
+    public static final class UserScopedKey {
+
+        private final String userId;
+        private final String method;
+        private final Object[] params;
+        private final int hash;
+
+        UserScopedKey(String userId, String method, Object[] params) {
+            this.userId = userId;
+            this.method = method;
+            this.params = params.clone();
+            this.hash = 31 * method.hashCode() + Arrays.deepHashCode(this.params);
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof UserScopedKey key)) {
+                return false;
+            }
+            return hash == key.hash && method.equals(key.method)
+                    && Objects.equals(userId, key.userId) && Arrays.deepEquals(params, key.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return method + Arrays.deepToString(params);
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.neo4flix.movieservice.controller;
 
 import com.neo4flix.movieservice.dto.*;
+import com.neo4flix.movieservice.event.MovieChangedEvent;
+import com.neo4flix.movieservice.event.RatingChangedEvent;
+import com.neo4flix.movieservice.service.BatchGenerationService;
+import com.neo4flix.movieservice.service.InteractionLog;
+import com.neo4flix.movieservice.service.RecommendationPurger;
 import com.neo4flix.movieservice.service.RecommendationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -9,6 +14,7 @@ import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -35,10 +41,19 @@ public class RecommendationController {
     private static final Logger logger = LoggerFactory.getLogger(RecommendationController.class);
 
     private final RecommendationService recommendationService;
+    private final BatchGenerationService batchGenerationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InteractionLog interactionLog;
 
     @Autowired
-    public RecommendationController(RecommendationService recommendationService) {
+    public RecommendationController(RecommendationService recommendationService,
+                                    BatchGenerationService batchGenerationService,
+                                    ApplicationEventPublisher eventPublisher,
+                                    InteractionLog interactionLog) {
         this.recommendationService = recommendationService;
+        this.batchGenerationService = batchGenerationService;
+        this.eventPublisher = eventPublisher;
+        this.interactionLog = interactionLog;
     }
 
     @PostMapping("/generate")
@@ -52,6 +67,7 @@ public class RecommendationController {
         request.setUserId(getCurrentUserId());
 
         List<RecommendationResponse> recommendations = recommendationService.generateRecommendations(request);
+        interactionLog.recordImpressions(request.getUserId(), recommendations, 0, request.getAlgorithm());
         return ResponseEntity.status(HttpStatus.CREATED).body(recommendations);
     }
 
@@ -89,6 +105,7 @@ public class RecommendationController {
         Pageable pageable = PageRequest.of(page, size, sort);
 
         Page<RecommendationResponse> recommendations = recommendationService.getUserRecommendations(userId, pageable);
+        interactionLog.recordImpressions(userId, recommendations.getContent(), (int) pageable.getOffset(), null);
         return ResponseEntity.ok(recommendations);
     }
 
@@ -141,8 +158,11 @@ public class RecommendationController {
 
         String userId = getCurrentUserId();
 
+        eventPublisher.publishEvent(new RatingChangedEvent(userId));
+
         List<RecommendationResponse> recommendations = recommendationService
                 .refreshRecommendations(userId, algorithm, limit);
+        interactionLog.recordImpressions(userId, recommendations, 0, algorithm);
         return ResponseEntity.ok(recommendations);
     }
 
@@ -174,11 +194,11 @@ public class RecommendationController {
         String userId = getCurrentUserId();
 
         List<RecommendationResponse> recommendations = recommendationService
-                .refreshRecommendations(userId, algorithm, limit);
+                .getPersonalizedRecommendations(userId, algorithm, limit);
 
         RecommendationResponseWrapper wrapper = new RecommendationResponseWrapper();
         wrapper.setSuccess(true);
-        wrapper.setMessage("Personalized recommendations generated successfully");
+        wrapper.setMessage("Personalized recommendations retrieved successfully");
         wrapper.setRecommendations(recommendations);
         wrapper.setAlgorithm(algorithm);
         wrapper.setTotalResults(recommendations.size());
@@ -343,11 +363,11 @@ public class RecommendationController {
 
         // For now, use personalized recommendations as watch history-based
         List<RecommendationResponse> recommendations = recommendationService
-                .refreshRecommendations(userId, algorithm, limit);
+                .getPersonalizedRecommendations(userId, algorithm, limit);
 
         RecommendationResponseWrapper wrapper = new RecommendationResponseWrapper();
         wrapper.setSuccess(true);
-        wrapper.setMessage("History-based recommendations generated successfully");
+        wrapper.setMessage("History-based recommendations retrieved successfully");
         wrapper.setRecommendations(recommendations);
         wrapper.setAlgorithm(algorithm);
         wrapper.setTotalResults(recommendations.size());
@@ -357,17 +377,20 @@ public class RecommendationController {
     }
 
     @GetMapping("/new-user")
-    @Operation(summary = "Get new user recommendations", description = "Get popular recommendations for new users")
+    @Operation(summary = "Get new user recommendations", description = "Get popular recommendations for new users, optionally by genre and release year")
     public ResponseEntity<List<RecommendationResponse>> getNewUserRecommendations(
-            @RequestParam(defaultValue = "10") Integer limit) {
+            @RequestParam(defaultValue = "10") Integer limit,
+            @RequestParam(required = false) List<String> genres,
+            @RequestParam(required = false) Integer fromYear,
+            @RequestParam(required = false) Integer toYear) {
 
         List<RecommendationResponse> recommendations = recommendationService
-                .getNewUserRecommendations(limit);
+                .getNewUserRecommendations(limit, genres, fromYear, toYear);
         return ResponseEntity.ok(recommendations);
     }
 
     @GetMapping("/metrics")
-    @Operation(summary = "Get recommendation metrics", description = "Get recommendation accuracy metrics for the authenticated user")
+    @Operation(summary = "Get recommendation metrics", description = "Get live click-through, precision at K and conversion rates per algorithm")
     @SecurityRequirement(name = "Bearer Authentication")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<Object> getRecommendationMetrics() {
@@ -378,26 +401,39 @@ public class RecommendationController {
     }
 
     @PostMapping("/batch-generate")
-    @Operation(summary = "Batch generate recommendations", description = "Generate recommendations for multiple users (Admin only)")
+    @Operation(summary = "Batch generate recommendations",
+               description = "Start a job generating recommendations for the given users, or for all users if no body is sent (Admin only)")
     @SecurityRequirement(name = "Bearer Authentication")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Void> batchGenerateRecommendations(
-            @RequestBody List<String> userIds,
+    public ResponseEntity<BatchJobStatus> batchGenerateRecommendations(
+            @RequestBody(required = false) List<String> userIds,
             @RequestParam(defaultValue = "hybrid") String algorithm) {
 
-        recommendationService.batchGenerateRecommendations(userIds, algorithm);
-        return ResponseEntity.accepted().build();
+        if (!batchGenerationService.supportsAlgorithm(algorithm)) {
+            return ResponseEntity.badRequest().build();
+        }
+        String jobId = batchGenerationService.start(userIds, algorithm);
+        return ResponseEntity.accepted().body(batchGenerationService.getStatus(jobId));
+    }
+
+    @GetMapping("/batch-generate/{jobId}")
+    @Operation(summary = "Get batch job status", description = "Progress and throughput of a batch generation job (Admin only)")
+    @SecurityRequirement(name = "Bearer Authentication")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BatchJobStatus> getBatchJobStatus(@PathVariable String jobId) {
+        BatchJobStatus status = batchGenerationService.getStatus(jobId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
     }
 
     @DeleteMapping("/cleanup")
-    @Operation(summary = "Cleanup old recommendations", description = "Remove old recommendations (Admin only)")
+    @Operation(summary = "Cleanup old recommendations",
+               description = "Remove old recommendations and report how many were deleted (Admin only)")
     @SecurityRequirement(name = "Bearer Authentication")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Void> cleanupOldRecommendations(
+    public ResponseEntity<RecommendationPurger.PurgeResult> cleanupOldRecommendations(
             @RequestParam(defaultValue = "30") Integer daysOld) {
 
-        recommendationService.cleanupOldRecommendations(daysOld);
-        return ResponseEntity.ok().build();
+        return ResponseEntity.ok(recommendationService.cleanupOldRecommendations(daysOld));
     }
 
     @GetMapping("/algorithms")
@@ -423,14 +459,28 @@ public class RecommendationController {
         logger.info("Internal recommendation refresh triggered for user: {}", userId);
 
         try {
-            recommendationService.refreshRecommendations(userId, algorithm, limit);
+            // Rating changes arrive with their details through the RatingEvent outbox
+            // (RatingEventConsumer). This endpoint takes none: it makes the models re-read the
+            // user's ratings from the database, and regenerates once the burst has settled
+            eventPublisher.publishEvent(new RatingChangedEvent(userId));
+            recommendationService.scheduleRefresh(userId, algorithm);
             return ResponseEntity.accepted().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             logger.error("Error in internal recommendation refresh for user {}: {}", userId, e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    @PostMapping("/internal/movies/{movieId}/changed")
+    @Operation(summary = "Internal: Movie changed", description = "Internal endpoint re-reading a movie on this replica only; the Movie Service reports its changes to every replica through the MovieEvent outbox")
+    public ResponseEntity<Void> internalMovieChanged(@PathVariable String movieId) {
+        logger.info("Movie change reported for movie: {}", movieId);
+        eventPublisher.publishEvent(new MovieChangedEvent(movieId));
+        return ResponseEntity.accepted().build();
+    }
+
     // Helper methods to extract user information from JWT
     private String getCurrentUserId() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
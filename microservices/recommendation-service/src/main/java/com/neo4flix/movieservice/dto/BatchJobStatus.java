@@ -0,0 +1,107 @@
+package com.neo4flix.movieservice.dto;
+
+/**
+ * DTO for the progress of a batch recommendation generation job
+ */
+public class BatchJobStatus {
+
+    private String jobId;
+    private String algorithm;
+    private String status;
+    private Long total;
+    private Long done;
+    private Long failed;
+    private Double usersPerSecond;
+    private Integer concurrency;
+    private Long startedAt;
+    private Long updatedAt;
+
+    public BatchJobStatus() {}
+
+    // Getters and Setters
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public void setAlgorithm(String algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    /**
+     * Number of users in the job; null while it is still being counted.
+     */
+    public Long getTotal() {
+        return total;
+    }
+
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+
+    public Long getDone() {
+        return done;
+    }
+
+    public void setDone(Long done) {
+        this.done = done;
+    }
+
+    public Long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(Long failed) {
+        this.failed = failed;
+    }
+
+    public Double getUsersPerSecond() {
+        return usersPerSecond;
+    }
+
+    public void setUsersPerSecond(Double usersPerSecond) {
+        this.usersPerSecond = usersPerSecond;
+    }
+
+    /**
+     * Current concurrency limit of the batch engine; null once the job has finished.
+     */
+    public Integer getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(Integer concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public Long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Long getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Long updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -14,6 +14,7 @@ public class RecommendationResponse {
     private String moviePlot;
     private Integer movieYear;
     private Double movieRating;
+    private String moviePosterUrl;
     private Double score;
     private String algorithm;
     private String reason;
@@ -83,6 +84,14 @@ public class RecommendationResponse {
         this.movieRating = movieRating;
     }
 
+    public String getMoviePosterUrl() {
+        return moviePosterUrl;
+    }
+
+    public void setMoviePosterUrl(String moviePosterUrl) {
+        this.moviePosterUrl = moviePosterUrl;
+    }
+
     public Double getScore() {
         return score;
     }
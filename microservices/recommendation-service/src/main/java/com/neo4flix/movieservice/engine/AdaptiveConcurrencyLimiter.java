@@ -0,0 +1,88 @@
+package com.neo4flix.movieservice.engine;
+
+/**
+ * Concurrency limit that adapts to observed latency (additive increase, multiplicative decrease).
+ *
+ * Callers acquire a slot before each unit of work and release it with the work's latency.
+ * An exponentially weighted average of the latencies is compared with the target: while it
+ * stays under, the limit grows by one per limit's worth of completions; once it goes over,
+ * the limit is cut by a quarter. Changes are at most once per limit's worth of completions,
+ * so a single slow stretch does not collapse the limit to the minimum.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    private static final double LATENCY_SMOOTHING = 0.2;
+    private static final double BACKOFF = 0.75;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double targetLatencyMs;
+
+    private int limit;
+    private int inFlight;
+    private int completionsSinceChange;
+    private double averageLatencyMs = -1.0;
+
+    public AdaptiveConcurrencyLimiter(int minLimit, int maxLimit, int initialLimit, double targetLatencyMs) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid limits: min " + minLimit + ", max " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.targetLatencyMs = targetLatencyMs;
+    }
+
+    /**
+     * Block until a slot is free under the current limit.
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (inFlight >= limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    /**
+     * Free a slot and feed the latency of the work it ran into the limit.
+     */
+    public synchronized void release(long latencyMs) {
+        inFlight--;
+        averageLatencyMs = averageLatencyMs < 0
+                ? latencyMs
+                : averageLatencyMs + LATENCY_SMOOTHING * (latencyMs - averageLatencyMs);
+
+        if (++completionsSinceChange >= limit) {
+            if (averageLatencyMs > targetLatencyMs) {
+                limit = Math.max(minLimit, (int) (limit * BACKOFF));
+            } else if (limit < maxLimit) {
+                limit++;
+            }
+            completionsSinceChange = 0;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Free a slot whose work never ran, leaving the limit as it is.
+     */
+    public synchronized void cancel() {
+        inFlight--;
+        notifyAll();
+    }
+
+    public synchronized int limit() {
+        return limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Smoothed latency in milliseconds, or -1 before the first release.
+     */
+    public synchronized double averageLatencyMs() {
+        return averageLatencyMs;
+    }
+}
@@ -0,0 +1,684 @@
+package com.neo4flix.movieservice.engine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical Navigable Small World graph for approximate nearest-neighbour search
+ * over unit-length float vectors, using cosine similarity (dot product).
+ *
+ * Nodes are dense int ids chosen by the caller. Layer 0 links are stored flat, with
+ * the link count in the first slot of each node's block; the few nodes that reach
+ * higher layers keep their upper links in a small per-node array. Re-inserting an
+ * existing node replaces its vector and relinks it. Removed nodes stay in the graph
+ * for navigation but are never returned.
+ *
+ * Searches run concurrently under a read lock; inserts and removals take the write lock.
+ */
+public final class HnswIndex {
+
+    private static final int MAGIC = 0x484e5357; // "HNSW"
+    private static final ThreadLocal<int[]> VISITED = ThreadLocal.withInitial(() -> new int[0]);
+    private static final ThreadLocal<int[]> VISIT_GENERATION = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final long seed;
+    private final SplittableRandom random;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int capacity;
+    private float[] vectors;
+    private int[] levels;
+    private boolean[] removed;
+    private int[] links0;
+    private int[][] upperLinks;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int count;
+
+    /**
+     * @param m              links per node on upper layers (twice as many on layer 0)
+     * @param efConstruction candidate list size while linking a new node
+     */
+    public HnswIndex(int dimension, int m, int efConstruction, long seed) {
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1.0 / Math.log(Math.max(2, m));
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        allocate(1024);
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Number of live (inserted and not removed) nodes.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(int node) {
+        lock.readLock().lock();
+        try {
+            return node < capacity && levels[node] >= 0 && !removed[node];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copy of the node's vector, or null if the node is not in the index.
+     */
+    public float[] vector(int node) {
+        lock.readLock().lock();
+        try {
+            if (node >= capacity || levels[node] < 0) {
+                return null;
+            }
+            return Arrays.copyOfRange(vectors, node * dimension, (node + 1) * dimension);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Insert the node, or replace its vector and relink it if it is already present.
+     * The vector must be unit length (or all zeros).
+     */
+    public void insert(int node, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected vector of dimension " + dimension + ", got " + vector.length);
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (node >= capacity) {
+                allocate(Math.max(capacity * 2, node + 1));
+            }
+            boolean existing = levels[node] >= 0;
+            System.arraycopy(vector, 0, vectors, node * dimension, dimension);
+            if (!existing || removed[node]) {
+                count++;
+            }
+            removed[node] = false;
+
+            int level;
+            if (existing) {
+                level = levels[node];
+            } else {
+                level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+                levels[node] = level;
+                links0[node * (maxM0 + 1)] = 0;
+                upperLinks[node] = level > 0 ? new int[level * (m + 1)] : null;
+            }
+
+            if (entryPoint < 0 || (existing && entryPoint == node && count == 1)) {
+                entryPoint = node;
+                maxLevel = level;
+                return;
+            }
+
+            int entry = entryPoint == node ? anyOtherNode(node) : entryPoint;
+            if (entry < 0) {
+                return;
+            }
+            for (int l = maxLevel; l > level; l--) {
+                entry = greedyClosest(vector, entry, l);
+            }
+
+            NodeHeap candidates = new NodeHeap(efConstruction + 1);
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                searchLayer(vector, entry, efConstruction, l, candidates);
+                candidates.removeId(node);
+                if (candidates.size() > 0) {
+                    entry = candidates.closest();
+                }
+                int[] selected = selectNeighbours(candidates, l == 0 ? maxM0 : m);
+                setLinks(node, l, selected, selected.length);
+                for (int neighbour : selected) {
+                    addLink(neighbour, node, l);
+                }
+            }
+
+            if (level > maxLevel) {
+                entryPoint = node;
+                maxLevel = level;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stop returning the node from searches. Its links are kept for navigation.
+     */
+    public void remove(int node) {
+        lock.writeLock().lock();
+        try {
+            if (node < capacity && levels[node] >= 0 && !removed[node]) {
+                removed[node] = true;
+                count--;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The k live nodes most similar to the query, scored by cosine similarity.
+     *
+     * @param ef      candidate list size; larger trades speed for recall
+     * @param exclude nodes to skip (e.g. the query movie itself), or null
+     */
+    public TopK search(float[] query, int k, int ef, IntPredicate exclude) {
+        TopK top = new TopK(k);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return top;
+            }
+            int entry = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                entry = greedyClosest(query, entry, l);
+            }
+
+            NodeHeap candidates = new NodeHeap(Math.max(ef, k) + 1);
+            searchLayer(query, entry, Math.max(ef, k), 0, candidates);
+            for (int i = 0; i < candidates.size(); i++) {
+                int node = candidates.id(i);
+                if (!removed[node] && (exclude == null || !exclude.test(node))) {
+                    top.offer(node, 1f - candidates.distance(i));
+                }
+            }
+            return top;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void allocate(int newCapacity) {
+        int oldCapacity = capacity;
+        capacity = newCapacity;
+        vectors = vectors == null ? new float[newCapacity * dimension] : Arrays.copyOf(vectors, newCapacity * dimension);
+        levels = levels == null ? new int[newCapacity] : Arrays.copyOf(levels, newCapacity);
+        if (newCapacity > oldCapacity) {
+            Arrays.fill(levels, oldCapacity, newCapacity, -1);
+        }
+        removed = removed == null ? new boolean[newCapacity] : Arrays.copyOf(removed, newCapacity);
+        links0 = links0 == null ? new int[newCapacity * (maxM0 + 1)] : Arrays.copyOf(links0, newCapacity * (maxM0 + 1));
+        upperLinks = upperLinks == null ? new int[newCapacity][] : Arrays.copyOf(upperLinks, newCapacity);
+    }
+
+    private int anyOtherNode(int node) {
+        for (int i = 0; i < capacity; i++) {
+            if (i != node && levels[i] >= maxLevel) {
+                return i;
+            }
+        }
+        for (int i = 0; i < capacity; i++) {
+            if (i != node && levels[i] >= 0) {
+                maxLevel = levels[i];
+                entryPoint = i;
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private float distance(float[] query, int node) {
+        float dot = 0f;
+        int offset = node * dimension;
+        for (int i = 0; i < dimension; i++) {
+            dot += query[i] * vectors[offset + i];
+        }
+        return 1f - dot;
+    }
+
+    private float distance(int a, int b) {
+        float dot = 0f;
+        int offsetA = a * dimension;
+        int offsetB = b * dimension;
+        for (int i = 0; i < dimension; i++) {
+            dot += vectors[offsetA + i] * vectors[offsetB + i];
+        }
+        return 1f - dot;
+    }
+
+    private int linkCount(int node, int level) {
+        return level == 0 ? links0[node * (maxM0 + 1)] : upperLinks[node][(level - 1) * (m + 1)];
+    }
+
+    private int link(int node, int level, int i) {
+        return level == 0 ? links0[node * (maxM0 + 1) + 1 + i] : upperLinks[node][(level - 1) * (m + 1) + 1 + i];
+    }
+
+    private void setLinks(int node, int level, int[] neighbours, int size) {
+        int[] target = level == 0 ? links0 : upperLinks[node];
+        int base = level == 0 ? node * (maxM0 + 1) : (level - 1) * (m + 1);
+        target[base] = size;
+        System.arraycopy(neighbours, 0, target, base + 1, size);
+    }
+
+    private int greedyClosest(float[] query, int entry, int level) {
+        int current = entry;
+        float currentDistance = distance(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 0; i < linkCount(current, level); i++) {
+                int candidate = link(current, level, i);
+                float d = distance(query, candidate);
+                if (d < currentDistance) {
+                    current = candidate;
+                    currentDistance = d;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one layer; leaves the ef closest nodes found in {@code results}.
+     */
+    private void searchLayer(float[] query, int entry, int ef, int level, NodeHeap results) {
+        int[] visited = VISITED.get();
+        if (visited.length < capacity) {
+            visited = new int[capacity];
+            VISITED.set(visited);
+        }
+        int[] generationHolder = VISIT_GENERATION.get();
+        int generation = ++generationHolder[0];
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            generationHolder[0] = generation = 1;
+        }
+
+        NodeHeap frontier = new NodeHeap(ef * 4);
+        results.clear();
+        float entryDistance = distance(query, entry);
+        frontier.pushMin(entry, entryDistance);
+        results.pushBounded(entry, entryDistance, ef);
+        visited[entry] = generation;
+
+        while (frontier.size() > 0) {
+            float nearest = frontier.minDistance();
+            int current = frontier.popMin();
+            if (results.size() >= ef && nearest > results.maxDistance()) {
+                break;
+            }
+            for (int i = 0; i < linkCount(current, level); i++) {
+                int candidate = link(current, level, i);
+                if (visited[candidate] == generation) {
+                    continue;
+                }
+                visited[candidate] = generation;
+                float d = distance(query, candidate);
+                if (results.size() < ef || d < results.maxDistance()) {
+                    frontier.pushMin(candidate, d);
+                    results.pushBounded(candidate, d, ef);
+                }
+            }
+        }
+    }
+
+    /**
+     * HNSW neighbour heuristic: keep a candidate only if it is closer to the new node than
+     * to every neighbour already kept, which spreads links across clusters. Remaining
+     * slots are filled with the closest pruned candidates.
+     */
+    private int[] selectNeighbours(NodeHeap candidates, int max) {
+        int n = candidates.size();
+        int[] order = new int[n];
+        float[] distances = new float[n];
+        candidates.drainAscending(order, distances);
+
+        int[] selected = new int[Math.min(max, n)];
+        boolean[] taken = new boolean[n];
+        int size = 0;
+        for (int i = 0; i < n && size < selected.length; i++) {
+            boolean keep = true;
+            for (int j = 0; j < size; j++) {
+                if (distance(order[i], selected[j]) < distances[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[size++] = order[i];
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < n && size < selected.length; i++) {
+            if (!taken[i]) {
+                selected[size++] = order[i];
+            }
+        }
+        return selected;
+    }
+
+    private void addLink(int node, int newNeighbour, int level) {
+        int max = level == 0 ? maxM0 : m;
+        int size = linkCount(node, level);
+        for (int i = 0; i < size; i++) {
+            if (link(node, level, i) == newNeighbour) {
+                return;
+            }
+        }
+        if (size < max) {
+            int[] target = level == 0 ? links0 : upperLinks[node];
+            int base = level == 0 ? node * (maxM0 + 1) : (level - 1) * (m + 1);
+            target[base + 1 + size] = newNeighbour;
+            target[base] = size + 1;
+            return;
+        }
+
+        // Full: re-select among the existing links plus the new one
+        NodeHeap candidates = new NodeHeap(size + 1);
+        float[] own = Arrays.copyOfRange(vectors, node * dimension, (node + 1) * dimension);
+        for (int i = 0; i < size; i++) {
+            int neighbour = link(node, level, i);
+            candidates.pushBounded(neighbour, distance(own, neighbour), size + 1);
+        }
+        candidates.pushBounded(newNeighbour, distance(own, newNeighbour), size + 1);
+        int[] selected = selectNeighbours(candidates, max);
+        setLinks(node, level, selected, selected.length);
+    }
+
+    /**
+     * Bytes needed by {@link #writeTo(ByteBuffer)}.
+     */
+    public long serializedSize() {
+        lock.readLock().lock();
+        try {
+            long size = 8L * Integer.BYTES + Long.BYTES;
+            size += (long) capacity * Integer.BYTES + capacity;                    // levels, removed flags
+            size += (long) capacity * dimension * Float.BYTES;                    // vectors
+            size += (long) capacity * (maxM0 + 1) * Integer.BYTES;                // layer 0 links
+            for (int node = 0; node < capacity; node++) {
+                if (levels[node] > 0) {
+                    size += (long) levels[node] * (m + 1) * Integer.BYTES;        // upper links
+                }
+            }
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        lock.readLock().lock();
+        try {
+            buffer.putInt(MAGIC).putInt(dimension).putInt(m).putInt(efConstruction)
+                  .putInt(capacity).putInt(entryPoint).putInt(maxLevel).putInt(count)
+                  // Level draws after a reload continue from a different point of the sequence
+                  .putLong(seed + capacity);
+            buffer.asIntBuffer().put(levels);
+            buffer.position(buffer.position() + capacity * Integer.BYTES);
+            for (boolean flag : removed) {
+                buffer.put((byte) (flag ? 1 : 0));
+            }
+            buffer.asFloatBuffer().put(vectors, 0, capacity * dimension);
+            buffer.position(buffer.position() + capacity * dimension * Float.BYTES);
+            buffer.asIntBuffer().put(links0, 0, capacity * (maxM0 + 1));
+            buffer.position(buffer.position() + capacity * (maxM0 + 1) * Integer.BYTES);
+            for (int node = 0; node < capacity; node++) {
+                if (levels[node] > 0) {
+                    buffer.asIntBuffer().put(upperLinks[node]);
+                    buffer.position(buffer.position() + upperLinks[node].length * Integer.BYTES);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read an index written by {@link #writeTo(ByteBuffer)}.
+     *
+     * @throws IllegalArgumentException if the buffer does not hold an index
+     */
+    public static HnswIndex readFrom(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not an HNSW index");
+        }
+        int dimension = buffer.getInt();
+        int m = buffer.getInt();
+        int efConstruction = buffer.getInt();
+        int capacity = buffer.getInt();
+        int entryPoint = buffer.getInt();
+        int maxLevel = buffer.getInt();
+        int count = buffer.getInt();
+        long seed = buffer.getLong();
+
+        HnswIndex index = new HnswIndex(dimension, m, efConstruction, seed);
+        index.allocate(capacity);
+        index.entryPoint = entryPoint;
+        index.maxLevel = maxLevel;
+        index.count = count;
+
+        buffer.asIntBuffer().get(index.levels, 0, capacity);
+        buffer.position(buffer.position() + capacity * Integer.BYTES);
+        for (int node = 0; node < capacity; node++) {
+            index.removed[node] = buffer.get() != 0;
+        }
+        buffer.asFloatBuffer().get(index.vectors, 0, capacity * dimension);
+        buffer.position(buffer.position() + capacity * dimension * Float.BYTES);
+        buffer.asIntBuffer().get(index.links0, 0, capacity * (index.maxM0 + 1));
+        buffer.position(buffer.position() + capacity * (index.maxM0 + 1) * Integer.BYTES);
+        for (int node = 0; node < capacity; node++) {
+            if (index.levels[node] > 0) {
+                int[] upper = new int[index.levels[node] * (m + 1)];
+                buffer.asIntBuffer().get(upper);
+                buffer.position(buffer.position() + upper.length * Integer.BYTES);
+                index.upperLinks[node] = upper;
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HnswIndex{nodes=%d, dimension=%d, m=%d, maxLevel=%d}", size(), dimension, m, maxLevel);
+    }
+
+    /**
+     * Array-backed binary heap of (node, distance) pairs. Used either as a min-heap
+     * (search frontier) or as a bounded max-heap holding the closest nodes found.
+     */
+    private static final class NodeHeap {
+
+        private int[] ids;
+        private float[] distances;
+        private int size;
+
+        NodeHeap(int capacity) {
+            ids = new int[Math.max(capacity, 4)];
+            distances = new float[ids.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int id(int i) {
+            return ids[i];
+        }
+
+        float distance(int i) {
+            return distances[i];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        float minDistance() {
+            return distances[0];
+        }
+
+        float maxDistance() {
+            return distances[0];
+        }
+
+        void pushMin(int id, float distance) {
+            grow();
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (distances[parent] <= distance) {
+                    break;
+                }
+                ids[i] = ids[parent];
+                distances[i] = distances[parent];
+                i = parent;
+            }
+            ids[i] = id;
+            distances[i] = distance;
+        }
+
+        int popMin() {
+            int top = ids[0];
+            size--;
+            if (size > 0) {
+                siftDown(ids[size], distances[size], true);
+            }
+            return top;
+        }
+
+        /**
+         * Max-heap insert keeping at most {@code bound} entries (the closest ones).
+         */
+        void pushBounded(int id, float distance, int bound) {
+            if (size >= bound) {
+                if (distance >= distances[0]) {
+                    return;
+                }
+                siftDown(id, distance, false);
+                return;
+            }
+            grow();
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (distances[parent] >= distance) {
+                    break;
+                }
+                ids[i] = ids[parent];
+                distances[i] = distances[parent];
+                i = parent;
+            }
+            ids[i] = id;
+            distances[i] = distance;
+        }
+
+        /**
+         * Closest node of a bounded max-heap.
+         */
+        int closest() {
+            int best = 0;
+            for (int i = 1; i < size; i++) {
+                if (distances[i] < distances[best]) {
+                    best = i;
+                }
+            }
+            return ids[best];
+        }
+
+        void removeId(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    size--;
+                    ids[i] = ids[size];
+                    distances[i] = distances[size];
+                    // Restore max-heap order over the remaining entries
+                    for (int j = size / 2 - 1; j >= 0; j--) {
+                        siftDownFrom(j);
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Empties a bounded max-heap into {@code outIds} / {@code outDistances}, closest first.
+         */
+        void drainAscending(int[] outIds, float[] outDistances) {
+            while (size > 0) {
+                int last = size - 1;
+                outIds[last] = ids[0];
+                outDistances[last] = distances[0];
+                size--;
+                if (size > 0) {
+                    siftDown(ids[size], distances[size], false);
+                }
+            }
+        }
+
+        private void grow() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                distances = Arrays.copyOf(distances, size * 2);
+            }
+        }
+
+        private void siftDown(int id, float distance, boolean minHeap) {
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && (minHeap ? distances[right] < distances[child] : distances[right] > distances[child])) {
+                    child = right;
+                }
+                if (minHeap ? distance <= distances[child] : distance >= distances[child]) {
+                    break;
+                }
+                ids[i] = ids[child];
+                distances[i] = distances[child];
+                i = child;
+            }
+            ids[i] = id;
+            distances[i] = distance;
+        }
+
+        private void siftDownFrom(int start) {
+            int id = ids[start];
+            float distance = distances[start];
+            int i = start;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && distances[right] > distances[child]) {
+                    child = right;
+                }
+                if (distance >= distances[child]) {
+                    break;
+                }
+                ids[i] = ids[child];
+                distances[i] = distances[child];
+                i = child;
+            }
+            ids[i] = id;
+            distances[i] = distance;
+        }
+    }
+}
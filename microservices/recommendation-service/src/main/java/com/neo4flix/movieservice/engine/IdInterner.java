@@ -0,0 +1,58 @@
+package com.neo4flix.movieservice.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only mapping between string ids (user or movie UUIDs) and dense int indexes.
+ *
+ * Indexes are never reused or removed, so an index handed out once stays valid for the
+ * lifetime of the interner and can be stored in primitive arrays of any matrix snapshot
+ * built from it. Lookups are lock-free; only interning a new id takes the lock.
+ */
+public final class IdInterner {
+
+    private final ConcurrentHashMap<String, Integer> indexes = new ConcurrentHashMap<>();
+    private volatile String[] ids = new String[1024];
+    private volatile int size;
+
+    /**
+     * Index of the id, assigning the next free index if it has not been seen before.
+     */
+    public int intern(String id) {
+        Integer existing = indexes.get(id);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (this) {
+            existing = indexes.get(id);
+            if (existing != null) {
+                return existing;
+            }
+            int index = size;
+            if (index == ids.length) {
+                ids = Arrays.copyOf(ids, index * 2);
+            }
+            ids[index] = id;
+            indexes.put(id, index);
+            size = index + 1;
+            return index;
+        }
+    }
+
+    /**
+     * Index of the id, or -1 if it has never been interned.
+     */
+    public int indexOf(String id) {
+        Integer index = id != null ? indexes.get(id) : null;
+        return index != null ? index : -1;
+    }
+
+    public String idOf(int index) {
+        return ids[index];
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,211 @@
+package com.neo4flix.movieservice.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntPredicate;
+
+/**
+ * Precomputed top-K item neighbours with adjusted-cosine similarity.
+ *
+ * Adjusted cosine subtracts each user's mean rating before comparing two movies, so
+ * generous and strict raters contribute on the same scale. Neighbour lists are stored
+ * flat: movie m owns slots [m * k, m * k + count(m)) of the neighbour and similarity
+ * arrays, in descending similarity order.
+ *
+ * Building walks, for every movie, its raters (CSC) and their other movies (CSR), so the
+ * cost is the number of co-ratings rather than movies squared. Movie ranges are split
+ * across a ForkJoinPool; each leaf task owns its scratch arrays.
+ */
+public final class ItemNeighbourIndex {
+
+    private static final int LEAF_SIZE = 64;
+
+    private final int numMovies;
+    private final int k;
+    private final int[] neighbours;
+    private final float[] similarities;
+    private final int[] counts;
+
+    private ItemNeighbourIndex(int numMovies, int k, int[] neighbours, float[] similarities, int[] counts) {
+        this.numMovies = numMovies;
+        this.k = k;
+        this.neighbours = neighbours;
+        this.similarities = similarities;
+        this.counts = counts;
+    }
+
+    /**
+     * Compute the index for every movie of the matrix.
+     *
+     * @param k                maximum neighbours kept per movie
+     * @param minCommonRatings minimum number of users who rated both movies
+     * @param minSimilarity    neighbours at or below this similarity are dropped
+     */
+    public static ItemNeighbourIndex build(SparseRatingMatrix matrix, int k, int minCommonRatings,
+                                           double minSimilarity, ForkJoinPool pool) {
+        int numMovies = matrix.numMovies();
+        float[] userMeans = new float[matrix.numUsers()];
+        for (int u = 0; u < userMeans.length; u++) {
+            userMeans[u] = matrix.meanRatingOfUser(u);
+        }
+
+        ItemNeighbourIndex index = new ItemNeighbourIndex(numMovies, k,
+                new int[numMovies * k], new float[numMovies * k], new int[numMovies]);
+        pool.invoke(new BuildTask(matrix, userMeans, index, minCommonRatings, minSimilarity, 0, numMovies));
+        return index;
+    }
+
+    public int numMovies() {
+        return numMovies;
+    }
+
+    public int neighbourCount(int movie) {
+        return movie < numMovies ? counts[movie] : 0;
+    }
+
+    public int neighbour(int movie, int rank) {
+        return neighbours[movie * k + rank];
+    }
+
+    public float similarity(int movie, int rank) {
+        return similarities[movie * k + rank];
+    }
+
+    /**
+     * Predicted ratings for movies the user has not rated:
+     * userMean + sum(sim * (rating - userMean)) / sum(|sim|) over the user's rated movies.
+     *
+     * @param movieFilter extra predicate on movie indexes, or null to accept all
+     */
+    public TopK recommend(SparseRatingMatrix matrix, int user, int limit, IntPredicate movieFilter) {
+        int start = matrix.rowStart(user);
+        int end = matrix.rowEnd(user);
+        float userMean = matrix.meanRatingOfUser(user);
+        TopK top = new TopK(limit);
+        if (start == end) {
+            return top;
+        }
+
+        float[] numerator = new float[numMovies];
+        float[] denominator = new float[numMovies];
+        int[] touched = new int[Math.min(numMovies, (end - start) * k)];
+        int touchedCount = 0;
+
+        for (int i = start; i < end; i++) {
+            int rated = matrix.rowMovie(i);
+            float deviation = matrix.rowRating(i) - userMean;
+            for (int n = 0; n < neighbourCount(rated); n++) {
+                int candidate = neighbour(rated, n);
+                float similarity = similarity(rated, n);
+                if (denominator[candidate] == 0f && touchedCount < touched.length) {
+                    touched[touchedCount++] = candidate;
+                }
+                numerator[candidate] += similarity * deviation;
+                denominator[candidate] += Math.abs(similarity);
+            }
+        }
+
+        for (int t = 0; t < touchedCount; t++) {
+            int candidate = touched[t];
+            if (matrix.hasRated(user, candidate) || (movieFilter != null && !movieFilter.test(candidate))) {
+                continue;
+            }
+            float predicted = userMean + numerator[candidate] / denominator[candidate];
+            top.offer(candidate, Math.max(0f, Math.min(5f, predicted)));
+        }
+        return top;
+    }
+
+    private static final class BuildTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SparseRatingMatrix matrix;
+        private final float[] userMeans;
+        private final ItemNeighbourIndex index;
+        private final int minCommonRatings;
+        private final double minSimilarity;
+        private final int from;
+        private final int to;
+
+        BuildTask(SparseRatingMatrix matrix, float[] userMeans, ItemNeighbourIndex index,
+                  int minCommonRatings, double minSimilarity, int from, int to) {
+            this.matrix = matrix;
+            this.userMeans = userMeans;
+            this.index = index;
+            this.minCommonRatings = minCommonRatings;
+            this.minSimilarity = minSimilarity;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_SIZE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BuildTask(matrix, userMeans, index, minCommonRatings, minSimilarity, from, mid),
+                          new BuildTask(matrix, userMeans, index, minCommonRatings, minSimilarity, mid, to));
+                return;
+            }
+
+            int numMovies = matrix.numMovies();
+            double[] dot = new double[numMovies];
+            double[] squaresI = new double[numMovies];
+            double[] squaresJ = new double[numMovies];
+            int[] common = new int[numMovies];
+            int[] touched = new int[numMovies];
+
+            for (int movie = from; movie < to; movie++) {
+                int touchedCount = 0;
+
+                for (int c = matrix.colStart(movie); c < matrix.colEnd(movie); c++) {
+                    int user = matrix.colUser(c);
+                    double di = matrix.colRating(c) - userMeans[user];
+                    for (int r = matrix.rowStart(user); r < matrix.rowEnd(user); r++) {
+                        int other = matrix.rowMovie(r);
+                        if (other == movie) {
+                            continue;
+                        }
+                        if (common[other] == 0) {
+                            touched[touchedCount++] = other;
+                        }
+                        double dj = matrix.rowRating(r) - userMeans[user];
+                        common[other]++;
+                        dot[other] += di * dj;
+                        squaresI[other] += di * di;
+                        squaresJ[other] += dj * dj;
+                    }
+                }
+
+                TopK top = new TopK(index.k);
+                for (int t = 0; t < touchedCount; t++) {
+                    int other = touched[t];
+                    if (common[other] >= minCommonRatings && squaresI[other] > 0 && squaresJ[other] > 0) {
+                        double similarity = dot[other] / (Math.sqrt(squaresI[other]) * Math.sqrt(squaresJ[other]));
+                        if (similarity > minSimilarity) {
+                            top.offer(other, (float) similarity);
+                        }
+                    }
+                    common[other] = 0;
+                    dot[other] = 0.0;
+                    squaresI[other] = 0.0;
+                    squaresJ[other] = 0.0;
+                }
+
+                int base = movie * index.k;
+                for (int rank = 0; rank < top.size(); rank++) {
+                    index.neighbours[base + rank] = top.id(rank);
+                    index.similarities[base + rank] = top.score(rank);
+                }
+                index.counts[movie] = top.size();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        long total = Arrays.stream(counts).asLongStream().sum();
+        return String.format("ItemNeighbourIndex{movies=%d, k=%d, neighbours=%d}", numMovies, k, total);
+    }
+}
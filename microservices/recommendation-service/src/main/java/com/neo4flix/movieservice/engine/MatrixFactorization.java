@@ -0,0 +1,331 @@
+package com.neo4flix.movieservice.engine;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntPredicate;
+
+/**
+ * Explicit-feedback ALS matrix factorization: rating(u, m) ~ mean + userFactors(u) . movieFactors(m).
+ *
+ * Training alternates between solving every user's factors with movie factors fixed and
+ * vice versa. Each row is an independent rank x rank ridge regression solved by Cholesky
+ * decomposition, so a half-step is split into blocks of rows across a ForkJoinPool.
+ * Factors are stored row-major in flat float arrays.
+ *
+ * At serving time the user's factors are re-solved ("folded in") from their current row of
+ * the rating matrix, so ratings made since training are reflected immediately. Scoring is
+ * one dot product per movie into a bounded heap, using thread-local scratch buffers.
+ */
+public final class MatrixFactorization {
+
+    private static final int BLOCK_SIZE = 256;
+    private static final ThreadLocal<float[]> FOLD_IN_FACTORS = ThreadLocal.withInitial(() -> new float[0]);
+    private static final ThreadLocal<Solver> FOLD_IN_SOLVER = new ThreadLocal<>();
+
+    private final int rank;
+    private final float lambda;
+    private final float globalMean;
+    private final int numUsers;
+    private final int numMovies;
+    private final float[] userFactors;
+    private final float[] movieFactors;
+
+    private MatrixFactorization(int rank, float lambda, float globalMean, int numUsers, int numMovies,
+                                float[] userFactors, float[] movieFactors) {
+        this.rank = rank;
+        this.lambda = lambda;
+        this.globalMean = globalMean;
+        this.numUsers = numUsers;
+        this.numMovies = numMovies;
+        this.userFactors = userFactors;
+        this.movieFactors = movieFactors;
+    }
+
+    /**
+     * Train a model on the matrix.
+     *
+     * @param warmStart previous model whose factors seed the rows it already knows
+     *                  (ids are interned append-only, so indexes stay aligned); null for a random start
+     */
+    public static MatrixFactorization train(SparseRatingMatrix matrix, int rank, float lambda, int iterations,
+                                            MatrixFactorization warmStart, ForkJoinPool pool, long seed) {
+        int numUsers = matrix.numUsers();
+        int numMovies = matrix.numMovies();
+
+        double sum = 0.0;
+        for (int u = 0; u < numUsers; u++) {
+            for (int i = matrix.rowStart(u); i < matrix.rowEnd(u); i++) {
+                sum += matrix.rowRating(i);
+            }
+        }
+        float globalMean = matrix.nonZeros() > 0 ? (float) (sum / matrix.nonZeros()) : 0f;
+
+        boolean warm = warmStart != null && warmStart.rank == rank;
+        float[] userFactors = new float[numUsers * rank];
+        float[] movieFactors = new float[numMovies * rank];
+        Random random = new Random(seed);
+        float scale = (float) (0.1 / Math.sqrt(rank));
+        for (int i = 0; i < movieFactors.length; i++) {
+            movieFactors[i] = (float) random.nextGaussian() * scale;
+        }
+        if (warm) {
+            System.arraycopy(warmStart.movieFactors, 0, movieFactors, 0,
+                    Math.min(warmStart.movieFactors.length, movieFactors.length));
+            System.arraycopy(warmStart.userFactors, 0, userFactors, 0,
+                    Math.min(warmStart.userFactors.length, userFactors.length));
+        }
+
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            pool.invoke(new SolveTask(matrix, true, rank, lambda, globalMean, movieFactors, userFactors, 0, numUsers));
+            pool.invoke(new SolveTask(matrix, false, rank, lambda, globalMean, userFactors, movieFactors, 0, numMovies));
+        }
+
+        return new MatrixFactorization(rank, lambda, globalMean, numUsers, numMovies, userFactors, movieFactors);
+    }
+
+    public int rank() {
+        return rank;
+    }
+
+    public int numMovies() {
+        return numMovies;
+    }
+
+    /**
+     * Copy of the movie's latent factors, or null if the movie is unknown to the model.
+     */
+    public float[] movieFactors(int movie) {
+        return movie >= 0 && movie < numMovies
+                ? Arrays.copyOfRange(movieFactors, movie * rank, (movie + 1) * rank)
+                : null;
+    }
+
+    /**
+     * Root mean squared error of the model over the ratings in the matrix.
+     */
+    public double rmse(SparseRatingMatrix matrix) {
+        double squaredError = 0.0;
+        long count = 0;
+        for (int u = 0; u < Math.min(numUsers, matrix.numUsers()); u++) {
+            for (int i = matrix.rowStart(u); i < matrix.rowEnd(u); i++) {
+                int movie = matrix.rowMovie(i);
+                if (movie < numMovies) {
+                    double error = matrix.rowRating(i) - predict(userFactors, u * rank, movie);
+                    squaredError += error * error;
+                    count++;
+                }
+            }
+        }
+        return count > 0 ? Math.sqrt(squaredError / count) : 0.0;
+    }
+
+    /**
+     * Predicted rating of one movie for the user's current ratings, NaN if either is unknown to the model.
+     */
+    public float predict(SparseRatingMatrix matrix, int user, int movie) {
+        if (movie >= numMovies || matrix.ratingCountOfUser(user) == 0) {
+            return Float.NaN;
+        }
+        return clamp(predict(foldIn(matrix, user), 0, movie));
+    }
+
+    /**
+     * Movies the user has not rated, ranked by predicted rating.
+     *
+     * @param movieFilter extra predicate on movie indexes, or null to accept all
+     */
+    public TopK recommend(SparseRatingMatrix matrix, int user, int limit, IntPredicate movieFilter) {
+        TopK top = new TopK(limit);
+        if (matrix.ratingCountOfUser(user) == 0) {
+            return top;
+        }
+
+        float[] factors = foldIn(matrix, user);
+        for (int movie = 0; movie < numMovies; movie++) {
+            float score = clamp(predict(factors, 0, movie));
+            if (score <= top.threshold() || matrix.hasRated(user, movie)
+                    || (movieFilter != null && !movieFilter.test(movie))) {
+                continue;
+            }
+            top.offer(movie, score);
+        }
+        return top;
+    }
+
+    private float predict(float[] factors, int offset, int movie) {
+        float dot = globalMean;
+        int movieOffset = movie * rank;
+        for (int f = 0; f < rank; f++) {
+            dot += factors[offset + f] * movieFactors[movieOffset + f];
+        }
+        return dot;
+    }
+
+    /**
+     * Solve the user's factors from their current ratings with movie factors fixed.
+     * Returns a thread-local buffer valid until the next call on the same thread.
+     */
+    private float[] foldIn(SparseRatingMatrix matrix, int user) {
+        float[] factors = FOLD_IN_FACTORS.get();
+        if (factors.length != rank) {
+            factors = new float[rank];
+            FOLD_IN_FACTORS.set(factors);
+        }
+        Solver solver = FOLD_IN_SOLVER.get();
+        if (solver == null || solver.rank != rank) {
+            solver = new Solver(rank);
+            FOLD_IN_SOLVER.set(solver);
+        }
+
+        solver.reset();
+        int count = 0;
+        for (int i = matrix.rowStart(user); i < matrix.rowEnd(user); i++) {
+            int movie = matrix.rowMovie(i);
+            if (movie < numMovies) {
+                solver.add(movieFactors, movie * rank, matrix.rowRating(i) - globalMean);
+                count++;
+            }
+        }
+        if (count == 0) {
+            Arrays.fill(factors, 0f);
+        } else {
+            solver.solve(lambda * count, factors, 0);
+        }
+        return factors;
+    }
+
+    private static float clamp(float rating) {
+        return Math.max(0f, Math.min(5f, rating));
+    }
+
+    /**
+     * Solves the rows [from, to) of one side (users or movies) with the other side fixed.
+     */
+    private static final class SolveTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SparseRatingMatrix matrix;
+        private final boolean byUser;
+        private final int rank;
+        private final float lambda;
+        private final float globalMean;
+        private final float[] fixed;
+        private final float[] target;
+        private final int from;
+        private final int to;
+
+        SolveTask(SparseRatingMatrix matrix, boolean byUser, int rank, float lambda, float globalMean,
+                  float[] fixed, float[] target, int from, int to) {
+            this.matrix = matrix;
+            this.byUser = byUser;
+            this.rank = rank;
+            this.lambda = lambda;
+            this.globalMean = globalMean;
+            this.fixed = fixed;
+            this.target = target;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BLOCK_SIZE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SolveTask(matrix, byUser, rank, lambda, globalMean, fixed, target, from, mid),
+                          new SolveTask(matrix, byUser, rank, lambda, globalMean, fixed, target, mid, to));
+                return;
+            }
+
+            Solver solver = new Solver(rank);
+            for (int row = from; row < to; row++) {
+                int start = byUser ? matrix.rowStart(row) : matrix.colStart(row);
+                int end = byUser ? matrix.rowEnd(row) : matrix.colEnd(row);
+                if (start == end) {
+                    Arrays.fill(target, row * rank, (row + 1) * rank, 0f);
+                    continue;
+                }
+
+                solver.reset();
+                for (int i = start; i < end; i++) {
+                    int other = byUser ? matrix.rowMovie(i) : matrix.colUser(i);
+                    float rating = byUser ? matrix.rowRating(i) : matrix.colRating(i);
+                    solver.add(fixed, other * rank, rating - globalMean);
+                }
+                // Weighted-lambda regularization: rows with more ratings get proportionally more
+                solver.solve(lambda * (end - start), target, row * rank);
+            }
+        }
+    }
+
+    /**
+     * Accumulates the normal equations (Y^T Y + reg I) x = Y^T r for one row and solves them.
+     */
+    private static final class Solver {
+
+        private final int rank;
+        private final double[] a;
+        private final double[] b;
+
+        Solver(int rank) {
+            this.rank = rank;
+            this.a = new double[rank * rank];
+            this.b = new double[rank];
+        }
+
+        void reset() {
+            Arrays.fill(a, 0.0);
+            Arrays.fill(b, 0.0);
+        }
+
+        void add(float[] factors, int offset, float value) {
+            for (int i = 0; i < rank; i++) {
+                double yi = factors[offset + i];
+                b[i] += yi * value;
+                for (int j = 0; j <= i; j++) {
+                    a[i * rank + j] += yi * factors[offset + j];
+                }
+            }
+        }
+
+        void solve(double regularization, float[] out, int offset) {
+            // Cholesky decomposition of the lower triangle in place: a = L L^T
+            for (int i = 0; i < rank; i++) {
+                a[i * rank + i] += regularization;
+            }
+            for (int j = 0; j < rank; j++) {
+                double diagonal = a[j * rank + j];
+                for (int k = 0; k < j; k++) {
+                    diagonal -= a[j * rank + k] * a[j * rank + k];
+                }
+                diagonal = Math.sqrt(Math.max(diagonal, 1e-12));
+                a[j * rank + j] = diagonal;
+                for (int i = j + 1; i < rank; i++) {
+                    double value = a[i * rank + j];
+                    for (int k = 0; k < j; k++) {
+                        value -= a[i * rank + k] * a[j * rank + k];
+                    }
+                    a[i * rank + j] = value / diagonal;
+                }
+            }
+            // Forward substitution L y = b, then back substitution L^T x = y
+            for (int i = 0; i < rank; i++) {
+                double value = b[i];
+                for (int k = 0; k < i; k++) {
+                    value -= a[i * rank + k] * b[k];
+                }
+                b[i] = value / a[i * rank + i];
+            }
+            for (int i = rank - 1; i >= 0; i--) {
+                double value = b[i];
+                for (int k = i + 1; k < rank; k++) {
+                    value -= a[k * rank + i] * b[k];
+                }
+                b[i] = value / a[i * rank + i];
+                out[offset + i] = (float) b[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.neo4flix.movieservice.engine;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Encodes a movie's metadata as a unit-length feature vector for the similar-movies index.
+ *
+ * The vector is made of blocks, each normalized on its own and then scaled by its weight,
+ * so that a movie with thirty credited actors does not drown out its genres:
+ * <ul>
+ *   <li>genres: one-hot over a fixed genre vocabulary</li>
+ *   <li>directors and actors: signed feature hashing of names into fixed-size buckets</li>
+ *   <li>release year: Gaussian-smoothed decade buckets, so nearby years stay similar</li>
+ *   <li>optionally, the movie's matrix factorization factors</li>
+ * </ul>
+ * The cosine similarity of two vectors is then a weighted blend of how much each block agrees.
+ */
+public final class MovieFeatureEncoder {
+
+    public static final int DIRECTOR_BUCKETS = 32;
+    public static final int ACTOR_BUCKETS = 64;
+
+    private static final int FIRST_DECADE = 1900;
+    private static final int YEAR_BUCKETS = 14;
+
+    private static final float GENRE_WEIGHT = 1.0f;
+    private static final float DIRECTOR_WEIGHT = 0.8f;
+    private static final float ACTOR_WEIGHT = 0.7f;
+    private static final float YEAR_WEIGHT = 0.4f;
+    private static final float FACTOR_WEIGHT = 0.6f;
+
+    private final List<String> genres;
+    private final Map<String, Integer> genreIndexes;
+    private final int factorRank;
+
+    /**
+     * @param genres     genre vocabulary; its order defines the one-hot layout
+     * @param factorRank number of matrix factorization dimensions appended, 0 for none
+     */
+    public MovieFeatureEncoder(List<String> genres, int factorRank) {
+        this.genres = List.copyOf(genres);
+        this.genreIndexes = new HashMap<>();
+        for (int i = 0; i < this.genres.size(); i++) {
+            genreIndexes.put(this.genres.get(i), i);
+        }
+        this.factorRank = factorRank;
+    }
+
+    public List<String> genres() {
+        return genres;
+    }
+
+    public int factorRank() {
+        return factorRank;
+    }
+
+    public int dimension() {
+        return genres.size() + DIRECTOR_BUCKETS + ACTOR_BUCKETS + YEAR_BUCKETS + factorRank;
+    }
+
+    public boolean knowsGenre(String genre) {
+        return genreIndexes.containsKey(genre);
+    }
+
+    /**
+     * @param releaseYear null if unknown
+     * @param factors     the movie's latent factors (length factorRank), or null
+     */
+    public float[] encode(Collection<String> movieGenres, Collection<String> directors, Collection<String> actors,
+                          Integer releaseYear, float[] factors) {
+        float[] vector = new float[dimension()];
+        int offset = 0;
+
+        for (String genre : movieGenres) {
+            Integer index = genreIndexes.get(genre);
+            if (index != null) {
+                vector[offset + index] = 1f;
+            }
+        }
+        normalizeBlock(vector, offset, genres.size(), GENRE_WEIGHT);
+        offset += genres.size();
+
+        hashNames(directors, vector, offset, DIRECTOR_BUCKETS);
+        normalizeBlock(vector, offset, DIRECTOR_BUCKETS, DIRECTOR_WEIGHT);
+        offset += DIRECTOR_BUCKETS;
+
+        hashNames(actors, vector, offset, ACTOR_BUCKETS);
+        normalizeBlock(vector, offset, ACTOR_BUCKETS, ACTOR_WEIGHT);
+        offset += ACTOR_BUCKETS;
+
+        if (releaseYear != null) {
+            float decade = (releaseYear - FIRST_DECADE) / 10f;
+            for (int bucket = 0; bucket < YEAR_BUCKETS; bucket++) {
+                float gap = bucket - decade;
+                vector[offset + bucket] = (float) Math.exp(-0.5 * gap * gap);
+            }
+            normalizeBlock(vector, offset, YEAR_BUCKETS, YEAR_WEIGHT);
+        }
+        offset += YEAR_BUCKETS;
+
+        if (factorRank > 0 && factors != null) {
+            System.arraycopy(factors, 0, vector, offset, factorRank);
+            normalizeBlock(vector, offset, factorRank, FACTOR_WEIGHT);
+        }
+
+        normalizeBlock(vector, 0, vector.length, 1f);
+        return vector;
+    }
+
+    private static void hashNames(Collection<String> names, float[] vector, int offset, int buckets) {
+        for (String name : names) {
+            if (name == null) {
+                continue;
+            }
+            int hash = name.toLowerCase(Locale.ROOT).hashCode() * 0x9E3779B1;
+            // The sign bit keeps colliding names from always reinforcing each other
+            vector[offset + ((hash >>> 1) % buckets)] += hash < 0 ? -1f : 1f;
+        }
+    }
+
+    private static void normalizeBlock(float[] vector, int offset, int length, float weight) {
+        double norm = 0.0;
+        for (int i = offset; i < offset + length; i++) {
+            norm += vector[i] * vector[i];
+        }
+        if (norm == 0.0) {
+            return;
+        }
+        float scale = (float) (weight / Math.sqrt(norm));
+        for (int i = offset; i < offset + length; i++) {
+            vector[i] *= scale;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.neo4flix.movieservice.engine;
+
+import java.util.Arrays;
+
+/**
+ * A user's taste as a sparse vector of feature affinities (genres, directors, actors,
+ * release decades), keyed by int feature ids.
+ *
+ * Stored as an open-addressing hash map of primitive keys and weights, so a profile of a
+ * few hundred features takes a few kilobytes and adding a rated movie's features costs
+ * O(1) per feature. The squared norm is kept up to date with every change, which lets
+ * dot() return a cosine without another pass over the profile.
+ *
+ * Not thread-safe: callers synchronize on the profile, and score against a copy().
+ */
+public final class PreferenceProfile {
+
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private float[] weights;
+    private int size;
+    private double squaredNorm;
+    private int ratings;
+
+    public PreferenceProfile() {
+        this(16);
+    }
+
+    private PreferenceProfile(int capacity) {
+        keys = new int[capacity];
+        weights = new float[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Add (or with a negative sign, remove) one rated movie's features, each scaled by
+     * the movie's feature weight and the rating's affinity.
+     */
+    public void add(int[] features, float[] featureWeights, float affinity, int sign) {
+        for (int i = 0; i < features.length; i++) {
+            addWeight(features[i], sign * affinity * featureWeights[i]);
+        }
+        ratings = Math.max(0, ratings + sign);
+    }
+
+    public float weight(int feature) {
+        int slot = find(feature);
+        return slot >= 0 ? weights[slot] : 0f;
+    }
+
+    /**
+     * Cosine of the profile and a unit-length sparse movie vector; 0 for an empty profile.
+     */
+    public float dot(int[] features, float[] featureWeights) {
+        if (squaredNorm <= 0.0) {
+            return 0f;
+        }
+        double sum = 0.0;
+        for (int i = 0; i < features.length; i++) {
+            int slot = find(features[i]);
+            if (slot >= 0) {
+                sum += weights[slot] * featureWeights[i];
+            }
+        }
+        return (float) (sum / Math.sqrt(squaredNorm));
+    }
+
+    /**
+     * Number of ratings folded into the profile.
+     */
+    public int ratings() {
+        return ratings;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public PreferenceProfile copy() {
+        PreferenceProfile copy = new PreferenceProfile(0);
+        copy.keys = keys.clone();
+        copy.weights = weights.clone();
+        copy.size = size;
+        copy.squaredNorm = squaredNorm;
+        copy.ratings = ratings;
+        return copy;
+    }
+
+    private void addWeight(int feature, float delta) {
+        if (delta == 0f) {
+            return;
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = mix(feature) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != feature) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == EMPTY) {
+            keys[slot] = feature;
+            size++;
+        }
+        float previous = weights[slot];
+        float updated = previous + delta;
+        weights[slot] = updated;
+        // Recomputed from the stored values so rounding cannot let the norm drift below zero
+        squaredNorm = Math.max(0.0, squaredNorm + (double) updated * updated - (double) previous * previous);
+    }
+
+    private int find(int feature) {
+        int mask = keys.length - 1;
+        int slot = mix(feature) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == feature) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        float[] oldWeights = weights;
+        keys = new int[capacity];
+        weights = new float[capacity];
+        Arrays.fill(keys, EMPTY);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                weights[slot] = oldWeights[i];
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int hash = key * 0x9E3779B1;
+        return hash ^ (hash >>> 16);
+    }
+}
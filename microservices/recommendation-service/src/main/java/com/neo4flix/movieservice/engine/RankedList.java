@@ -0,0 +1,47 @@
+package com.neo4flix.movieservice.engine;
+
+/**
+ * Immutable list of int ids in descending score order, copied out of a {@link TopK} so
+ * that any number of threads can read it.
+ */
+public final class RankedList {
+
+    private static final RankedList EMPTY = new RankedList(new int[0], new float[0]);
+
+    private final int[] ids;
+    private final float[] scores;
+
+    private RankedList(int[] ids, float[] scores) {
+        this.ids = ids;
+        this.scores = scores;
+    }
+
+    public static RankedList empty() {
+        return EMPTY;
+    }
+
+    public static RankedList of(TopK top) {
+        int[] ids = new int[top.size()];
+        float[] scores = new float[top.size()];
+        for (int rank = 0; rank < ids.length; rank++) {
+            ids[rank] = top.id(rank);
+            scores[rank] = top.score(rank);
+        }
+        return new RankedList(ids, scores);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Id at the given rank, 0 being the highest score.
+     */
+    public int id(int rank) {
+        return ids[rank];
+    }
+
+    public float score(int rank) {
+        return scores[rank];
+    }
+}
@@ -0,0 +1,136 @@
+package com.neo4flix.movieservice.engine;
+
+import java.util.Arrays;
+
+/**
+ * Merges the scored results of several algorithm branches into one ranking.
+ *
+ * Branch scores are stored by interned movie index in per-thread primitive arrays, and
+ * only the movies that were touched are visited and reset, so a merge is linear in the
+ * number of branch results and allocates nothing but the final top-k heap. A movie's
+ * merged score is the weighted average of the branches that scored it above zero.
+ *
+ * Optional diversity jitter multiplies each merged score by a factor in
+ * [1 - jitter / 2, 1 + jitter / 2], drawn once per movie from a seeded generator, so the
+ * same seed always gives the same order.
+ *
+ * Usage: {@code ScoreMerger merger = ScoreMerger.begin(branches); merger.add(...); merger.select(...)}
+ * on one thread; the merger is reused by the next begin on that thread.
+ */
+public final class ScoreMerger {
+
+    private static final ThreadLocal<ScoreMerger> SCRATCH = ThreadLocal.withInitial(ScoreMerger::new);
+
+    private int branches;
+    private float[] scores = new float[0];
+    private boolean[] seen = new boolean[0];
+    private int[] touched = new int[64];
+    private int touchedCount;
+
+    private ScoreMerger() {
+    }
+
+    /**
+     * This thread's merger, cleared for a merge of the given number of branches.
+     */
+    public static ScoreMerger begin(int branches) {
+        ScoreMerger merger = SCRATCH.get();
+        merger.reset(branches);
+        return merger;
+    }
+
+    /**
+     * Record a branch's score for a movie. If the branch scores the movie twice, the higher score is kept.
+     */
+    public void add(int branch, int movie, float score) {
+        ensureMovies(movie + 1);
+        if (!seen[movie]) {
+            seen[movie] = true;
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touchedCount * 2);
+            }
+            touched[touchedCount++] = movie;
+        }
+        int index = movie * branches + branch;
+        if (score > scores[index]) {
+            scores[index] = score;
+        }
+    }
+
+    /**
+     * Number of distinct movies added so far.
+     */
+    public int size() {
+        return touchedCount;
+    }
+
+    /**
+     * The branch's score for the movie, 0 if the branch did not return it.
+     */
+    public float branchScore(int movie, int branch) {
+        return movie < seen.length && seen[movie] ? scores[movie * branches + branch] : 0f;
+    }
+
+    /**
+     * The k movies with the highest merged score.
+     *
+     * @param weights one weight per branch
+     * @param jitter  width of the diversity jitter, 0 for none
+     * @param seed    seed of the jitter
+     */
+    public TopK select(int k, float[] weights, float jitter, long seed) {
+        TopK top = new TopK(k);
+        for (int t = 0; t < touchedCount; t++) {
+            int movie = touched[t];
+            float weighted = 0f;
+            float totalWeight = 0f;
+            for (int branch = 0; branch < branches; branch++) {
+                float score = scores[movie * branches + branch];
+                if (score > 0f) {
+                    weighted += score * weights[branch];
+                    totalWeight += weights[branch];
+                }
+            }
+            float merged = totalWeight > 0f ? weighted / totalWeight : 0f;
+            if (jitter > 0f) {
+                merged *= 1f - jitter / 2f + jitter * uniform(seed, movie);
+            }
+            top.offer(movie, merged);
+        }
+        return top;
+    }
+
+    private void reset(int branches) {
+        // Clear only what the previous merge touched, with its own branch count
+        for (int t = 0; t < touchedCount; t++) {
+            int movie = touched[t];
+            seen[movie] = false;
+            Arrays.fill(scores, movie * this.branches, (movie + 1) * this.branches, 0f);
+        }
+        touchedCount = 0;
+        if (branches != this.branches) {
+            this.branches = branches;
+            scores = new float[seen.length * branches];
+        }
+    }
+
+    private void ensureMovies(int movies) {
+        if (movies <= seen.length) {
+            return;
+        }
+        int capacity = Math.max(movies, seen.length * 2);
+        seen = Arrays.copyOf(seen, capacity);
+        scores = Arrays.copyOf(scores, capacity * branches);
+    }
+
+    /**
+     * Uniform value in [0, 1) determined by the seed and the movie (SplitMix64 finalizer).
+     */
+    private static float uniform(long seed, int movie) {
+        long z = seed + (movie + 1L) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 40) * 0x1.0p-24f;
+    }
+}
@@ -0,0 +1,85 @@
+package com.neo4flix.movieservice.engine;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent computations of the same key into one.
+ *
+ * The first caller for a key runs the computation on its own thread; callers arriving
+ * while it runs wait for it and get the same result, or the same exception. The key is
+ * released as soon as the computation finishes, so nothing is cached: a caller arriving
+ * afterwards starts a new computation.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Outcome of one call: the value, and whether it was computed by another caller.
+     */
+    public static final class Result<V> {
+
+        private final V value;
+        private final boolean shared;
+
+        Result(V value, boolean shared) {
+            this.value = value;
+            this.shared = shared;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public boolean isShared() {
+            return shared;
+        }
+    }
+
+    /**
+     * Run the computation for the key, or wait for the one already running.
+     */
+    public Result<V> execute(K key, Supplier<V> computation) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            return new Result<>(await(running), true);
+        }
+
+        try {
+            V value = computation.get();
+            flight.complete(value);
+            return new Result<>(value, false);
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * Number of keys being computed right now.
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            // Rethrow what the computing caller got rather than the wrapper
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
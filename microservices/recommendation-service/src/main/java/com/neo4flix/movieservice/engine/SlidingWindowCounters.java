@@ -0,0 +1,69 @@
+package com.neo4flix.movieservice.engine;
+
+import java.util.Arrays;
+
+/**
+ * A fixed set of event counters summed over a sliding time window.
+ *
+ * The window is split into buckets of equal length kept in a ring; each bucket remembers
+ * which period it holds, and is cleared when the ring comes back round to it. Adding is
+ * O(1) and allocation-free, and summing is O(buckets). The window
+ * moves one bucket at a time, so a sum covers between (buckets - 1) and buckets periods.
+ */
+public final class SlidingWindowCounters {
+
+    private final int counters;
+    private final int buckets;
+    private final long bucketMs;
+    private final long[] periods;
+    private final long[] counts;
+
+    /**
+     * @param counters number of counters, addressed 0 to counters - 1
+     * @param buckets  number of buckets in the window
+     * @param bucketMs length of one bucket
+     */
+    public SlidingWindowCounters(int counters, int buckets, long bucketMs) {
+        this.counters = counters;
+        this.buckets = buckets;
+        this.bucketMs = bucketMs;
+        this.periods = new long[buckets];
+        this.counts = new long[buckets * counters];
+        Arrays.fill(periods, -1L);
+    }
+
+    public synchronized void add(int counter, long delta, long nowMs) {
+        long period = nowMs / bucketMs;
+        int bucket = (int) (period % buckets);
+        if (periods[bucket] != period) {
+            // Left over from a previous lap of the ring
+            Arrays.fill(counts, bucket * counters, (bucket + 1) * counters, 0L);
+            periods[bucket] = period;
+        }
+        counts[bucket * counters + counter] += delta;
+    }
+
+    public void increment(int counter, long nowMs) {
+        add(counter, 1, nowMs);
+    }
+
+    /**
+     * Sum of every counter over the window ending at nowMs, indexed by counter.
+     */
+    public synchronized long[] sums(long nowMs) {
+        long current = nowMs / bucketMs;
+        long[] sums = new long[counters];
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            if (periods[bucket] > current - buckets && periods[bucket] <= current) {
+                for (int counter = 0; counter < counters; counter++) {
+                    sums[counter] += counts[bucket * counters + counter];
+                }
+            }
+        }
+        return sums;
+    }
+
+    public long windowMs() {
+        return buckets * bucketMs;
+    }
+}
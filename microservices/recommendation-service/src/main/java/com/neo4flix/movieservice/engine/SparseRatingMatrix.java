@@ -0,0 +1,253 @@
+package com.neo4flix.movieservice.engine;
+
+import java.util.Arrays;
+
+/**
+ * Immutable user x movie rating matrix stored twice: CSR by user and CSC by movie.
+ *
+ * Users and movies are the int indexes handed out by the service's IdInterners.
+ * Within a row, movies are sorted ascending (and within a column, users are), so
+ * single cells can be found by binary search. Ratings are floats; a missing cell
+ * is reported as NaN.
+ *
+ * Updates never modify a snapshot: {@link #withUserRows} builds a new one, so readers
+ * can keep using the instance they hold without locking.
+ */
+public final class SparseRatingMatrix {
+
+    private final int numUsers;
+    private final int numMovies;
+
+    // CSR: row u spans [userPtr[u], userPtr[u + 1]) in rowMovies / rowRatings
+    private final int[] userPtr;
+    private final int[] rowMovies;
+    private final float[] rowRatings;
+
+    // CSC: column m spans [moviePtr[m], moviePtr[m + 1]) in colUsers / colRatings
+    private final int[] moviePtr;
+    private final int[] colUsers;
+    private final float[] colRatings;
+
+    private SparseRatingMatrix(int numUsers, int numMovies,
+                               int[] userPtr, int[] rowMovies, float[] rowRatings) {
+        this.numUsers = numUsers;
+        this.numMovies = numMovies;
+        this.userPtr = userPtr;
+        this.rowMovies = rowMovies;
+        this.rowRatings = rowRatings;
+
+        int nnz = rowMovies.length;
+        this.moviePtr = new int[numMovies + 1];
+        this.colUsers = new int[nnz];
+        this.colRatings = new float[nnz];
+        for (int i = 0; i < nnz; i++) {
+            moviePtr[rowMovies[i] + 1]++;
+        }
+        for (int m = 0; m < numMovies; m++) {
+            moviePtr[m + 1] += moviePtr[m];
+        }
+        int[] next = Arrays.copyOf(moviePtr, numMovies);
+        // Walking rows in user order keeps each column sorted by user
+        for (int u = 0; u < numUsers; u++) {
+            for (int i = userPtr[u]; i < userPtr[u + 1]; i++) {
+                int slot = next[rowMovies[i]]++;
+                colUsers[slot] = u;
+                colRatings[slot] = rowRatings[i];
+            }
+        }
+    }
+
+    public static SparseRatingMatrix empty() {
+        return new SparseRatingMatrix(0, 0, new int[1], new int[0], new float[0]);
+    }
+
+    /**
+     * Build a matrix from parallel (user, movie, rating) triples.
+     * When the same cell appears more than once, the last triple wins.
+     */
+    public static SparseRatingMatrix fromTriples(int numUsers, int numMovies,
+                                                 int[] users, int[] movies, float[] ratings, int count) {
+        // Two stable counting sorts (by movie, then by user) order the triples by (user, movie)
+        int[] byMovie = countingSort(movies, count, numMovies, identity(count));
+        int[] order = countingSort(users, count, numUsers, byMovie);
+
+        int[] userPtr = new int[numUsers + 1];
+        int[] rowMovies = new int[count];
+        float[] rowRatings = new float[count];
+        int nnz = 0;
+        for (int i = 0; i < count; i++) {
+            int t = order[i];
+            if (nnz > 0 && i > 0 && users[order[i - 1]] == users[t] && rowMovies[nnz - 1] == movies[t]) {
+                rowRatings[nnz - 1] = ratings[t];
+                continue;
+            }
+            rowMovies[nnz] = movies[t];
+            rowRatings[nnz] = ratings[t];
+            userPtr[users[t] + 1]++;
+            nnz++;
+        }
+        for (int u = 0; u < numUsers; u++) {
+            userPtr[u + 1] += userPtr[u];
+        }
+
+        return new SparseRatingMatrix(numUsers, numMovies, userPtr,
+                Arrays.copyOf(rowMovies, nnz), Arrays.copyOf(rowRatings, nnz));
+    }
+
+    /**
+     * New snapshot in which the rows of the replaced users are dropped and the given
+     * triples are added, so a user listed in replacedUsers with no triples ends up with
+     * no ratings. Dimensions grow to cover ids interned since this snapshot was built.
+     */
+    public SparseRatingMatrix withUserRows(int newNumUsers, int newNumMovies, int[] replacedUsers,
+                                           int[] users, int[] movies, float[] ratings, int count) {
+        int totalUsers = Math.max(newNumUsers, numUsers);
+        int totalMovies = Math.max(newNumMovies, numMovies);
+
+        boolean[] replaced = new boolean[totalUsers];
+        for (int user : replacedUsers) {
+            replaced[user] = true;
+        }
+
+        int capacity = rowMovies.length + count;
+        int[] tUsers = new int[capacity];
+        int[] tMovies = new int[capacity];
+        float[] tRatings = new float[capacity];
+        int size = 0;
+
+        for (int u = 0; u < numUsers; u++) {
+            if (replaced[u]) {
+                continue;
+            }
+            for (int i = userPtr[u]; i < userPtr[u + 1]; i++) {
+                tUsers[size] = u;
+                tMovies[size] = rowMovies[i];
+                tRatings[size] = rowRatings[i];
+                size++;
+            }
+        }
+        System.arraycopy(users, 0, tUsers, size, count);
+        System.arraycopy(movies, 0, tMovies, size, count);
+        System.arraycopy(ratings, 0, tRatings, size, count);
+        size += count;
+
+        return fromTriples(totalUsers, totalMovies, tUsers, tMovies, tRatings, size);
+    }
+
+    public int numUsers() {
+        return numUsers;
+    }
+
+    public int numMovies() {
+        return numMovies;
+    }
+
+    public int nonZeros() {
+        return rowMovies.length;
+    }
+
+    // --- CSR access (ratings of one user) ---
+
+    public int rowStart(int user) {
+        return user < numUsers ? userPtr[user] : 0;
+    }
+
+    public int rowEnd(int user) {
+        return user < numUsers ? userPtr[user + 1] : 0;
+    }
+
+    public int rowMovie(int i) {
+        return rowMovies[i];
+    }
+
+    public float rowRating(int i) {
+        return rowRatings[i];
+    }
+
+    public int ratingCountOfUser(int user) {
+        return rowEnd(user) - rowStart(user);
+    }
+
+    // --- CSC access (ratings of one movie) ---
+
+    public int colStart(int movie) {
+        return movie < numMovies ? moviePtr[movie] : 0;
+    }
+
+    public int colEnd(int movie) {
+        return movie < numMovies ? moviePtr[movie + 1] : 0;
+    }
+
+    public int colUser(int j) {
+        return colUsers[j];
+    }
+
+    public float colRating(int j) {
+        return colRatings[j];
+    }
+
+    public int ratingCountOfMovie(int movie) {
+        return colEnd(movie) - colStart(movie);
+    }
+
+    /**
+     * Rating of one cell, NaN if the user has not rated the movie.
+     */
+    public float rating(int user, int movie) {
+        int i = Arrays.binarySearch(rowMovies, rowStart(user), rowEnd(user), movie);
+        return i >= 0 ? rowRatings[i] : Float.NaN;
+    }
+
+    public boolean hasRated(int user, int movie) {
+        return Arrays.binarySearch(rowMovies, rowStart(user), rowEnd(user), movie) >= 0;
+    }
+
+    public float meanRatingOfUser(int user) {
+        int start = rowStart(user);
+        int end = rowEnd(user);
+        if (start == end) {
+            return Float.NaN;
+        }
+        double sum = 0.0;
+        for (int i = start; i < end; i++) {
+            sum += rowRatings[i];
+        }
+        return (float) (sum / (end - start));
+    }
+
+    public float meanRatingOfMovie(int movie) {
+        int start = colStart(movie);
+        int end = colEnd(movie);
+        if (start == end) {
+            return Float.NaN;
+        }
+        double sum = 0.0;
+        for (int j = start; j < end; j++) {
+            sum += colRatings[j];
+        }
+        return (float) (sum / (end - start));
+    }
+
+    private static int[] identity(int count) {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    private static int[] countingSort(int[] keys, int count, int numKeys, int[] input) {
+        int[] start = new int[numKeys + 1];
+        for (int i = 0; i < count; i++) {
+            start[keys[input[i]] + 1]++;
+        }
+        for (int k = 0; k < numKeys; k++) {
+            start[k + 1] += start[k];
+        }
+        int[] output = new int[count];
+        for (int i = 0; i < count; i++) {
+            output[start[keys[input[i]]]++] = input[i];
+        }
+        return output;
+    }
+}
@@ -0,0 +1,122 @@
+package com.neo4flix.movieservice.engine;
+
+/**
+ * Bounded min-heap keeping the k highest scoring int ids seen so far.
+ *
+ * Offering is O(log k) and allocation-free; the heap is only sorted once, when the
+ * caller is done offering.
+ */
+public final class TopK {
+
+    private final int k;
+    private final int[] ids;
+    private final float[] scores;
+    private int size;
+    private boolean sorted;
+
+    public TopK(int k) {
+        this.k = Math.max(0, k);
+        this.ids = new int[this.k];
+        this.scores = new float[this.k];
+    }
+
+    public void offer(int id, float score) {
+        if (k == 0 || Float.isNaN(score)) {
+            return;
+        }
+        if (sorted) {
+            // Offering after reading: restore the heap order first
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(i, size);
+            }
+            sorted = false;
+        }
+        if (size < k) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * Lowest score currently kept, or negative infinity while the heap is not full.
+     */
+    public float threshold() {
+        if (sorted) {
+            return size < k ? Float.NEGATIVE_INFINITY : scores[size - 1];
+        }
+        return size < k ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Id at the given rank, 0 being the highest score.
+     */
+    public int id(int rank) {
+        sortDescending();
+        return ids[rank];
+    }
+
+    public float score(int rank) {
+        sortDescending();
+        return scores[rank];
+    }
+
+    private void sortDescending() {
+        if (sorted) {
+            return;
+        }
+        // Heap sort in place: repeatedly move the minimum to the end
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        sorted = true;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[i] >= scores[parent]) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int heapSize) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= heapSize) {
+                return;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < heapSize && scores[right] < scores[left]) {
+                smallest = right;
+            }
+            if (scores[i] <= scores[smallest]) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,241 @@
+package com.neo4flix.movieservice.engine;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.IntPredicate;
+
+/**
+ * User-based collaborative filtering over a {@link SparseRatingMatrix}.
+ *
+ * Similarity is the cosine of two users' ratings over the movies they have in common,
+ * the same measure the Cypher collaborative queries used. Neighbours are found by
+ * walking the CSC columns of the target user's movies, so only users that share at
+ * least one movie are ever touched. Per-user accumulators live in pooled scratch arrays
+ * that are reset through a touched list, so a request allocates nothing that scales
+ * with the number of users or movies. The pool keeps at most one set of arrays per core;
+ * a request finding it empty allocates its own, which is dropped if the pool is full
+ * when it is returned, so request threads never pin arrays of their own.
+ */
+public final class UserBasedScorer {
+
+    private static final BlockingQueue<Scratch> SCRATCH =
+            new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
+    private UserBasedScorer() {
+    }
+
+    /**
+     * Up to k users most similar to the given user.
+     */
+    public static Neighbours similarUsers(SparseRatingMatrix matrix, int user,
+                                          int minCommonRatings, double minSimilarity, int k) {
+        // Not returned if the scan fails part way, as it would be left dirty
+        Scratch s = acquire();
+        Neighbours neighbours = similarUsers(matrix, user, minCommonRatings, minSimilarity, k, s);
+        release(s);
+        return neighbours;
+    }
+
+    private static Neighbours similarUsers(SparseRatingMatrix matrix, int user,
+                                           int minCommonRatings, double minSimilarity, int k, Scratch s) {
+        s.ensureUsers(matrix.numUsers());
+        int touchedCount = 0;
+
+        for (int i = matrix.rowStart(user); i < matrix.rowEnd(user); i++) {
+            int movie = matrix.rowMovie(i);
+            double r1 = matrix.rowRating(i);
+            for (int j = matrix.colStart(movie); j < matrix.colEnd(movie); j++) {
+                int other = matrix.colUser(j);
+                if (other == user) {
+                    continue;
+                }
+                if (s.common[other] == 0) {
+                    s.touchedUsers[touchedCount++] = other;
+                }
+                double r2 = matrix.colRating(j);
+                s.common[other]++;
+                s.dot[other] += r1 * r2;
+                s.squares1[other] += r1 * r1;
+                s.squares2[other] += r2 * r2;
+            }
+        }
+
+        TopK top = new TopK(k);
+        for (int t = 0; t < touchedCount; t++) {
+            int other = s.touchedUsers[t];
+            if (s.common[other] >= minCommonRatings && s.squares1[other] > 0 && s.squares2[other] > 0) {
+                double similarity = s.dot[other] / (Math.sqrt(s.squares1[other]) * Math.sqrt(s.squares2[other]));
+                if (similarity > minSimilarity) {
+                    top.offer(other, (float) similarity);
+                }
+            }
+        }
+
+        int[] users = new int[top.size()];
+        float[] similarities = new float[top.size()];
+        int[] commonRatings = new int[top.size()];
+        for (int rank = 0; rank < top.size(); rank++) {
+            users[rank] = top.id(rank);
+            similarities[rank] = top.score(rank);
+            commonRatings[rank] = s.common[users[rank]];
+        }
+
+        for (int t = 0; t < touchedCount; t++) {
+            int other = s.touchedUsers[t];
+            s.common[other] = 0;
+            s.dot[other] = 0.0;
+            s.squares1[other] = 0.0;
+            s.squares2[other] = 0.0;
+        }
+
+        return new Neighbours(users, similarities, commonRatings);
+    }
+
+    /**
+     * Top movies the user has not rated, scored as avg(neighbour rating * similarity)
+     * over neighbours that rated the movie at least minRating.
+     *
+     * @param movieFilter extra predicate on movie indexes, or null to accept all
+     */
+    public static TopK recommend(SparseRatingMatrix matrix, int user, Neighbours neighbours,
+                                 float minRating, int limit, IntPredicate movieFilter) {
+        Scratch s = acquire();
+        TopK top = recommend(matrix, user, neighbours, minRating, limit, movieFilter, s);
+        release(s);
+        return top;
+    }
+
+    private static TopK recommend(SparseRatingMatrix matrix, int user, Neighbours neighbours,
+                                  float minRating, int limit, IntPredicate movieFilter, Scratch s) {
+        s.ensureMovies(matrix.numMovies());
+
+        for (int i = matrix.rowStart(user); i < matrix.rowEnd(user); i++) {
+            s.excluded[matrix.rowMovie(i)] = true;
+        }
+
+        int touchedCount = 0;
+        for (int n = 0; n < neighbours.size(); n++) {
+            int other = neighbours.user(n);
+            float similarity = neighbours.similarity(n);
+            for (int i = matrix.rowStart(other); i < matrix.rowEnd(other); i++) {
+                int movie = matrix.rowMovie(i);
+                float rating = matrix.rowRating(i);
+                if (rating < minRating || s.excluded[movie]) {
+                    continue;
+                }
+                if (s.count[movie] == 0) {
+                    s.touchedMovies[touchedCount++] = movie;
+                }
+                s.count[movie]++;
+                s.sum[movie] += rating * similarity;
+            }
+        }
+
+        TopK top = new TopK(limit);
+        for (int t = 0; t < touchedCount; t++) {
+            int movie = s.touchedMovies[t];
+            if (movieFilter == null || movieFilter.test(movie)) {
+                top.offer(movie, s.sum[movie] / s.count[movie]);
+            }
+            s.count[movie] = 0;
+            s.sum[movie] = 0f;
+        }
+
+        for (int i = matrix.rowStart(user); i < matrix.rowEnd(user); i++) {
+            s.excluded[matrix.rowMovie(i)] = false;
+        }
+
+        return top;
+    }
+
+    /**
+     * Similarity-weighted average of the neighbours' ratings of one movie, NaN if none rated it.
+     */
+    public static float predict(SparseRatingMatrix matrix, int movie, Neighbours neighbours) {
+        double weightedSum = 0.0;
+        double totalWeight = 0.0;
+        for (int n = 0; n < neighbours.size(); n++) {
+            float rating = matrix.rating(neighbours.user(n), movie);
+            if (!Float.isNaN(rating)) {
+                weightedSum += rating * neighbours.similarity(n);
+                totalWeight += neighbours.similarity(n);
+            }
+        }
+        return totalWeight > 0 ? (float) (weightedSum / totalWeight) : Float.NaN;
+    }
+
+    private static Scratch acquire() {
+        Scratch s = SCRATCH.poll();
+        return s != null ? s : new Scratch();
+    }
+
+    private static void release(Scratch s) {
+        // Dropped when the pool is already full
+        SCRATCH.offer(s);
+    }
+
+    /**
+     * Neighbours of one user in descending similarity order.
+     */
+    public static final class Neighbours {
+
+        private final int[] users;
+        private final float[] similarities;
+        private final int[] commonRatings;
+
+        Neighbours(int[] users, float[] similarities, int[] commonRatings) {
+            this.users = users;
+            this.similarities = similarities;
+            this.commonRatings = commonRatings;
+        }
+
+        public int size() {
+            return users.length;
+        }
+
+        public int user(int rank) {
+            return users[rank];
+        }
+
+        public float similarity(int rank) {
+            return similarities[rank];
+        }
+
+        public int commonRatings(int rank) {
+            return commonRatings[rank];
+        }
+    }
+
+    private static final class Scratch {
+
+        int[] common = new int[0];
+        double[] dot = new double[0];
+        double[] squares1 = new double[0];
+        double[] squares2 = new double[0];
+        int[] touchedUsers = new int[0];
+
+        boolean[] excluded = new boolean[0];
+        int[] count = new int[0];
+        float[] sum = new float[0];
+        int[] touchedMovies = new int[0];
+
+        void ensureUsers(int numUsers) {
+            if (common.length < numUsers) {
+                common = new int[numUsers];
+                dot = new double[numUsers];
+                squares1 = new double[numUsers];
+                squares2 = new double[numUsers];
+                touchedUsers = new int[numUsers];
+            }
+        }
+
+        void ensureMovies(int numMovies) {
+            if (count.length < numMovies) {
+                excluded = new boolean[numMovies];
+                count = new int[numMovies];
+                sum = new float[numMovies];
+                touchedMovies = new int[numMovies];
+            }
+        }
+    }
+}
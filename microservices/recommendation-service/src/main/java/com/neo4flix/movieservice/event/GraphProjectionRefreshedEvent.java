@@ -0,0 +1,26 @@
+package com.neo4flix.movieservice.event;
+
+/**
+ * Application event published by GraphProjectionManager once a freshly built
+ * GDS projection has been swapped in. Batch jobs that run GDS algorithms over the
+ * whole graph listen for it instead of scheduling themselves independently.
+ *
+ * Listeners run on the background thread that built the projection.
+ */
+public class GraphProjectionRefreshedEvent {
+
+    private final String graphName;
+
+    public GraphProjectionRefreshedEvent(String graphName) {
+        this.graphName = graphName;
+    }
+
+    public String getGraphName() {
+        return graphName;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("GraphProjectionRefreshedEvent{graphName='%s'}", graphName);
+    }
+}
@@ -0,0 +1,25 @@
+package com.neo4flix.movieservice.event;
+
+/**
+ * Application event signalling that a movie was created, edited or deleted in the
+ * Movie Service, as read from its MovieEvent outbox by MovieEventConsumer on every
+ * replica. Indexes built from movie metadata (e.g. the similar-movies index)
+ * re-read the movie instead of waiting for their next full rebuild.
+ */
+public class MovieChangedEvent {
+
+    private final String movieId;
+
+    public MovieChangedEvent(String movieId) {
+        this.movieId = movieId;
+    }
+
+    public String getMovieId() {
+        return movieId;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MovieChangedEvent{movieId='%s'}", movieId);
+    }
+}
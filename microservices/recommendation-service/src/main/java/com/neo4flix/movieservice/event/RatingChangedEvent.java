@@ -0,0 +1,75 @@
+package com.neo4flix.movieservice.event;
+
+/**
+ * Application event signalling that a user's ratings changed.
+ * Published inside the Recommendation Service so that background models
+ * (graph projections, indexes, caches) can react without being called directly.
+ *
+ * movieId and the rating values are optional: callers that only know
+ * which user changed (e.g. the refresh endpoint) leave them null. occurredAt, when
+ * known, is the database server time of the change; models that read the Rating nodes
+ * after it already contain the change and must not apply it again.
+ */
+public class RatingChangedEvent {
+
+    private final String userId;
+    private final String movieId;
+    private final Double previousRating;
+    private final Double newRating;
+    private final Long occurredAt;
+
+    public RatingChangedEvent(String userId) {
+        this(userId, null, null, null, null);
+    }
+
+    public RatingChangedEvent(String userId, String movieId, Double previousRating, Double newRating, Long occurredAt) {
+        this.userId = userId;
+        this.movieId = movieId;
+        this.previousRating = previousRating;
+        this.newRating = newRating;
+        this.occurredAt = occurredAt;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getMovieId() {
+        return movieId;
+    }
+
+    /**
+     * Rating before the change, null if the rating was created
+     */
+    public Double getPreviousRating() {
+        return previousRating;
+    }
+
+    /**
+     * Rating after the change, null if the rating was deleted
+     */
+    public Double getNewRating() {
+        return newRating;
+    }
+
+    /**
+     * Database server time of the change in epoch milliseconds, null if unknown
+     */
+    public Long getOccurredAt() {
+        return occurredAt;
+    }
+
+    /**
+     * Whether the change is known to have happened after the given database server time,
+     * i.e. is missing from a model that read the Rating nodes at that time.
+     */
+    public boolean occurredAfter(long databaseTime) {
+        return occurredAt != null && occurredAt > databaseTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RatingChangedEvent{userId='%s', movieId='%s', previousRating=%s, newRating=%s, occurredAt=%s}",
+                userId, movieId, previousRating, newRating, occurredAt);
+    }
+}
@@ -0,0 +1,29 @@
+package com.neo4flix.movieservice.event;
+
+import com.neo4flix.movieservice.engine.SparseRatingMatrix;
+
+/**
+ * Application event published by RatingMatrixService after a full reload of the
+ * in-memory rating matrix. Offline models trained from the matrix (item neighbours,
+ * matrix factorization) listen for it to decide whether they need a rebuild.
+ *
+ * Listeners run on the thread that performed the reload.
+ */
+public class RatingMatrixReloadedEvent {
+
+    private final SparseRatingMatrix matrix;
+
+    public RatingMatrixReloadedEvent(SparseRatingMatrix matrix) {
+        this.matrix = matrix;
+    }
+
+    public SparseRatingMatrix getMatrix() {
+        return matrix;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RatingMatrixReloadedEvent{users=%d, movies=%d, ratings=%d}",
+                matrix.numUsers(), matrix.numMovies(), matrix.nonZeros());
+    }
+}
@@ -0,0 +1,39 @@
+package com.neo4flix.movieservice.event;
+
+/**
+ * Application event signalling that a user added a movie to, or removed one from,
+ * their watchlist. Cached results for the user are dropped so that the next request
+ * reflects the change.
+ */
+public class WatchlistChangedEvent {
+
+    private final String userId;
+    private final String movieId;
+    private final boolean added;
+
+    public WatchlistChangedEvent(String userId, String movieId, boolean added) {
+        this.userId = userId;
+        this.movieId = movieId;
+        this.added = added;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getMovieId() {
+        return movieId;
+    }
+
+    /**
+     * True if the movie was added, false if it was removed
+     */
+    public boolean isAdded() {
+        return added;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WatchlistChangedEvent{userId='%s', movieId='%s', added=%s}", userId, movieId, added);
+    }
+}
@@ -0,0 +1,16 @@
+package com.neo4flix.movieservice.pipeline;
+
+import java.util.List;
+
+/**
+ * Third stage of the recommendation pipeline: scores assembled candidates.
+ */
+public interface CandidateScorer {
+
+    /**
+     * Write the score of every candidate to scores[slot]; higher is better.
+     *
+     * @param sources the sources in feature order
+     */
+    void score(CandidateSet candidates, List<CandidateSource> sources, float[] scores);
+}
@@ -0,0 +1,140 @@
+package com.neo4flix.movieservice.pipeline;
+
+import java.util.Arrays;
+
+/**
+ * Bounded set of candidate movies with one raw score per candidate source, and after
+ * feature assembly, a fixed-length feature vector per candidate.
+ *
+ * Candidates are kept in insertion order in primitive arrays, looked up by movie index
+ * through a small open-addressing table. Once the capacity is reached further movies
+ * are dropped, so scoring cost stays bounded whatever the sources return.
+ *
+ * Feature layout: one normalized score per source (in source order), then the movie's
+ * average rating and popularity, both scaled to [0, 1].
+ */
+public final class CandidateSet {
+
+    private final int capacity;
+    private final int numSources;
+    private final int[] movies;
+    private final float[] sourceScores;
+    private final int[] table;
+    private final int mask;
+    private int size;
+
+    private float[] features;
+
+    public CandidateSet(int capacity, int numSources) {
+        this.capacity = capacity;
+        this.numSources = numSources;
+        this.movies = new int[capacity];
+        this.sourceScores = new float[capacity * numSources];
+        Arrays.fill(sourceScores, Float.NaN);
+
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+        this.table = new int[tableSize];
+        this.mask = tableSize - 1;
+    }
+
+    /**
+     * Writer for one source's candidates.
+     */
+    public interface Sink {
+
+        /**
+         * Add a candidate, keeping the higher score if the source already added the movie.
+         *
+         * @return false if the set is full and the movie was not already in it
+         */
+        boolean add(int movie, float score);
+    }
+
+    public Sink sink(int source) {
+        return (movie, score) -> {
+            int slot = slotOf(movie);
+            if (slot < 0) {
+                return false;
+            }
+            int index = slot * numSources + source;
+            if (Float.isNaN(sourceScores[index]) || score > sourceScores[index]) {
+                sourceScores[index] = score;
+            }
+            return true;
+        };
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int numSources() {
+        return numSources;
+    }
+
+    public int movie(int slot) {
+        return movies[slot];
+    }
+
+    /**
+     * Raw score the source gave the candidate, NaN if the source did not return it.
+     */
+    public float sourceScore(int slot, int source) {
+        return sourceScores[slot * numSources + source];
+    }
+
+    public int featureCount() {
+        return numSources + 2;
+    }
+
+    public int ratingFeature() {
+        return numSources;
+    }
+
+    public int popularityFeature() {
+        return numSources + 1;
+    }
+
+    public boolean hasFeatures() {
+        return features != null;
+    }
+
+    public float feature(int slot, int feature) {
+        return features[slot * featureCount() + feature];
+    }
+
+    void setFeatures(float[] features) {
+        this.features = features;
+    }
+
+    /**
+     * Slot of the movie, adding it if absent; -1 if absent and the set is full.
+     */
+    private int slotOf(int movie) {
+        int i = mix(movie) & mask;
+        while (true) {
+            int entry = table[i];
+            if (entry == 0) {
+                if (size == capacity) {
+                    return -1;
+                }
+                movies[size] = movie;
+                table[i] = ++size;
+                return size - 1;
+            }
+            if (movies[entry - 1] == movie) {
+                return entry - 1;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
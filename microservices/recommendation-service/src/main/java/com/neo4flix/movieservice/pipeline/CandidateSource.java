@@ -0,0 +1,43 @@
+package com.neo4flix.movieservice.pipeline;
+
+/**
+ * First stage of the recommendation pipeline: retrieves candidate movies for a user,
+ * each with the source's own raw score. Scores of different sources need not share a
+ * scale; the feature assembly stage normalizes them per source.
+ *
+ * Sources are Spring beans; every bean implementing this interface is picked up by
+ * RecommendationPipeline, in @Order, which fixes their feature slots and the order they
+ * fill the candidate set in.
+ */
+public interface CandidateSource {
+
+    /**
+     * Short identifier, used in metrics and configuration
+     */
+    String getName();
+
+    /**
+     * Maximum number of candidates this source contributes per user
+     */
+    int getBudget();
+
+    /**
+     * Weight of this source's normalized score in the final score
+     */
+    float getWeight();
+
+    /**
+     * Reason shown to the user when this source contributed most to a recommendation
+     */
+    String getReason();
+
+    /**
+     * Whether the source can produce candidates for the user (e.g. its model is trained)
+     */
+    boolean isAvailable(PipelineContext context);
+
+    /**
+     * Add up to budget candidates the user has not rated through {@code out.add(movie, score)}
+     */
+    void collect(PipelineContext context, int budget, CandidateSet.Sink out);
+}
@@ -0,0 +1,61 @@
+package com.neo4flix.movieservice.pipeline;
+
+import com.neo4flix.movieservice.engine.SparseRatingMatrix;
+
+/**
+ * Second stage of the recommendation pipeline: turns the raw per-source scores of a
+ * candidate set into comparable features.
+ *
+ * Each source's scores are divided by the highest score that source gave in the set, so
+ * a source on a 0-5 rating scale and one with unbounded popularity scores both end up in
+ * [0, 1]; a source that did not return a candidate contributes 0. The movie's average
+ * rating and log-scaled rating count come from the matrix snapshot.
+ */
+public final class FeatureAssembler {
+
+    private static final float MAX_RATING = 5f;
+
+    private FeatureAssembler() {
+    }
+
+    public static void assemble(CandidateSet candidates, PipelineContext context) {
+        SparseRatingMatrix matrix = context.getMatrix();
+        int size = candidates.size();
+        int sources = candidates.numSources();
+        int width = candidates.featureCount();
+        float[] features = new float[size * width];
+
+        for (int source = 0; source < sources; source++) {
+            float max = 0f;
+            for (int slot = 0; slot < size; slot++) {
+                float score = candidates.sourceScore(slot, source);
+                if (score > max) {
+                    max = score;
+                }
+            }
+            for (int slot = 0; slot < size; slot++) {
+                float score = candidates.sourceScore(slot, source);
+                features[slot * width + source] = max > 0f && score > 0f ? score / max : 0f;
+            }
+        }
+
+        double maxLogCount = 0.0;
+        for (int slot = 0; slot < size; slot++) {
+            int movie = candidates.movie(slot);
+            if (movie < matrix.numMovies()) {
+                maxLogCount = Math.max(maxLogCount, Math.log1p(matrix.ratingCountOfMovie(movie)));
+            }
+        }
+        for (int slot = 0; slot < size; slot++) {
+            int movie = candidates.movie(slot);
+            if (movie >= matrix.numMovies() || matrix.ratingCountOfMovie(movie) == 0) {
+                continue;
+            }
+            features[slot * width + candidates.ratingFeature()] = matrix.meanRatingOfMovie(movie) / MAX_RATING;
+            features[slot * width + candidates.popularityFeature()] = maxLogCount > 0
+                    ? (float) (Math.log1p(matrix.ratingCountOfMovie(movie)) / maxLogCount) : 0f;
+        }
+
+        candidates.setFeatures(features);
+    }
+}
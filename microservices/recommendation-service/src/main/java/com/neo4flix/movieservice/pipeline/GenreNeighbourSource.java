@@ -0,0 +1,68 @@
+package com.neo4flix.movieservice.pipeline;
+
+import com.neo4flix.movieservice.dto.MovieRecommendationDTO;
+import com.neo4flix.movieservice.repository.RecommendationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Movies from the genres the user rates highest, scored by the user's average rating of
+ * the genre. The only source that needs a database query.
+ */
+@Component
+@Order(3)
+public class GenreNeighbourSource implements CandidateSource {
+
+    // Ratings at or above this count towards a genre preference, as in the content-based algorithm's default
+    private static final double MIN_RATING = 3.0;
+
+    private final RecommendationRepository recommendationRepository;
+
+    @Value("${neo4flix.recommendation.pipeline.sources.genre.budget:80}")
+    private int budget;
+
+    @Value("${neo4flix.recommendation.pipeline.sources.genre.weight:0.3}")
+    private float weight;
+
+    public GenreNeighbourSource(RecommendationRepository recommendationRepository) {
+        this.recommendationRepository = recommendationRepository;
+    }
+
+    @Override
+    public String getName() {
+        return "genre";
+    }
+
+    @Override
+    public int getBudget() {
+        return budget;
+    }
+
+    @Override
+    public float getWeight() {
+        return weight;
+    }
+
+    @Override
+    public String getReason() {
+        return "Matches your favourite genres";
+    }
+
+    @Override
+    public boolean isAvailable(PipelineContext context) {
+        return true;
+    }
+
+    @Override
+    public void collect(PipelineContext context, int budget, CandidateSet.Sink out) {
+        for (MovieRecommendationDTO row : recommendationRepository.getContentBasedRecommendations(
+                context.getUserId(), MIN_RATING, 0.0, budget)) {
+            // Only movies with ratings are in the matrix; the others have no features to score on
+            int movie = row.getMovie() != null ? context.getMovieIds().indexOf(row.getMovie().getId()) : -1;
+            if (movie >= 0 && row.getScore() != null && !out.add(movie, row.getScore().floatValue())) {
+                return;
+            }
+        }
+    }
+}
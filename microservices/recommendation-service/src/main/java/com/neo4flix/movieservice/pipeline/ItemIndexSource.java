@@ -0,0 +1,65 @@
+package com.neo4flix.movieservice.pipeline;
+
+import com.neo4flix.movieservice.engine.ItemNeighbourIndex;
+import com.neo4flix.movieservice.engine.TopK;
+import com.neo4flix.movieservice.service.ItemNeighbourService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Neighbours of the movies the user rated in the precomputed item similarity index,
+ * scored by predicted rating.
+ */
+@Component
+@Order(2)
+public class ItemIndexSource implements CandidateSource {
+
+    private final ItemNeighbourService itemNeighbours;
+
+    @Value("${neo4flix.recommendation.pipeline.sources.item-index.budget:120}")
+    private int budget;
+
+    @Value("${neo4flix.recommendation.pipeline.sources.item-index.weight:0.4}")
+    private float weight;
+
+    public ItemIndexSource(ItemNeighbourService itemNeighbours) {
+        this.itemNeighbours = itemNeighbours;
+    }
+
+    @Override
+    public String getName() {
+        return "item-index";
+    }
+
+    @Override
+    public int getBudget() {
+        return budget;
+    }
+
+    @Override
+    public float getWeight() {
+        return weight;
+    }
+
+    @Override
+    public String getReason() {
+        return "Similar to movies you rated";
+    }
+
+    @Override
+    public boolean isAvailable(PipelineContext context) {
+        return itemNeighbours.getIndex() != null && context.getMatrix().ratingCountOfUser(context.getUser()) > 0;
+    }
+
+    @Override
+    public void collect(PipelineContext context, int budget, CandidateSet.Sink out) {
+        ItemNeighbourIndex index = itemNeighbours.getIndex();
+        TopK top = index.recommend(context.getMatrix(), context.getUser(), budget, null);
+        for (int rank = 0; rank < top.size(); rank++) {
+            if (!out.add(top.id(rank), top.score(rank))) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.neo4flix.movieservice.pipeline;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Weighted sum of the candidate features: each source's normalized score times the
+ * source weight, plus configurable weights for average rating and popularity.
+ */
+@Component
+public class LinearCandidateScorer implements CandidateScorer {
+
+    @Value("${neo4flix.recommendation.pipeline.rating-weight:0.2}")
+    private float ratingWeight;
+
+    @Value("${neo4flix.recommendation.pipeline.popularity-weight:0.1}")
+    private float popularityWeight;
+
+    @Override
+    public void score(CandidateSet candidates, List<CandidateSource> sources, float[] scores) {
+        int sourceCount = sources.size();
+        float[] weights = new float[sourceCount];
+        for (int source = 0; source < sourceCount; source++) {
+            weights[source] = sources.get(source).getWeight();
+        }
+
+        for (int slot = 0; slot < candidates.size(); slot++) {
+            float score = ratingWeight * candidates.feature(slot, candidates.ratingFeature())
+                    + popularityWeight * candidates.feature(slot, candidates.popularityFeature());
+            for (int source = 0; source < sourceCount; source++) {
+                score += weights[source] * candidates.feature(slot, source);
+            }
+            scores[slot] = score;
+        }
+    }
+}
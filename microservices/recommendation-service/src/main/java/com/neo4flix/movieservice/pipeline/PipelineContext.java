@@ -0,0 +1,42 @@
+package com.neo4flix.movieservice.pipeline;
+
+import com.neo4flix.movieservice.engine.IdInterner;
+import com.neo4flix.movieservice.engine.SparseRatingMatrix;
+
+/**
+ * The user a pipeline run is for, with the rating matrix snapshot all stages read.
+ * Candidates are identified by their movie index in the matrix's movie interner.
+ */
+public final class PipelineContext {
+
+    private final String userId;
+    private final int user;
+    private final SparseRatingMatrix matrix;
+    private final IdInterner movieIds;
+
+    public PipelineContext(String userId, int user, SparseRatingMatrix matrix, IdInterner movieIds) {
+        this.userId = userId;
+        this.user = user;
+        this.matrix = matrix;
+        this.movieIds = movieIds;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * The user's row in the matrix.
+     */
+    public int getUser() {
+        return user;
+    }
+
+    public SparseRatingMatrix getMatrix() {
+        return matrix;
+    }
+
+    public IdInterner getMovieIds() {
+        return movieIds;
+    }
+}
@@ -0,0 +1,115 @@
+package com.neo4flix.movieservice.pipeline;
+
+import com.neo4flix.movieservice.engine.SparseRatingMatrix;
+import com.neo4flix.movieservice.engine.TopK;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * The most popular movies the user has not rated, scored as average rating times
+ * log(rating count + 1) like the popularity algorithm.
+ *
+ * The ranking is the same for every user, so it is computed once per rating matrix
+ * snapshot and shared; each request only skips the movies its user has rated.
+ */
+@Component
+@Order(4)
+public class PopularitySource implements CandidateSource {
+
+    // Ranked movies kept per snapshot, per candidate wanted, to leave room for skipping rated ones
+    private static final int POOL_FACTOR = 4;
+
+    @Value("${neo4flix.recommendation.pipeline.sources.popular.budget:80}")
+    private int budget;
+
+    @Value("${neo4flix.recommendation.pipeline.sources.popular.weight:0.2}")
+    private float weight;
+
+    @Value("${neo4flix.recommendation.pipeline.sources.popular.min-ratings:5}")
+    private int minRatings;
+
+    private volatile Ranking ranking;
+
+    @Override
+    public String getName() {
+        return "popular";
+    }
+
+    @Override
+    public int getBudget() {
+        return budget;
+    }
+
+    @Override
+    public float getWeight() {
+        return weight;
+    }
+
+    @Override
+    public String getReason() {
+        return "Highly rated by many users";
+    }
+
+    @Override
+    public boolean isAvailable(PipelineContext context) {
+        return context.getMatrix().numMovies() > 0;
+    }
+
+    @Override
+    public void collect(PipelineContext context, int budget, CandidateSet.Sink out) {
+        SparseRatingMatrix matrix = context.getMatrix();
+        int poolSize = budget * POOL_FACTOR;
+        Ranking current = ranking;
+        if (current == null || current.matrix != matrix || current.poolSize < poolSize) {
+            current = rank(matrix, poolSize);
+            ranking = current;
+        }
+
+        int added = 0;
+        for (int rank = 0; rank < current.movies.length && added < budget; rank++) {
+            int movie = current.movies[rank];
+            if (matrix.hasRated(context.getUser(), movie)) {
+                continue;
+            }
+            if (!out.add(movie, current.scores[rank])) {
+                return;
+            }
+            added++;
+        }
+    }
+
+    private Ranking rank(SparseRatingMatrix matrix, int poolSize) {
+        TopK top = new TopK(poolSize);
+        for (int movie = 0; movie < matrix.numMovies(); movie++) {
+            int count = matrix.ratingCountOfMovie(movie);
+            if (count >= minRatings) {
+                top.offer(movie, (float) (matrix.meanRatingOfMovie(movie) * Math.log1p(count)));
+            }
+        }
+
+        // Copied out of the heap so that concurrent requests can read the ranking
+        int[] movies = new int[top.size()];
+        float[] scores = new float[top.size()];
+        for (int rank = 0; rank < top.size(); rank++) {
+            movies[rank] = top.id(rank);
+            scores[rank] = top.score(rank);
+        }
+        return new Ranking(matrix, poolSize, movies, scores);
+    }
+
+    private static final class Ranking {
+
+        final SparseRatingMatrix matrix;
+        final int poolSize;
+        final int[] movies;
+        final float[] scores;
+
+        Ranking(SparseRatingMatrix matrix, int poolSize, int[] movies, float[] scores) {
+            this.matrix = matrix;
+            this.poolSize = poolSize;
+            this.movies = movies;
+            this.scores = scores;
+        }
+    }
+}
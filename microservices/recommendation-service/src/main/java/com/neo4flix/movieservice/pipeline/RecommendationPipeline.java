@@ -0,0 +1,226 @@
+package com.neo4flix.movieservice.pipeline;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.neo4flix.movieservice.algorithm.GenreFilter;
+import com.neo4flix.movieservice.dto.RecommendationRequest;
+import com.neo4flix.movieservice.engine.IdInterner;
+import com.neo4flix.movieservice.engine.SparseRatingMatrix;
+import com.neo4flix.movieservice.engine.TopK;
+import com.neo4flix.movieservice.event.RatingChangedEvent;
+import com.neo4flix.movieservice.model.Recommendation;
+import com.neo4flix.movieservice.repository.RecommendationRepository;
+import com.neo4flix.movieservice.service.RatingMatrixService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Two-stage recommendation pipeline: candidate generation, then re-ranking.
+ * <ol>
+ *   <li>every available CandidateSource, in @Order, adds up to its quota of candidates to a
+ *   bounded set; quotas are the sources' budgets, scaled down when they add up to more than
+ *   max-candidates, so that no source is crowded out by the ones before it</li>
+ *   <li>FeatureAssembler normalizes the source scores and adds rating and popularity features</li>
+ *   <li>the CandidateScorer scores each candidate</li>
+ *   <li>a bounded heap selects the top candidates, then genre filters are applied to those only</li>
+ * </ol>
+ * The assembled candidate set does not depend on the request's limit or filters, so it is
+ * cached per user and reused by later requests (another page size, another genre) until the
+ * user rates something or the entry expires. Each stage is timed under neo4flix.pipeline.stage.
+ */
+@Component
+public class RecommendationPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationPipeline.class);
+
+    private final List<CandidateSource> sources;
+    private final CandidateScorer scorer;
+    private final RatingMatrixService ratingMatrix;
+    private final RecommendationRepository recommendationRepository;
+    private final int maxCandidates;
+
+    private final Cache<String, CandidateSet> candidateCache;
+    private final Map<String, Timer> sourceTimers = new HashMap<>();
+    private final Timer assembleTimer;
+    private final Timer scoreTimer;
+    private final Timer selectTimer;
+
+    public RecommendationPipeline(List<CandidateSource> sources,
+                                  CandidateScorer scorer,
+                                  RatingMatrixService ratingMatrix,
+                                  RecommendationRepository recommendationRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${neo4flix.recommendation.pipeline.max-candidates:400}") int maxCandidates,
+                                  @Value("${neo4flix.recommendation.pipeline.cache-ttl-ms:300000}") long cacheTtlMs,
+                                  @Value("${neo4flix.recommendation.pipeline.cache-size:10000}") long cacheSize) {
+        this.sources = List.copyOf(sources);
+        this.scorer = scorer;
+        this.ratingMatrix = ratingMatrix;
+        this.recommendationRepository = recommendationRepository;
+        this.maxCandidates = maxCandidates;
+        this.candidateCache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(cacheTtlMs))
+                .maximumSize(cacheSize)
+                .build();
+
+        for (CandidateSource source : this.sources) {
+            sourceTimers.put(source.getName(), stageTimer(meterRegistry, "source:" + source.getName()));
+        }
+        this.assembleTimer = stageTimer(meterRegistry, "assemble");
+        this.scoreTimer = stageTimer(meterRegistry, "score");
+        this.selectTimer = stageTimer(meterRegistry, "select");
+    }
+
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("neo4flix.pipeline.stage")
+                .description("Time spent in one stage of the recommendation pipeline")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onRatingChanged(RatingChangedEvent event) {
+        if (event.getUserId() != null) {
+            candidateCache.invalidate(event.getUserId());
+        }
+    }
+
+    /**
+     * True if the user has ratings in the in-memory matrix, which every source but genre needs.
+     */
+    public boolean isApplicable(String userId) {
+        int user = ratingMatrix.isLoaded() ? ratingMatrix.getUserIds().indexOf(userId) : -1;
+        return user >= 0 && user < ratingMatrix.getMatrix().numUsers()
+                && ratingMatrix.getMatrix().ratingCountOfUser(user) > 0;
+    }
+
+    /**
+     * Run the pipeline for the request's user, best first.
+     */
+    public List<Recommendation> recommend(RecommendationRequest request, String algorithmName) {
+        SparseRatingMatrix matrix = ratingMatrix.getMatrix();
+        IdInterner movieIds = ratingMatrix.getMovieIds();
+        int user = ratingMatrix.getUserIds().indexOf(request.getUserId());
+        if (user < 0 || user >= matrix.numUsers()) {
+            return new ArrayList<>();
+        }
+        PipelineContext context = new PipelineContext(request.getUserId(), user, matrix, movieIds);
+
+        CandidateSet candidates = candidateCache.get(request.getUserId(), userId -> generateCandidates(context));
+
+        float[] scores = new float[candidates.size()];
+        scoreTimer.record(() -> scorer.score(candidates, sources, scores));
+
+        int fetchLimit = GenreFilter.fetchLimit(request);
+        double minMovieRating = request.getSafeMinAverageMovieRating();
+
+        return selectTimer.record(() -> {
+            TopK top = new TopK(fetchLimit);
+            for (int slot = 0; slot < candidates.size(); slot++) {
+                int movie = candidates.movie(slot);
+                // The cached set may predate the matrix snapshot: skip movies rated since
+                if (movie < matrix.numMovies() && matrix.hasRated(user, movie)) {
+                    continue;
+                }
+                if (minMovieRating > 0 && candidates.feature(slot, candidates.ratingFeature()) * 5f < minMovieRating) {
+                    continue;
+                }
+                top.offer(slot, scores[slot]);
+            }
+
+            Set<String> allowed = GenreFilter.allowed(recommendationRepository, request, top.size(),
+                    rank -> movieIds.idOf(candidates.movie(top.id(rank))));
+
+            List<Recommendation> recommendations = new ArrayList<>();
+            for (int rank = 0; rank < top.size() && recommendations.size() < request.getLimit(); rank++) {
+                int slot = top.id(rank);
+                String movieId = movieIds.idOf(candidates.movie(slot));
+                if (allowed != null && !allowed.contains(movieId)) {
+                    continue;
+                }
+                recommendations.add(Recommendation.builder()
+                        .userId(request.getUserId())
+                        .score((double) top.score(rank))
+                        .movieId(movieId)
+                        .algorithm(algorithmName)
+                        .reason("Recommended because: " + mainReason(candidates, slot))
+                        .build());
+            }
+            return recommendations;
+        });
+    }
+
+    private CandidateSet generateCandidates(PipelineContext context) {
+        CandidateSet candidates = new CandidateSet(maxCandidates, sources.size());
+        int[] quotas = quotas(context);
+        for (int source = 0; source < sources.size(); source++) {
+            CandidateSource candidateSource = sources.get(source);
+            int quota = quotas[source];
+            if (quota <= 0) {
+                continue;
+            }
+            CandidateSet.Sink sink = candidates.sink(source);
+            try {
+                sourceTimers.get(candidateSource.getName()).record(
+                        () -> candidateSource.collect(context, quota, sink));
+            } catch (Exception e) {
+                // Score with the other sources rather than failing the request
+                logger.warn("Candidate source {} failed for user {}: {}",
+                        candidateSource.getName(), context.getUserId(), e.getMessage());
+            }
+        }
+
+        assembleTimer.record(() -> FeatureAssembler.assemble(candidates, context));
+        logger.debug("Generated {} candidates for user {}", candidates.size(), context.getUserId());
+        return candidates;
+    }
+
+    /**
+     * Candidates each source may add: its budget, scaled down in proportion when the budgets
+     * of the available sources add up to more than the set holds. Unavailable sources get 0.
+     */
+    private int[] quotas(PipelineContext context) {
+        int[] quotas = new int[sources.size()];
+        long total = 0;
+        for (int source = 0; source < sources.size(); source++) {
+            if (sources.get(source).isAvailable(context)) {
+                quotas[source] = Math.max(0, sources.get(source).getBudget());
+                total += quotas[source];
+            }
+        }
+        if (total > maxCandidates) {
+            for (int source = 0; source < quotas.length; source++) {
+                quotas[source] = (int) (quotas[source] * (long) maxCandidates / total);
+            }
+        }
+        return quotas;
+    }
+
+    /**
+     * Reason of the source whose weighted feature contributed most to the candidate's score.
+     */
+    private String mainReason(CandidateSet candidates, int slot) {
+        String reason = "Highly rated by many users";
+        float best = 0f;
+        for (int source = 0; source < sources.size(); source++) {
+            float contribution = sources.get(source).getWeight() * candidates.feature(slot, source);
+            if (contribution > best) {
+                best = contribution;
+                reason = sources.get(source).getReason();
+            }
+        }
+        return reason;
+    }
+}
@@ -0,0 +1,65 @@
+package com.neo4flix.movieservice.pipeline;
+
+import com.neo4flix.movieservice.engine.TopK;
+import com.neo4flix.movieservice.engine.UserBasedScorer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Movies the user's nearest neighbours rated well, scored by similarity-weighted rating
+ * (the in-memory user-based collaborative filtering scorer).
+ */
+@Component
+@Order(1)
+public class SimilarUserSource implements CandidateSource {
+
+    // Same neighbourhood parameters as the collaborative algorithm
+    private static final int NEIGHBOURHOOD_SIZE = 50;
+    private static final int MIN_COMMON_RATINGS = 3;
+    private static final double MIN_SIMILARITY = 0.3;
+    private static final float MIN_RATING = 3.5f;
+
+    @Value("${neo4flix.recommendation.pipeline.sources.similar-users.budget:120}")
+    private int budget;
+
+    @Value("${neo4flix.recommendation.pipeline.sources.similar-users.weight:0.5}")
+    private float weight;
+
+    @Override
+    public String getName() {
+        return "similar-users";
+    }
+
+    @Override
+    public int getBudget() {
+        return budget;
+    }
+
+    @Override
+    public float getWeight() {
+        return weight;
+    }
+
+    @Override
+    public String getReason() {
+        return "Similar users liked this";
+    }
+
+    @Override
+    public boolean isAvailable(PipelineContext context) {
+        return context.getMatrix().ratingCountOfUser(context.getUser()) > 0;
+    }
+
+    @Override
+    public void collect(PipelineContext context, int budget, CandidateSet.Sink out) {
+        UserBasedScorer.Neighbours neighbours = UserBasedScorer.similarUsers(context.getMatrix(), context.getUser(),
+                MIN_COMMON_RATINGS, MIN_SIMILARITY, NEIGHBOURHOOD_SIZE);
+        TopK top = UserBasedScorer.recommend(context.getMatrix(), context.getUser(), neighbours, MIN_RATING, budget, null);
+        for (int rank = 0; rank < top.size(); rank++) {
+            if (!out.add(top.id(rank), top.score(rank))) {
+                return;
+            }
+        }
+    }
+}
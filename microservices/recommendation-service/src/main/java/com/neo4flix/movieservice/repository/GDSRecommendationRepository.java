@@ -19,7 +19,7 @@ public interface GDSRecommendationRepository extends Neo4jRepository<Movie, Stri
 
     /**
      * Create a graph projection for user-movie ratings.
-     * This projection is used by GDS algorithms.
+     * Called by GraphProjectionManager only - algorithms read the live projection it owns.
      */
     @Query("""
         CALL gds.graph.project.cypher(
@@ -54,26 +54,37 @@ public interface GDSRecommendationRepository extends Neo4jRepository<Movie, Stri
     void dropGraphProjection(@Param("graphName") String graphName);
 
     /**
-     * GDS Node Similarity algorithm for collaborative filtering.
-     * Finds similar users based on their rating patterns.
+     * Drop the projections under a name prefix, other than the given ones, that were
+     * created longer ago than maxAgeMs; returns how many were dropped.
      */
     @Query("""
-        MATCH (target:User {id: $userId})
-        CALL gds.nodeSimilarity.stream($graphName, {
-            similarityCutoff: $minSimilarity,
-            topK: 20
-        })
-        YIELD node1, node2, similarity
-        WITH target, node1, node2, similarity
-        WHERE id(target) = node1 AND node1 <> node2
-        MATCH (similarUser:User)
-        WHERE id(similarUser) = node2
+        CALL gds.graph.list()
+        YIELD graphName, creationTime
+        WITH graphName, creationTime
+        WHERE graphName STARTS WITH $prefix AND NOT graphName IN $keep
+          AND creationTime < datetime() - duration({milliseconds: $maxAgeMs})
+        CALL gds.graph.drop(graphName, false)
+        YIELD graphName AS dropped
+        RETURN count(dropped)
+        """)
+    Long dropGraphProjectionsOlderThan(@Param("prefix") String prefix,
+                                       @Param("keep") List<String> keep,
+                                       @Param("maxAgeMs") long maxAgeMs);
+
+    /**
+     * Collaborative filtering over the precomputed SIMILAR_TASTE index.
+     * Neighbours are written in batch from GDS Node Similarity (see UserSimilarityIndex),
+     * so this is a one-hop lookup from the target user.
+     */
+    @Query("""
+        MATCH (target:User {id: $userId})-[s:SIMILAR_TASTE]->(similarUser:User)
+        WHERE s.score >= $minSimilarity
         MATCH (similarUser)-[:RATED]->(r:Rating)-[:RATED_MOVIE]->(m:Movie)
         WHERE r.rating >= 4.0
           AND NOT EXISTS {
             MATCH (target)-[:RATED]->(:Rating)-[:RATED_MOVIE]->(m)
           }
-        WITH m, avg(r.rating) AS avgRating, similarity, count(r) AS numRatings
+        WITH m, avg(r.rating) AS avgRating, avg(s.score) AS similarity, count(r) AS numRatings
         WHERE numRatings >= 2
         RETURN m AS movie,
                avgRating AS movieRating,
@@ -82,26 +93,17 @@ public interface GDSRecommendationRepository extends Neo4jRepository<Movie, Stri
         LIMIT $limit
         """)
     List<MovieRecommendationDTO> getGDSCollaborativeRecommendations(
-            @Param("graphName") String graphName,
             @Param("userId") String userId,
             @Param("minSimilarity") double minSimilarity,
             @Param("limit") int limit
     );
 
     /**
-     * GDS Node Similarity for collaborative filtering with genre filter.
+     * Collaborative filtering over the SIMILAR_TASTE index with genre filter.
      */
     @Query("""
-        MATCH (target:User {id: $userId})
-        CALL gds.nodeSimilarity.stream($graphName, {
-            similarityCutoff: $minSimilarity,
-            topK: 20
-        })
-        YIELD node1, node2, similarity
-        WITH target, node1, node2, similarity
-        WHERE id(target) = node1 AND node1 <> node2
-        MATCH (similarUser:User)
-        WHERE id(similarUser) = node2
+        MATCH (target:User {id: $userId})-[s:SIMILAR_TASTE]->(similarUser:User)
+        WHERE s.score >= $minSimilarity
         MATCH (similarUser)-[:RATED]->(r:Rating)-[:RATED_MOVIE]->(m:Movie)
         WHERE r.rating >= 4.0
           AND NOT EXISTS {
@@ -111,7 +113,7 @@ public interface GDSRecommendationRepository extends Neo4jRepository<Movie, Stri
             MATCH (m)-[:IN_GENRE]->(g:Genre)
             WHERE g.name IN $genres
           }
-        WITH m, avg(r.rating) AS avgRating, similarity, count(r) AS numRatings
+        WITH m, avg(r.rating) AS avgRating, avg(s.score) AS similarity, count(r) AS numRatings
         WHERE numRatings >= 2
         RETURN m AS movie,
                avgRating AS movieRating,
@@ -120,7 +122,6 @@ public interface GDSRecommendationRepository extends Neo4jRepository<Movie, Stri
         LIMIT $limit
         """)
     List<MovieRecommendationDTO> getGDSCollaborativeRecommendationsWithGenre(
-            @Param("graphName") String graphName,
             @Param("userId") String userId,
             @Param("minSimilarity") double minSimilarity,
             @Param("genres") List<String> genres,
@@ -128,78 +129,22 @@ public interface GDSRecommendationRepository extends Neo4jRepository<Movie, Stri
     );
 
     /**
-     * GDS PageRank algorithm for movie popularity.
-     * Movies with higher PageRank are more "central" in the rating network.
+     * Whether the user has any neighbours in the SIMILAR_TASTE index yet.
      */
     @Query("""
-        CALL gds.pageRank.stream($graphName, {
-            maxIterations: 20,
-            dampingFactor: 0.85
-        })
-        YIELD nodeId, score
-        WITH nodeId, score
-        MATCH (m:Movie)
-        WHERE id(m) = nodeId
-        OPTIONAL MATCH (r:Rating)
-        WHERE r.movieId = m.id
-        WITH m, score AS pageRankScore,
-             count(r) AS ratingCount,
-             COALESCE(avg(r.rating), m.averageRating, 0.0) AS avgRating
-        WHERE avgRating >= $minRating
-          AND NOT EXISTS {
-            MATCH (u:User {id: $userId})-[:RATED]->(:Rating)-[:RATED_MOVIE]->(m)
-          }
-        RETURN m AS movie,
-               avgRating AS movieRating,
-               (pageRankScore * 100 + log(ratingCount + 1)) AS score
-        ORDER BY score DESC
-        LIMIT $limit
+        MATCH (u:User {id: $userId})
+        RETURN EXISTS { (u)-[:SIMILAR_TASTE]->(:User) } AS indexed
         """)
-    List<MovieRecommendationDTO> getGDSPageRankRecommendations(
-            @Param("graphName") String graphName,
-            @Param("userId") String userId,
-            @Param("minRating") double minRating,
-            @Param("limit") int limit
-    );
+    Boolean hasSimilarUsers(@Param("userId") String userId);
 
     /**
-     * GDS PageRank with genre filter.
+     * Stored PageRank score of a single movie, null if it has not been computed yet.
      */
     @Query("""
-        CALL gds.pageRank.stream($graphName, {
-            maxIterations: 20,
-            dampingFactor: 0.85
-        })
-        YIELD nodeId, score
-        WITH nodeId, score
-        MATCH (m:Movie)
-        WHERE id(m) = nodeId
-          AND EXISTS {
-            MATCH (m)-[:IN_GENRE]->(g:Genre)
-            WHERE g.name IN $genres
-          }
-        OPTIONAL MATCH (r:Rating)
-        WHERE r.movieId = m.id
-        WITH m, score AS pageRankScore,
-             count(r) AS ratingCount,
-             COALESCE(avg(r.rating), m.averageRating, 0.0) AS avgRating
-        WHERE avgRating >= $minRating
-          AND NOT EXISTS {
-            MATCH (u:User {id: $userId})-[:RATED]->(:Rating)-[:RATED_MOVIE]->(m)
-          }
-        RETURN m AS movie,
-               avgRating AS movieRating,
-               (pageRankScore * 100 + log(ratingCount + 1)) AS score
-        ORDER BY score DESC
-        LIMIT $limit
+        MATCH (m:Movie {id: $movieId})
+        RETURN m.pageRank
         """)
-    List<MovieRecommendationDTO> getGDSPageRankRecommendationsWithGenre(
-            @Param("graphName") String graphName,
-            @Param("userId") String userId,
-            @Param("minRating") double minRating,
-            @Param("genres") List<String> genres,
-            @Param("limit") int limit
-    );
+    Double getMoviePageRank(@Param("movieId") String movieId);
 
     /**
      * GDS Cosine Similarity for content-based filtering.
@@ -250,44 +195,49 @@ public interface GDSRecommendationRepository extends Neo4jRepository<Movie, Stri
     int getUserRatingsCount(@Param("userId") String userId);
 
     /**
-     * GDS Community Detection (Louvain) to find user communities.
-     * Recommends popular movies within the user's community.
+     * Louvain community of a user, written by CommunityIndex. Null until the first run.
+     */
+    @Query("""
+        MATCH (u:User {id: $userId})
+        RETURN u.communityId
+        """)
+    Long getUserCommunityId(@Param("userId") String userId);
+
+    /**
+     * Filter step for community and PageRank recommendations: keeps the candidate movies
+     * the user has not rated yet. Order of the result is not significant.
      */
     @Query("""
-        CALL gds.louvain.stream($graphName, {
-            relationshipWeightProperty: 'weight'
-        })
-        YIELD nodeId, communityId
-        WITH nodeId, communityId
-        MATCH (target:User {id: $userId})
-        WHERE id(target) = nodeId
-        WITH communityId AS userCommunity
-        CALL gds.louvain.stream($graphName, {
-            relationshipWeightProperty: 'weight'
-        })
-        YIELD nodeId AS otherNodeId, communityId AS otherCommunity
-        WHERE otherCommunity = userCommunity
         MATCH (m:Movie)
-        WHERE id(m) = otherNodeId
-        OPTIONAL MATCH (r:Rating)
-        WHERE r.movieId = m.id
-        WITH m,
-             count(r) AS ratingCount,
-             COALESCE(avg(r.rating), m.averageRating, 0.0) AS avgRating
-        WHERE avgRating >= $minRating
+        WHERE m.id IN $movieIds
           AND NOT EXISTS {
             MATCH (u:User {id: $userId})-[:RATED]->(:Rating)-[:RATED_MOVIE]->(m)
           }
-        RETURN m AS movie,
-               avgRating AS movieRating,
-               (avgRating * log(ratingCount + 1)) AS score
-        ORDER BY score DESC
-        LIMIT $limit
+        RETURN m.id
         """)
-    List<MovieRecommendationDTO> getGDSCommunityRecommendations(
-            @Param("graphName") String graphName,
+    List<String> findUnratedMovieIds(
             @Param("userId") String userId,
-            @Param("minRating") double minRating,
-            @Param("limit") int limit
+            @Param("movieIds") List<String> movieIds
+    );
+
+    /**
+     * Filter step for community and PageRank recommendations with genre filter.
+     */
+    @Query("""
+        MATCH (m:Movie)
+        WHERE m.id IN $movieIds
+          AND EXISTS {
+            MATCH (m)-[:IN_GENRE]->(g:Genre)
+            WHERE g.name IN $genres
+          }
+          AND NOT EXISTS {
+            MATCH (u:User {id: $userId})-[:RATED]->(:Rating)-[:RATED_MOVIE]->(m)
+          }
+        RETURN m.id
+        """)
+    List<String> findUnratedMovieIdsWithGenre(
+            @Param("userId") String userId,
+            @Param("movieIds") List<String> movieIds,
+            @Param("genres") List<String> genres
     );
 }
@@ -244,7 +244,8 @@ public interface MovieRepository extends Neo4jRepository<Movie, String> {
     Page<Movie> findAllMoviesByReleaseYear(Pageable pageable);
 
     /**
-     * Find similar movies based on shared genres, directors, and actors
+     * Find similar movies based on shared genres, directors, and actors.
+     * Only used while the in-memory SimilarMovieIndex is still being built.
      */
     @Query("MATCH (m1:Movie {id: $movieId}) " +
            "MATCH (m2:Movie) " +
@@ -259,8 +260,9 @@ public interface MovieRepository extends Neo4jRepository<Movie, String> {
            "WHERE commonGenres > 0 OR commonDirectors > 0 OR commonActors > 0 " +
            "WITH m2, " +
            "     (commonGenres * 2 + commonDirectors * 3 + commonActors * 1) AS similarityScore " +
-           "RETURN m2, similarityScore " +
-           "ORDER BY similarityScore DESC " +
+           "RETURN m2 AS movie, COALESCE(m2.averageRating, 0.0) AS movieRating, " +
+           "       similarityScore AS score, [] AS genres " +
+           "ORDER BY score DESC " +
            "LIMIT $limit")
-    List<Object[]> findSimilarMovies(@Param("movieId") String movieId, @Param("limit") Integer limit);
+    List<MovieRecommendationDTO> findSimilarMovies(@Param("movieId") String movieId, @Param("limit") Integer limit);
 }
\ No newline at end of file
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -49,17 +50,20 @@ public interface RecommendationRepository extends Neo4jRepository<Recommendation
     );
 
     /**
-     * Find recommendations for a user
+     * Find recommendations for a user, across algorithms.
+     * A movie in several algorithms' lists is returned once, with its best scoring relationship.
      */
     @Query(value = "MATCH (u:User)-[r:RECOMMENDED]->(m:Movie) " +
            "WHERE u.id = $userId " +
+           "WITH m, r ORDER BY r.score DESC " +
+           "WITH m, collect(r)[0] AS r " +
            "RETURN r, m.title AS movieTitle, m.plot AS moviePlot, " +
            "       m.releaseYear AS movieYear, m.averageRating AS movieRating " +
            "ORDER BY r.score DESC " +
            "SKIP $skip LIMIT $limit",
-           countQuery = "MATCH (u:User)-[r:RECOMMENDED]->(m:Movie) " +
+           countQuery = "MATCH (u:User)-[:RECOMMENDED]->(m:Movie) " +
            "WHERE u.id = $userId " +
-           "RETURN count(r)")
+           "RETURN count(DISTINCT m)")
     Page<Recommendation> findByUserId(@Param("userId") String userId, Pageable pageable);
 
     /**
@@ -103,60 +107,69 @@ public interface RecommendationRepository extends Neo4jRepository<Recommendation
     void deleteAllByUserId(@Param("userId") String userId);
 
     /**
-     * Update recommendation interaction (clicked)
+     * Update recommendation interaction (clicked), on every algorithm's recommendation of the movie.
+     * Returns the number of recommendations updated.
      */
     @Query("MATCH (u:User)-[r:RECOMMENDED]->(m:Movie) " +
            "WHERE u.id = $userId AND m.id = $movieId " +
            "SET r.clicked = $clicked " +
-           "RETURN r")
-    Optional<Recommendation> updateClicked(@Param("userId") String userId,
+           "RETURN count(r)")
+    long updateClicked(@Param("userId") String userId,
                                          @Param("movieId") String movieId,
                                          @Param("clicked") Boolean clicked);
 
     /**
-     * Update recommendation interaction (watched)
+     * Update recommendation interaction (watched), on every algorithm's recommendation of the movie.
+     * Returns the number of recommendations updated.
      */
     @Query("MATCH (u:User)-[r:RECOMMENDED]->(m:Movie) " +
            "WHERE u.id = $userId AND m.id = $movieId " +
            "SET r.watched = $watched " +
-           "RETURN r")
-    Optional<Recommendation> updateWatched(@Param("userId") String userId,
+           "RETURN count(r)")
+    long updateWatched(@Param("userId") String userId,
                                          @Param("movieId") String movieId,
                                          @Param("watched") Boolean watched);
 
     /**
-     * Get recommendation statistics for a user
+     * Get recommendation statistics for a user, counting each recommended movie once
+     * however many algorithms recommended it
      */
     @Query("MATCH (u:User)-[r:RECOMMENDED]->(m:Movie) " +
            "WHERE u.id = $userId " +
-           "RETURN count(r) AS totalRecommendations, " +
-           "       sum(CASE WHEN r.clicked = true THEN 1 ELSE 0 END) AS clickedCount, " +
-           "       sum(CASE WHEN r.watched = true THEN 1 ELSE 0 END) AS watchedCount, " +
-           "       avg(r.score) AS averageScore")
+           "WITH m, max(r.score) AS score, " +
+           "     max(CASE WHEN r.clicked = true THEN 1 ELSE 0 END) AS clicked, " +
+           "     max(CASE WHEN r.watched = true THEN 1 ELSE 0 END) AS watched " +
+           "RETURN count(m) AS totalRecommendations, " +
+           "       sum(clicked) AS clickedCount, " +
+           "       sum(watched) AS watchedCount, " +
+           "       avg(score) AS averageScore")
     Optional<Object> getRecommendationStats(@Param("userId") String userId);
 
     /**
      * Find similar users based on rating patterns (for collaborative filtering)
-     * Updated to work with Rating nodes instead of RATED relationships
+     * Reads stand-alone Rating nodes, joined to users and movies through the id indexes
      */
-    @Query("MATCH (u1:User), (r1:Rating), (m:Movie), (r2:Rating), (u2:User) " +
-           "WHERE u1.id = $userId " +
-           "  AND r1.userId = u1.id AND r1.movieId = m.id " +
-           "  AND r2.movieId = m.id AND r2.userId = u2.id " +
-           "  AND u1.id <> u2.id " +
-           "WITH u1, u2, " +
-           "     count(m) AS commonRatings, " +
-           "     sum(r1.rating * r2.rating) AS dotProduct, " +
-           "     sum(r1.rating * r1.rating) AS rating1Squared, " +
-           "     sum(r2.rating * r2.rating) AS rating2Squared " +
-           "WHERE commonRatings >= $minCommonRatings " +
-           "WITH u1, u2, commonRatings, " +
-           "     dotProduct / (sqrt(rating1Squared) * sqrt(rating2Squared)) AS similarity " +
-           "WHERE similarity > $minSimilarity " +
-           "RETURN u2.id AS userId, u2.username AS username, " +
-           "       similarity, commonRatings " +
-           "ORDER BY similarity DESC " +
-           "LIMIT $limit")
+    @Query("""
+        MATCH (u1:User {id: $userId})
+        MATCH (r1:Rating {userId: u1.id})
+        MATCH (m:Movie {id: r1.movieId})
+        MATCH (r2:Rating {movieId: m.id})
+        WHERE r2.userId <> u1.id
+        MATCH (u2:User {id: r2.userId})
+        WITH u1, u2,
+             count(m) AS commonRatings,
+             sum(r1.rating * r2.rating) AS dotProduct,
+             sum(r1.rating * r1.rating) AS rating1Squared,
+             sum(r2.rating * r2.rating) AS rating2Squared
+        WHERE commonRatings >= $minCommonRatings
+        WITH u1, u2, commonRatings,
+             dotProduct / (sqrt(rating1Squared) * sqrt(rating2Squared)) AS similarity
+        WHERE similarity > $minSimilarity
+        RETURN u2.id AS userId, u2.username AS username,
+               similarity, commonRatings
+        ORDER BY similarity DESC
+        LIMIT $limit
+        """)
     List<UserSimilarity> findSimilarUsers(@Param("userId") String userId,
                                          @Param("minCommonRatings") Integer minCommonRatings,
                                          @Param("minSimilarity") Double minSimilarity,
@@ -164,34 +177,36 @@ public interface RecommendationRepository extends Neo4jRepository<Recommendation
 
     /**
      * Get movies rated highly by similar users (collaborative filtering)
-     * Updated to work with Rating nodes instead of RATED relationships
+     * Reads stand-alone Rating nodes, joined to users and movies through the id indexes
      */
-    @Query("MATCH (u1:User), (r1:Rating), (m1:Movie), (r2:Rating), (u2:User) " +
-           "WHERE u1.id = $userId " +
-           "  AND r1.userId = u1.id AND r1.movieId = m1.id " +
-           "  AND r2.movieId = m1.id AND r2.userId = u2.id " +
-           "  AND u1.id <> u2.id " +
-           "WITH u1, u2, " +
-           "     count(m1) AS commonRatings, " +
-           "     sum(r1.rating * r2.rating) AS dotProduct, " +
-           "     sum(r1.rating * r1.rating) AS rating1Squared, " +
-           "     sum(r2.rating * r2.rating) AS rating2Squared " +
-           "WHERE commonRatings >= $minCommonRatings " +
-           "WITH u1, u2, commonRatings, " +
-           "     dotProduct / (sqrt(rating1Squared) * sqrt(rating2Squared)) AS similarity " +
-           "WHERE similarity > $minSimilarity " +
-           "MATCH (r3:Rating), (m2:Movie) " +
-           "WHERE r3.userId = u2.id AND r3.movieId = m2.id " +
-           "  AND r3.rating >= $minRating " +
-           "  AND NOT EXISTS { " +
-           "    MATCH (userRating:Rating) " +
-           "    WHERE userRating.userId = u1.id AND userRating.movieId = m2.id " +
-           "  } " +
-           "RETURN m2 AS movie, " +
-           "       COALESCE(m2.averageRating, 0.0) AS movieRating, " +
-           "       avg(r3.rating * similarity) AS score " +
-           "ORDER BY score DESC " +
-           "LIMIT $limit")
+    @Query("""
+        MATCH (u1:User {id: $userId})
+        MATCH (r1:Rating {userId: u1.id})
+        MATCH (m1:Movie {id: r1.movieId})
+        MATCH (r2:Rating {movieId: m1.id})
+        WHERE r2.userId <> u1.id
+        MATCH (u2:User {id: r2.userId})
+        WITH u1, u2,
+             count(m1) AS commonRatings,
+             sum(r1.rating * r2.rating) AS dotProduct,
+             sum(r1.rating * r1.rating) AS rating1Squared,
+             sum(r2.rating * r2.rating) AS rating2Squared
+        WHERE commonRatings >= $minCommonRatings
+        WITH u1, u2, commonRatings,
+             dotProduct / (sqrt(rating1Squared) * sqrt(rating2Squared)) AS similarity
+        WHERE similarity > $minSimilarity
+        MATCH (r3:Rating {userId: u2.id})
+        WHERE r3.rating >= $minRating
+        MATCH (m2:Movie {id: r3.movieId})
+        WHERE NOT EXISTS {
+          MATCH (:Rating {userId: u1.id, movieId: m2.id})
+        }
+        RETURN m2 AS movie,
+               COALESCE(m2.averageRating, 0.0) AS movieRating,
+               avg(r3.rating * similarity) AS score
+        ORDER BY score DESC
+        LIMIT $limit
+        """)
     List<MovieRecommendationDTO> getCollaborativeRecommendations(@Param("userId") String userId,
                                                    @Param("minCommonRatings") Integer minCommonRatings,
                                                    @Param("minSimilarity") Double minSimilarity,
@@ -202,36 +217,38 @@ public interface RecommendationRepository extends Neo4jRepository<Recommendation
      * Get movies rated highly by similar users with genre filter (collaborative filtering)
      * Filters recommended movies to only include specified genres
      */
-    @Query("MATCH (u1:User), (r1:Rating), (m1:Movie), (r2:Rating), (u2:User) " +
-            "WHERE u1.id = $userId " +
-            "  AND r1.userId = u1.id AND r1.movieId = m1.id " +
-            "  AND r2.movieId = m1.id AND r2.userId = u2.id " +
-            "  AND u1.id <> u2.id " +
-            "WITH u1, u2, " +
-            "     count(m1) AS commonRatings, " +
-            "     sum(r1.rating * r2.rating) AS dotProduct, " +
-            "     sum(r1.rating * r1.rating) AS rating1Squared, " +
-            "     sum(r2.rating * r2.rating) AS rating2Squared " +
-            "WHERE commonRatings >= $minCommonRatings " +
-            "WITH u1, u2, commonRatings, " +
-            "     dotProduct / (sqrt(rating1Squared) * sqrt(rating2Squared)) AS similarity " +
-            "WHERE similarity > $minSimilarity " +
-            "MATCH (r3:Rating), (m2:Movie) " +
-            "WHERE r3.userId = u2.id AND r3.movieId = m2.id " +
-            "  AND r3.rating >= $minRating " +
-            "  AND NOT EXISTS { " +
-            "    MATCH (userRating:Rating) " +
-            "    WHERE userRating.userId = u1.id AND userRating.movieId = m2.id " +
-            "  } " +
-            "  AND EXISTS { " +
-            "    MATCH (m2)-[:IN_GENRE]->(g:Genre) " +
-            "    WHERE g.name IN $genres " +
-            "  } " +
-            "RETURN m2 AS movie, " +
-            "       COALESCE(m2.averageRating, 0.0) AS movieRating, " +
-            "       avg(r3.rating * similarity) AS score " +
-            "ORDER BY score DESC " +
-            "LIMIT $limit")
+    @Query("""
+        MATCH (u1:User {id: $userId})
+        MATCH (r1:Rating {userId: u1.id})
+        MATCH (m1:Movie {id: r1.movieId})
+        MATCH (r2:Rating {movieId: m1.id})
+        WHERE r2.userId <> u1.id
+        MATCH (u2:User {id: r2.userId})
+        WITH u1, u2,
+             count(m1) AS commonRatings,
+             sum(r1.rating * r2.rating) AS dotProduct,
+             sum(r1.rating * r1.rating) AS rating1Squared,
+             sum(r2.rating * r2.rating) AS rating2Squared
+        WHERE commonRatings >= $minCommonRatings
+        WITH u1, u2, commonRatings,
+             dotProduct / (sqrt(rating1Squared) * sqrt(rating2Squared)) AS similarity
+        WHERE similarity > $minSimilarity
+        MATCH (r3:Rating {userId: u2.id})
+        WHERE r3.rating >= $minRating
+        MATCH (m2:Movie {id: r3.movieId})
+        WHERE NOT EXISTS {
+          MATCH (:Rating {userId: u1.id, movieId: m2.id})
+        }
+          AND EXISTS {
+            MATCH (m2)-[:IN_GENRE]->(g:Genre)
+            WHERE g.name IN $genres
+          }
+        RETURN m2 AS movie,
+               COALESCE(m2.averageRating, 0.0) AS movieRating,
+               avg(r3.rating * similarity) AS score
+        ORDER BY score DESC
+        LIMIT $limit
+        """)
     List<MovieRecommendationDTO> getCollaborativeRecommendationsWithGenreFilter(
             @Param("userId") String userId,
             @Param("minCommonRatings") Integer minCommonRatings,
@@ -241,27 +258,45 @@ public interface RecommendationRepository extends Neo4jRepository<Recommendation
             @Param("limit") Integer limit
     );
 
+    /**
+     * Keep the candidate movies that belong to at least one of the genres.
+     * Used to apply genre filters to candidates scored in memory. Order of the result is not significant.
+     */
+    @Query("""
+        MATCH (m:Movie)
+        WHERE m.id IN $movieIds
+          AND EXISTS {
+            MATCH (m)-[:IN_GENRE]->(g:Genre)
+            WHERE g.name IN $genres
+          }
+        RETURN m.id
+        """)
+    List<String> findMovieIdsInGenres(@Param("movieIds") List<String> movieIds,
+                                      @Param("genres") List<String> genres);
+
     /**
      * Get popular movies (popularity-based recommendations)
-     * Updated to work with Rating nodes instead of RATED relationships
+     * Reads stand-alone Rating nodes, joined to movies through the rating_movie_id index.
+     * Ranks every movie, so it stays a full scan of the Movie label; it is only the fallback
+     * for when PopularityLeaderboard has not been reconciled yet.
      * Returns a single map with all fields
      */
-    @Query("MATCH (m:Movie) " +
-           "OPTIONAL MATCH (rating:Rating) " +
-           "WHERE rating.movieId = m.id " +
-           "WITH m, count(rating) AS ratingCount, avg(rating.rating) AS avgRating " +
-           "WHERE (avgRating >= $minRating OR avgRating IS NULL OR ratingCount = 0) " +
-           "  AND (ratingCount >= $minRatingCount OR ratingCount = 0) " +
-           "  AND NOT EXISTS { " +
-           "    MATCH (userRating:Rating) " +
-           "    WHERE userRating.userId = $userId AND userRating.movieId = m.id " +
-           "  } " +
-           "WITH m AS movie, " +
-           "     COALESCE(avgRating, m.averageRating, 0.0) AS movieRating, " +
-           "     (COALESCE(avgRating, m.averageRating, 0.0) * log(ratingCount + 1)) AS score " +
-           "ORDER BY score DESC " +
-           "LIMIT $limit " +
-           "RETURN movie, movieRating, score")
+    @Query("""
+        MATCH (m:Movie)
+        OPTIONAL MATCH (rating:Rating {movieId: m.id})
+        WITH m, count(rating) AS ratingCount, avg(rating.rating) AS avgRating
+        WHERE (avgRating >= $minRating OR avgRating IS NULL OR ratingCount = 0)
+          AND (ratingCount >= $minRatingCount OR ratingCount = 0)
+          AND NOT EXISTS {
+            MATCH (:Rating {userId: $userId, movieId: m.id})
+          }
+        WITH m AS movie,
+             COALESCE(avgRating, m.averageRating, 0.0) AS movieRating,
+             (COALESCE(avgRating, m.averageRating, 0.0) * log(ratingCount + 1)) AS score
+        ORDER BY score DESC
+        LIMIT $limit
+        RETURN movie, movieRating, score
+        """)
     List<MovieRecommendationDTO> getPopularRecommendations(@Param("userId") String userId,
                                             @Param("minRating") Double minRating,
                                             @Param("minRatingCount") Double minRatingCount,
@@ -297,27 +332,27 @@ public interface RecommendationRepository extends Neo4jRepository<Recommendation
 
     /**
      * Get recommendations by director preference
-     * Updated to work with Rating nodes instead of RATED relationships
+     * Reads stand-alone Rating nodes, joined to users and movies through the id indexes
      */
-    @Query("MATCH (u:User), (rating:Rating), (m1:Movie), (d:Director) " +
-           "WHERE u.id = $userId " +
-           "  AND rating.userId = u.id AND rating.movieId = m1.id " +
-           "  AND rating.rating >= $minRating " +
-           "  AND (d)-[:DIRECTED]->(m1) " +
-           "WITH u, d, avg(rating.rating) AS directorPreference, count(rating) AS directorCount " +
-           "ORDER BY directorPreference DESC, directorCount DESC " +
-           "LIMIT 3 " +
-           "MATCH (d)-[:DIRECTED]->(m2:Movie) " +
-           "WHERE m2.averageRating >= $minMovieRating " +
-           "  AND NOT EXISTS { " +
-           "    MATCH (userRating:Rating) " +
-           "    WHERE userRating.userId = u.id AND userRating.movieId = m2.id " +
-           "  } " +
-           "RETURN m2 AS movie, " +
-           "       COALESCE(m2.averageRating, 0.0) AS movieRating, " +
-           "       avg(directorPreference) AS score " +
-           "ORDER BY score DESC " +
-           "LIMIT $limit")
+    @Query("""
+        MATCH (u:User {id: $userId})
+        MATCH (rating:Rating {userId: u.id})
+        WHERE rating.rating >= $minRating
+        MATCH (d:Director)-[:DIRECTED]->(m1:Movie {id: rating.movieId})
+        WITH u, d, avg(rating.rating) AS directorPreference, count(rating) AS directorCount
+        ORDER BY directorPreference DESC, directorCount DESC
+        LIMIT 3
+        MATCH (d)-[:DIRECTED]->(m2:Movie)
+        WHERE m2.averageRating >= $minMovieRating
+          AND NOT EXISTS {
+            MATCH (:Rating {userId: u.id, movieId: m2.id})
+          }
+        RETURN m2 AS movie,
+               COALESCE(m2.averageRating, 0.0) AS movieRating,
+               avg(directorPreference) AS score
+        ORDER BY score DESC
+        LIMIT $limit
+        """)
     List<MovieRecommendationDTO> getDirectorBasedRecommendations(@Param("userId") String userId,
                                                    @Param("minRating") Double minRating,
                                                    @Param("minMovieRating") Double minMovieRating,
@@ -359,19 +394,17 @@ public interface RecommendationRepository extends Neo4jRepository<Recommendation
 
     // Director-based recommendations WITH genre filter
     @Query("""
-        MATCH (u:User), (rating:Rating), (m1:Movie), (d:Director)
-        WHERE u.id = $userId
-          AND rating.userId = u.id AND rating.movieId = m1.id
-          AND rating.rating >= $minRating
-          AND (d)-[:DIRECTED]->(m1)
+        MATCH (u:User {id: $userId})
+        MATCH (rating:Rating {userId: u.id})
+        WHERE rating.rating >= $minRating
+        MATCH (d:Director)-[:DIRECTED]->(m1:Movie {id: rating.movieId})
         WITH u, d, avg(rating.rating) AS directorPreference, count(rating) AS directorCount
         ORDER BY directorPreference DESC, directorCount DESC
         LIMIT 3
         MATCH (d)-[:DIRECTED]->(m2:Movie)
         WHERE m2.averageRating >= $minMovieRating
           AND NOT EXISTS {
-            MATCH (userRating:Rating)
-            WHERE userRating.userId = u.id AND userRating.movieId = m2.id
+            MATCH (:Rating {userId: u.id, movieId: m2.id})
           }
           AND EXISTS {
             MATCH (m2)-[:IN_GENRE]->(g:Genre)
@@ -382,7 +415,7 @@ public interface RecommendationRepository extends Neo4jRepository<Recommendation
                avg(directorPreference) AS score
         ORDER BY score DESC
         LIMIT $limit
-    """)
+        """)
     List<MovieRecommendationDTO> getDirectorBasedRecommendationsWithGenreFilter(
             @Param("userId") String userId,
             @Param("minRating") Double minRating,
@@ -392,23 +425,30 @@ public interface RecommendationRepository extends Neo4jRepository<Recommendation
     );
 
     /**
-     * Custom save method to create RECOMMENDED relationship
+     * Replace the stored recommendation lists of any number of users in one statement.
+     * Each entry of lists is a map with userId, algorithm, generatedAt (ISO-8601 instant) and rows,
+     * each row a map with movieId, score and reason. Movies that dropped out of a list are removed;
+     * clicked / watched flags of movies that stay are kept.
+     *
+     * @return number of RECOMMENDED relationships written
      */
-    @Query("MATCH (u:User {id: $userId}), (m:Movie {id: $movieId}) " +
-           "MERGE (u)-[r:RECOMMENDED]->(m) " +
-           "SET r.score = $score, " +
-           "    r.algorithm = $algorithm, " +
-           "    r.reason = $reason, " +
-           "    r.recommendedAt = datetime($recommendedAt), " +
-           "    r.clicked = $clicked, " +
-           "    r.watched = $watched " +
-           "RETURN id(r) AS id")
-    Long saveRecommendation(@Param("userId") String userId,
-                           @Param("movieId") String movieId,
-                           @Param("score") Double score,
-                           @Param("algorithm") String algorithm,
-                           @Param("reason") String reason,
-                           @Param("recommendedAt") String recommendedAt,
-                           @Param("clicked") Boolean clicked,
-                           @Param("watched") Boolean watched);
-}
\ No newline at end of file
+    @Query("""
+        UNWIND $lists AS entry
+        MATCH (u:User {id: entry.userId})
+        OPTIONAL MATCH (u)-[old:RECOMMENDED]->(m:Movie)
+        WHERE old.algorithm = entry.algorithm
+          AND NOT m.id IN [row IN entry.rows | row.movieId]
+        DELETE old
+        WITH DISTINCT u, entry
+        UNWIND entry.rows AS row
+        MATCH (m:Movie {id: row.movieId})
+        MERGE (u)-[r:RECOMMENDED {algorithm: entry.algorithm}]->(m)
+        ON CREATE SET r.clicked = false, r.watched = false
+        SET r.score = row.score,
+            r.reason = row.reason,
+            r.userId = entry.userId,
+            r.recommendedAt = datetime(entry.generatedAt)
+        RETURN count(r)
+        """)
+    Long saveRecommendationLists(@Param("lists") List<Map<String, Object>> lists);
+}
@@ -0,0 +1,480 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.dto.BatchJobStatus;
+import com.neo4flix.movieservice.engine.AdaptiveConcurrencyLimiter;
+import com.neo4flix.movieservice.model.Recommendation;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batch generation of the stored recommendation lists for many users.
+ *
+ * A job walks its users page by page: either an explicit list, or every user in id order.
+ * Users of a page are generated in parallel on the batch executor, and their lists written
+ * in chunks of many users per UNWIND statement. Concurrency is bounded by an adaptive limiter shared by all
+ * jobs, which backs off when per-user latency (mostly Neo4j round trips) exceeds the target.
+ *
+ * Jobs run one at a time on their own coordinator thread. Progress is checkpointed on a
+ * (:BatchJob) node after each page, which also renews the lease of the replica running
+ * it. Jobs still RUNNING whose lease was released on shutdown or has expired are claimed
+ * by one replica, atomically, and resumed from their last checkpoint, on startup and then
+ * periodically; users of the interrupted page may be generated twice, which is harmless.
+ * A replica whose lease was taken over stops its run at the next checkpoint.
+ */
+@Service
+public class BatchGenerationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchGenerationService.class);
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private static final String USER_PAGE_QUERY = """
+        MATCH (u:User)
+        WHERE u.id > $cursor
+        RETURN u.id AS userId
+        ORDER BY u.id
+        LIMIT $limit
+        """;
+
+    private static final String USER_COUNT_QUERY = "MATCH (u:User) RETURN count(u) AS total";
+
+    // Only saved while this replica holds the lease; returns whether it does
+    private static final String CHECKPOINT_QUERY = """
+        MERGE (j:BatchJob {id: $id})
+        ON CREATE SET j.userIds = $userIds, j.owner = $owner
+        WITH j
+        WHERE j.owner = $owner
+        SET j += $progress, j.leaseUntil = timestamp() + $leaseMs
+        RETURN count(j) AS owned
+        """;
+
+    // Locks each candidate before reading its owner, so two replicas never claim the same job
+    private static final String CLAIM_JOBS_QUERY = """
+        MATCH (j:BatchJob {status: $status})
+        SET j.claimLock = true
+        WITH j
+        WHERE j.owner IS NULL OR j.leaseUntil IS NULL OR j.leaseUntil < timestamp()
+        SET j.owner = $owner, j.leaseUntil = timestamp() + $leaseMs
+        WITH j
+        REMOVE j.claimLock
+        RETURN properties(j) AS job
+        """;
+
+    private static final String RELEASE_QUERY = """
+        MATCH (j:BatchJob {id: $id})
+        WHERE j.owner = $owner
+        SET j.owner = null, j.leaseUntil = null
+        """;
+
+    private static final String JOB_STATUS_QUERY = """
+        MATCH (j:BatchJob {id: $id})
+        RETURN j {.id, .algorithm, .status, .total, .done, .failed, .startedAt, .updatedAt} AS job
+        """;
+
+    private final Driver neo4jDriver;
+    private final RecommendationGenerator recommendationGenerator;
+    private final RecommendationStore recommendationStore;
+    private final TaskExecutor coordinatorExecutor;
+    private final TaskExecutor batchExecutor;
+    // Lease owner name of this replica
+    private final String owner = UUID.randomUUID().toString();
+
+    @Value("${neo4flix.recommendation.batch.page-size:500}")
+    private int pageSize;
+
+    @Value("${neo4flix.recommendation.batch.write-size:100}")
+    private int writeSize;
+
+    @Value("${neo4flix.recommendation.batch.min-concurrency:1}")
+    private int minConcurrency;
+
+    @Value("${neo4flix.recommendation.batch.max-concurrency:8}")
+    private int maxConcurrency;
+
+    @Value("${neo4flix.recommendation.batch.target-latency-ms:500}")
+    private long targetLatencyMs;
+
+    // How long a job stays claimed without a checkpoint; must exceed the time to process a page
+    @Value("${neo4flix.recommendation.batch.lease-ms:600000}")
+    private long leaseMs;
+
+    // Jobs running in this instance; finished jobs are only kept on their checkpoint node
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private volatile boolean stopping;
+
+    private AdaptiveConcurrencyLimiter limiter;
+
+    public BatchGenerationService(Driver neo4jDriver,
+                                  RecommendationGenerator recommendationGenerator,
+                                  RecommendationStore recommendationStore,
+                                  @Qualifier("batchCoordinatorExecutor") TaskExecutor coordinatorExecutor,
+                                  @Qualifier("batchExecutor") TaskExecutor batchExecutor) {
+        this.neo4jDriver = neo4jDriver;
+        this.recommendationGenerator = recommendationGenerator;
+        this.recommendationStore = recommendationStore;
+        this.coordinatorExecutor = coordinatorExecutor;
+        this.batchExecutor = batchExecutor;
+    }
+
+    @PostConstruct
+    void createLimiter() {
+        limiter = new AdaptiveConcurrencyLimiter(minConcurrency, maxConcurrency,
+                Math.max(minConcurrency, maxConcurrency / 2), targetLatencyMs);
+    }
+
+    public boolean supportsAlgorithm(String algorithm) {
+        return recommendationGenerator.supports(algorithm);
+    }
+
+    /**
+     * Start a job generating the given users' lists, or every user's if userIds is null.
+     *
+     * @return the job id
+     * @throws IllegalArgumentException if the algorithm is unknown
+     */
+    public String start(List<String> userIds, String algorithm) {
+        if (!recommendationGenerator.supports(algorithm)) {
+            throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), algorithm,
+                userIds != null ? List.copyOf(userIds) : null, System.currentTimeMillis());
+        job.total = userIds != null ? Long.valueOf(userIds.size()) : null;
+        checkpoint(job);
+
+        logger.info("Starting batch job {} for {} users with algorithm {}", job.id,
+                userIds != null ? userIds.size() : "all", algorithm);
+        submit(job);
+        return job.id;
+    }
+
+    /**
+     * Status of a job, or null if there is no such job.
+     */
+    public BatchJobStatus getStatus(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job != null) {
+            return job.toStatus(limiter.limit());
+        }
+
+        try (Session session = neo4jDriver.session()) {
+            List<Record> rows = session.executeRead(tx -> tx.run(JOB_STATUS_QUERY, Map.of("id", jobId)).list());
+            if (rows.isEmpty()) {
+                return null;
+            }
+            org.neo4j.driver.Value stored = rows.get(0).get("job");
+            BatchJobStatus status = new BatchJobStatus();
+            status.setJobId(jobId);
+            status.setAlgorithm(stored.get("algorithm").asString(null));
+            status.setStatus(stored.get("status").asString(null));
+            status.setTotal(stored.get("total").isNull() ? null : stored.get("total").asLong());
+            status.setDone(stored.get("done").asLong(0L));
+            status.setFailed(stored.get("failed").asLong(0L));
+            status.setStartedAt(stored.get("startedAt").asLong(0L));
+            status.setUpdatedAt(stored.get("updatedAt").asLong(0L));
+            long elapsedMs = status.getUpdatedAt() - status.getStartedAt();
+            status.setUsersPerSecond(elapsedMs > 0
+                    ? (status.getDone() + status.getFailed()) * 1000.0 / elapsedMs : 0.0);
+            return status;
+        }
+    }
+
+    /**
+     * Claim and resume the jobs left running by a replica that stopped or went away.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${neo4flix.recommendation.batch.lease-ms:600000}",
+               fixedDelayString = "${neo4flix.recommendation.batch.lease-ms:600000}")
+    public void resumeInterruptedJobs() {
+        if (stopping) {
+            return;
+        }
+        List<Record> rows;
+        try (Session session = neo4jDriver.session()) {
+            rows = session.executeWrite(tx -> tx.run(CLAIM_JOBS_QUERY,
+                    Map.of("status", RUNNING, "owner", owner, "leaseMs", leaseMs)).list());
+        } catch (Exception e) {
+            logger.error("Could not look up interrupted batch jobs: {}", e.getMessage());
+            return;
+        }
+
+        for (Record row : rows) {
+            org.neo4j.driver.Value stored = row.get("job");
+            if (jobs.containsKey(stored.get("id").asString())) {
+                continue;
+            }
+            List<String> userIds = stored.get("userIds").isNull()
+                    ? null : stored.get("userIds").asList(org.neo4j.driver.Value::asString);
+            Job job = new Job(stored.get("id").asString(), stored.get("algorithm").asString(), userIds,
+                    stored.get("startedAt").asLong(System.currentTimeMillis()));
+            job.total = stored.get("total").isNull() ? null : stored.get("total").asLong();
+            job.cursor = stored.get("cursor").asString("");
+            job.position = stored.get("position").asInt(0);
+            job.done.set(stored.get("done").asLong(0L));
+            job.failed.set(stored.get("failed").asLong(0L));
+
+            logger.info("Resuming batch job {} after {} users", job.id, job.done.get() + job.failed.get());
+            submit(job);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        // Running jobs stop after their current user and stay RUNNING, released for another replica to resume
+        stopping = true;
+    }
+
+    private void submit(Job job) {
+        jobs.put(job.id, job);
+        try {
+            coordinatorExecutor.execute(() -> run(job));
+        } catch (Exception e) {
+            // Stays RUNNING on its checkpoint, so another replica or the next claim picks it up
+            jobs.remove(job.id);
+            release(job);
+            logger.error("Could not schedule batch job {}: {}", job.id, e.getMessage());
+        }
+    }
+
+    private void run(Job job) {
+        job.runStartedAt = System.currentTimeMillis();
+        job.processedAtRunStart = job.done.get() + job.failed.get();
+        try {
+            if (job.total == null) {
+                try (Session session = neo4jDriver.session()) {
+                    job.total = session.executeRead(tx -> tx.run(USER_COUNT_QUERY).single().get("total").asLong());
+                }
+            }
+
+            List<String> page = nextPage(job);
+            while (!page.isEmpty() && !stopping) {
+                processPage(job, page);
+                if (stopping) {
+                    // The page may be incomplete: leave the checkpoint before it
+                    break;
+                }
+                if (job.userIds == null) {
+                    job.cursor = page.get(page.size() - 1);
+                } else {
+                    job.position += page.size();
+                }
+                if (!checkpoint(job)) {
+                    logger.warn("Batch job {} was taken over by another replica, stopping", job.id);
+                    return;
+                }
+                page = nextPage(job);
+            }
+
+            if (!stopping) {
+                job.status = COMPLETED;
+                logger.info("Completed batch job {}: {} users done, {} failed", job.id, job.done.get(), job.failed.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Batch job {} interrupted", job.id);
+        } catch (Exception e) {
+            job.status = FAILED;
+            logger.error("Batch job {} failed: {}", job.id, e.getMessage(), e);
+        } finally {
+            try {
+                if (!RUNNING.equals(job.status)) {
+                    checkpoint(job);
+                } else if (stopping) {
+                    release(job);
+                }
+            } catch (Exception e) {
+                logger.error("Could not save final state of batch job {}: {}", job.id, e.getMessage());
+            }
+            jobs.remove(job.id);
+        }
+    }
+
+    private List<String> nextPage(Job job) {
+        if (job.userIds != null) {
+            int from = Math.min(job.position, job.userIds.size());
+            return job.userIds.subList(from, Math.min(from + pageSize, job.userIds.size()));
+        }
+        try (Session session = neo4jDriver.session()) {
+            return session.executeRead(tx -> tx.run(USER_PAGE_QUERY,
+                    Map.of("cursor", job.cursor, "limit", pageSize)).list(row -> row.get("userId").asString()));
+        }
+    }
+
+    /**
+     * Generate every user of the page, at most the limiter's current limit at a time, and
+     * write the lists in chunks of write-size users per statement. Returns once all lists
+     * of the page are written.
+     */
+    private void processPage(Job job, List<String> page) throws InterruptedException {
+        CountDownLatch pending = new CountDownLatch(page.size());
+        List<RecommendationStore.PendingList> buffer = new ArrayList<>(writeSize);
+        for (String userId : page) {
+            if (stopping) {
+                pending.countDown();
+                continue;
+            }
+            limiter.acquire();
+            try {
+                batchExecutor.execute(() -> {
+                    long start = System.currentTimeMillis();
+                    try {
+                        List<Recommendation> recommendations = recommendationGenerator.generateList(userId, job.algorithm);
+                        List<RecommendationStore.PendingList> chunk = null;
+                        synchronized (buffer) {
+                            buffer.add(new RecommendationStore.PendingList(userId, job.algorithm, recommendations, start));
+                            if (buffer.size() >= writeSize) {
+                                chunk = new ArrayList<>(buffer);
+                                buffer.clear();
+                            }
+                        }
+                        if (chunk != null) {
+                            // Written by the worker that filled the chunk, so write latency feeds the limiter too
+                            write(job, chunk);
+                        }
+                    } catch (Exception e) {
+                        job.failed.incrementAndGet();
+                        logger.warn("Batch job {} could not generate recommendations for user {}: {}",
+                                job.id, userId, e.getMessage());
+                    } finally {
+                        limiter.release(System.currentTimeMillis() - start);
+                        pending.countDown();
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                // Only once the pool is shut down: stop, leaving the page to the job's next run
+                stopping = true;
+                limiter.cancel();
+                pending.countDown();
+            }
+        }
+        pending.await();
+        write(job, buffer);
+    }
+
+    private void write(Job job, List<RecommendationStore.PendingList> lists) {
+        if (lists.isEmpty()) {
+            return;
+        }
+        try {
+            recommendationStore.writeAll(lists);
+            job.done.addAndGet(lists.size());
+        } catch (Exception e) {
+            job.failed.addAndGet(lists.size());
+            logger.warn("Batch job {} could not write recommendations for {} users: {}",
+                    job.id, lists.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Save the job's progress and renew its lease; returns false if another replica holds it.
+     */
+    private boolean checkpoint(Job job) {
+        job.updatedAt = System.currentTimeMillis();
+
+        Map<String, Object> progress = new HashMap<>();
+        progress.put("algorithm", job.algorithm);
+        progress.put("status", job.status);
+        progress.put("total", job.total);
+        progress.put("cursor", job.cursor);
+        progress.put("position", job.position);
+        progress.put("done", job.done.get());
+        progress.put("failed", job.failed.get());
+        progress.put("startedAt", job.startedAt);
+        progress.put("updatedAt", job.updatedAt);
+
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("id", job.id);
+        parameters.put("userIds", job.userIds);
+        parameters.put("progress", progress);
+        parameters.put("owner", owner);
+        parameters.put("leaseMs", leaseMs);
+
+        try (Session session = neo4jDriver.session()) {
+            return session.executeWrite(tx -> tx.run(CHECKPOINT_QUERY, parameters).single().get("owned").asLong()) > 0;
+        }
+    }
+
+    /**
+     * Give up the job's lease, so that another replica can resume it without waiting for it to expire.
+     */
+    private void release(Job job) {
+        try (Session session = neo4jDriver.session()) {
+            session.executeWrite(tx -> tx.run(RELEASE_QUERY, Map.of("id", job.id, "owner", owner)).consume());
+        } catch (Exception e) {
+            logger.warn("Could not release batch job {}: {}", job.id, e.getMessage());
+        }
+    }
+
+    private static final class Job {
+
+        final String id;
+        final String algorithm;
+        // null means every user, walked by id
+        final List<String> userIds;
+        final long startedAt;
+        final AtomicLong done = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+
+        volatile String status = RUNNING;
+        volatile Long total;
+        volatile String cursor = "";
+        volatile int position;
+        volatile long updatedAt;
+
+        volatile long runStartedAt;
+        volatile long processedAtRunStart;
+
+        Job(String id, String algorithm, List<String> userIds, long startedAt) {
+            this.id = id;
+            this.algorithm = algorithm;
+            this.userIds = userIds;
+            this.startedAt = startedAt;
+            this.updatedAt = startedAt;
+        }
+
+        BatchJobStatus toStatus(int concurrency) {
+            long now = System.currentTimeMillis();
+            long processed = done.get() + failed.get();
+            long elapsedMs = now - runStartedAt;
+
+            BatchJobStatus status = new BatchJobStatus();
+            status.setJobId(id);
+            status.setAlgorithm(algorithm);
+            status.setStatus(this.status);
+            status.setTotal(total);
+            status.setDone(done.get());
+            status.setFailed(failed.get());
+            // Rate of this run only, so a resumed job is not credited with work done before the restart
+            status.setUsersPerSecond(runStartedAt > 0 && elapsedMs > 0
+                    ? (processed - processedAtRunStart) * 1000.0 / elapsedMs : 0.0);
+            status.setConcurrency(concurrency);
+            status.setStartedAt(startedAt);
+            status.setUpdatedAt(now);
+            return status;
+        }
+    }
+}
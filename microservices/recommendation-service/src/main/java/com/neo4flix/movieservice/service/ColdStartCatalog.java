@@ -0,0 +1,261 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.dto.RecommendationResponse;
+import com.neo4flix.movieservice.engine.IdInterner;
+import com.neo4flix.movieservice.engine.RankedList;
+import com.neo4flix.movieservice.engine.TopK;
+import com.neo4flix.movieservice.event.MovieChangedEvent;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recommendations for anonymous and new users, answered without touching Neo4j.
+ *
+ * On a schedule, the overall and per-genre popular lists of the PopularityLeaderboard
+ * are merged into one ranking of ready-made entries (title, plot, year, poster and
+ * average rating, loaded in one query), with a membership bitset per genre and per release year.
+ * A request ORs the bitsets of its genres, ORs those of the years in its range, ANDs
+ * the two and walks the ranking once, so any filter combination costs the same as none.
+ *
+ * The catalog is only rebuilt when the leaderboard published new rankings or a movie
+ * changed since the last build; until the first build isReady() is false and callers fall back to the
+ * popularity algorithm.
+ */
+@Component
+public class ColdStartCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColdStartCatalog.class);
+
+    private static final String LOAD_MOVIES_QUERY = """
+        MATCH (m:Movie)
+        WHERE m.id IN $movieIds
+        RETURN m.id AS movieId, m.title AS title, m.plot AS plot, m.releaseYear AS releaseYear,
+               m.posterUrl AS posterUrl
+        """;
+
+    private final Driver neo4jDriver;
+    private final PopularityLeaderboard leaderboard;
+
+    @Value("${neo4flix.recommendation.cold-start.list-size:200}")
+    private int listSize;
+
+    // Incremented on every movie change; a build records the value it read the movies at
+    private final AtomicLong movieGeneration = new AtomicLong();
+
+    private volatile Catalog catalog;
+    private volatile PopularityLeaderboard.Snapshot builtFrom;
+    private volatile long builtAtGeneration = -1;
+
+    public ColdStartCatalog(Driver neo4jDriver, PopularityLeaderboard leaderboard) {
+        this.neo4jDriver = neo4jDriver;
+        this.leaderboard = leaderboard;
+    }
+
+    public boolean isReady() {
+        return catalog != null;
+    }
+
+    /**
+     * Best ranked movies matching every given filter; genres match any of the names,
+     * years are inclusive and either bound may be null.
+     */
+    public List<RecommendationResponse> recommend(int limit, List<String> genres, Integer fromYear, Integer toYear) {
+        Catalog current = catalog;
+        if (current == null || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        BitSet allowed = null;
+        if (genres != null && !genres.isEmpty()) {
+            allowed = new BitSet(current.entries.length);
+            for (String genre : genres) {
+                BitSet members = current.genres.get(genre);
+                if (members != null) {
+                    allowed.or(members);
+                }
+            }
+        }
+        if (fromYear != null || toYear != null) {
+            BitSet inRange = new BitSet(current.entries.length);
+            for (BitSet members : current.years.subMap(
+                    fromYear != null ? fromYear : Integer.MIN_VALUE, true,
+                    toYear != null ? toYear : Integer.MAX_VALUE, true).values()) {
+                inRange.or(members);
+            }
+            if (allowed == null) {
+                allowed = inRange;
+            } else {
+                allowed.and(inRange);
+            }
+        }
+
+        List<RecommendationResponse> recommendations = new ArrayList<>(Math.min(limit, current.entries.length));
+        for (int rank = 0; rank < current.entries.length && recommendations.size() < limit; rank++) {
+            if (allowed == null || allowed.get(rank)) {
+                recommendations.add(current.entries[rank].toResponse());
+            }
+        }
+        return recommendations;
+    }
+
+    @EventListener
+    public void onMovieChanged(MovieChangedEvent event) {
+        // Titles, plots and years are copied into the entries, so rebuild on the next run
+        movieGeneration.incrementAndGet();
+    }
+
+    @Scheduled(fixedDelayString = "${neo4flix.recommendation.cold-start.refresh-interval-ms:60000}")
+    public void refresh() {
+        PopularityLeaderboard.Snapshot snapshot = leaderboard.getSnapshot();
+        // Read before the movies are loaded, so that a change during the load is picked up next run
+        long generation = movieGeneration.get();
+        if (snapshot == null || (snapshot == builtFrom && generation == builtAtGeneration)) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        IdInterner movieIds = leaderboard.getMovieIds();
+
+        // Union of the overall and per-genre heads, re-ranked by their shared popularity score
+        Map<String, RankedList> genreLists = snapshot.getPopularByGenre();
+        Map<Integer, Float> scores = new HashMap<>();
+        addHead(snapshot.getPopular(), scores);
+        genreLists.values().forEach(list -> addHead(list, scores));
+
+        TopK ranking = new TopK(scores.size());
+        scores.forEach(ranking::offer);
+
+        List<String> ids = new ArrayList<>(ranking.size());
+        for (int rank = 0; rank < ranking.size(); rank++) {
+            ids.add(movieIds.idOf(ranking.id(rank)));
+        }
+
+        Map<String, Record> details = new HashMap<>();
+        try (Session session = neo4jDriver.session()) {
+            session.run(LOAD_MOVIES_QUERY, Map.of("movieIds", ids))
+                    .forEachRemaining(row -> details.put(row.get("movieId").asString(), row));
+        } catch (Exception e) {
+            logger.error("Failed to load cold-start movie details: {}", e.getMessage(), e);
+            return;
+        }
+
+        List<Entry> entries = new ArrayList<>(ids.size());
+        Map<String, BitSet> genres = new HashMap<>();
+        NavigableMap<Integer, BitSet> years = new TreeMap<>();
+        Map<Integer, Integer> ordinals = new HashMap<>();
+        for (int rank = 0; rank < ranking.size(); rank++) {
+            int movie = ranking.id(rank);
+            Record row = details.get(ids.get(rank));
+            if (row == null) {
+                // Rated but deleted from the catalogue
+                continue;
+            }
+            Integer year = intOrNull(row, "releaseYear");
+            int ordinal = entries.size();
+            ordinals.put(movie, ordinal);
+            entries.add(new Entry(ids.get(rank), stringOrNull(row, "title"), stringOrNull(row, "plot"), year,
+                    stringOrNull(row, "posterUrl"), snapshot.averageRating(movie), snapshot.ratingCount(movie), ranking.score(rank)));
+            if (year != null) {
+                years.computeIfAbsent(year, y -> new BitSet()).set(ordinal);
+            }
+        }
+        genreLists.forEach((genre, list) -> {
+            BitSet members = new BitSet(entries.size());
+            for (int rank = 0; rank < list.size(); rank++) {
+                Integer ordinal = ordinals.get(list.id(rank));
+                if (ordinal != null) {
+                    members.set(ordinal);
+                }
+            }
+            genres.put(genre, members);
+        });
+
+        catalog = new Catalog(entries.toArray(new Entry[0]), genres, years);
+        builtFrom = snapshot;
+        builtAtGeneration = generation;
+        logger.info("Cold-start catalog built with {} movies in {} genres in {} ms",
+                entries.size(), genres.size(), System.currentTimeMillis() - start);
+    }
+
+    private void addHead(RankedList list, Map<Integer, Float> scores) {
+        for (int rank = 0; rank < list.size() && rank < listSize; rank++) {
+            scores.putIfAbsent(list.id(rank), list.score(rank));
+        }
+    }
+
+    private static String stringOrNull(Record row, String key) {
+        return row.get(key).isNull() ? null : row.get(key).asString();
+    }
+
+    private static Integer intOrNull(Record row, String key) {
+        return row.get(key).isNull() ? null : row.get(key).asInt();
+    }
+
+    private static final class Catalog {
+
+        final Entry[] entries;
+        final Map<String, BitSet> genres;
+        final NavigableMap<Integer, BitSet> years;
+
+        Catalog(Entry[] entries, Map<String, BitSet> genres, NavigableMap<Integer, BitSet> years) {
+            this.entries = entries;
+            this.genres = genres;
+            this.years = years;
+        }
+    }
+
+    private static final class Entry {
+
+        final String movieId;
+        final String title;
+        final String plot;
+        final Integer year;
+        final String posterUrl;
+        final double rating;
+        final int ratingCount;
+        final double score;
+
+        Entry(String movieId, String title, String plot, Integer year, String posterUrl,
+              double rating, int ratingCount, double score) {
+            this.movieId = movieId;
+            this.title = title;
+            this.plot = plot;
+            this.year = year;
+            this.posterUrl = posterUrl;
+            this.rating = rating;
+            this.ratingCount = ratingCount;
+            this.score = score;
+        }
+
+        // Responses are mutable DTOs, so every request gets its own copies
+        RecommendationResponse toResponse() {
+            RecommendationResponse response = new RecommendationResponse();
+            response.setMovieId(movieId);
+            response.setMovieTitle(title);
+            response.setMoviePlot(plot);
+            response.setMovieYear(year);
+            response.setMoviePosterUrl(posterUrl);
+            response.setMovieRating(rating);
+            response.setScore(score);
+            response.setAlgorithm("popular");
+            response.setReason(String.format("Popular movie with %.1f/5 rating from %d users", rating, ratingCount));
+            return response;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.event.GraphProjectionRefreshedEvent;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Louvain community assignment for the gds-community algorithm.
+ *
+ * Community detection runs once per projection build: gds.louvain.write stores
+ * communityId on User and Movie nodes, and the best movies of every community are
+ * then loaded into memory ranked by avgRating * log(ratingCount + 1). A community
+ * recommendation is a lookup of the user's communityId plus a filter step instead
+ * of running Louvain on every request.
+ *
+ * Every replica is told about its projection refresh, but Louvain is only written by
+ * whichever takes the maintenance lease. Every replica, the writer included, reloads
+ * its in-memory ranking from the stored communityId once the lease records a newer
+ * completed run than the one it has loaded.
+ */
+@Component
+public class CommunityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommunityIndex.class);
+
+    private static final String WRITE_QUERY = """
+        CALL gds.louvain.write($graphName, {
+            relationshipWeightProperty: 'weight',
+            writeProperty: 'communityId'
+        })
+        YIELD communityCount, modularity
+        RETURN communityCount, modularity
+        """;
+
+    private static final String RANKING_QUERY = """
+        MATCH (m:Movie)
+        WHERE m.communityId IS NOT NULL
+        WITH m.communityId AS communityId,
+             m.id AS movieId,
+             COALESCE(m.averageRating, 0.0) AS avgRating,
+             COALESCE(m.totalRatings, 0) AS ratingCount
+        WITH communityId, movieId, avgRating, avgRating * log(ratingCount + 1) AS score
+        ORDER BY communityId, score DESC
+        WITH communityId, collect({movieId: movieId, avgRating: avgRating, score: score})[0..$moviesPerCommunity] AS movies
+        RETURN communityId, movies
+        """;
+
+    private static final String LEASE_NAME = "community-louvain";
+
+    private final Driver neo4jDriver;
+    private final MaintenanceLease maintenanceLease;
+
+    @Value("${neo4flix.recommendation.community.movies-per-community:200}")
+    private int moviesPerCommunity;
+
+    // How long a Louvain run may hold the lease, and how soon after one another may start
+    @Value("${neo4flix.recommendation.community.lease-ms:3600000}")
+    private long leaseMs;
+
+    @Value("${neo4flix.recommendation.community.min-rebuild-interval-ms:1800000}")
+    private long minRebuildIntervalMs;
+
+    private volatile Map<Long, RankedMovies> topMoviesByCommunity = Map.of();
+    // Lease completion time of the Louvain run the ranking was loaded after
+    private volatile long loadedRun = -1L;
+
+    public CommunityIndex(Driver neo4jDriver, MaintenanceLease maintenanceLease) {
+        this.neo4jDriver = neo4jDriver;
+        this.maintenanceLease = maintenanceLease;
+    }
+
+    /**
+     * Best movies of a community in descending score order, or null if the community is unknown.
+     */
+    public RankedMovies getTopMovies(long communityId) {
+        return topMoviesByCommunity.get(communityId);
+    }
+
+    public boolean isReady() {
+        return !topMoviesByCommunity.isEmpty();
+    }
+
+    @EventListener
+    public void onProjectionRefreshed(GraphProjectionRefreshedEvent event) {
+        rebuild(event.getGraphName());
+    }
+
+    public void rebuild(String graphName) {
+        if (maintenanceLease.tryAcquire(LEASE_NAME, leaseMs, minRebuildIntervalMs) == null) {
+            logger.debug("Louvain on {} skipped - another replica holds or recently ran it", graphName);
+            return;
+        }
+
+        boolean completed = false;
+        try (Session session = neo4jDriver.session()) {
+            Record result = session.run(WRITE_QUERY, Map.of("graphName", graphName)).single();
+            logger.info("Louvain wrote {} communities on {} (modularity {})",
+                    result.get("communityCount").asLong(), graphName,
+                    String.format("%.3f", result.get("modularity").asDouble()));
+            completed = true;
+        } catch (Exception e) {
+            logger.error("Failed to run Louvain on {}: {}", graphName, e.getMessage(), e);
+        } finally {
+            try {
+                if (completed) {
+                    maintenanceLease.complete(LEASE_NAME);
+                } else {
+                    maintenanceLease.release(LEASE_NAME);
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to free the Louvain lease: {}", e.getMessage());
+            }
+        }
+
+        if (completed) {
+            reloadIfNewer();
+        }
+    }
+
+    /**
+     * Reload the ranking if a Louvain run completed after the one it was loaded from.
+     */
+    @Scheduled(fixedDelayString = "${neo4flix.recommendation.community.poll-interval-ms:60000}")
+    public void reloadIfNewer() {
+        long start = System.currentTimeMillis();
+        try {
+            long completedRun = maintenanceLease.completedAt(LEASE_NAME);
+            if (completedRun <= loadedRun) {
+                return;
+            }
+
+            Map<Long, RankedMovies> rankings = new HashMap<>();
+            try (Session session = neo4jDriver.session()) {
+                session.run(RANKING_QUERY, Map.of("moviesPerCommunity", moviesPerCommunity))
+                        .forEachRemaining(row -> rankings.put(row.get("communityId").asLong(),
+                                RankedMovies.from(row.get("movies").asList(v -> v.asMap()))));
+            }
+
+            topMoviesByCommunity = Map.copyOf(rankings);
+            loadedRun = completedRun;
+            logger.info("Community index loaded with {} movie communities in {} ms",
+                    rankings.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Failed to load community index: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Movies of one community (or the PageRank ranking), stored as parallel arrays in descending score order.
+     */
+    public static final class RankedMovies {
+
+        private final String[] movieIds;
+        private final double[] avgRatings;
+        private final double[] scores;
+
+        private RankedMovies(String[] movieIds, double[] avgRatings, double[] scores) {
+            this.movieIds = movieIds;
+            this.avgRatings = avgRatings;
+            this.scores = scores;
+        }
+
+        static RankedMovies from(List<Map<String, Object>> rows) {
+            int size = rows.size();
+            String[] movieIds = new String[size];
+            double[] avgRatings = new double[size];
+            double[] scores = new double[size];
+            for (int i = 0; i < size; i++) {
+                Map<String, Object> row = rows.get(i);
+                movieIds[i] = (String) row.get("movieId");
+                avgRatings[i] = ((Number) row.get("avgRating")).doubleValue();
+                scores[i] = ((Number) row.get("score")).doubleValue();
+            }
+            return new RankedMovies(movieIds, avgRatings, scores);
+        }
+
+        public int size() {
+            return movieIds.length;
+        }
+
+        public String movieId(int index) {
+            return movieIds[index];
+        }
+
+        public double avgRating(int index) {
+            return avgRatings[index];
+        }
+
+        public double score(int index) {
+            return scores[index];
+        }
+    }
+}
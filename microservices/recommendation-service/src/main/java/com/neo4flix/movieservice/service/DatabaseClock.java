@@ -0,0 +1,25 @@
+package com.neo4flix.movieservice.service;
+
+import org.neo4j.driver.QueryRunner;
+
+/**
+ * The database server's clock, the one RatingEvent.occurredAt is stamped with.
+ *
+ * In-memory models record it when they read the Rating nodes, so that a rating event can
+ * be told apart from the ratings the model already contains by comparing two readings of
+ * the same clock, whatever the clocks and time zones of the JVMs involved.
+ */
+public final class DatabaseClock {
+
+    private static final String NOW_QUERY = "RETURN datetime().epochMillis AS now";
+
+    private DatabaseClock() {
+    }
+
+    /**
+     * Current server time in epoch milliseconds.
+     */
+    public static long now(QueryRunner runner) {
+        return runner.run(NOW_QUERY).single().get("now").asLong();
+    }
+}
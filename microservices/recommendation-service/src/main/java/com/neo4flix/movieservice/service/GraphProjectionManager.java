@@ -0,0 +1,188 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.event.GraphProjectionRefreshedEvent;
+import com.neo4flix.movieservice.event.RatingChangedEvent;
+import com.neo4flix.movieservice.repository.GDSRecommendationRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Owns the GDS user-movie-ratings graph projection.
+ *
+ * The projection is built once at startup and rebuilt in the background, either on a
+ * fixed schedule or after a number of rating changes. Two graph names are used in turn:
+ * the new projection is built under the inactive name and then swapped in atomically,
+ * so GDS algorithms always read from a complete projection. The previous projection is
+ * kept until the next rebuild so that in-flight queries can finish against it.
+ *
+ * The GDS graph catalog is shared by every replica, so both names carry an id of this
+ * instance and each replica swaps its own pair. Projections of replicas that stopped
+ * without dropping theirs are recognised by not having been rebuilt for several refresh
+ * intervals, and dropped by whichever replica rebuilds next.
+ *
+ * A GraphProjectionRefreshedEvent is published after each swap so that batch GDS jobs
+ * can recompute their results from the new projection.
+ */
+@Component
+public class GraphProjectionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(GraphProjectionManager.class);
+
+    private final GDSRecommendationRepository gdsRepository;
+    private final TaskExecutor taskExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final String graphNamePrefix;
+    private final String primaryGraphName;
+    private final String secondaryGraphName;
+
+    @Value("${neo4flix.recommendation.gds.projection.rating-change-threshold:500}")
+    private int ratingChangeThreshold;
+
+    @Value("${neo4flix.recommendation.gds.projection.refresh-interval-ms:3600000}")
+    private long refreshIntervalMs;
+
+    // Projections of other replicas not rebuilt for this many refresh intervals are dropped
+    @Value("${neo4flix.recommendation.gds.projection.orphan-after-intervals:3}")
+    private int orphanAfterIntervals;
+
+    private final AtomicReference<String> liveGraphName = new AtomicReference<>();
+    private final AtomicBoolean rebuildInProgress = new AtomicBoolean(false);
+    private final AtomicInteger ratingChangesSinceBuild = new AtomicInteger();
+    private volatile LocalDateTime lastBuiltAt;
+
+    public GraphProjectionManager(GDSRecommendationRepository gdsRepository,
+                                  @Qualifier("taskExecutor") TaskExecutor taskExecutor,
+                                  ApplicationEventPublisher eventPublisher,
+                                  @Value("${neo4flix.recommendation.gds.projection.name:user-movie-ratings}") String graphName) {
+        this.gdsRepository = gdsRepository;
+        this.taskExecutor = taskExecutor;
+        this.eventPublisher = eventPublisher;
+        this.graphNamePrefix = graphName + "-";
+        String instanceName = graphNamePrefix + UUID.randomUUID().toString().substring(0, 8);
+        this.primaryGraphName = instanceName + "-a";
+        this.secondaryGraphName = instanceName + "-b";
+    }
+
+    /**
+     * Name of the projection GDS algorithms should read from,
+     * or empty if no projection has been built yet.
+     */
+    public Optional<String> getLiveGraphName() {
+        return Optional.ofNullable(liveGraphName.get());
+    }
+
+    public LocalDateTime getLastBuiltAt() {
+        return lastBuiltAt;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        requestRebuild("startup");
+    }
+
+    @PreDestroy
+    public void dropOnShutdown() {
+        for (String graphName : List.of(primaryGraphName, secondaryGraphName)) {
+            try {
+                gdsRepository.dropGraphProjection(graphName);
+            } catch (Exception e) {
+                logger.warn("Failed to drop GDS projection {} on shutdown: {}", graphName, e.getMessage());
+            }
+        }
+    }
+
+    @Scheduled(initialDelayString = "${neo4flix.recommendation.gds.projection.refresh-interval-ms:3600000}",
+               fixedDelayString = "${neo4flix.recommendation.gds.projection.refresh-interval-ms:3600000}")
+    public void scheduledRebuild() {
+        requestRebuild("schedule");
+    }
+
+    @EventListener
+    public void onRatingChanged(RatingChangedEvent event) {
+        if (ratingChangesSinceBuild.incrementAndGet() >= ratingChangeThreshold) {
+            requestRebuild("rating changes");
+        }
+    }
+
+    /**
+     * Queue a background rebuild. Returns false if a rebuild is already running.
+     */
+    public boolean requestRebuild(String trigger) {
+        if (!rebuildInProgress.compareAndSet(false, true)) {
+            logger.debug("Projection rebuild ({}) skipped - a rebuild is already in progress", trigger);
+            return false;
+        }
+
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    rebuild(trigger);
+                } finally {
+                    rebuildInProgress.set(false);
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            rebuildInProgress.set(false);
+            logger.warn("Could not queue projection rebuild ({}): {}", trigger, e.getMessage());
+            return false;
+        }
+    }
+
+    private void rebuild(String trigger) {
+        String current = liveGraphName.get();
+        String next = primaryGraphName.equals(current) ? secondaryGraphName : primaryGraphName;
+        int changesAtStart = ratingChangesSinceBuild.get();
+        long start = System.currentTimeMillis();
+
+        logger.info("Rebuilding GDS projection {} (trigger: {}, live: {})", next, trigger, current);
+
+        try {
+            // The inactive name still holds the projection from two builds ago
+            gdsRepository.dropGraphProjection(next);
+            gdsRepository.createUserMovieGraphProjection(next);
+
+            liveGraphName.set(next);
+            ratingChangesSinceBuild.addAndGet(-changesAtStart);
+            lastBuiltAt = LocalDateTime.now();
+
+            logger.info("GDS projection {} is now live (built in {} ms)", next, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Failed to rebuild GDS projection {}: {}", next, e.getMessage(), e);
+            return;
+        }
+
+        eventPublisher.publishEvent(new GraphProjectionRefreshedEvent(next));
+        dropOrphanedProjections();
+    }
+
+    private void dropOrphanedProjections() {
+        try {
+            Long dropped = gdsRepository.dropGraphProjectionsOlderThan(graphNamePrefix,
+                    List.of(primaryGraphName, secondaryGraphName), refreshIntervalMs * orphanAfterIntervals);
+            if (dropped != null && dropped > 0) {
+                logger.info("Dropped {} GDS projections left by stopped replicas", dropped);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to drop orphaned GDS projections: {}", e.getMessage());
+        }
+    }
+}
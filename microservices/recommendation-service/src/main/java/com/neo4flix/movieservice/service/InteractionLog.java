@@ -0,0 +1,371 @@
+package com.neo4flix.movieservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import com.neo4flix.movieservice.dto.RecommendationResponse;
+import com.neo4flix.movieservice.engine.SlidingWindowCounters;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Log of what users were shown and what they did with it, and the live recommendation
+ * quality metrics derived from it.
+ *
+ * Impressions (a recommendation served to its user, with its algorithm and rank) and
+ * interactions (click, watch, like, ...) are appended to a fixed-size in-memory ring and
+ * written to Neo4j as :Interaction nodes in batches by a scheduled flush; when the ring is
+ * full the oldest unwritten entries are overwritten and counted as dropped, so recording
+ * never blocks a request on the database.
+ *
+ * The same calls feed per-algorithm counters over a sliding window. A click or watch is
+ * attributed to the user's latest impression of that movie, at most once per impression,
+ * so that:
+ * <ul>
+ *   <li>clickThroughRate = clicked impressions / impressions</li>
+ *   <li>precisionAtK = impressions in the top K that were clicked, watched or liked / impressions in the top K</li>
+ *   <li>conversionRate = watched impressions / impressions</li>
+ * </ul>
+ * Counters start empty on startup; the written log is there for offline analysis, and
+ * is purged in chunks once older than max-age-days, like RecommendationPurger does for
+ * stored lists.
+ */
+@Component
+public class InteractionLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(InteractionLog.class);
+
+    private static final String IMPRESSION = "impression";
+
+    // Counter indexes of the per-algorithm windows
+    private static final int IMPRESSIONS = 0;
+    private static final int IMPRESSIONS_AT_K = 1;
+    private static final int CLICKS = 2;
+    private static final int WATCHES = 3;
+    private static final int RELEVANT_AT_K = 4;
+    private static final int COUNTERS = 5;
+
+    private static final String WRITE_QUERY = """
+        UNWIND $entries AS entry
+        CREATE (:Interaction {
+          userId: entry.userId, movieId: entry.movieId, action: entry.action,
+          algorithm: entry.algorithm, rank: entry.rank, value: entry.value,
+          occurredAt: datetime({epochMillis: entry.occurredAt})
+        })
+        """;
+
+    private static final String PURGE_CHUNK_QUERY = """
+        MATCH (i:Interaction)
+        WHERE i.occurredAt < datetime($cutoff)
+        WITH i LIMIT $chunkSize
+        DELETE i
+        RETURN count(*) AS deleted
+        """;
+
+    private final Driver neo4jDriver;
+    private final Cache<String, Impression> impressions;
+    private final Map<String, SlidingWindowCounters> windows = new ConcurrentHashMap<>();
+    private final Counter droppedCounter;
+    private final Counter purgedCounter;
+
+    @Value("${neo4flix.recommendation.interactions.precision-k:10}")
+    private int precisionK;
+
+    @Value("${neo4flix.recommendation.interactions.window-buckets:60}")
+    private int windowBuckets;
+
+    @Value("${neo4flix.recommendation.interactions.bucket-ms:60000}")
+    private long bucketMs;
+
+    @Value("${neo4flix.recommendation.interactions.flush-batch-size:1000}")
+    private int flushBatchSize;
+
+    @Value("${neo4flix.recommendation.interactions.max-age-days:90}")
+    private int maxAgeDays;
+
+    @Value("${neo4flix.recommendation.interactions.purge-chunk-size:5000}")
+    private int purgeChunkSize;
+
+    @Value("${neo4flix.recommendation.interactions.purge-time-budget-ms:60000}")
+    private long purgeTimeBudgetMs;
+
+    // Ring of entries not yet written, guarded by this
+    private final Entry[] ring;
+    private long head;
+    private long tail;
+
+    public InteractionLog(Driver neo4jDriver,
+                          MeterRegistry meterRegistry,
+                          @Value("${neo4flix.recommendation.interactions.buffer-size:65536}") int bufferSize,
+                          @Value("${neo4flix.recommendation.caches.impressions:maximumSize=200000,expireAfterWrite=24h,recordStats}") String impressionSpec) {
+        this.neo4jDriver = neo4jDriver;
+        this.ring = new Entry[bufferSize];
+        this.impressions = Caffeine.from(CaffeineSpec.parse(impressionSpec)).build();
+        CaffeineCacheMetrics.monitor(meterRegistry, impressions, "impressions");
+        this.droppedCounter = Counter.builder("neo4flix.interactions.dropped")
+                .description("Interactions overwritten in the ring buffer before they could be written")
+                .register(meterRegistry);
+        this.purgedCounter = Counter.builder("neo4flix.interactions.purged")
+                .description("Interaction nodes deleted for being older than the maximum age")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record that a list was shown to its user; the first element has rank firstRank.
+     *
+     * @param defaultAlgorithm algorithm of responses that do not name one
+     */
+    public void recordImpressions(String userId, List<RecommendationResponse> shown, int firstRank, String defaultAlgorithm) {
+        if (userId == null || shown == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < shown.size(); i++) {
+            RecommendationResponse response = shown.get(i);
+            if (response.getMovieId() == null) {
+                continue;
+            }
+            String algorithm = response.getAlgorithm() != null ? response.getAlgorithm() : defaultAlgorithm;
+            int rank = firstRank + i;
+            impressions.put(key(userId, response.getMovieId()), new Impression(algorithm, rank));
+
+            SlidingWindowCounters window = windowOf(algorithm);
+            window.increment(IMPRESSIONS, now);
+            if (rank < precisionK) {
+                window.increment(IMPRESSIONS_AT_K, now);
+            }
+            append(new Entry(userId, response.getMovieId(), IMPRESSION, algorithm, rank, null, now));
+        }
+    }
+
+    /**
+     * Record an action of a user on a movie, e.g. click, watch, like, share or rate.
+     */
+    public void recordInteraction(String userId, String movieId, String action, Double value) {
+        if (userId == null || movieId == null || action == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        String normalized = action.toLowerCase(Locale.ROOT);
+        Impression impression = impressions.getIfPresent(key(userId, movieId));
+
+        if (impression != null) {
+            SlidingWindowCounters window = windowOf(impression.algorithm);
+            boolean click = normalized.equals("click") || normalized.equals("view");
+            boolean watch = normalized.equals("watch") || normalized.equals("watched");
+            boolean relevant = click || watch || normalized.equals("like");
+            synchronized (impression) {
+                if (click && !impression.clicked) {
+                    impression.clicked = true;
+                    window.increment(CLICKS, now);
+                }
+                if (watch && !impression.watched) {
+                    impression.watched = true;
+                    window.increment(WATCHES, now);
+                }
+                if (relevant && !impression.relevant && impression.rank < precisionK) {
+                    impression.relevant = true;
+                    window.increment(RELEVANT_AT_K, now);
+                }
+            }
+        }
+
+        append(new Entry(userId, movieId, normalized,
+                impression != null ? impression.algorithm : null,
+                impression != null ? impression.rank : null, value, now));
+    }
+
+    /**
+     * Live metrics per algorithm over the sliding window, and over all algorithms together.
+     */
+    public Map<String, Object> getMetrics() {
+        long now = System.currentTimeMillis();
+        long[] overall = new long[COUNTERS];
+        Map<String, Object> algorithms = new TreeMap<>();
+        windows.forEach((algorithm, window) -> {
+            long[] sums = window.sums(now);
+            for (int counter = 0; counter < COUNTERS; counter++) {
+                overall[counter] += sums[counter];
+            }
+            algorithms.put(algorithm, toMetrics(sums));
+        });
+
+        Map<String, Object> metrics = new LinkedHashMap<>(toMetrics(overall));
+        metrics.put("k", precisionK);
+        metrics.put("windowMinutes", windowBuckets * bucketMs / 60000);
+        metrics.put("algorithms", algorithms);
+        return metrics;
+    }
+
+    /**
+     * Write the entries recorded since the last flush, one batch query at a time.
+     */
+    @Scheduled(fixedDelayString = "${neo4flix.recommendation.interactions.flush-interval-ms:1000}")
+    public void flush() {
+        while (true) {
+            long from;
+            List<Entry> batch = new ArrayList<>();
+            synchronized (this) {
+                from = tail;
+                for (long i = tail; i < head && batch.size() < flushBatchSize; i++) {
+                    batch.add(ring[(int) (i % ring.length)]);
+                }
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            List<Map<String, Object>> rows = new ArrayList<>(batch.size());
+            for (Entry entry : batch) {
+                rows.add(entry.toRow());
+            }
+            try (Session session = neo4jDriver.session()) {
+                session.executeWrite(tx -> tx.run(WRITE_QUERY, Map.of("entries", rows)).consume());
+            } catch (Exception e) {
+                logger.warn("Failed to write {} interactions, will retry: {}", rows.size(), e.getMessage());
+                return;
+            }
+
+            synchronized (this) {
+                // Entries overwritten while writing have already moved the tail on
+                tail = Math.max(tail, from + batch.size());
+            }
+            if (batch.size() < flushBatchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Delete written interactions older than max-age-days, a chunk per transaction, within
+     * the time budget; the next run carries on with whatever is left.
+     */
+    @Scheduled(initialDelayString = "${neo4flix.recommendation.interactions.purge-interval-ms:3600000}",
+               fixedDelayString = "${neo4flix.recommendation.interactions.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        long start = System.currentTimeMillis();
+        String cutoff = Instant.ofEpochMilli(start).minus(maxAgeDays, ChronoUnit.DAYS).toString();
+        Map<String, Object> parameters = Map.of("cutoff", cutoff, "chunkSize", purgeChunkSize);
+        long deleted = 0L;
+
+        try (Session session = neo4jDriver.session()) {
+            while (System.currentTimeMillis() - start < purgeTimeBudgetMs) {
+                long chunk = session.executeWrite(tx ->
+                        tx.run(PURGE_CHUNK_QUERY, parameters).single().get("deleted").asLong());
+                deleted += chunk;
+                purgedCounter.increment(chunk);
+                if (chunk < purgeChunkSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Interaction purge failed after deleting {} nodes: {}", deleted, e.getMessage());
+        }
+        if (deleted > 0) {
+            logger.info("Purged {} interactions older than {} days in {} ms",
+                    deleted, maxAgeDays, System.currentTimeMillis() - start);
+        }
+    }
+
+    private synchronized void append(Entry entry) {
+        if (head - tail == ring.length) {
+            tail++;
+            droppedCounter.increment();
+        }
+        ring[(int) (head % ring.length)] = entry;
+        head++;
+    }
+
+    private SlidingWindowCounters windowOf(String algorithm) {
+        return windows.computeIfAbsent(algorithm != null ? algorithm : "unknown",
+                name -> new SlidingWindowCounters(COUNTERS, windowBuckets, bucketMs));
+    }
+
+    private static Map<String, Object> toMetrics(long[] sums) {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("impressions", sums[IMPRESSIONS]);
+        metrics.put("clicks", sums[CLICKS]);
+        metrics.put("watches", sums[WATCHES]);
+        metrics.put("precisionAtK", ratio(sums[RELEVANT_AT_K], sums[IMPRESSIONS_AT_K]));
+        metrics.put("clickThroughRate", ratio(sums[CLICKS], sums[IMPRESSIONS]));
+        metrics.put("conversionRate", ratio(sums[WATCHES], sums[IMPRESSIONS]));
+        return metrics;
+    }
+
+    private static double ratio(long numerator, long denominator) {
+        return denominator > 0 ? Math.min(1.0, (double) numerator / denominator) : 0.0;
+    }
+
+    private static String key(String userId, String movieId) {
+        return userId + '|' + movieId;
+    }
+
+    /**
+     * The latest time a movie was shown to a user, and what they did with it since.
+     */
+    private static final class Impression {
+
+        final String algorithm;
+        final int rank;
+        boolean clicked;
+        boolean watched;
+        boolean relevant;
+
+        Impression(String algorithm, int rank) {
+            this.algorithm = algorithm;
+            this.rank = rank;
+        }
+    }
+
+    private static final class Entry {
+
+        final String userId;
+        final String movieId;
+        final String action;
+        final String algorithm;
+        final Integer rank;
+        final Double value;
+        final long occurredAt;
+
+        Entry(String userId, String movieId, String action, String algorithm, Integer rank, Double value, long occurredAt) {
+            this.userId = userId;
+            this.movieId = movieId;
+            this.action = action;
+            this.algorithm = algorithm;
+            this.rank = rank;
+            this.value = value;
+            this.occurredAt = occurredAt;
+        }
+
+        Map<String, Object> toRow() {
+            Map<String, Object> row = new HashMap<>();
+            row.put("userId", userId);
+            row.put("movieId", movieId);
+            row.put("action", action);
+            row.put("algorithm", algorithm);
+            row.put("rank", rank);
+            row.put("value", value);
+            row.put("occurredAt", occurredAt);
+            return row;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.engine.ItemNeighbourIndex;
+import com.neo4flix.movieservice.engine.SparseRatingMatrix;
+import com.neo4flix.movieservice.event.RatingMatrixReloadedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Owns the item-item neighbour index used by the item-collaborative algorithm.
+ *
+ * Item neighbourhoods change slowly compared to user neighbourhoods, so the index is
+ * rebuilt rarely: after the first full load of the rating matrix, and then only on
+ * matrix reloads once the current index is older than the refresh interval. Requests
+ * score against whichever index is current, together with the live matrix, so new
+ * ratings still influence results between rebuilds.
+ */
+@Component
+public class ItemNeighbourService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ItemNeighbourService.class);
+
+    private final ForkJoinPool trainingPool;
+
+    @Value("${neo4flix.recommendation.item-collaborative.neighbours:30}")
+    private int neighbours;
+
+    @Value("${neo4flix.recommendation.item-collaborative.min-common-ratings:2}")
+    private int minCommonRatings;
+
+    @Value("${neo4flix.recommendation.item-collaborative.min-similarity:0.0}")
+    private double minSimilarity;
+
+    @Value("${neo4flix.recommendation.item-collaborative.refresh-interval-ms:86400000}")
+    private long refreshIntervalMs;
+
+    private volatile ItemNeighbourIndex index;
+    private volatile Instant builtAt;
+
+    public ItemNeighbourService(@Qualifier("modelTrainingPool") ForkJoinPool trainingPool) {
+        this.trainingPool = trainingPool;
+    }
+
+    /**
+     * Current index, or null until the first build has finished.
+     */
+    public ItemNeighbourIndex getIndex() {
+        return index;
+    }
+
+    @EventListener
+    public void onMatrixReloaded(RatingMatrixReloadedEvent event) {
+        Instant lastBuild = builtAt;
+        if (lastBuild == null || Duration.between(lastBuild, Instant.now()).toMillis() >= refreshIntervalMs) {
+            rebuild(event.getMatrix());
+        }
+    }
+
+    public void rebuild(SparseRatingMatrix matrix) {
+        long start = System.currentTimeMillis();
+        try {
+            ItemNeighbourIndex built = ItemNeighbourIndex.build(matrix, neighbours, minCommonRatings, minSimilarity, trainingPool);
+            index = built;
+            builtAt = Instant.now();
+            logger.info("Item neighbour index rebuilt in {} ms: {}", System.currentTimeMillis() - start, built);
+        } catch (Exception e) {
+            logger.error("Failed to build item neighbour index: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.neo4flix.movieservice.service;
+
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Named leases on (:MaintenanceLease) nodes, so that a maintenance run every replica is
+ * triggered for (GDS writes after a projection refresh) is only carried out by one of them.
+ *
+ * A lease is granted when it is free or expired, and only if the last run completed at
+ * least a minimum interval ago, so replicas triggered one after the other do not repeat
+ * the run. All times are the database server's, so replica clocks do not matter.
+ */
+@Component
+public class MaintenanceLease {
+
+    // Locks the lease node before reading its owner, so two replicas never both acquire it
+    private static final String ACQUIRE_QUERY = """
+        MERGE (l:MaintenanceLease {name: $name})
+        SET l.claimLock = true
+        REMOVE l.claimLock
+        WITH l
+        WHERE (l.owner IS NULL OR l.leaseUntil IS NULL OR l.leaseUntil < timestamp())
+          AND (l.completedAt IS NULL OR l.completedAt <= timestamp() - $minIntervalMs)
+        SET l.owner = $owner, l.leaseUntil = timestamp() + $leaseMs
+        RETURN timestamp() AS acquiredAt
+        """;
+
+    private static final String COMPLETE_QUERY = """
+        MATCH (l:MaintenanceLease {name: $name})
+        WHERE l.owner = $owner
+        SET l.owner = null, l.leaseUntil = null, l.completedAt = timestamp()
+        """;
+
+    private static final String RELEASE_QUERY = """
+        MATCH (l:MaintenanceLease {name: $name})
+        WHERE l.owner = $owner
+        SET l.owner = null, l.leaseUntil = null
+        """;
+
+    private static final String COMPLETED_AT_QUERY = """
+        MATCH (l:MaintenanceLease {name: $name})
+        RETURN l.completedAt AS completedAt
+        """;
+
+    private final Driver neo4jDriver;
+    // Lease owner name of this replica
+    private final String owner = UUID.randomUUID().toString();
+
+    public MaintenanceLease(Driver neo4jDriver) {
+        this.neo4jDriver = neo4jDriver;
+    }
+
+    /**
+     * Try to take the lease; returns the database time it was taken at, or null if another
+     * replica holds it or the last run completed less than minIntervalMs ago.
+     */
+    public Long tryAcquire(String name, long leaseMs, long minIntervalMs) {
+        try (Session session = neo4jDriver.session()) {
+            List<Record> rows = session.run(ACQUIRE_QUERY, Map.of(
+                    "name", name,
+                    "owner", owner,
+                    "leaseMs", leaseMs,
+                    "minIntervalMs", minIntervalMs
+            )).list();
+            return rows.isEmpty() ? null : rows.get(0).get("acquiredAt").asLong();
+        }
+    }
+
+    /**
+     * Record a successful run and free the lease.
+     */
+    public void complete(String name) {
+        run(COMPLETE_QUERY, name);
+    }
+
+    /**
+     * Free the lease without recording a run, e.g. after a failure.
+     */
+    public void release(String name) {
+        run(RELEASE_QUERY, name);
+    }
+
+    /**
+     * Database time of the last successful run, or 0 if there has been none.
+     */
+    public long completedAt(String name) {
+        try (Session session = neo4jDriver.session()) {
+            List<Record> rows = session.run(COMPLETED_AT_QUERY, Map.of("name", name)).list();
+            if (rows.isEmpty()) {
+                return 0L;
+            }
+            Value completedAt = rows.get(0).get("completedAt");
+            return completedAt.isNull() ? 0L : completedAt.asLong();
+        }
+    }
+
+    private void run(String query, String name) {
+        try (Session session = neo4jDriver.session()) {
+            session.run(query, Map.of("name", name, "owner", owner)).consume();
+        }
+    }
+}
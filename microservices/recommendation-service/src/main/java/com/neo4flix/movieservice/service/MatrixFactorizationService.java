@@ -0,0 +1,88 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.engine.MatrixFactorization;
+import com.neo4flix.movieservice.engine.SparseRatingMatrix;
+import com.neo4flix.movieservice.event.RatingMatrixReloadedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Trains and holds the ALS matrix factorization model used by the mf algorithm.
+ *
+ * Training runs in the background after rating matrix reloads, at most once per
+ * refresh interval. The first run starts from random factors; later runs warm-start
+ * from the previous model and need far fewer iterations to converge.
+ */
+@Component
+public class MatrixFactorizationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixFactorizationService.class);
+
+    private final ForkJoinPool trainingPool;
+
+    @Value("${neo4flix.recommendation.mf.rank:32}")
+    private int rank;
+
+    @Value("${neo4flix.recommendation.mf.lambda:0.05}")
+    private float lambda;
+
+    @Value("${neo4flix.recommendation.mf.iterations:15}")
+    private int iterations;
+
+    @Value("${neo4flix.recommendation.mf.warm-start-iterations:3}")
+    private int warmStartIterations;
+
+    @Value("${neo4flix.recommendation.mf.refresh-interval-ms:21600000}")
+    private long refreshIntervalMs;
+
+    @Value("${neo4flix.recommendation.mf.seed:42}")
+    private long seed;
+
+    private volatile MatrixFactorization model;
+    private volatile Instant trainedAt;
+
+    public MatrixFactorizationService(@Qualifier("modelTrainingPool") ForkJoinPool trainingPool) {
+        this.trainingPool = trainingPool;
+    }
+
+    /**
+     * Current model, or null until the first training run has finished.
+     */
+    public MatrixFactorization getModel() {
+        return model;
+    }
+
+    @EventListener
+    public void onMatrixReloaded(RatingMatrixReloadedEvent event) {
+        Instant lastTraining = trainedAt;
+        if (lastTraining == null || Duration.between(lastTraining, Instant.now()).toMillis() >= refreshIntervalMs) {
+            train(event.getMatrix());
+        }
+    }
+
+    public void train(SparseRatingMatrix matrix) {
+        MatrixFactorization previous = model;
+        int runIterations = previous != null ? warmStartIterations : iterations;
+        long start = System.currentTimeMillis();
+
+        try {
+            MatrixFactorization trained = MatrixFactorization.train(
+                    matrix, rank, lambda, runIterations, previous, trainingPool, seed);
+            model = trained;
+            trainedAt = Instant.now();
+            logger.info("Matrix factorization trained in {} ms ({} iterations, {}, rank {}): training RMSE {}",
+                    System.currentTimeMillis() - start, runIterations, previous != null ? "warm start" : "cold start",
+                    rank, String.format("%.4f", trained.rmse(matrix)));
+        } catch (Exception e) {
+            logger.error("Failed to train matrix factorization model: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.event.MovieChangedEvent;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Follows the MovieEvent outbox written by the Movie Service in the same transaction as
+ * each movie creation, update or deletion, and publishes a MovieChangedEvent for each on
+ * this replica, so that every replica's movie indexes and caches pick the change up.
+ *
+ * Reading works as in RatingEventConsumer: each replica pages through the events after
+ * its own high-water mark, starting overlap-ms behind it to catch late commits and
+ * skipping the events it already applied, and events are purged once older than
+ * retention-ms. An event whose listeners fail is not marked applied, and the next poll
+ * starts early enough to read it again.
+ */
+@Component
+public class MovieEventConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(MovieEventConsumer.class);
+
+    private static final String READ_QUERY = """
+        MATCH (e:MovieEvent)
+        WHERE e.occurredAt >= $after
+        WITH e, elementId(e) AS eventId
+        WHERE e.occurredAt > $after OR eventId > $afterId
+        RETURN eventId, e.movieId AS movieId, e.occurredAt AS occurredAt
+        ORDER BY occurredAt, eventId
+        LIMIT $batchSize
+        """;
+
+    private static final String PURGE_CHUNK_QUERY = """
+        MATCH (e:MovieEvent)
+        WHERE e.occurredAt < datetime() - duration({milliseconds: $retentionMs})
+        WITH e LIMIT $chunkSize
+        DELETE e
+        RETURN count(*) AS deleted
+        """;
+
+    private static final int PURGE_CHUNK_SIZE = 5000;
+
+    private final Driver neo4jDriver;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${neo4flix.recommendation.ingest.batch-size:500}")
+    private int batchSize;
+
+    @Value("${neo4flix.recommendation.ingest.overlap-ms:10000}")
+    private long overlapMs;
+
+    @Value("${neo4flix.recommendation.ingest.retention-ms:86400000}")
+    private long retentionMs;
+
+    // Only touched by the scheduled poll
+    private ZonedDateTime highWaterMark;
+    // Earliest event of the last poll whose listeners failed, read again by the next one
+    private ZonedDateTime retryFrom;
+    private final Map<String, ZonedDateTime> applied = new HashMap<>();
+
+    public MovieEventConsumer(Driver neo4jDriver, ApplicationEventPublisher eventPublisher) {
+        this.neo4jDriver = neo4jDriver;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Scheduled(fixedDelayString = "${neo4flix.recommendation.ingest.movie-poll-interval-ms:2000}")
+    public void poll() {
+        if (highWaterMark == null) {
+            try (Session session = neo4jDriver.session()) {
+                highWaterMark = ZonedDateTime.ofInstant(Instant.ofEpochMilli(DatabaseClock.now(session)), ZoneOffset.UTC);
+            } catch (Exception e) {
+                logger.warn("Failed to read the database time, will retry: {}", e.getMessage());
+                return;
+            }
+        }
+
+        ZonedDateTime after = highWaterMark.minus(Duration.ofMillis(overlapMs));
+        if (retryFrom != null && retryFrom.isBefore(after)) {
+            after = retryFrom.minusNanos(1);
+        }
+        ZonedDateTime keepFrom = after;
+        applied.values().removeIf(occurredAt -> occurredAt.isBefore(keepFrom));
+        retryFrom = null;
+
+        String afterId = "";
+        int size;
+        do {
+            List<Record> events;
+            try (Session session = neo4jDriver.session()) {
+                ZonedDateTime pageAfter = after;
+                String pageAfterId = afterId;
+                events = session.executeRead(tx -> tx.run(READ_QUERY, Map.of(
+                        "after", pageAfter,
+                        "afterId", pageAfterId,
+                        "batchSize", batchSize)).list());
+            } catch (Exception e) {
+                logger.warn("Failed to read movie events, will retry: {}", e.getMessage());
+                return;
+            }
+
+            for (Record event : events) {
+                String eventId = event.get("eventId").asString();
+                ZonedDateTime occurredAt = event.get("occurredAt").asZonedDateTime();
+                after = occurredAt;
+                afterId = eventId;
+                apply(eventId, occurredAt, event.get("movieId").asString(null));
+            }
+            size = events.size();
+        } while (size == batchSize);
+    }
+
+    /**
+     * Delete the events every replica has had time to apply, in chunks.
+     */
+    @Scheduled(initialDelayString = "${neo4flix.recommendation.ingest.purge-interval-ms:600000}",
+               fixedDelayString = "${neo4flix.recommendation.ingest.purge-interval-ms:600000}")
+    public void purgeApplied() {
+        Map<String, Object> parameters = Map.of("retentionMs", retentionMs, "chunkSize", PURGE_CHUNK_SIZE);
+        long total = 0L;
+        try (Session session = neo4jDriver.session()) {
+            long deleted;
+            do {
+                deleted = session.executeWrite(tx -> tx.run(PURGE_CHUNK_QUERY, parameters).single().get("deleted").asLong());
+                total += deleted;
+            } while (deleted == PURGE_CHUNK_SIZE);
+        } catch (Exception e) {
+            logger.warn("Failed to purge movie events, will retry: {}", e.getMessage());
+        }
+        if (total > 0) {
+            logger.info("Purged {} movie events", total);
+        }
+    }
+
+    private void apply(String eventId, ZonedDateTime occurredAt, String movieId) {
+        if (movieId == null || applied.containsKey(eventId)) {
+            return;
+        }
+        try {
+            eventPublisher.publishEvent(new MovieChangedEvent(movieId));
+        } catch (Exception e) {
+            logger.warn("Failed to apply movie event for movie {}, will retry: {}", movieId, e.getMessage());
+            if (retryFrom == null || occurredAt.isBefore(retryFrom)) {
+                retryFrom = occurredAt;
+            }
+            return;
+        }
+        applied.put(eventId, occurredAt);
+        if (occurredAt.isAfter(highWaterMark)) {
+            highWaterMark = occurredAt;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.neo4flix.movieservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import com.neo4flix.movieservice.dto.RecommendationResponse;
+import com.neo4flix.movieservice.event.MovieChangedEvent;
+import com.neo4flix.movieservice.event.RatingChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Movie details shown next to each recommendation (title, average rating, release year
+ * and poster), read through a size-bounded cache.
+ *
+ * enrich() fills a whole response list at once: movies already cached cost nothing and
+ * all the others are loaded together with one {@code WHERE m.id IN $movieIds} query,
+ * so a response needs at most one round-trip however long it is. A movie's entry is
+ * dropped when the movie changes, and when it is rated, since the average moves.
+ */
+@Component
+public class MovieSummaryCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MovieSummaryCache.class);
+
+    private static final String LOAD_QUERY = """
+        MATCH (m:Movie)
+        WHERE m.id IN $movieIds
+        RETURN m.id AS movieId, m.title AS title, COALESCE(m.averageRating, 0.0) AS averageRating,
+               m.releaseYear AS releaseYear, m.posterUrl AS posterUrl
+        """;
+
+    private final Driver neo4jDriver;
+    private final Cache<String, MovieSummary> summaries;
+
+    public MovieSummaryCache(Driver neo4jDriver,
+                             MeterRegistry meterRegistry,
+                             @Value("${neo4flix.recommendation.caches.movie-summaries:maximumSize=20000,expireAfterWrite=10m,recordStats}") String spec) {
+        this.neo4jDriver = neo4jDriver;
+        this.summaries = Caffeine.from(CaffeineSpec.parse(spec)).build();
+        CaffeineCacheMetrics.monitor(meterRegistry, summaries, "movieSummaries");
+    }
+
+    /**
+     * Set the movie details of every response that has a movie id. Responses whose movie
+     * no longer exists are left as they are.
+     */
+    public <T extends Collection<RecommendationResponse>> T enrich(T responses) {
+        Set<String> movieIds = new LinkedHashSet<>();
+        for (RecommendationResponse response : responses) {
+            if (response.getMovieId() != null) {
+                movieIds.add(response.getMovieId());
+            }
+        }
+        if (movieIds.isEmpty()) {
+            return responses;
+        }
+
+        Map<String, MovieSummary> found;
+        try {
+            found = summaries.getAll(movieIds, this::load);
+        } catch (Exception e) {
+            logger.warn("Could not load details of {} movies: {}", movieIds.size(), e.getMessage());
+            return responses;
+        }
+
+        for (RecommendationResponse response : responses) {
+            MovieSummary summary = response.getMovieId() != null ? found.get(response.getMovieId()) : null;
+            if (summary != null) {
+                response.setMovieTitle(summary.getTitle());
+                response.setMovieRating(summary.getAverageRating());
+                response.setMovieYear(summary.getReleaseYear());
+                response.setMoviePosterUrl(summary.getPosterUrl());
+            }
+        }
+        return responses;
+    }
+
+    @EventListener
+    public void onMovieChanged(MovieChangedEvent event) {
+        summaries.invalidate(event.getMovieId());
+    }
+
+    @EventListener
+    public void onRatingChanged(RatingChangedEvent event) {
+        if (event.getMovieId() != null) {
+            summaries.invalidate(event.getMovieId());
+        }
+    }
+
+    // Called by the cache with the ids it does not hold; ids of missing movies are not cached
+    private Map<String, MovieSummary> load(Set<? extends String> movieIds) {
+        Map<String, MovieSummary> loaded = new HashMap<>();
+        try (Session session = neo4jDriver.session()) {
+            List<Record> rows = session.executeRead(tx -> tx.run(LOAD_QUERY,
+                    Map.of("movieIds", new ArrayList<>(movieIds))).list());
+            for (Record row : rows) {
+                loaded.put(row.get("movieId").asString(), new MovieSummary(
+                        row.get("title").asString(null),
+                        row.get("averageRating").asDouble(0.0),
+                        row.get("releaseYear").isNull() ? null : row.get("releaseYear").asInt(),
+                        row.get("posterUrl").asString(null)));
+            }
+        }
+        return loaded;
+    }
+
+    public static final class MovieSummary {
+
+        private final String title;
+        private final double averageRating;
+        private final Integer releaseYear;
+        private final String posterUrl;
+
+        public MovieSummary(String title, double averageRating, Integer releaseYear, String posterUrl) {
+            this.title = title;
+            this.averageRating = averageRating;
+            this.releaseYear = releaseYear;
+            this.posterUrl = posterUrl;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public double getAverageRating() {
+            return averageRating;
+        }
+
+        public Integer getReleaseYear() {
+            return releaseYear;
+        }
+
+        public String getPosterUrl() {
+            return posterUrl;
+        }
+    }
+}
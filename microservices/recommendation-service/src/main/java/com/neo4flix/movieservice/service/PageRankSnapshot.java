@@ -0,0 +1,198 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.event.GraphProjectionRefreshedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Global PageRank snapshot for the gds-pagerank algorithm.
+ *
+ * PageRank is the same for every user, so it is computed once per projection build
+ * (i.e. on the projection refresh schedule) and written to Movie.pageRank, by
+ * whichever replica takes the maintenance lease. Every replica then loads the best
+ * ranked movies into memory, ranked by pageRank * 100 + log(ratingCount + 1), once the
+ * lease records a newer completed run than the one it has loaded; a recommendation is
+ * a filter pass over that list plus the per-user "not already rated" exclusion.
+ * Because the scores live on the nodes, the last snapshot survives restarts and is
+ * served until the first recompute finishes. Average ratings in the list are those
+ * at load time.
+ *
+ * Metrics:
+ * - neo4flix.pagerank.recompute: duration of each recompute
+ * - neo4flix.pagerank.snapshot.age: seconds since the last successful recompute
+ */
+@Component
+public class PageRankSnapshot {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageRankSnapshot.class);
+
+    private static final String WRITE_QUERY = """
+        CALL gds.pageRank.write($graphName, {
+            maxIterations: $maxIterations,
+            dampingFactor: $dampingFactor,
+            writeProperty: 'pageRank'
+        })
+        YIELD nodePropertiesWritten, ranIterations, didConverge
+        RETURN nodePropertiesWritten, ranIterations, didConverge
+        """;
+
+    private static final String RANKING_QUERY = """
+        MATCH (m:Movie)
+        WHERE m.pageRank IS NOT NULL
+        WITH m, COALESCE(m.averageRating, 0.0) AS avgRating,
+             m.pageRank * 100 + log(COALESCE(m.totalRatings, 0) + 1) AS score
+        ORDER BY score DESC
+        LIMIT $rankedMovies
+        RETURN m.id AS movieId, avgRating, score
+        """;
+
+    private static final String LEASE_NAME = "pagerank";
+
+    private final Driver neo4jDriver;
+    private final MaintenanceLease maintenanceLease;
+    private final Timer recomputeTimer;
+
+    @Value("${neo4flix.recommendation.pagerank.max-iterations:20}")
+    private int maxIterations;
+
+    @Value("${neo4flix.recommendation.pagerank.damping-factor:0.85}")
+    private double dampingFactor;
+
+    @Value("${neo4flix.recommendation.pagerank.ranked-movies:1000}")
+    private int rankedMovies;
+
+    // How long a recompute may hold the lease, and how soon after one another may start
+    @Value("${neo4flix.recommendation.pagerank.lease-ms:3600000}")
+    private long leaseMs;
+
+    @Value("${neo4flix.recommendation.pagerank.min-rebuild-interval-ms:1800000}")
+    private long minRebuildIntervalMs;
+
+    private volatile Instant lastComputedAt;
+    private volatile CommunityIndex.RankedMovies ranking;
+    // Lease completion time of the recompute the ranking was loaded after
+    private volatile long loadedRun = -1L;
+
+    public PageRankSnapshot(Driver neo4jDriver, MaintenanceLease maintenanceLease, MeterRegistry meterRegistry) {
+        this.neo4jDriver = neo4jDriver;
+        this.maintenanceLease = maintenanceLease;
+        this.recomputeTimer = Timer.builder("neo4flix.pagerank.recompute")
+                .description("Time taken to recompute and write PageRank scores")
+                .register(meterRegistry);
+        Gauge.builder("neo4flix.pagerank.snapshot.age", this, PageRankSnapshot::getSnapshotAgeSeconds)
+                .description("Seconds since PageRank scores were last recomputed")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    public Instant getLastComputedAt() {
+        return lastComputedAt;
+    }
+
+    /**
+     * Best ranked movies in descending score order, or null until the first load.
+     */
+    public CommunityIndex.RankedMovies getRanking() {
+        return ranking;
+    }
+
+    /**
+     * Seconds since the last recompute, NaN if it has not run since startup.
+     */
+    public double getSnapshotAgeSeconds() {
+        Instant computedAt = lastComputedAt;
+        return computedAt == null ? Double.NaN : Duration.between(computedAt, Instant.now()).toSeconds();
+    }
+
+    @EventListener
+    public void onProjectionRefreshed(GraphProjectionRefreshedEvent event) {
+        recompute(event.getGraphName());
+    }
+
+    public void recompute(String graphName) {
+        if (maintenanceLease.tryAcquire(LEASE_NAME, leaseMs, minRebuildIntervalMs) == null) {
+            logger.debug("PageRank on {} skipped - another replica holds or recently ran it", graphName);
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean completed = false;
+        try (Session session = neo4jDriver.session()) {
+            Record result = session.run(WRITE_QUERY, Map.of(
+                    "graphName", graphName,
+                    "maxIterations", maxIterations,
+                    "dampingFactor", dampingFactor
+            )).single();
+
+            long elapsed = System.nanoTime() - start;
+            recomputeTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            completed = true;
+
+            logger.info("PageRank recomputed on {}: {} scores written in {} ms ({} iterations, converged: {})",
+                    graphName,
+                    result.get("nodePropertiesWritten").asLong(),
+                    TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    result.get("ranIterations").asLong(),
+                    result.get("didConverge").asBoolean());
+        } catch (Exception e) {
+            logger.error("Failed to recompute PageRank on {}: {}", graphName, e.getMessage(), e);
+        } finally {
+            try {
+                if (completed) {
+                    maintenanceLease.complete(LEASE_NAME);
+                } else {
+                    maintenanceLease.release(LEASE_NAME);
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to free the PageRank lease: {}", e.getMessage());
+            }
+        }
+
+        if (completed) {
+            reloadIfNewer();
+        }
+    }
+
+    /**
+     * Reload the ranking if a recompute completed after the one it was loaded from.
+     */
+    @Scheduled(fixedDelayString = "${neo4flix.recommendation.pagerank.poll-interval-ms:60000}")
+    public void reloadIfNewer() {
+        try {
+            long completedRun = maintenanceLease.completedAt(LEASE_NAME);
+            if (completedRun <= loadedRun) {
+                return;
+            }
+
+            List<Map<String, Object>> rows;
+            try (Session session = neo4jDriver.session()) {
+                rows = session.run(RANKING_QUERY, Map.of("rankedMovies", rankedMovies)).list(Record::asMap);
+            }
+
+            ranking = CommunityIndex.RankedMovies.from(rows);
+            loadedRun = completedRun;
+            if (completedRun > 0) {
+                lastComputedAt = Instant.ofEpochMilli(completedRun);
+            }
+            logger.info("PageRank ranking loaded with {} movies", rows.size());
+        } catch (Exception e) {
+            logger.error("Failed to load PageRank ranking: {}", e.getMessage(), e);
+        }
+    }
+}
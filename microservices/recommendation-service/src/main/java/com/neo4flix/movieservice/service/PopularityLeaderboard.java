@@ -0,0 +1,382 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.engine.IdInterner;
+import com.neo4flix.movieservice.engine.RankedList;
+import com.neo4flix.movieservice.engine.TopK;
+import com.neo4flix.movieservice.event.RatingChangedEvent;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Global popularity and trending rankings kept in memory, so that popularity requests
+ * are a filter pass over a precomputed list instead of an aggregation over every rating.
+ *
+ * Per movie it keeps the running sum and count of its ratings and a trending weight, the
+ * number of new ratings decayed exponentially with their age, in primitive arrays
+ * indexed like the rating matrix. Detailed RatingChangedEvents update the counters in
+ * O(1); the ranked lists (overall, trending and per genre, each cut to list-size) are
+ * rebuilt from the counters at most once per rebuild interval, and only when something
+ * changed. Decay alone never reorders the trending list, so it needs no rebuild.
+ *
+ * The counters are reconciled with the Rating nodes on a schedule, which also picks up
+ * changes that arrived without details, changes made while a reconcile was running,
+ * and movie genres. Changes that did not happen after the last reconcile read the
+ * Rating nodes (see DatabaseClock) are already counted and are skipped. Nothing is
+ * served before the first reconcile.
+ */
+@Component
+public class PopularityLeaderboard {
+
+    private static final Logger logger = LoggerFactory.getLogger(PopularityLeaderboard.class);
+
+    // Trending weights are stored relative to an origin time and rescaled before they can overflow
+    private static final double MAX_GROWTH_HALF_LIVES = 64;
+
+    private static final String LOAD_TOTALS_QUERY = """
+        MATCH (r:Rating)
+        WHERE r.movieId IS NOT NULL AND r.rating IS NOT NULL
+        RETURN r.movieId AS movieId, sum(r.rating) AS total, count(r) AS ratings
+        """;
+
+    private static final String LOAD_RECENT_QUERY = """
+        MATCH (r:Rating)
+        WHERE r.movieId IS NOT NULL AND r.ratedAt >= $since
+        RETURN r.movieId AS movieId, r.ratedAt AS ratedAt
+        """;
+
+    private static final String LOAD_GENRES_QUERY = """
+        MATCH (m:Movie)-[:IN_GENRE]->(g:Genre)
+        WHERE m.id IS NOT NULL
+        RETURN m.id AS movieId, collect(DISTINCT g.name) AS genres
+        """;
+
+    private final Driver neo4jDriver;
+    private final TaskExecutor taskExecutor;
+    private final IdInterner movieIds;
+    private final IdInterner genreIds = new IdInterner();
+    private final Object reconcileLock = new Object();
+
+    @Value("${neo4flix.recommendation.popularity.list-size:500}")
+    private int listSize;
+
+    @Value("${neo4flix.recommendation.popularity.trending-half-life-ms:86400000}")
+    private long trendingHalfLifeMs;
+
+    // Ratings older than this are not read back when reconciling the trending weights
+    @Value("${neo4flix.recommendation.popularity.trending-window-ms:604800000}")
+    private long trendingWindowMs;
+
+    // Counters, guarded by this
+    private double[] totals = new double[0];
+    private int[] counts = new int[0];
+    private double[] trending = new double[0];
+    private int[][] genresOfMovie = new int[0][];
+    private long trendingOrigin = System.currentTimeMillis();
+    private long reconciledAt;
+    private boolean dirty;
+
+    private volatile Snapshot snapshot;
+
+    public PopularityLeaderboard(Driver neo4jDriver,
+                                 @Qualifier("taskExecutor") TaskExecutor taskExecutor,
+                                 RatingMatrixService ratingMatrixService) {
+        this.neo4jDriver = neo4jDriver;
+        this.taskExecutor = taskExecutor;
+        // Same movie indexes as the rating matrix, so a request can skip rated movies with hasRated
+        this.movieIds = ratingMatrixService.getMovieIds();
+    }
+
+    /**
+     * Current rankings, or null before the first reconcile.
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public IdInterner getMovieIds() {
+        return movieIds;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        taskExecutor.execute(this::reconcile);
+    }
+
+    @EventListener
+    public void onRatingChanged(RatingChangedEvent event) {
+        if (event.getMovieId() == null || (event.getPreviousRating() == null && event.getNewRating() == null)) {
+            return;
+        }
+        int movie = movieIds.intern(event.getMovieId());
+        long now = System.currentTimeMillis();
+
+        synchronized (this) {
+            if (!event.occurredAfter(reconciledAt)) {
+                return;
+            }
+            ensureCapacity(movieIds.size());
+            if (event.getPreviousRating() != null) {
+                totals[movie] -= event.getPreviousRating();
+                counts[movie] = Math.max(0, counts[movie] - 1);
+            }
+            if (event.getNewRating() != null) {
+                totals[movie] += event.getNewRating();
+                counts[movie]++;
+                if (event.getPreviousRating() == null) {
+                    rebaseTrending(now);
+                    trending[movie] += trendingWeight(now);
+                }
+            }
+            dirty = true;
+        }
+    }
+
+    /**
+     * Replace the counters with the ones computed from the Rating nodes.
+     */
+    @Scheduled(initialDelayString = "${neo4flix.recommendation.popularity.reconcile-interval-ms:900000}",
+               fixedDelayString = "${neo4flix.recommendation.popularity.reconcile-interval-ms:900000}")
+    public void reconcile() {
+        synchronized (reconcileLock) {
+            long start = System.currentTimeMillis();
+            long origin = start - trendingWindowMs;
+            LocalDateTime since = LocalDateTime.now().minus(Duration.ofMillis(trendingWindowMs));
+
+            Map<Integer, int[]> genres = new HashMap<>();
+            double[] loadedTotals = new double[movieIds.size()];
+            int[] loadedCounts = new int[movieIds.size()];
+            double[] loadedTrending = new double[movieIds.size()];
+            long loadedAt;
+
+            try (Session session = neo4jDriver.session()) {
+                Result result = session.run(LOAD_TOTALS_QUERY);
+                while (result.hasNext()) {
+                    Record row = result.next();
+                    int movie = movieIds.intern(row.get("movieId").asString());
+                    if (movie >= loadedTotals.length) {
+                        int capacity = Math.max(movie + 1, loadedTotals.length * 2);
+                        loadedTotals = Arrays.copyOf(loadedTotals, capacity);
+                        loadedCounts = Arrays.copyOf(loadedCounts, capacity);
+                        loadedTrending = Arrays.copyOf(loadedTrending, capacity);
+                    }
+                    loadedTotals[movie] = row.get("total").asDouble();
+                    loadedCounts[movie] = row.get("ratings").asInt();
+                }
+
+                ZoneId zone = ZoneId.systemDefault();
+                result = session.run(LOAD_RECENT_QUERY, Map.of("since", since));
+                while (result.hasNext()) {
+                    Record row = result.next();
+                    int movie = movieIds.indexOf(row.get("movieId").asString());
+                    if (movie >= 0 && movie < loadedTrending.length) {
+                        long ratedAt = row.get("ratedAt").asLocalDateTime().atZone(zone).toInstant().toEpochMilli();
+                        loadedTrending[movie] += Math.exp(decayRate() * (ratedAt - origin));
+                    }
+                }
+                loadedAt = DatabaseClock.now(session);
+
+                session.run(LOAD_GENRES_QUERY).forEachRemaining(row -> {
+                    List<String> names = row.get("genres").asList(value -> value.asString());
+                    int[] indexes = new int[names.size()];
+                    for (int i = 0; i < indexes.length; i++) {
+                        indexes[i] = genreIds.intern(names.get(i));
+                    }
+                    genres.put(movieIds.intern(row.get("movieId").asString()), indexes);
+                });
+            } catch (Exception e) {
+                logger.error("Failed to reconcile popularity counters: {}", e.getMessage(), e);
+                return;
+            }
+
+            synchronized (this) {
+                int capacity = Math.max(movieIds.size(), loadedCounts.length);
+                totals = Arrays.copyOf(loadedTotals, capacity);
+                counts = Arrays.copyOf(loadedCounts, capacity);
+                trending = Arrays.copyOf(loadedTrending, capacity);
+                trendingOrigin = origin;
+                reconciledAt = loadedAt;
+                genresOfMovie = new int[capacity][];
+                genres.forEach((movie, indexes) -> genresOfMovie[movie] = indexes);
+                dirty = true;
+            }
+            rebuild();
+
+            logger.info("Popularity counters reconciled for {} movies in {} ms",
+                    movieIds.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Publish new rankings if the counters changed since the last ones.
+     */
+    @Scheduled(fixedDelayString = "${neo4flix.recommendation.popularity.rebuild-interval-ms:1000}")
+    public void rebuild() {
+        Snapshot rebuilt;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            rebuilt = rank(System.currentTimeMillis());
+            dirty = false;
+        }
+        snapshot = rebuilt;
+    }
+
+    // Called with the lock held
+    private Snapshot rank(long now) {
+        int numMovies = counts.length;
+        int numGenres = genreIds.size();
+        float[] averages = new float[numMovies];
+        int[] ratingCounts = Arrays.copyOf(counts, numMovies);
+        double decay = Math.exp(-decayRate() * (now - trendingOrigin));
+
+        TopK popular = new TopK(listSize);
+        TopK trendingTop = new TopK(listSize);
+        TopK[] byGenre = new TopK[numGenres];
+
+        for (int movie = 0; movie < numMovies; movie++) {
+            if (trending[movie] > 0.0) {
+                trendingTop.offer(movie, (float) (trending[movie] * decay));
+            }
+            if (counts[movie] == 0) {
+                continue;
+            }
+            averages[movie] = (float) (totals[movie] / counts[movie]);
+            float score = (float) (averages[movie] * Math.log1p(counts[movie]));
+            popular.offer(movie, score);
+
+            int[] genres = genresOfMovie[movie];
+            if (genres != null) {
+                for (int genre : genres) {
+                    if (byGenre[genre] == null) {
+                        byGenre[genre] = new TopK(listSize);
+                    }
+                    byGenre[genre].offer(movie, score);
+                }
+            }
+        }
+
+        Map<String, RankedList> popularByGenre = new HashMap<>();
+        for (int genre = 0; genre < numGenres; genre++) {
+            if (byGenre[genre] != null) {
+                popularByGenre.put(genreIds.idOf(genre), RankedList.of(byGenre[genre]));
+            }
+        }
+        return new Snapshot(RankedList.of(popular), RankedList.of(trendingTop), popularByGenre,
+                averages, ratingCounts, listSize);
+    }
+
+    private double decayRate() {
+        return Math.log(2) / Math.max(1L, trendingHalfLifeMs);
+    }
+
+    private double trendingWeight(long time) {
+        return Math.exp(decayRate() * (time - trendingOrigin));
+    }
+
+    // Rescale the weights to a new origin before exp() grows too large; called with the lock held
+    private void rebaseTrending(long now) {
+        if (now - trendingOrigin < MAX_GROWTH_HALF_LIVES * trendingHalfLifeMs) {
+            return;
+        }
+        double scale = Math.exp(-decayRate() * (now - trendingOrigin));
+        for (int movie = 0; movie < trending.length; movie++) {
+            trending[movie] *= scale;
+        }
+        trendingOrigin = now;
+    }
+
+    // Called with the lock held
+    private void ensureCapacity(int numMovies) {
+        if (numMovies <= counts.length) {
+            return;
+        }
+        int capacity = Math.max(numMovies, counts.length * 2);
+        totals = Arrays.copyOf(totals, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        trending = Arrays.copyOf(trending, capacity);
+        genresOfMovie = Arrays.copyOf(genresOfMovie, capacity);
+    }
+
+    /**
+     * Immutable rankings built from one state of the counters. Movies are rating matrix
+     * indexes; popularity scores are average rating times log(rating count + 1), trending
+     * scores the decayed number of recent ratings at build time.
+     */
+    public static final class Snapshot {
+
+        private final RankedList popular;
+        private final RankedList trending;
+        private final Map<String, RankedList> popularByGenre;
+        private final float[] averages;
+        private final int[] counts;
+        private final int listSize;
+
+        Snapshot(RankedList popular, RankedList trending, Map<String, RankedList> popularByGenre,
+                 float[] averages, int[] counts, int listSize) {
+            this.popular = popular;
+            this.trending = trending;
+            this.popularByGenre = popularByGenre;
+            this.averages = averages;
+            this.counts = counts;
+            this.listSize = listSize;
+        }
+
+        public RankedList getPopular() {
+            return popular;
+        }
+
+        public RankedList getTrending() {
+            return trending;
+        }
+
+        /**
+         * Popular movies of each genre, by genre name.
+         */
+        public Map<String, RankedList> getPopularByGenre() {
+            return popularByGenre;
+        }
+
+        /**
+         * Popular movies of one genre, by exact genre name; empty for an unknown genre.
+         */
+        public RankedList getPopularInGenre(String genre) {
+            return popularByGenre.getOrDefault(genre, RankedList.empty());
+        }
+
+        public float averageRating(int movie) {
+            return movie < averages.length ? averages[movie] : 0.0f;
+        }
+
+        public int ratingCount(int movie) {
+            return movie < counts.length ? counts[movie] : 0;
+        }
+
+        /**
+         * Whether the list was cut to the list size, i.e. filtering it can run out of
+         * movies that exist further down the ranking.
+         */
+        public boolean isTruncated(RankedList list) {
+            return list.size() >= listSize;
+        }
+    }
+}
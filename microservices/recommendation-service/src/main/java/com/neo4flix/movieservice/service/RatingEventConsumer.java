@@ -0,0 +1,267 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.event.RatingChangedEvent;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Follows the RatingEvent outbox written by the Rating Service in the same transaction
+ * as each rating change.
+ *
+ * Every replica reads the whole outbox on its own: a poll pages through the events
+ * stamped after this replica's high-water mark, in occurredAt order, and publishes a
+ * RatingChangedEvent for each, which updates this replica's in-memory models (rating
+ * matrix, popularity, profiles, caches) incrementally. Stored lists are shared by all
+ * replicas, so only one regenerates each: the events of a page are claimed for refresh
+ * in one statement, the first replica to claim an event wins, and the users of the
+ * events it won are scheduled for one refresh, which RefreshDebouncer merges with those
+ * of later pages, so a user rating thirty movies in a row costs one regeneration.
+ * An event whose listeners fail is not marked applied, and the next poll starts early
+ * enough to read it again.
+ *
+ * occurredAt is the database server's transaction time, so an event can commit after
+ * a later-stamped one has been read. Each poll therefore starts overlap-ms before the
+ * high-water mark and skips the events it already applied. Nothing is deleted on
+ * reading: events are purged once older than retention-ms, long after every replica
+ * has applied them. A replica starts from the current time, since its models read
+ * every earlier rating from the database; whether an event is already in a model is
+ * decided by the model, against its own load time (see DatabaseClock).
+ */
+@Component
+public class RatingEventConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RatingEventConsumer.class);
+
+    private static final String REFRESH_ALGORITHM = "hybrid";
+
+    private static final String READ_QUERY = """
+        MATCH (e:RatingEvent)
+        WHERE e.occurredAt >= $after
+        WITH e, elementId(e) AS eventId
+        WHERE e.occurredAt > $after OR eventId > $afterId
+        RETURN eventId, e.userId AS userId, e.movieId AS movieId, e.previousRating AS previousRating,
+               e.newRating AS newRating, e.occurredAt AS occurredAt
+        ORDER BY occurredAt, eventId
+        LIMIT $batchSize
+        """;
+
+    // Locks each event before reading its claim, so exactly one replica refreshes for it
+    private static final String CLAIM_REFRESH_QUERY = """
+        UNWIND $eventIds AS eventId
+        MATCH (e:RatingEvent)
+        WHERE elementId(e) = eventId
+        SET e.claimLock = true
+        REMOVE e.claimLock
+        WITH e
+        WHERE e.refreshedBy IS NULL
+        SET e.refreshedBy = $owner
+        RETURN DISTINCT e.userId AS userId
+        """;
+
+    private static final String PURGE_CHUNK_QUERY = """
+        MATCH (e:RatingEvent)
+        WHERE e.occurredAt < datetime() - duration({milliseconds: $retentionMs})
+        WITH e LIMIT $chunkSize
+        DELETE e
+        RETURN count(*) AS deleted
+        """;
+
+    private static final int PURGE_CHUNK_SIZE = 5000;
+
+    private final Driver neo4jDriver;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RecommendationService recommendationService;
+
+    @Value("${neo4flix.recommendation.ingest.batch-size:500}")
+    private int batchSize;
+
+    // Longest a poll keeps reading full pages before yielding to the next scheduled run
+    @Value("${neo4flix.recommendation.ingest.max-drain-ms:5000}")
+    private long maxDrainMs;
+
+    // How far behind the high-water mark a poll starts, at least the longest rating transaction
+    @Value("${neo4flix.recommendation.ingest.overlap-ms:10000}")
+    private long overlapMs;
+
+    @Value("${neo4flix.recommendation.ingest.retention-ms:86400000}")
+    private long retentionMs;
+
+    // Refresh claim name of this replica
+    private final String owner = UUID.randomUUID().toString();
+
+    // Only touched by the scheduled poll
+    private ZonedDateTime highWaterMark;
+    // Earliest event of the last poll whose listeners failed, read again by the next one
+    private ZonedDateTime retryFrom;
+    private final Map<String, ZonedDateTime> applied = new HashMap<>();
+
+    public RatingEventConsumer(Driver neo4jDriver,
+                               ApplicationEventPublisher eventPublisher,
+                               RecommendationService recommendationService) {
+        this.neo4jDriver = neo4jDriver;
+        this.eventPublisher = eventPublisher;
+        this.recommendationService = recommendationService;
+    }
+
+    @Scheduled(fixedDelayString = "${neo4flix.recommendation.ingest.poll-interval-ms:500}")
+    public void poll() {
+        if (highWaterMark == null) {
+            try (Session session = neo4jDriver.session()) {
+                highWaterMark = ZonedDateTime.ofInstant(Instant.ofEpochMilli(DatabaseClock.now(session)), ZoneOffset.UTC);
+            } catch (Exception e) {
+                logger.warn("Failed to read the database time, will retry: {}", e.getMessage());
+                return;
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + maxDrainMs;
+        ZonedDateTime overlapStart = highWaterMark.minus(Duration.ofMillis(overlapMs));
+        ZonedDateTime after = retryFrom != null && retryFrom.isBefore(overlapStart)
+                ? retryFrom.minusNanos(1) : overlapStart;
+        applied.values().removeIf(occurredAt -> occurredAt.isBefore(after));
+        retryFrom = null;
+
+        Page page = new Page(after, "");
+        do {
+            page = readPage(page);
+        } while (page.size == batchSize && System.currentTimeMillis() < deadline);
+    }
+
+    /**
+     * Delete the events every replica has had time to apply, in chunks.
+     */
+    @Scheduled(initialDelayString = "${neo4flix.recommendation.ingest.purge-interval-ms:600000}",
+               fixedDelayString = "${neo4flix.recommendation.ingest.purge-interval-ms:600000}")
+    public void purgeApplied() {
+        Map<String, Object> parameters = Map.of("retentionMs", retentionMs, "chunkSize", PURGE_CHUNK_SIZE);
+        long total = 0L;
+        try (Session session = neo4jDriver.session()) {
+            long deleted;
+            do {
+                deleted = session.executeWrite(tx -> tx.run(PURGE_CHUNK_QUERY, parameters).single().get("deleted").asLong());
+                total += deleted;
+            } while (deleted == PURGE_CHUNK_SIZE);
+        } catch (Exception e) {
+            logger.warn("Failed to purge rating events, will retry: {}", e.getMessage());
+        }
+        if (total > 0) {
+            logger.info("Purged {} rating events", total);
+        }
+    }
+
+    /**
+     * Read and apply the page of events following the given one; returns its position.
+     */
+    private Page readPage(Page previous) {
+        List<Record> events;
+        try (Session session = neo4jDriver.session()) {
+            events = session.executeRead(tx -> tx.run(READ_QUERY, Map.of(
+                    "after", previous.lastOccurredAt,
+                    "afterId", previous.lastEventId,
+                    "batchSize", batchSize)).list());
+        } catch (Exception e) {
+            logger.warn("Failed to read rating events, will retry: {}", e.getMessage());
+            return new Page(previous.lastOccurredAt, previous.lastEventId);
+        }
+
+        Page page = new Page(previous.lastOccurredAt, previous.lastEventId);
+        List<String> appliedIds = new ArrayList<>();
+        Set<String> users = new LinkedHashSet<>();
+        for (Record event : events) {
+            String eventId = event.get("eventId").asString();
+            ZonedDateTime occurredAt = event.get("occurredAt").asZonedDateTime();
+            page.lastEventId = eventId;
+            page.lastOccurredAt = occurredAt;
+            page.size++;
+
+            String userId = event.get("userId").asString(null);
+            if (userId == null || applied.containsKey(eventId)) {
+                continue;
+            }
+            try {
+                eventPublisher.publishEvent(toRatingChangedEvent(userId, occurredAt, event));
+            } catch (Exception e) {
+                logger.warn("Failed to apply rating event for user {}, will retry: {}", userId, e.getMessage());
+                if (retryFrom == null || occurredAt.isBefore(retryFrom)) {
+                    retryFrom = occurredAt;
+                }
+                continue;
+            }
+            applied.put(eventId, occurredAt);
+            if (occurredAt.isAfter(highWaterMark)) {
+                highWaterMark = occurredAt;
+            }
+            appliedIds.add(eventId);
+            users.add(userId);
+        }
+
+        for (String userId : claimRefreshes(appliedIds, users)) {
+            recommendationService.scheduleRefresh(userId, REFRESH_ALGORITHM);
+        }
+
+        if (!users.isEmpty()) {
+            logger.debug("Applied rating events for {} users", users.size());
+        }
+        return page;
+    }
+
+    /**
+     * Users of the given events whose refresh this replica claimed; all of them if the
+     * claim cannot be made, since a duplicate refresh is better than none.
+     */
+    private Collection<String> claimRefreshes(List<String> eventIds, Set<String> users) {
+        if (eventIds.isEmpty()) {
+            return List.of();
+        }
+        try (Session session = neo4jDriver.session()) {
+            return session.executeWrite(tx -> tx.run(CLAIM_REFRESH_QUERY,
+                    Map.of("eventIds", eventIds, "owner", owner)).list(row -> row.get("userId").asString()));
+        } catch (Exception e) {
+            logger.warn("Failed to claim refreshes of {} users, refreshing them here: {}", users.size(), e.getMessage());
+            return users;
+        }
+    }
+
+    private static RatingChangedEvent toRatingChangedEvent(String userId, ZonedDateTime occurredAt, Record event) {
+        return new RatingChangedEvent(userId,
+                event.get("movieId").asString(null),
+                event.get("previousRating").isNull() ? null : event.get("previousRating").asDouble(),
+                event.get("newRating").isNull() ? null : event.get("newRating").asDouble(),
+                occurredAt.toInstant().toEpochMilli());
+    }
+
+    /**
+     * Position of a page in the (occurredAt, eventId) order, and how many events it held.
+     */
+    private static final class Page {
+
+        ZonedDateTime lastOccurredAt;
+        String lastEventId;
+        int size;
+
+        Page(ZonedDateTime lastOccurredAt, String lastEventId) {
+            this.lastOccurredAt = lastOccurredAt;
+            this.lastEventId = lastEventId;
+        }
+    }
+}
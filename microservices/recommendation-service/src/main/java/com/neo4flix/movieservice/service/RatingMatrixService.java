@@ -0,0 +1,245 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.engine.IdInterner;
+import com.neo4flix.movieservice.engine.SparseRatingMatrix;
+import com.neo4flix.movieservice.event.RatingChangedEvent;
+import com.neo4flix.movieservice.event.RatingMatrixReloadedEvent;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps every rating in memory as a {@link SparseRatingMatrix} for the in-process
+ * collaborative filtering engine.
+ *
+ * The matrix is loaded in the background once the application is ready and fully
+ * reloaded on a long schedule. In between, users whose ratings changed are collected
+ * from RatingChangedEvents and their rows are re-read in one batched query and
+ * swapped into a new snapshot, so the matrix trails the database by at most one
+ * flush interval. A RatingMatrixReloadedEvent is published after every full reload.
+ *
+ * A full reload reads for a long time, so rows flushed meanwhile may be newer than the
+ * ones it read. The users flushed during a reload are recorded and re-read straight
+ * after its snapshot is swapped in, before the reload is announced; likewise a flush
+ * that a reload overtook re-marks its users.
+ *
+ * Ratings are read from the Rating nodes' userId / movieId properties, which both the
+ * seed data and the Rating Service write.
+ */
+@Component
+public class RatingMatrixService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RatingMatrixService.class);
+
+    private static final String LOAD_ALL_QUERY = """
+        MATCH (r:Rating)
+        WHERE r.userId IS NOT NULL AND r.movieId IS NOT NULL AND r.rating IS NOT NULL
+        RETURN r.userId AS userId, r.movieId AS movieId, r.rating AS rating
+        """;
+
+    private static final String LOAD_USERS_QUERY = """
+        MATCH (r:Rating)
+        WHERE r.userId IN $userIds AND r.movieId IS NOT NULL AND r.rating IS NOT NULL
+        RETURN r.userId AS userId, r.movieId AS movieId, r.rating AS rating
+        """;
+
+    private final Driver neo4jDriver;
+    private final TaskExecutor taskExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final IdInterner userIds = new IdInterner();
+    private final IdInterner movieIds = new IdInterner();
+    private final Set<String> dirtyUsers = ConcurrentHashMap.newKeySet();
+    private final Object updateLock = new Object();
+    private final Object reloadLock = new Object();
+    // Users flushed since the running full reload started reading, null when none is running
+    private Set<String> flushedDuringReload;
+    // Full reloads swapped in so far; a flush that saw one swap in under it re-marks its users
+    private long reloads;
+
+    private volatile SparseRatingMatrix matrix = SparseRatingMatrix.empty();
+    private volatile boolean loaded;
+
+    public RatingMatrixService(Driver neo4jDriver,
+                               @Qualifier("taskExecutor") TaskExecutor taskExecutor,
+                               ApplicationEventPublisher eventPublisher) {
+        this.neo4jDriver = neo4jDriver;
+        this.taskExecutor = taskExecutor;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Current snapshot. Hold on to the returned instance for the duration of a request.
+     */
+    public SparseRatingMatrix getMatrix() {
+        return matrix;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public IdInterner getUserIds() {
+        return userIds;
+    }
+
+    public IdInterner getMovieIds() {
+        return movieIds;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        taskExecutor.execute(this::reloadAll);
+    }
+
+    @EventListener
+    public void onRatingChanged(RatingChangedEvent event) {
+        if (event.getUserId() != null) {
+            dirtyUsers.add(event.getUserId());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${neo4flix.recommendation.matrix.full-reload-interval-ms:21600000}",
+               fixedDelayString = "${neo4flix.recommendation.matrix.full-reload-interval-ms:21600000}")
+    public void reloadAll() {
+        synchronized (reloadLock) {
+            reloadAllRows();
+        }
+    }
+
+    private void reloadAllRows() {
+        long start = System.currentTimeMillis();
+        SparseRatingMatrix reloaded;
+        synchronized (updateLock) {
+            flushedDuringReload = new HashSet<>();
+        }
+
+        try (Session session = neo4jDriver.session()) {
+            Triples triples = new Triples(Math.max(1024, matrix.nonZeros() + 1024));
+            Result result = session.run(LOAD_ALL_QUERY);
+            while (result.hasNext()) {
+                triples.add(result.next());
+            }
+
+            reloaded = SparseRatingMatrix.fromTriples(userIds.size(), movieIds.size(),
+                    triples.users, triples.movies, triples.ratings, triples.count);
+            synchronized (updateLock) {
+                matrix = reloaded;
+                loaded = true;
+                // Their rows in the reloaded snapshot may predate what was flushed
+                dirtyUsers.addAll(flushedDuringReload);
+                flushedDuringReload = null;
+                reloads++;
+            }
+
+            logger.info("Rating matrix loaded: {} users x {} movies, {} ratings in {} ms",
+                    reloaded.numUsers(), reloaded.numMovies(), reloaded.nonZeros(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            synchronized (updateLock) {
+                flushedDuringReload = null;
+            }
+            logger.error("Failed to load rating matrix: {}", e.getMessage(), e);
+            return;
+        }
+
+        flushDirtyUsers();
+        eventPublisher.publishEvent(new RatingMatrixReloadedEvent(matrix));
+    }
+
+    /**
+     * Re-read the rows of users whose ratings changed and publish a new snapshot.
+     */
+    @Scheduled(fixedDelayString = "${neo4flix.recommendation.matrix.flush-interval-ms:5000}")
+    public void flushDirtyUsers() {
+        if (!loaded || dirtyUsers.isEmpty()) {
+            return;
+        }
+
+        List<String> batch = new ArrayList<>();
+        Iterator<String> iterator = dirtyUsers.iterator();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+
+        long reloadsAtStart;
+        synchronized (updateLock) {
+            reloadsAtStart = reloads;
+        }
+
+        int[] replacedUsers = new int[batch.size()];
+        for (int i = 0; i < replacedUsers.length; i++) {
+            replacedUsers[i] = userIds.intern(batch.get(i));
+        }
+
+        Triples triples = new Triples(256);
+        try (Session session = neo4jDriver.session()) {
+            session.run(LOAD_USERS_QUERY, Map.of("userIds", batch)).forEachRemaining(triples::add);
+        } catch (Exception e) {
+            logger.warn("Failed to reload ratings of {} users, will retry: {}", batch.size(), e.getMessage());
+            dirtyUsers.addAll(batch);
+            return;
+        }
+
+        synchronized (updateLock) {
+            matrix = matrix.withUserRows(userIds.size(), movieIds.size(), replacedUsers,
+                    triples.users, triples.movies, triples.ratings, triples.count);
+            if (flushedDuringReload != null) {
+                flushedDuringReload.addAll(batch);
+            }
+            if (reloads != reloadsAtStart) {
+                // Rows read before a reload may be older than the ones it swapped in
+                dirtyUsers.addAll(batch);
+            }
+        }
+        logger.debug("Rating matrix updated for {} users", batch.size());
+    }
+
+    /**
+     * Growable (user, movie, rating) triples interned from query rows.
+     */
+    private final class Triples {
+
+        int[] users;
+        int[] movies;
+        float[] ratings;
+        int count;
+
+        Triples(int capacity) {
+            users = new int[capacity];
+            movies = new int[capacity];
+            ratings = new float[capacity];
+        }
+
+        void add(Record row) {
+            if (count == users.length) {
+                users = Arrays.copyOf(users, count * 2);
+                movies = Arrays.copyOf(movies, count * 2);
+                ratings = Arrays.copyOf(ratings, count * 2);
+            }
+            users[count] = userIds.intern(row.get("userId").asString());
+            movies[count] = movieIds.intern(row.get("movieId").asString());
+            ratings[count] = (float) row.get("rating").asDouble();
+            count++;
+        }
+    }
+}
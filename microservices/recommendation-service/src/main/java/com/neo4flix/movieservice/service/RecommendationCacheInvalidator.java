@@ -0,0 +1,137 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.cache.FarCache;
+import com.neo4flix.movieservice.cache.IndexedCaffeineCache;
+import com.neo4flix.movieservice.cache.TwoTierCache;
+import com.neo4flix.movieservice.config.CacheConfig;
+import com.neo4flix.movieservice.event.MovieChangedEvent;
+import com.neo4flix.movieservice.event.RatingChangedEvent;
+import com.neo4flix.movieservice.event.WatchlistChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Drops cached results when the data behind them changes, instead of evicting whole
+ * caches: a rating or watchlist change, or a newly stored list, drops the user's entries;
+ * a movie change drops the entries that contain the movie, for every user.
+ *
+ * With a shared cache tier, invalidations are also broadcast so that every replica drops
+ * its local copies. The shared tier can only drop a user's entries as a whole, so a movie
+ * change expires every shared entry of the caches that show movies.
+ */
+@Component
+public class RecommendationCacheInvalidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationCacheInvalidator.class);
+
+    private static final String USERS = "U";
+    private static final String MOVIE = "M";
+
+    private static final List<String> USER_CACHES = List.of(
+            CacheConfig.RECOMMENDATIONS, CacheConfig.GENERATED, CacheConfig.STATS, CacheConfig.SIMILAR_USERS);
+
+    private static final List<String> MOVIE_CACHES = List.of(CacheConfig.RECOMMENDATIONS, CacheConfig.GENERATED);
+
+    private final CacheManager cacheManager;
+    private final FarCache farCache;
+
+    public RecommendationCacheInvalidator(CacheManager cacheManager, ObjectProvider<FarCache> farCache) {
+        this.cacheManager = cacheManager;
+        this.farCache = farCache.getIfAvailable();
+        if (this.farCache != null) {
+            this.farCache.subscribe(this::onBroadcast);
+        }
+    }
+
+    @EventListener
+    public void onRatingChanged(RatingChangedEvent event) {
+        if (event.getUserId() != null) {
+            evictUsers(Set.of(event.getUserId()));
+        }
+    }
+
+    @EventListener
+    public void onWatchlistChanged(WatchlistChangedEvent event) {
+        if (event.getUserId() != null) {
+            evictUsers(Set.of(event.getUserId()));
+        }
+    }
+
+    @EventListener
+    public void onMovieChanged(MovieChangedEvent event) {
+        long changedAt = System.currentTimeMillis();
+        int evicted = evictMovie(event.getMovieId(), changedAt);
+        if (farCache != null) {
+            for (String name : MOVIE_CACHES) {
+                farCache.markCleared(name, changedAt);
+            }
+            farCache.publish(String.join("\t", MOVIE, event.getMovieId(), Long.toString(changedAt)));
+        }
+        logger.debug("Evicted {} cached results containing movie {}", evicted, event.getMovieId());
+    }
+
+    /**
+     * Drop every cached result of the given users, looked up in each cache's user index.
+     */
+    public void evictUsers(Collection<String> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        for (String name : USER_CACHES) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache instanceof TwoTierCache twoTier) {
+                twoTier.evictScopes(userIds);
+            } else {
+                evictUsersLocally(cache, userIds);
+            }
+        }
+        if (farCache != null) {
+            farCache.publish(USERS + "\t" + String.join(",", userIds));
+        }
+    }
+
+    private void onBroadcast(String message) {
+        String[] parts = message.split("\t");
+        if (USERS.equals(parts[0]) && parts.length == 2) {
+            Set<String> userIds = new HashSet<>(Arrays.asList(parts[1].split(",")));
+            for (String name : USER_CACHES) {
+                evictUsersLocally(cacheManager.getCache(name), userIds);
+            }
+        } else if (MOVIE.equals(parts[0]) && parts.length == 3) {
+            evictMovie(parts[1], Long.parseLong(parts[2]));
+        }
+    }
+
+    private static void evictUsersLocally(Cache cache, Collection<String> userIds) {
+        if (cache instanceof TwoTierCache twoTier) {
+            twoTier.evictScopesLocally(userIds);
+        } else if (cache instanceof IndexedCaffeineCache indexed) {
+            indexed.evictUsers(userIds);
+        }
+    }
+
+    private int evictMovie(String movieId, long changedAt) {
+        int evicted = 0;
+        for (String name : MOVIE_CACHES) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache instanceof TwoTierCache twoTier) {
+                evicted += twoTier.evictMovieLocally(movieId);
+                twoTier.expireSharedBefore(changedAt);
+            } else if (cache instanceof IndexedCaffeineCache indexed) {
+                evicted += indexed.evictMovie(movieId);
+            }
+        }
+        return evicted;
+    }
+}
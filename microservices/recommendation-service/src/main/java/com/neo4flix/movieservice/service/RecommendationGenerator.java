@@ -0,0 +1,113 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.algorithm.*;
+import com.neo4flix.movieservice.dto.RecommendationRequest;
+import com.neo4flix.movieservice.model.Recommendation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs recommendation algorithms by name and (re)generates the stored per-user lists.
+ * Shared by the request path (RecommendationServiceImpl) and the batch job, so both
+ * pick algorithms and fall back to popular in the same way.
+ */
+@Component
+public class RecommendationGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationGenerator.class);
+
+    private final RecommendationStore recommendationStore;
+    private final Map<String, RecommendationAlgorithm> algorithms;
+
+    // Stored lists are generated this long so that any page size up to it can be served from the store
+    @Value("${neo4flix.recommendation.store.list-size:50}")
+    private int storedListSize;
+
+    public RecommendationGenerator(
+            RecommendationStore recommendationStore,
+            ContentBasedFilteringAlgorithm contentBasedAlgorithm,
+            CollaborativeFilteringAlgorithm collaborativeAlgorithm,
+            PopularityBasedAlgorithm popularityAlgorithm,
+            HybridRecommendationAlgorithm hybridAlgorithm,
+            ItemCollaborativeFilteringAlgorithm itemCollaborativeAlgorithm,
+            MatrixFactorizationAlgorithm matrixFactorizationAlgorithm,
+            PipelineRecommendationAlgorithm pipelineAlgorithm,
+            TrendingAlgorithm trendingAlgorithm,
+            GDSCollaborativeFilteringAlgorithm gdsCollaborativeAlgorithm,
+            GDSContentBasedAlgorithm gdsContentBasedAlgorithm,
+            GDSPageRankAlgorithm gdsPageRankAlgorithm,
+            GDSCommunityAlgorithm gdsCommunityAlgorithm,
+            GDSHybridAlgorithm gdsHybridAlgorithm) {
+
+        this.recommendationStore = recommendationStore;
+
+        this.algorithms = new HashMap<>();
+        // Original algorithms
+        this.algorithms.put(collaborativeAlgorithm.getAlgorithmName(), collaborativeAlgorithm);
+        this.algorithms.put(contentBasedAlgorithm.getAlgorithmName(), contentBasedAlgorithm);
+        this.algorithms.put(popularityAlgorithm.getAlgorithmName(), popularityAlgorithm);
+        this.algorithms.put(hybridAlgorithm.getAlgorithmName(), hybridAlgorithm);
+        this.algorithms.put(itemCollaborativeAlgorithm.getAlgorithmName(), itemCollaborativeAlgorithm);
+        this.algorithms.put(matrixFactorizationAlgorithm.getAlgorithmName(), matrixFactorizationAlgorithm);
+        this.algorithms.put(pipelineAlgorithm.getAlgorithmName(), pipelineAlgorithm);
+        this.algorithms.put(trendingAlgorithm.getAlgorithmName(), trendingAlgorithm);
+
+        // GDS-based algorithms
+        this.algorithms.put(gdsCollaborativeAlgorithm.getAlgorithmName(), gdsCollaborativeAlgorithm);
+        this.algorithms.put(gdsContentBasedAlgorithm.getAlgorithmName(), gdsContentBasedAlgorithm);
+        this.algorithms.put(gdsPageRankAlgorithm.getAlgorithmName(), gdsPageRankAlgorithm);
+        this.algorithms.put(gdsCommunityAlgorithm.getAlgorithmName(), gdsCommunityAlgorithm);
+        this.algorithms.put(gdsHybridAlgorithm.getAlgorithmName(), gdsHybridAlgorithm);
+    }
+
+    public boolean supports(String algorithm) {
+        return algorithms.containsKey(algorithm);
+    }
+
+    /**
+     * Run the requested algorithm, falling back to popular when it is not applicable to the user.
+     *
+     * @throws IllegalArgumentException if the algorithm is unknown
+     */
+    public List<Recommendation> generate(RecommendationRequest request) {
+        RecommendationAlgorithm algorithm = algorithms.get(request.getAlgorithm());
+        if (algorithm == null) {
+            throw new IllegalArgumentException("Unknown algorithm: " + request.getAlgorithm());
+        }
+
+        if (!algorithm.isApplicable(request)) {
+            logger.warn("Algorithm {} not applicable for user {}, falling back to popular",
+                    request.getAlgorithm(), request.getUserId());
+            algorithm = algorithms.get("popular");
+        }
+
+        return algorithm.generateRecommendations(request);
+    }
+
+    /**
+     * Compute the user's full stored-list-sized list for an algorithm without writing it.
+     */
+    public List<Recommendation> generateList(String userId, String algorithm) {
+        return generate(RecommendationRequest.builder()
+                .userId(userId)
+                .limit(storedListSize)
+                .algorithm(algorithm)
+                .build());
+    }
+
+    /**
+     * Compute the user's list for an algorithm and replace the stored one.
+     */
+    public List<Recommendation> regenerate(String userId, String algorithm) {
+        long startedAt = System.currentTimeMillis();
+        List<Recommendation> recommendations = generateList(userId, algorithm);
+        recommendationStore.write(userId, algorithm, recommendations, startedAt);
+        return recommendations;
+    }
+}
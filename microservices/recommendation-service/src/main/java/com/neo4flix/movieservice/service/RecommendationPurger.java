@@ -0,0 +1,138 @@
+package com.neo4flix.movieservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Deletes RECOMMENDED relationships older than the configured age.
+ *
+ * Expired relationships are deleted in chunks, each in its own transaction, so a large
+ * backlog never holds many locks or much transaction memory at once. A run stops when
+ * nothing expired is left or its time budget is used up; the next run carries on.
+ * The chunk query seeks on the recommended_at index created by DatabaseInitializer.
+ */
+@Component
+public class RecommendationPurger {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationPurger.class);
+
+    private static final String DELETE_CHUNK_QUERY = """
+        MATCH ()-[r:RECOMMENDED]->()
+        WHERE r.recommendedAt < datetime($cutoff)
+        WITH r LIMIT $chunkSize
+        DELETE r
+        RETURN count(*) AS deleted
+        """;
+
+    private final Driver neo4jDriver;
+    private final Counter purgedCounter;
+    private final ReentrantLock running = new ReentrantLock();
+
+    @Value("${neo4flix.recommendation.cleanup.max-age-days:30}")
+    private int maxAgeDays;
+
+    @Value("${neo4flix.recommendation.cleanup.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${neo4flix.recommendation.cleanup.time-budget-ms:60000}")
+    private long timeBudgetMs;
+
+    public RecommendationPurger(Driver neo4jDriver, MeterRegistry meterRegistry) {
+        this.neo4jDriver = neo4jDriver;
+        this.purgedCounter = Counter.builder("neo4flix.recommendations.purged")
+                .description("RECOMMENDED relationships deleted for being older than the maximum age")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${neo4flix.recommendation.cleanup.interval-ms:3600000}",
+               fixedDelayString = "${neo4flix.recommendation.cleanup.interval-ms:3600000}")
+    public void purgeExpired() {
+        purge(maxAgeDays);
+    }
+
+    /**
+     * Delete recommendations older than the given number of days, within the time budget.
+     * Returns immediately with nothing deleted if a purge is already running.
+     */
+    public PurgeResult purge(int daysOld) {
+        if (!running.tryLock()) {
+            logger.info("Recommendation purge already running, skipping");
+            return new PurgeResult(0L, false, 0L);
+        }
+
+        long start = System.currentTimeMillis();
+        long deleted = 0L;
+        boolean complete = false;
+        String cutoff = Instant.ofEpochMilli(start).minus(daysOld, ChronoUnit.DAYS).toString();
+        Map<String, Object> parameters = Map.of("cutoff", cutoff, "chunkSize", chunkSize);
+
+        try (Session session = neo4jDriver.session()) {
+            while (System.currentTimeMillis() - start < timeBudgetMs) {
+                long chunk = session.executeWrite(tx ->
+                        tx.run(DELETE_CHUNK_QUERY, parameters).single().get("deleted").asLong());
+                deleted += chunk;
+                purgedCounter.increment(chunk);
+                if (chunk < chunkSize) {
+                    complete = true;
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Recommendation purge failed after deleting {} relationships: {}", deleted, e.getMessage());
+        } finally {
+            running.unlock();
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        if (complete) {
+            logger.info("Purged {} recommendations older than {} days in {} ms", deleted, daysOld, elapsed);
+        } else {
+            logger.info("Purged {} recommendations older than {} days in {} ms, more left for the next run",
+                    deleted, daysOld, elapsed);
+        }
+        return new PurgeResult(deleted, complete, elapsed);
+    }
+
+    /**
+     * Outcome of one purge run.
+     */
+    public static final class PurgeResult {
+
+        private final long deleted;
+        private final boolean complete;
+        private final long elapsedMs;
+
+        PurgeResult(long deleted, boolean complete, long elapsedMs) {
+            this.deleted = deleted;
+            this.complete = complete;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public long getDeleted() {
+            return deleted;
+        }
+
+        /**
+         * False if the run stopped on its time budget or an error with expired relationships left.
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+    }
+}
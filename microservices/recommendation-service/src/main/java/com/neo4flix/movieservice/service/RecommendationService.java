@@ -38,11 +38,22 @@ public interface RecommendationService {
      */
     void markRecommendationWatched(String userId, String movieId);
 
+    /**
+     * Get the user's stored recommendations for an algorithm.
+     * A stale list is returned as is and refreshed in the background.
+     */
+    List<RecommendationResponse> getPersonalizedRecommendations(String userId, String algorithm, Integer limit);
+
     /**
      * Refresh recommendations for a user (delete old and generate new)
      */
     List<RecommendationResponse> refreshRecommendations(String userId, String algorithm, Integer limit);
 
+    /**
+     * Regenerate a user's stored list in the background once a burst of refresh requests has settled
+     */
+    void scheduleRefresh(String userId, String algorithm);
+
     /**
      * Get recommendation statistics for a user
      */
@@ -64,24 +75,22 @@ public interface RecommendationService {
     List<RecommendationResponse> getRecommendationsByGenre(RecommendationRequest request);
 
     /**
-     * Get recommendations for new users (cold start problem)
+     * Get recommendations for new users (cold start problem), optionally limited to
+     * any of the given genres and to a release year range (bounds inclusive, may be null)
      */
-    List<RecommendationResponse> getNewUserRecommendations(Integer limit);
+    List<RecommendationResponse> getNewUserRecommendations(Integer limit, List<String> genres,
+                                                           Integer fromYear, Integer toYear);
 
     /**
-     * Calculate recommendation accuracy metrics
+     * Live click-through rate, precision at K and conversion rate per algorithm,
+     * over the interaction log's sliding window
      */
     Object calculateRecommendationMetrics(String userId);
 
     /**
-     * Batch generate recommendations for multiple users
-     */
-    void batchGenerateRecommendations(List<String> userIds, String algorithm);
-
-    /**
-     * Clean up old recommendations
+     * Clean up old recommendations, in chunks and within the purge time budget
      */
-    void cleanupOldRecommendations(Integer daysOld);
+    RecommendationPurger.PurgeResult cleanupOldRecommendations(Integer daysOld);
 
     /**
      * Get similar movies (content-based recommendations for a specific movie)
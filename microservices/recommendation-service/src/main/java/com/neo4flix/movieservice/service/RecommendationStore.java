@@ -0,0 +1,287 @@
+package com.neo4flix.movieservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.neo4flix.movieservice.event.RatingChangedEvent;
+import com.neo4flix.movieservice.model.Recommendation;
+import com.neo4flix.movieservice.repository.RecommendationRepository;
+import jakarta.annotation.PostConstruct;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Materialized per-user recommendation lists, stored as RECOMMENDED relationships
+ * (one per user, movie and algorithm).
+ *
+ * Lists are written with a single UNWIND statement that also drops movies no longer in
+ * the list, while keeping the clicked / watched flags of movies that stay; the batch job
+ * writes many users' lists per statement. A list is stale once it is older than the
+ * configured TTL, or when the user rated something after it was generated; stale lists
+ * are still served, and the caller queues a refresh. Refreshes are deduplicated per user
+ * and algorithm.
+ */
+@Component
+public class RecommendationStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationStore.class);
+
+    private static final String READ_QUERY = """
+        MATCH (u:User {id: $userId})-[r:RECOMMENDED]->(m:Movie)
+        WHERE r.algorithm = $algorithm
+        RETURN m.id AS movieId, m.title AS movieTitle, COALESCE(m.averageRating, 0.0) AS movieRating,
+               r.score AS score, r.reason AS reason, r.recommendedAt AS recommendedAt,
+               COALESCE(r.clicked, false) AS clicked, COALESCE(r.watched, false) AS watched
+        ORDER BY r.score DESC
+        LIMIT $limit
+        """;
+
+    private final Driver neo4jDriver;
+    private final RecommendationRepository recommendationRepository;
+    private final RecommendationCacheInvalidator cacheInvalidator;
+
+    @Value("${neo4flix.recommendation.store.ttl-ms:3600000}")
+    private long ttlMs;
+
+    @Value("${neo4flix.recommendation.store.max-tracked:500000}")
+    private long maxTracked;
+
+    // Users whose ratings changed, with the time of the latest change
+    private Map<String, Long> dirtySince;
+    // Last refresh per list, so lists that came out empty are not regenerated on every read
+    private Map<String, Long> lastRefreshed;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    public RecommendationStore(Driver neo4jDriver, RecommendationRepository recommendationRepository,
+                               RecommendationCacheInvalidator cacheInvalidator) {
+        this.neo4jDriver = neo4jDriver;
+        this.recommendationRepository = recommendationRepository;
+        this.cacheInvalidator = cacheInvalidator;
+    }
+
+    @PostConstruct
+    void createTimestampMaps() {
+        dirtySince = expiringMap();
+        lastRefreshed = expiringMap();
+    }
+
+    /**
+     * Entries expire ttl-ms after they are written: by then any list they could mark stale
+     * is stale by age anyway.
+     */
+    private Map<String, Long> expiringMap() {
+        Cache<String, Long> cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .maximumSize(maxTracked)
+                .build();
+        return cache.asMap();
+    }
+
+    @EventListener
+    public void onRatingChanged(RatingChangedEvent event) {
+        if (event.getUserId() != null) {
+            dirtySince.put(event.getUserId(), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * The stored list, best first, or null if none has been generated for this user and algorithm.
+     */
+    public StoredList read(String userId, String algorithm, int limit) {
+        List<Recommendation> recommendations = new ArrayList<>();
+        List<String> titles = new ArrayList<>();
+        List<Double> ratings = new ArrayList<>();
+        long generatedAt = 0L;
+
+        try (Session session = neo4jDriver.session()) {
+            List<Record> rows = session.executeRead(tx -> tx.run(READ_QUERY,
+                    Map.of("userId", userId, "algorithm", algorithm, "limit", limit)).list());
+            for (Record row : rows) {
+                LocalDateTime recommendedAt = row.get("recommendedAt").isNull()
+                        ? null : row.get("recommendedAt").asZonedDateTime().toLocalDateTime();
+                if (recommendedAt != null) {
+                    generatedAt = Math.max(generatedAt, recommendedAt.toInstant(ZoneOffset.UTC).toEpochMilli());
+                }
+                recommendations.add(Recommendation.builder()
+                        .userId(userId)
+                        .movieId(row.get("movieId").asString())
+                        .score(row.get("score").asDouble(0.0))
+                        .algorithm(algorithm)
+                        .reason(row.get("reason").asString(null))
+                        .recommendedAt(recommendedAt)
+                        .clicked(row.get("clicked").asBoolean())
+                        .watched(row.get("watched").asBoolean())
+                        .build());
+                titles.add(row.get("movieTitle").asString(null));
+                ratings.add(row.get("movieRating").asDouble(0.0));
+            }
+        }
+
+        String key = key(userId, algorithm);
+        if (recommendations.isEmpty()) {
+            Long attempted = lastRefreshed.get(key);
+            return attempted != null ? new StoredList(recommendations, titles, ratings, attempted) : null;
+        }
+        return new StoredList(recommendations, titles, ratings, generatedAt);
+    }
+
+    /**
+     * Replace the user's list for the algorithm with the given recommendations.
+     *
+     * @param startedAt when generation started; ratings newer than this keep the list dirty
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void write(String userId, String algorithm, List<Recommendation> recommendations, long startedAt) {
+        writeAll(List.of(new PendingList(userId, algorithm, recommendations, startedAt)));
+    }
+
+    /**
+     * Replace several lists, possibly of different users, in a single statement and transaction.
+     * Always runs in a transaction of its own, so a caller's read-only transaction never
+     * reaches the write.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void writeAll(List<PendingList> lists) {
+        if (lists.isEmpty()) {
+            return;
+        }
+
+        long generatedAt = System.currentTimeMillis();
+        String generatedAtIso = Instant.ofEpochMilli(generatedAt).toString();
+        List<Map<String, Object>> entries = new ArrayList<>(lists.size());
+        for (PendingList list : lists) {
+            List<Map<String, Object>> rows = new ArrayList<>(list.recommendations.size());
+            for (Recommendation recommendation : list.recommendations) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("movieId", recommendation.getMovieId());
+                row.put("score", recommendation.getScore() != null ? recommendation.getScore() : 0.0);
+                row.put("reason", recommendation.getReason());
+                rows.add(row);
+            }
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("userId", list.userId);
+            entry.put("algorithm", list.algorithm);
+            entry.put("generatedAt", generatedAtIso);
+            entry.put("rows", rows);
+            entries.add(entry);
+        }
+
+        Long written = recommendationRepository.saveRecommendationLists(entries);
+
+        Set<String> userIds = new HashSet<>();
+        for (PendingList list : lists) {
+            lastRefreshed.put(key(list.userId, list.algorithm), generatedAt);
+            dirtySince.computeIfPresent(list.userId, (id, changedAt) -> changedAt > list.startedAt ? changedAt : null);
+            userIds.add(list.userId);
+        }
+        // Cached pages of these users' recommendations now show the old lists
+        cacheInvalidator.evictUsers(userIds);
+        logger.debug("Stored {} recommendations in {} lists", written, lists.size());
+    }
+
+    /**
+     * True if the list should be regenerated: too old, or the user rated something since.
+     */
+    public boolean isStale(String userId, StoredList list) {
+        Long changedAt = dirtySince.get(userId);
+        return (changedAt != null && changedAt > list.getGeneratedAt())
+                || System.currentTimeMillis() - list.getGeneratedAt() > ttlMs;
+    }
+
+    /**
+     * Claim the refresh of a list; false if one is already queued or running.
+     */
+    public boolean tryStartRefresh(String userId, String algorithm) {
+        return refreshing.add(key(userId, algorithm));
+    }
+
+    public void finishRefresh(String userId, String algorithm) {
+        refreshing.remove(key(userId, algorithm));
+    }
+
+    private static String key(String userId, String algorithm) {
+        return userId + '|' + algorithm;
+    }
+
+    /**
+     * A freshly generated list waiting to be written.
+     */
+    public static final class PendingList {
+
+        private final String userId;
+        private final String algorithm;
+        private final List<Recommendation> recommendations;
+        private final long startedAt;
+
+        /**
+         * @param startedAt when generation started; ratings newer than this keep the list dirty
+         */
+        public PendingList(String userId, String algorithm, List<Recommendation> recommendations, long startedAt) {
+            this.userId = userId;
+            this.algorithm = algorithm;
+            this.recommendations = recommendations;
+            this.startedAt = startedAt;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+    }
+
+    /**
+     * A stored list with the movie title and average rating of each entry.
+     */
+    public static final class StoredList {
+
+        private final List<Recommendation> recommendations;
+        private final List<String> movieTitles;
+        private final List<Double> movieRatings;
+        private final long generatedAt;
+
+        StoredList(List<Recommendation> recommendations, List<String> movieTitles,
+                   List<Double> movieRatings, long generatedAt) {
+            this.recommendations = recommendations;
+            this.movieTitles = movieTitles;
+            this.movieRatings = movieRatings;
+            this.generatedAt = generatedAt;
+        }
+
+        public List<Recommendation> getRecommendations() {
+            return recommendations;
+        }
+
+        public String getMovieTitle(int index) {
+            return movieTitles.get(index);
+        }
+
+        public Double getMovieRating(int index) {
+            return movieRatings.get(index);
+        }
+
+        /**
+         * Epoch millis of the generation that produced the list.
+         */
+        public long getGeneratedAt() {
+            return generatedAt;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.neo4flix.movieservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Debounces refresh requests for stored recommendation lists.
+ *
+ * Every rating change asks for a refresh of its user's list, so a user rating ten movies
+ * in a row would otherwise regenerate the same list ten times. A request only marks the
+ * list pending; the list is regenerated once no further request has arrived for the quiet
+ * period, or once the oldest pending request has waited the maximum delay, whichever is
+ * first. A list whose refresh is still running stays pending until the next flush.
+ */
+@Component
+public class RefreshDebouncer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshDebouncer.class);
+
+    private final RecommendationGenerator recommendationGenerator;
+    private final RecommendationStore recommendationStore;
+    private final TaskExecutor taskExecutor;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    @Value("${neo4flix.recommendation.coalescing.quiet-ms:2000}")
+    private long quietMs;
+
+    @Value("${neo4flix.recommendation.coalescing.max-delay-ms:10000}")
+    private long maxDelayMs;
+
+    public RefreshDebouncer(RecommendationGenerator recommendationGenerator,
+                            RecommendationStore recommendationStore,
+                            @Qualifier("taskExecutor") TaskExecutor taskExecutor) {
+        this.recommendationGenerator = recommendationGenerator;
+        this.recommendationStore = recommendationStore;
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Ask for the user's list to be regenerated after the current burst of requests.
+     */
+    public void request(String userId, String algorithm) {
+        long now = System.currentTimeMillis();
+        pending.compute(userId + '|' + algorithm, (key, existing) -> {
+            if (existing == null) {
+                return new Pending(userId, algorithm, now);
+            }
+            existing.lastRequestedAt = now;
+            return existing;
+        });
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @Scheduled(fixedDelayString = "${neo4flix.recommendation.coalescing.flush-interval-ms:500}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+            Pending refresh = entry.getValue();
+            boolean quiet = now - refresh.lastRequestedAt >= quietMs;
+            boolean overdue = now - refresh.firstRequestedAt >= maxDelayMs;
+            if (!quiet && !overdue) {
+                continue;
+            }
+            if (!recommendationStore.tryStartRefresh(refresh.userId, refresh.algorithm)) {
+                // Already being regenerated, possibly from data older than the last request
+                continue;
+            }
+            // A request arriving after this removal opens a new pending entry and a later refresh
+            pending.remove(entry.getKey(), refresh);
+            start(refresh);
+        }
+    }
+
+    private void start(Pending refresh) {
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    recommendationGenerator.regenerate(refresh.userId, refresh.algorithm);
+                } catch (Exception e) {
+                    logger.warn("Debounced refresh of {} recommendations for user {} failed: {}",
+                            refresh.algorithm, refresh.userId, e.getMessage());
+                } finally {
+                    recommendationStore.finishRefresh(refresh.userId, refresh.algorithm);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            recommendationStore.finishRefresh(refresh.userId, refresh.algorithm);
+            // Put it back for the next flush unless a newer request already did
+            pending.putIfAbsent(refresh.userId + '|' + refresh.algorithm, refresh);
+            logger.warn("Background executor saturated, delaying refresh of {} recommendations for user {}",
+                    refresh.algorithm, refresh.userId);
+        }
+    }
+
+    private static final class Pending {
+
+        private final String userId;
+        private final String algorithm;
+        private final long firstRequestedAt;
+        private volatile long lastRequestedAt;
+
+        Pending(String userId, String algorithm, long requestedAt) {
+            this.userId = userId;
+            this.algorithm = algorithm;
+            this.firstRequestedAt = requestedAt;
+            this.lastRequestedAt = requestedAt;
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.engine.HnswIndex;
+import com.neo4flix.movieservice.engine.IdInterner;
+import com.neo4flix.movieservice.engine.MatrixFactorization;
+import com.neo4flix.movieservice.engine.MovieFeatureEncoder;
+import com.neo4flix.movieservice.engine.SparseRatingMatrix;
+import com.neo4flix.movieservice.engine.TopK;
+import com.neo4flix.movieservice.event.MovieChangedEvent;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Approximate nearest-neighbour index of movies by content, backing the similar-movies endpoint.
+ *
+ * Every movie is encoded by MovieFeatureEncoder (genres, directors, actors, release year and
+ * optionally its matrix factorization factors) and inserted into an in-process HNSW graph, so
+ * a similar-movies lookup is a graph search in memory instead of a Cypher query comparing the
+ * movie against the whole catalogue.
+ *
+ * On startup the index is read back from a memory-mapped snapshot file when one exists, and
+ * only rebuilt from the database otherwise. Movies reported through MovieChangedEvents are
+ * re-read and relinked in batches; a movie that is looked up before it was indexed is queued
+ * for the next batch and answered by the graph query meanwhile. The whole index is rebuilt on a long schedule (which also picks up new genres) and
+ * the snapshot is rewritten whenever the index has changed.
+ */
+@Component
+public class SimilarMovieIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SimilarMovieIndex.class);
+
+    private static final int FILE_MAGIC = 0x4e46534d; // "NFSM"
+    private static final int FILE_VERSION = 1;
+
+    private static final String GENRES_QUERY = """
+        MATCH (g:Genre)
+        WHERE g.name IS NOT NULL
+        RETURN DISTINCT g.name AS name
+        ORDER BY name
+        """;
+
+    private static final String MOVIE_FEATURES = """
+        RETURN m.id AS movieId, m.title AS title, m.releaseYear AS releaseYear,
+               COALESCE(m.averageRating, 0.0) AS averageRating,
+               [(m)-[:IN_GENRE]->(g:Genre) | g.name] AS genres,
+               [(d:Director)-[:DIRECTED]->(m) | d.name] AS directors,
+               [(a:Actor)-[:ACTED_IN]->(m) | a.name] AS actors
+        """;
+
+    private static final String LOAD_ALL_QUERY = "MATCH (m:Movie) WHERE m.id IS NOT NULL\n" + MOVIE_FEATURES;
+
+    private static final String LOAD_MOVIES_QUERY = "MATCH (m:Movie) WHERE m.id IN $movieIds\n" + MOVIE_FEATURES;
+
+    private final Driver neo4jDriver;
+    private final TaskExecutor taskExecutor;
+    private final MatrixFactorizationService mfService;
+    private final RatingMatrixService ratingMatrix;
+
+    @Value("${neo4flix.recommendation.similar.m:16}")
+    private int m;
+
+    @Value("${neo4flix.recommendation.similar.ef-construction:200}")
+    private int efConstruction;
+
+    @Value("${neo4flix.recommendation.similar.ef-search:64}")
+    private int efSearch;
+
+    @Value("${neo4flix.recommendation.similar.include-mf-factors:false}")
+    private boolean includeFactors;
+
+    @Value("${neo4flix.recommendation.similar.index-file:${java.io.tmpdir}/neo4flix/similar-movies.idx}")
+    private String indexFile;
+
+    private final Set<String> dirtyMovies = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final Object updateLock = new Object();
+
+    private volatile State state;
+    private volatile boolean persisted = true;
+
+    public SimilarMovieIndex(Driver neo4jDriver,
+                             @Qualifier("taskExecutor") TaskExecutor taskExecutor,
+                             MatrixFactorizationService mfService,
+                             RatingMatrixService ratingMatrix) {
+        this.neo4jDriver = neo4jDriver;
+        this.taskExecutor = taskExecutor;
+        this.mfService = mfService;
+        this.ratingMatrix = ratingMatrix;
+    }
+
+    public boolean isReady() {
+        return state != null;
+    }
+
+    /**
+     * Movies most similar to the given one, or null while the index is not ready yet or
+     * does not contain the movie; the caller then falls back to the graph query.
+     */
+    public List<SimilarMovie> findSimilar(String movieId, int limit) {
+        State current = state;
+        if (current == null) {
+            return null;
+        }
+
+        int node = current.movieIds.indexOf(movieId);
+        if (node < 0 || !current.index.contains(node)) {
+            // Not indexed yet (created since the last rebuild), or an unknown id: the next flush
+            // reads it off the request thread, and removes it again if it does not exist
+            dirtyMovies.add(movieId);
+            return null;
+        }
+
+        int self = node;
+        TopK top = current.index.search(current.index.vector(node), limit, Math.max(efSearch, limit + 1),
+                candidate -> candidate == self);
+
+        SparseRatingMatrix matrix = ratingMatrix.getMatrix();
+        IdInterner ratedMovies = ratingMatrix.getMovieIds();
+        List<SimilarMovie> similar = new ArrayList<>(top.size());
+        for (int rank = 0; rank < top.size(); rank++) {
+            String similarId = current.movieIds.idOf(top.id(rank));
+            MovieEntry entry = current.entries.get(similarId);
+
+            // Prefer the live average from the rating matrix over the one captured at indexing time
+            double averageRating = entry != null ? entry.averageRating : 0.0;
+            int rated = ratedMovies.indexOf(similarId);
+            if (rated >= 0 && rated < matrix.numMovies() && matrix.ratingCountOfMovie(rated) > 0) {
+                averageRating = matrix.meanRatingOfMovie(rated);
+            }
+            similar.add(new SimilarMovie(similarId, entry != null ? entry.title : null,
+                    averageRating, Math.max(0.0, top.score(rank))));
+        }
+        return similar;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        taskExecutor.execute(() -> {
+            if (!loadSnapshot()) {
+                rebuild();
+            }
+        });
+    }
+
+    @EventListener
+    public void onMovieChanged(MovieChangedEvent event) {
+        if (event.getMovieId() != null) {
+            dirtyMovies.add(event.getMovieId());
+        }
+    }
+
+    /**
+     * Rebuild the whole index from the database and swap it in.
+     */
+    @Scheduled(initialDelayString = "${neo4flix.recommendation.similar.rebuild-interval-ms:86400000}",
+               fixedDelayString = "${neo4flix.recommendation.similar.rebuild-interval-ms:86400000}")
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try (Session session = neo4jDriver.session()) {
+            List<String> genres = session.run(GENRES_QUERY).list(row -> row.get("name").asString());
+            MatrixFactorization model = includeFactors ? mfService.getModel() : null;
+            MovieFeatureEncoder encoder = new MovieFeatureEncoder(genres, model != null ? model.rank() : 0);
+
+            State built = new State(encoder, new HnswIndex(encoder.dimension(), m, efConstruction, start),
+                    new IdInterner(), new ConcurrentHashMap<>());
+            session.run(LOAD_ALL_QUERY).forEachRemaining(row -> built.upsert(row, factorsOf(model, row)));
+
+            synchronized (updateLock) {
+                state = built;
+                persisted = false;
+            }
+            logger.info("Similar movie index built in {} ms: {}", System.currentTimeMillis() - start, built.index);
+        } catch (Exception e) {
+            logger.error("Failed to build similar movie index: {}", e.getMessage(), e);
+        } finally {
+            rebuilding.set(false);
+        }
+        saveSnapshot();
+    }
+
+    /**
+     * Re-read movies reported as changed and relink them in the current index.
+     */
+    @Scheduled(fixedDelayString = "${neo4flix.recommendation.similar.flush-interval-ms:10000}")
+    public void flushDirtyMovies() {
+        if (state == null || dirtyMovies.isEmpty()) {
+            return;
+        }
+
+        List<String> batch = new ArrayList<>();
+        Iterator<String> iterator = dirtyMovies.iterator();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+        if (!updateMovies(batch)) {
+            dirtyMovies.addAll(batch);
+        }
+    }
+
+    /**
+     * Write the snapshot file if the index changed since it was last written.
+     */
+    @Scheduled(fixedDelayString = "${neo4flix.recommendation.similar.persist-interval-ms:60000}")
+    public void saveSnapshot() {
+        synchronized (updateLock) {
+            State current = state;
+            if (current == null || persisted) {
+                return;
+            }
+
+            long start = System.currentTimeMillis();
+            Path target = Paths.get(indexFile);
+            Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+            try {
+                byte[] header = current.header();
+                long size = header.length + current.index.serializedSize();
+
+                Files.createDirectories(target.toAbsolutePath().getParent());
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                    buffer.put(header);
+                    current.index.writeTo(buffer);
+                    buffer.force();
+                }
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                persisted = true;
+                logger.info("Similar movie index written to {} ({} bytes) in {} ms",
+                        target, size, System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                logger.warn("Failed to write similar movie index to {}: {}", target, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Upsert the given movies; movies no longer in the database are removed from the index.
+     */
+    private boolean updateMovies(List<String> movieIds) {
+        List<Record> rows;
+        try (Session session = neo4jDriver.session()) {
+            rows = session.run(LOAD_MOVIES_QUERY, Map.of("movieIds", movieIds)).list();
+        } catch (Exception e) {
+            logger.warn("Failed to reload {} movies for the similar movie index: {}", movieIds.size(), e.getMessage());
+            return false;
+        }
+
+        boolean unknownGenre = false;
+        synchronized (updateLock) {
+            State current = state;
+            if (current == null) {
+                return true;
+            }
+            MatrixFactorization model = current.encoder.factorRank() > 0 ? mfService.getModel() : null;
+            if (model != null && model.rank() != current.encoder.factorRank()) {
+                model = null;
+            }
+
+            Set<String> found = new HashSet<>();
+            for (Record row : rows) {
+                found.add(row.get("movieId").asString());
+                unknownGenre |= current.upsert(row, factorsOf(model, row));
+            }
+            for (String movieId : movieIds) {
+                int node = current.movieIds.indexOf(movieId);
+                if (!found.contains(movieId) && node >= 0) {
+                    current.index.remove(node);
+                    current.entries.remove(movieId);
+                }
+            }
+            persisted = false;
+        }
+        if (rebuilding.get()) {
+            // The rebuild in progress may have read these movies before they changed
+            dirtyMovies.addAll(movieIds);
+        }
+
+        logger.debug("Similar movie index updated for {} movies", movieIds.size());
+        if (unknownGenre) {
+            logger.info("New genre found, rebuilding similar movie index");
+            taskExecutor.execute(this::rebuild);
+        }
+        return true;
+    }
+
+    private float[] factorsOf(MatrixFactorization model, Record row) {
+        if (model == null) {
+            return null;
+        }
+        return model.movieFactors(ratingMatrix.getMovieIds().indexOf(row.get("movieId").asString()));
+    }
+
+    private boolean loadSnapshot() {
+        Path path = Paths.get(indexFile);
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+
+        long start = System.currentTimeMillis();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            State loaded = State.readFrom(buffer);
+            if (includeFactors != loaded.encoder.factorRank() > 0) {
+                logger.info("Similar movie index snapshot was built with different features, rebuilding");
+                return false;
+            }
+            synchronized (updateLock) {
+                state = loaded;
+                persisted = true;
+            }
+            logger.info("Similar movie index loaded from {} in {} ms: {}",
+                    path, System.currentTimeMillis() - start, loaded.index);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Could not read similar movie index from {}, rebuilding: {}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * One generation of the index: the encoder it was built with, the graph, and the
+     * movie id / title mapping of its nodes.
+     */
+    private static final class State {
+
+        final MovieFeatureEncoder encoder;
+        final HnswIndex index;
+        final IdInterner movieIds;
+        final Map<String, MovieEntry> entries;
+
+        State(MovieFeatureEncoder encoder, HnswIndex index, IdInterner movieIds, Map<String, MovieEntry> entries) {
+            this.encoder = encoder;
+            this.index = index;
+            this.movieIds = movieIds;
+            this.entries = entries;
+        }
+
+        /**
+         * Encode and insert one movie row; returns true if it has a genre the encoder does not know.
+         */
+        boolean upsert(Record row, float[] factors) {
+            String movieId = row.get("movieId").asString();
+            List<String> genres = row.get("genres").asList(v -> v.asString(null));
+            List<String> directors = row.get("directors").asList(v -> v.asString(null));
+            List<String> actors = row.get("actors").asList(v -> v.asString(null));
+            Integer releaseYear = row.get("releaseYear").isNull() ? null : row.get("releaseYear").asInt();
+
+            index.insert(movieIds.intern(movieId), encoder.encode(genres, directors, actors, releaseYear, factors));
+            entries.put(movieId, new MovieEntry(row.get("title").asString(null), row.get("averageRating").asDouble()));
+            return genres.stream().anyMatch(genre -> genre != null && !encoder.knowsGenre(genre));
+        }
+
+        byte[] header() {
+            List<byte[]> genres = new ArrayList<>();
+            int size = 5 * Integer.BYTES;
+            for (String genre : encoder.genres()) {
+                byte[] bytes = genre.getBytes(StandardCharsets.UTF_8);
+                genres.add(bytes);
+                size += Integer.BYTES + bytes.length;
+            }
+            List<byte[]> ids = new ArrayList<>();
+            List<byte[]> titles = new ArrayList<>();
+            for (int node = 0; node < movieIds.size(); node++) {
+                String movieId = movieIds.idOf(node);
+                MovieEntry entry = entries.get(movieId);
+                byte[] id = movieId.getBytes(StandardCharsets.UTF_8);
+                byte[] title = entry != null && entry.title != null
+                        ? entry.title.getBytes(StandardCharsets.UTF_8) : new byte[0];
+                ids.add(id);
+                titles.add(title);
+                size += 2 * Integer.BYTES + id.length + title.length + Double.BYTES;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            buffer.putInt(FILE_MAGIC).putInt(FILE_VERSION).putInt(encoder.factorRank()).putInt(genres.size());
+            for (byte[] genre : genres) {
+                buffer.putInt(genre.length).put(genre);
+            }
+            buffer.putInt(ids.size());
+            for (int node = 0; node < ids.size(); node++) {
+                MovieEntry entry = entries.get(movieIds.idOf(node));
+                buffer.putInt(ids.get(node).length).put(ids.get(node))
+                      .putInt(titles.get(node).length).put(titles.get(node))
+                      .putDouble(entry != null ? entry.averageRating : 0.0);
+            }
+            return buffer.array();
+        }
+
+        static State readFrom(ByteBuffer buffer) throws IOException {
+            if (buffer.getInt() != FILE_MAGIC || buffer.getInt() != FILE_VERSION) {
+                throw new IOException("unrecognised file format");
+            }
+            int factorRank = buffer.getInt();
+            int genreCount = buffer.getInt();
+            List<String> genres = new ArrayList<>(genreCount);
+            for (int i = 0; i < genreCount; i++) {
+                genres.add(readString(buffer));
+            }
+
+            IdInterner movieIds = new IdInterner();
+            Map<String, MovieEntry> entries = new ConcurrentHashMap<>();
+            int movieCount = buffer.getInt();
+            for (int node = 0; node < movieCount; node++) {
+                String movieId = readString(buffer);
+                String title = readString(buffer);
+                double averageRating = buffer.getDouble();
+                movieIds.intern(movieId);
+                entries.put(movieId, new MovieEntry(title.isEmpty() ? null : title, averageRating));
+            }
+
+            MovieFeatureEncoder encoder = new MovieFeatureEncoder(genres, factorRank);
+            HnswIndex index = HnswIndex.readFrom(buffer);
+            if (index.dimension() != encoder.dimension()) {
+                throw new IOException("index dimension does not match its features");
+            }
+            return new State(encoder, index, movieIds, entries);
+        }
+
+        private static String readString(ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class MovieEntry {
+
+        final String title;
+        final double averageRating;
+
+        MovieEntry(String title, double averageRating) {
+            this.title = title;
+            this.averageRating = averageRating;
+        }
+    }
+
+    /**
+     * One similar-movies result.
+     */
+    public static final class SimilarMovie {
+
+        private final String movieId;
+        private final String title;
+        private final double averageRating;
+        private final double similarity;
+
+        public SimilarMovie(String movieId, String title, double averageRating, double similarity) {
+            this.movieId = movieId;
+            this.title = title;
+            this.averageRating = averageRating;
+            this.similarity = similarity;
+        }
+
+        public String getMovieId() {
+            return movieId;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public double getAverageRating() {
+            return averageRating;
+        }
+
+        /**
+         * Cosine similarity of the two movies' feature vectors, 0 to 1.
+         */
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+}
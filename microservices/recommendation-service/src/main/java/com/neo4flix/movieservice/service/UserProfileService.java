@@ -0,0 +1,629 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.engine.IdInterner;
+import com.neo4flix.movieservice.engine.PreferenceProfile;
+import com.neo4flix.movieservice.engine.SparseRatingMatrix;
+import com.neo4flix.movieservice.engine.TopK;
+import com.neo4flix.movieservice.event.MovieChangedEvent;
+import com.neo4flix.movieservice.event.RatingChangedEvent;
+import com.neo4flix.movieservice.event.RatingMatrixReloadedEvent;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user content preference profiles for the content-based algorithm.
+ *
+ * Every movie is encoded once as a sparse, unit-length feature vector over a shared
+ * vocabulary of genres, directors, actors and release decades. A user's profile is the
+ * sum of the vectors of the movies they rated, each weighted by how far the rating is
+ * from NEUTRAL_RATING, so liked movies pull towards their features and disliked ones
+ * push away. A detailed RatingChangedEvent takes the old rating's contribution out and
+ * adds the new one, touching only that movie's features; content scoring is then one
+ * pass of sparse dot products over the candidate movies, in memory.
+ *
+ * Profiles are rebuilt from the rating matrix after every full reload of it, and the
+ * movie vectors are re-read on the same long schedule. Users whose change came without
+ * details, or arrived while a rebuild was running, are re-read from their Rating nodes
+ * on the next flush; changed movies are re-encoded then too, and profiles built from
+ * their old features catch up at the next rebuild. So are users whose change did not
+ * happen after their profile was built (see DatabaseClock): the profile may already
+ * contain it, and applying it again would count it twice.
+ */
+@Component
+public class UserProfileService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserProfileService.class);
+
+    // Ratings above pull a profile towards a movie's features, ratings below push it away
+    private static final float NEUTRAL_RATING = 3.0f;
+
+    private static final float GENRE_WEIGHT = 1.0f;
+    private static final float DIRECTOR_WEIGHT = 0.8f;
+    private static final float ACTOR_WEIGHT = 0.6f;
+    private static final float DECADE_WEIGHT = 0.4f;
+
+    private static final String MOVIE_FEATURES = """
+        RETURN m.id AS movieId, m.releaseYear AS releaseYear,
+               COALESCE(m.averageRating, 0.0) AS averageRating,
+               [(m)-[:IN_GENRE]->(g:Genre) | g.name] AS genres,
+               [(d:Director)-[:DIRECTED]->(m) | d.name] AS directors,
+               [(a:Actor)-[:ACTED_IN]->(m) | a.name] AS actors
+        """;
+
+    private static final String LOAD_ALL_MOVIES_QUERY = "MATCH (m:Movie) WHERE m.id IS NOT NULL\n" + MOVIE_FEATURES;
+
+    private static final String LOAD_MOVIES_QUERY = "MATCH (m:Movie) WHERE m.id IN $movieIds\n" + MOVIE_FEATURES;
+
+    private static final String LOAD_USERS_QUERY = """
+        MATCH (r:Rating)
+        WHERE r.userId IN $userIds AND r.movieId IS NOT NULL AND r.rating IS NOT NULL
+        RETURN r.userId AS userId, r.movieId AS movieId, r.rating AS rating
+        """;
+
+    private final Driver neo4jDriver;
+    private final TaskExecutor taskExecutor;
+    private final RatingMatrixService ratingMatrix;
+    private final IdInterner movieIds;
+    private final IdInterner featureIds = new IdInterner();
+
+    private final Set<String> dirtyUsers = ConcurrentHashMap.newKeySet();
+    private final Set<String> dirtyMovies = ConcurrentHashMap.newKeySet();
+    private final Object updateLock = new Object();
+    private final Object rebuildLock = new Object();
+
+    // Indexed like the rating matrix; null for movies not loaded (or deleted)
+    private volatile MovieFeatures[] movieFeatures;
+    private volatile Map<String, PreferenceProfile> profiles;
+    private boolean rebuilding;
+    // Database time by which every profile was built, and later per user for re-read ones; guarded by updateLock
+    private long profilesBuiltAt;
+    private final Map<String, Long> userBuiltAt = new HashMap<>();
+
+    public UserProfileService(Driver neo4jDriver,
+                              @Qualifier("taskExecutor") TaskExecutor taskExecutor,
+                              RatingMatrixService ratingMatrix) {
+        this.neo4jDriver = neo4jDriver;
+        this.taskExecutor = taskExecutor;
+        this.ratingMatrix = ratingMatrix;
+        this.movieIds = ratingMatrix.getMovieIds();
+    }
+
+    public boolean isReady() {
+        return profiles != null;
+    }
+
+    /**
+     * Movies whose features best match the user's profile, best first, skipping the
+     * movies they rated. Returns null while profiles are not built or the user has no
+     * ratings yet, so that callers can fall back.
+     *
+     * @param genres         only movies in any of these genres, or null for all
+     * @param minMovieRating minimum average rating of a returned movie
+     */
+    public List<ContentMatch> recommend(String userId, int limit, List<String> genres, double minMovieRating) {
+        PreferenceProfile profile = profileOf(userId);
+        MovieFeatures[] movies = movieFeatures;
+        if (profile == null || movies == null || profile.ratings() == 0) {
+            return null;
+        }
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        int[] genreFilter = null;
+        if (genres != null && !genres.isEmpty()) {
+            genreFilter = genres.stream()
+                    .mapToInt(genre -> featureIds.indexOf(featureKey(FeatureKind.GENRE, genre)))
+                    .filter(feature -> feature >= 0)
+                    .toArray();
+        }
+
+        SparseRatingMatrix matrix = ratingMatrix.getMatrix();
+        int user = ratingMatrix.getUserIds().indexOf(userId);
+        boolean hasRow = user >= 0 && user < matrix.numUsers();
+
+        TopK top = new TopK(limit);
+        for (int movie = 0; movie < movies.length; movie++) {
+            MovieFeatures features = movies[movie];
+            if (features == null || (hasRow && matrix.hasRated(user, movie))) {
+                continue;
+            }
+            if (genreFilter != null && !features.hasAny(genreFilter)) {
+                continue;
+            }
+            float score = profile.dot(features.features, features.weights);
+            if (score <= 0f || score <= top.threshold()) {
+                continue;
+            }
+            if (averageRating(matrix, movie, features) < minMovieRating) {
+                continue;
+            }
+            top.offer(movie, score);
+        }
+
+        List<ContentMatch> matches = new ArrayList<>(top.size());
+        for (int rank = 0; rank < top.size(); rank++) {
+            int movie = top.id(rank);
+            MovieFeatures features = movies[movie];
+            matches.add(new ContentMatch(movieIds.idOf(movie), top.score(rank),
+                    averageRating(matrix, movie, features), strongestFeature(profile, features)));
+        }
+        return matches;
+    }
+
+    /**
+     * Cosine of the user's profile and the movie's features, 0 if either is unknown.
+     */
+    public double affinity(String userId, String movieId) {
+        PreferenceProfile profile = profileOf(userId);
+        MovieFeatures[] movies = movieFeatures;
+        int movie = movieIds.indexOf(movieId);
+        if (profile == null || movies == null || movie < 0 || movie >= movies.length || movies[movie] == null) {
+            return 0.0;
+        }
+        return Math.max(0.0, profile.dot(movies[movie].features, movies[movie].weights));
+    }
+
+    /**
+     * The user's affinity to one genre, positive if they tend to rate it above NEUTRAL_RATING.
+     */
+    public double genreAffinity(String userId, String genre) {
+        PreferenceProfile profile = profileOf(userId);
+        int feature = featureIds.indexOf(featureKey(FeatureKind.GENRE, genre));
+        if (profile == null || feature < 0 || profile.ratings() == 0) {
+            return 0.0;
+        }
+        return profile.weight(feature) / profile.ratings();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        taskExecutor.execute(this::reloadAll);
+    }
+
+    @EventListener
+    public void onMatrixReloaded(RatingMatrixReloadedEvent event) {
+        if (movieFeatures != null) {
+            rebuildProfiles(event.getMatrix());
+        }
+    }
+
+    @EventListener
+    public void onMovieChanged(MovieChangedEvent event) {
+        if (event.getMovieId() != null) {
+            dirtyMovies.add(event.getMovieId());
+        }
+    }
+
+    @EventListener
+    public void onRatingChanged(RatingChangedEvent event) {
+        String userId = event.getUserId();
+        if (userId == null) {
+            return;
+        }
+        if (event.getMovieId() == null || (event.getPreviousRating() == null && event.getNewRating() == null)) {
+            dirtyUsers.add(userId);
+            return;
+        }
+
+        synchronized (updateLock) {
+            MovieFeatures[] movies = movieFeatures;
+            int movie = movieIds.indexOf(event.getMovieId());
+            if (profiles == null || rebuilding
+                    || !event.occurredAfter(Math.max(profilesBuiltAt, userBuiltAt.getOrDefault(userId, 0L)))) {
+                dirtyUsers.add(userId);
+                return;
+            }
+            if (movies == null || movie < 0 || movie >= movies.length || movies[movie] == null) {
+                // Movie not encoded yet: encode it, then rebuild the profile from the database
+                dirtyMovies.add(event.getMovieId());
+                dirtyUsers.add(userId);
+                return;
+            }
+
+            MovieFeatures features = movies[movie];
+            PreferenceProfile profile = profiles.computeIfAbsent(userId, id -> new PreferenceProfile());
+            synchronized (profile) {
+                if (event.getPreviousRating() != null) {
+                    profile.add(features.features, features.weights, affinityOf(event.getPreviousRating()), -1);
+                }
+                if (event.getNewRating() != null) {
+                    profile.add(features.features, features.weights, affinityOf(event.getNewRating()), 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-encode every movie and, once the rating matrix is loaded, rebuild every profile.
+     */
+    @Scheduled(initialDelayString = "${neo4flix.recommendation.profiles.reload-interval-ms:21600000}",
+               fixedDelayString = "${neo4flix.recommendation.profiles.reload-interval-ms:21600000}")
+    public void reloadAll() {
+        long start = System.currentTimeMillis();
+        MovieFeatures[] loaded = new MovieFeatures[movieIds.size()];
+        try (Session session = neo4jDriver.session()) {
+            for (Record row : session.run(LOAD_ALL_MOVIES_QUERY).list()) {
+                int movie = movieIds.intern(row.get("movieId").asString());
+                if (movie >= loaded.length) {
+                    loaded = Arrays.copyOf(loaded, Math.max(movie + 1, loaded.length * 2));
+                }
+                loaded[movie] = encode(row);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to load movie features for user profiles: {}", e.getMessage(), e);
+            return;
+        }
+
+        synchronized (updateLock) {
+            movieFeatures = loaded;
+        }
+        logger.info("Movie features for user profiles loaded: {} movies, {} features in {} ms",
+                loaded.length, featureIds.size(), System.currentTimeMillis() - start);
+
+        if (ratingMatrix.isLoaded()) {
+            rebuildProfiles(ratingMatrix.getMatrix());
+        }
+    }
+
+    /**
+     * Re-encode changed movies, then re-read the ratings of users that could not be
+     * updated incrementally.
+     */
+    @Scheduled(fixedDelayString = "${neo4flix.recommendation.profiles.flush-interval-ms:5000}")
+    public void flush() {
+        if (movieFeatures == null) {
+            return;
+        }
+        if (!dirtyMovies.isEmpty()) {
+            List<String> batch = drain(dirtyMovies);
+            if (!updateMovies(batch)) {
+                dirtyMovies.addAll(batch);
+                return;
+            }
+        }
+        if (profiles != null && !dirtyUsers.isEmpty()) {
+            List<String> batch = drain(dirtyUsers);
+            if (!updateUsers(batch)) {
+                dirtyUsers.addAll(batch);
+            }
+        }
+    }
+
+    private void rebuildProfiles(SparseRatingMatrix matrix) {
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+            synchronized (updateLock) {
+                rebuilding = true;
+            }
+
+            Map<String, PreferenceProfile> built = new ConcurrentHashMap<>();
+            long builtAt = 0L;
+            boolean complete = false;
+            try {
+                MovieFeatures[] movies = movieFeatures;
+                IdInterner userIds = ratingMatrix.getUserIds();
+                for (int user = 0; user < matrix.numUsers(); user++) {
+                    int rowStart = matrix.rowStart(user);
+                    int rowEnd = matrix.rowEnd(user);
+                    if (rowStart == rowEnd) {
+                        continue;
+                    }
+                    PreferenceProfile profile = new PreferenceProfile();
+                    for (int i = rowStart; i < rowEnd; i++) {
+                        int movie = matrix.rowMovie(i);
+                        if (movie < movies.length && movies[movie] != null) {
+                            profile.add(movies[movie].features, movies[movie].weights,
+                                    affinityOf(matrix.rowRating(i)), 1);
+                        }
+                    }
+                    built.put(userIds.idOf(user), profile);
+                }
+                // Changes applied to the matrix since its load may be in the profiles too
+                try (Session session = neo4jDriver.session()) {
+                    builtAt = DatabaseClock.now(session);
+                }
+                complete = true;
+            } catch (Exception e) {
+                logger.error("Failed to build user profiles: {}", e.getMessage(), e);
+            } finally {
+                synchronized (updateLock) {
+                    if (complete) {
+                        profiles = built;
+                        profilesBuiltAt = builtAt;
+                        userBuiltAt.clear();
+                    }
+                    rebuilding = false;
+                }
+            }
+            if (complete) {
+                logger.info("User profiles built for {} users in {} ms", built.size(), System.currentTimeMillis() - start);
+            }
+        }
+    }
+
+    private boolean updateMovies(List<String> batch) {
+        List<Record> rows;
+        try (Session session = neo4jDriver.session()) {
+            rows = session.run(LOAD_MOVIES_QUERY, Map.of("movieIds", batch)).list();
+        } catch (Exception e) {
+            logger.warn("Failed to reload features of {} movies, will retry: {}", batch.size(), e.getMessage());
+            return false;
+        }
+
+        synchronized (updateLock) {
+            MovieFeatures[] updated = Arrays.copyOf(movieFeatures, Math.max(movieFeatures.length, movieIds.size()));
+            for (String movieId : batch) {
+                int movie = movieIds.indexOf(movieId);
+                if (movie >= 0 && movie < updated.length) {
+                    updated[movie] = null;
+                }
+            }
+            for (Record row : rows) {
+                int movie = movieIds.intern(row.get("movieId").asString());
+                if (movie >= updated.length) {
+                    updated = Arrays.copyOf(updated, movie + 1);
+                }
+                updated[movie] = encode(row);
+            }
+            movieFeatures = updated;
+        }
+        logger.debug("Movie features updated for {} movies", batch.size());
+        return true;
+    }
+
+    private boolean updateUsers(List<String> batch) {
+        Map<String, PreferenceProfile> loaded = new HashMap<>();
+        long loadedAt;
+        synchronized (updateLock) {
+            if (rebuilding) {
+                return false;
+            }
+        }
+        try (Session session = neo4jDriver.session()) {
+            MovieFeatures[] movies = movieFeatures;
+            session.run(LOAD_USERS_QUERY, Map.of("userIds", batch)).forEachRemaining(row -> {
+                PreferenceProfile profile = loaded.computeIfAbsent(row.get("userId").asString(),
+                        id -> new PreferenceProfile());
+                int movie = movieIds.indexOf(row.get("movieId").asString());
+                if (movie >= 0 && movie < movies.length && movies[movie] != null) {
+                    profile.add(movies[movie].features, movies[movie].weights,
+                            affinityOf(row.get("rating").asDouble()), 1);
+                }
+            });
+            loadedAt = DatabaseClock.now(session);
+        } catch (Exception e) {
+            logger.warn("Failed to reload profiles of {} users, will retry: {}", batch.size(), e.getMessage());
+            return false;
+        }
+
+        synchronized (updateLock) {
+            if (rebuilding) {
+                return false;
+            }
+            for (String userId : batch) {
+                userBuiltAt.put(userId, loadedAt);
+                PreferenceProfile profile = loaded.get(userId);
+                if (profile != null) {
+                    profiles.put(userId, profile);
+                } else {
+                    profiles.remove(userId);
+                }
+            }
+        }
+        logger.debug("User profiles updated for {} users", batch.size());
+        return true;
+    }
+
+    private PreferenceProfile profileOf(String userId) {
+        Map<String, PreferenceProfile> current = profiles;
+        PreferenceProfile profile = current != null && userId != null ? current.get(userId) : null;
+        if (profile == null) {
+            return null;
+        }
+        synchronized (profile) {
+            return profile.copy();
+        }
+    }
+
+    /**
+     * Encode a movie row as a unit-length sparse vector: each block (genres, directors,
+     * actors, decade) is normalized on its own and scaled by its weight, so that a long
+     * cast does not drown out the genres.
+     */
+    private MovieFeatures encode(Record row) {
+        List<Integer> features = new ArrayList<>();
+        List<Float> weights = new ArrayList<>();
+        addBlock(FeatureKind.GENRE, row.get("genres").asList(v -> v.asString(null)), GENRE_WEIGHT, features, weights);
+        addBlock(FeatureKind.DIRECTOR, row.get("directors").asList(v -> v.asString(null)), DIRECTOR_WEIGHT, features, weights);
+        addBlock(FeatureKind.ACTOR, row.get("actors").asList(v -> v.asString(null)), ACTOR_WEIGHT, features, weights);
+        if (!row.get("releaseYear").isNull()) {
+            int decade = row.get("releaseYear").asInt() / 10 * 10;
+            addBlock(FeatureKind.DECADE, List.of(String.valueOf(decade)), DECADE_WEIGHT, features, weights);
+        }
+
+        double norm = 0.0;
+        for (float weight : weights) {
+            norm += weight * weight;
+        }
+        float scale = norm > 0.0 ? (float) (1.0 / Math.sqrt(norm)) : 0f;
+
+        int[] featureArray = new int[features.size()];
+        float[] weightArray = new float[features.size()];
+        for (int i = 0; i < featureArray.length; i++) {
+            featureArray[i] = features.get(i);
+            weightArray[i] = weights.get(i) * scale;
+        }
+        return new MovieFeatures(featureArray, weightArray, (float) row.get("averageRating").asDouble());
+    }
+
+    private void addBlock(FeatureKind kind, List<String> names, float blockWeight,
+                          List<Integer> features, List<Float> weights) {
+        List<Integer> block = new ArrayList<>();
+        for (String name : names) {
+            if (name != null) {
+                int feature = featureIds.intern(featureKey(kind, name));
+                if (!block.contains(feature)) {
+                    block.add(feature);
+                }
+            }
+        }
+        float weight = block.isEmpty() ? 0f : (float) (blockWeight / Math.sqrt(block.size()));
+        for (int feature : block) {
+            features.add(feature);
+            weights.add(weight);
+        }
+    }
+
+    private Feature strongestFeature(PreferenceProfile profile, MovieFeatures features) {
+        int best = -1;
+        float bestContribution = 0f;
+        for (int i = 0; i < features.features.length; i++) {
+            float contribution = profile.weight(features.features[i]) * features.weights[i];
+            if (contribution > bestContribution) {
+                bestContribution = contribution;
+                best = features.features[i];
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        String key = featureIds.idOf(best);
+        int separator = key.indexOf(':');
+        return new Feature(FeatureKind.valueOf(key.substring(0, separator)), key.substring(separator + 1));
+    }
+
+    // Prefer the live average from the rating matrix over the one stored on the movie
+    private static double averageRating(SparseRatingMatrix matrix, int movie, MovieFeatures features) {
+        if (movie < matrix.numMovies() && matrix.ratingCountOfMovie(movie) > 0) {
+            return matrix.meanRatingOfMovie(movie);
+        }
+        return features.averageRating;
+    }
+
+    private static float affinityOf(double rating) {
+        return (float) rating - NEUTRAL_RATING;
+    }
+
+    private static String featureKey(FeatureKind kind, String name) {
+        return kind.name() + ":" + name;
+    }
+
+    private static List<String> drain(Set<String> ids) {
+        List<String> batch = new ArrayList<>();
+        Iterator<String> iterator = ids.iterator();
+        while (iterator.hasNext()) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+        return batch;
+    }
+
+    public enum FeatureKind {
+        GENRE, DIRECTOR, ACTOR, DECADE
+    }
+
+    private static final class MovieFeatures {
+
+        final int[] features;
+        final float[] weights;
+        final float averageRating;
+
+        MovieFeatures(int[] features, float[] weights, float averageRating) {
+            this.features = features;
+            this.weights = weights;
+            this.averageRating = averageRating;
+        }
+
+        boolean hasAny(int[] wanted) {
+            for (int feature : features) {
+                for (int candidate : wanted) {
+                    if (feature == candidate) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * One feature of the vocabulary, e.g. the genre "Drama" or the decade "1990".
+     */
+    public static final class Feature {
+
+        private final FeatureKind kind;
+        private final String name;
+
+        public Feature(FeatureKind kind, String name) {
+            this.kind = kind;
+            this.name = name;
+        }
+
+        public FeatureKind getKind() {
+            return kind;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * One content-based result.
+     */
+    public static final class ContentMatch {
+
+        private final String movieId;
+        private final double score;
+        private final double averageRating;
+        private final Feature strongestFeature;
+
+        public ContentMatch(String movieId, double score, double averageRating, Feature strongestFeature) {
+            this.movieId = movieId;
+            this.score = score;
+            this.averageRating = averageRating;
+            this.strongestFeature = strongestFeature;
+        }
+
+        public String getMovieId() {
+            return movieId;
+        }
+
+        /**
+         * Cosine of the user's profile and the movie's features, 0 to 1.
+         */
+        public double getScore() {
+            return score;
+        }
+
+        public double getAverageRating() {
+            return averageRating;
+        }
+
+        /**
+         * The movie feature that contributed most to the score, or null.
+         */
+        public Feature getStrongestFeature() {
+            return strongestFeature;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.event.GraphProjectionRefreshedEvent;
+import com.neo4flix.movieservice.event.RatingChangedEvent;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed user-user similarity index stored as SIMILAR_TASTE relationships.
+ *
+ * A full batch run streams GDS Node Similarity over the live projection once and writes
+ * the top-K neighbours of every user. Between full runs, users whose ratings changed are
+ * marked dirty and their neighbour lists are recomputed individually from their own
+ * rating neighbourhood. Online collaborative recommendations then only need a one-hop
+ * lookup from the target user instead of an all-pairs similarity computation.
+ *
+ * Each relationship carries the generation of the run that wrote it, the database time
+ * it was written at; a full run removes everything older than itself once its own rows
+ * are in place, so readers never see an empty index while it is being rebuilt, and
+ * incremental rows written during the run are kept. Every replica is told about a
+ * projection refresh, but the full run is made by whichever takes the maintenance lease.
+ */
+@Component
+public class UserSimilarityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSimilarityIndex.class);
+
+    private static final String WRITE_ALL_QUERY = """
+        CALL gds.nodeSimilarity.stream($graphName, {
+            topK: $topK,
+            similarityCutoff: $similarityCutoff
+        })
+        YIELD node1, node2, similarity
+        CALL {
+            WITH node1, node2, similarity
+            MATCH (u1:User) WHERE id(u1) = node1
+            MATCH (u2:User) WHERE id(u2) = node2
+            MERGE (u1)-[s:SIMILAR_TASTE]->(u2)
+            SET s.score = similarity, s.generation = $generation
+        } IN TRANSACTIONS OF $batchSize ROWS
+        """;
+
+    private static final String DELETE_STALE_QUERY = """
+        MATCH ()-[s:SIMILAR_TASTE]->()
+        WHERE s.generation < $generation
+        CALL {
+            WITH s
+            DELETE s
+        } IN TRANSACTIONS OF $batchSize ROWS
+        """;
+
+    /**
+     * Recompute one user's neighbours with the same Jaccard measure GDS Node Similarity uses,
+     * restricted to users that share at least one rated movie with them.
+     */
+    private static final String WRITE_USER_QUERY = """
+        MATCH (u1:User {id: $userId})
+        OPTIONAL MATCH (u1)-[old:SIMILAR_TASTE]->()
+        DELETE old
+        WITH DISTINCT u1
+        WITH u1, COUNT { (u1)-[:RATED]->(:Rating)-[:RATED_MOVIE]->(:Movie) } AS degree1
+        MATCH (u1)-[:RATED]->(:Rating)-[:RATED_MOVIE]->(m:Movie)<-[:RATED_MOVIE]-(:Rating)<-[:RATED]-(u2:User)
+        WHERE u2 <> u1
+        WITH u1, degree1, u2, count(DISTINCT m) AS common
+        WITH u1, u2, common,
+             degree1 + COUNT { (u2)-[:RATED]->(:Rating)-[:RATED_MOVIE]->(:Movie) } - common AS unionSize
+        WITH u1, u2, toFloat(common) / unionSize AS similarity
+        WHERE similarity >= $similarityCutoff
+        ORDER BY similarity DESC
+        LIMIT $topK
+        MERGE (u1)-[s:SIMILAR_TASTE]->(u2)
+        SET s.score = similarity, s.generation = timestamp()
+        RETURN count(s) AS written
+        """;
+
+    private static final String LEASE_NAME = "similarity-rebuild";
+
+    private final Driver neo4jDriver;
+    private final MaintenanceLease maintenanceLease;
+
+    @Value("${neo4flix.recommendation.similarity.top-k:20}")
+    private int topK;
+
+    @Value("${neo4flix.recommendation.similarity.cutoff:0.1}")
+    private double similarityCutoff;
+
+    @Value("${neo4flix.recommendation.similarity.write-batch-size:10000}")
+    private int writeBatchSize;
+
+    @Value("${neo4flix.recommendation.similarity.incremental-batch-size:200}")
+    private int incrementalBatchSize;
+
+    // How long a full run may hold the lease, and how soon after one another may start
+    @Value("${neo4flix.recommendation.similarity.lease-ms:3600000}")
+    private long leaseMs;
+
+    @Value("${neo4flix.recommendation.similarity.min-rebuild-interval-ms:1800000}")
+    private long minRebuildIntervalMs;
+
+    private final Set<String> dirtyUsers = ConcurrentHashMap.newKeySet();
+
+    public UserSimilarityIndex(Driver neo4jDriver, MaintenanceLease maintenanceLease) {
+        this.neo4jDriver = neo4jDriver;
+        this.maintenanceLease = maintenanceLease;
+    }
+
+    /**
+     * Rebuild the whole index from the projection that has just gone live.
+     */
+    @EventListener
+    public void onProjectionRefreshed(GraphProjectionRefreshedEvent event) {
+        rebuildAll(event.getGraphName());
+    }
+
+    @EventListener
+    public void onRatingChanged(RatingChangedEvent event) {
+        markDirty(event.getUserId());
+    }
+
+    /**
+     * Queue a user for an incremental neighbour refresh.
+     */
+    public void markDirty(String userId) {
+        if (userId != null && !userId.isBlank()) {
+            dirtyUsers.add(userId);
+        }
+    }
+
+    public void rebuildAll(String graphName) {
+        Long runGeneration = maintenanceLease.tryAcquire(LEASE_NAME, leaseMs, minRebuildIntervalMs);
+        if (runGeneration == null) {
+            logger.debug("SIMILAR_TASTE rebuild from {} skipped - another replica holds or recently ran it", graphName);
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        logger.info("Rebuilding SIMILAR_TASTE index from projection {} (topK={}, cutoff={})",
+                graphName, topK, similarityCutoff);
+
+        boolean completed = false;
+        try (Session session = neo4jDriver.session()) {
+            session.run(WRITE_ALL_QUERY, Map.of(
+                    "graphName", graphName,
+                    "topK", topK,
+                    "similarityCutoff", similarityCutoff,
+                    "generation", runGeneration,
+                    "batchSize", writeBatchSize
+            )).consume();
+
+            session.run(DELETE_STALE_QUERY, Map.of(
+                    "generation", runGeneration,
+                    "batchSize", writeBatchSize
+            )).consume();
+
+            completed = true;
+            logger.info("SIMILAR_TASTE index rebuilt in {} ms", System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Failed to rebuild SIMILAR_TASTE index: {}", e.getMessage(), e);
+        } finally {
+            try {
+                if (completed) {
+                    maintenanceLease.complete(LEASE_NAME);
+                } else {
+                    maintenanceLease.release(LEASE_NAME);
+                }
+            } catch (Exception e) {
+                logger.warn("Failed to free the SIMILAR_TASTE rebuild lease: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Recompute neighbour lists for users whose ratings changed since the last run.
+     * Users that point at a dirty user keep their (slightly stale) score until the next full run.
+     */
+    @Scheduled(fixedDelayString = "${neo4flix.recommendation.similarity.incremental-interval-ms:30000}")
+    public void refreshDirtyUsers() {
+        if (dirtyUsers.isEmpty()) {
+            return;
+        }
+
+        List<String> batch = new ArrayList<>();
+        Iterator<String> iterator = dirtyUsers.iterator();
+        while (iterator.hasNext() && batch.size() < incrementalBatchSize) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+
+        int refreshed = 0;
+
+        try (Session session = neo4jDriver.session()) {
+            for (String userId : batch) {
+                try {
+                    session.run(WRITE_USER_QUERY, Map.of(
+                            "userId", userId,
+                            "topK", topK,
+                            "similarityCutoff", similarityCutoff
+                    )).consume();
+                    refreshed++;
+                } catch (Exception e) {
+                    logger.warn("Failed to refresh similar users for {}: {}", userId, e.getMessage());
+                    dirtyUsers.add(userId);
+                }
+            }
+        }
+
+        logger.debug("Refreshed SIMILAR_TASTE neighbours for {} of {} dirty users", refreshed, batch.size());
+    }
+}
@@ -1,24 +1,40 @@
 package com.neo4flix.movieservice.service.impl;
 
 import com.neo4flix.movieservice.algorithm.*;
+import com.neo4flix.movieservice.config.CacheConfig;
 import com.neo4flix.movieservice.dto.*;
+import com.neo4flix.movieservice.engine.SingleFlight;
+import com.neo4flix.movieservice.event.WatchlistChangedEvent;
 import com.neo4flix.movieservice.model.Recommendation;
 import com.neo4flix.movieservice.repository.MovieRepository;
 import com.neo4flix.movieservice.repository.RecommendationRepository;
 import com.neo4flix.movieservice.repository.UserRepository;
+import com.neo4flix.movieservice.service.ColdStartCatalog;
+import com.neo4flix.movieservice.service.InteractionLog;
+import com.neo4flix.movieservice.service.MovieSummaryCache;
+import com.neo4flix.movieservice.service.RecommendationCacheInvalidator;
+import com.neo4flix.movieservice.service.RecommendationGenerator;
+import com.neo4flix.movieservice.service.RecommendationPurger;
 import com.neo4flix.movieservice.service.RecommendationService;
+import com.neo4flix.movieservice.service.RecommendationStore;
+import com.neo4flix.movieservice.service.RefreshDebouncer;
+import com.neo4flix.movieservice.service.SimilarMovieIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -36,7 +52,23 @@ public class RecommendationServiceImpl implements RecommendationService {
     private final MovieRepository movieRepository;
     private final com.neo4flix.movieservice.repository.SharedRecommendationRepository sharedRecommendationRepository;
 
-    private final Map<String, RecommendationAlgorithm> algorithms;
+    private final CollaborativeFilteringAlgorithm collaborativeAlgorithm;
+    private final SimilarMovieIndex similarMovieIndex;
+    private final RecommendationStore recommendationStore;
+    private final TaskExecutor taskExecutor;
+    private final RecommendationGenerator recommendationGenerator;
+    private final RecommendationPurger recommendationPurger;
+    private final RefreshDebouncer refreshDebouncer;
+    private final RecommendationCacheInvalidator cacheInvalidator;
+    private final ColdStartCatalog coldStartCatalog;
+    private final MovieSummaryCache movieSummaries;
+    private final InteractionLog interactionLog;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Identical concurrent requests share one computation instead of each querying Neo4j
+    private final SingleFlight<String, List<RecommendationResponse>> generateFlights = new SingleFlight<>();
+    private final SingleFlight<String, List<Recommendation>> regenerateFlights = new SingleFlight<>();
+    private final Counter coalescedCounter;
 
     @Autowired
     public RecommendationServiceImpl(
@@ -44,61 +76,62 @@ public class RecommendationServiceImpl implements RecommendationService {
             UserRepository userRepository,
             MovieRepository movieRepository,
             com.neo4flix.movieservice.repository.SharedRecommendationRepository sharedRecommendationRepository,
-            ContentBasedFilteringAlgorithm contentBasedAlgorithm,
             CollaborativeFilteringAlgorithm collaborativeAlgorithm,
-            PopularityBasedAlgorithm popularityAlgorithm,
-            HybridRecommendationAlgorithm hybridAlgorithm,
-            GDSCollaborativeFilteringAlgorithm gdsCollaborativeAlgorithm,
-            GDSContentBasedAlgorithm gdsContentBasedAlgorithm,
-            GDSPageRankAlgorithm gdsPageRankAlgorithm,
-            GDSHybridAlgorithm gdsHybridAlgorithm) {
+            SimilarMovieIndex similarMovieIndex,
+            RecommendationStore recommendationStore,
+            RecommendationGenerator recommendationGenerator,
+            RecommendationPurger recommendationPurger,
+            RefreshDebouncer refreshDebouncer,
+            RecommendationCacheInvalidator cacheInvalidator,
+            ColdStartCatalog coldStartCatalog,
+            MovieSummaryCache movieSummaries,
+            InteractionLog interactionLog,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry,
+            @Qualifier("taskExecutor") TaskExecutor taskExecutor) {
 
         this.recommendationRepository = recommendationRepository;
         this.userRepository = userRepository;
         this.movieRepository = movieRepository;
         this.sharedRecommendationRepository = sharedRecommendationRepository;
-
-        this.algorithms = new HashMap<>();
-        // Original algorithms
-        this.algorithms.put(collaborativeAlgorithm.getAlgorithmName(), collaborativeAlgorithm);
-        this.algorithms.put(contentBasedAlgorithm.getAlgorithmName(), contentBasedAlgorithm);
-        this.algorithms.put(popularityAlgorithm.getAlgorithmName(), popularityAlgorithm);
-        this.algorithms.put(hybridAlgorithm.getAlgorithmName(), hybridAlgorithm);
-
-        // GDS-based algorithms
-        this.algorithms.put(gdsCollaborativeAlgorithm.getAlgorithmName(), gdsCollaborativeAlgorithm);
-        this.algorithms.put(gdsContentBasedAlgorithm.getAlgorithmName(), gdsContentBasedAlgorithm);
-        this.algorithms.put(gdsPageRankAlgorithm.getAlgorithmName(), gdsPageRankAlgorithm);
-        this.algorithms.put(gdsHybridAlgorithm.getAlgorithmName(), gdsHybridAlgorithm);
+        this.collaborativeAlgorithm = collaborativeAlgorithm;
+        this.similarMovieIndex = similarMovieIndex;
+        this.recommendationStore = recommendationStore;
+        this.recommendationGenerator = recommendationGenerator;
+        this.recommendationPurger = recommendationPurger;
+        this.refreshDebouncer = refreshDebouncer;
+        this.cacheInvalidator = cacheInvalidator;
+        this.coldStartCatalog = coldStartCatalog;
+        this.movieSummaries = movieSummaries;
+        this.interactionLog = interactionLog;
+        this.eventPublisher = eventPublisher;
+        this.taskExecutor = taskExecutor;
+        this.coalescedCounter = Counter.builder("neo4flix.recommendations.coalesced")
+                .description("Recommendation requests served by another caller's in-flight computation")
+                .register(meterRegistry);
     }
 
     @Override
-    @CacheEvict(value = "recommendations", key = "#request.userId")
+    @Cacheable(value = CacheConfig.GENERATED, keyGenerator = "userScopedKeyGenerator", unless = "#result.isEmpty()")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<RecommendationResponse> generateRecommendations(RecommendationRequest request) {
+        SingleFlight.Result<List<RecommendationResponse>> result =
+                generateFlights.execute(coalescingKey(request), () -> computeRecommendations(request));
+        if (result.isShared()) {
+            coalescedCounter.increment();
+            logger.debug("Shared in-flight {} recommendations with user {}", request.getAlgorithm(), request.getUserId());
+        }
+        // Callers must not see each other's modifications of the shared list
+        return new ArrayList<>(result.getValue());
+    }
+
+    private List<RecommendationResponse> computeRecommendations(RecommendationRequest request) {
         logger.info("Generating recommendations for user {} using {} algorithm",
                 request.getUserId(), request.getAlgorithm());
 
         try {
-            // Validate user exists
-//            if (!userRepository.existsById(request.getUserId())) {
-//                throw new IllegalArgumentException("User not found: " + request.getUserId());
-//            }
-
-            // Get the appropriate algorithm
-            RecommendationAlgorithm algorithm = algorithms.get(request.getAlgorithm());
-            if (algorithm == null) {
-                throw new IllegalArgumentException("Unknown algorithm: " + request.getAlgorithm());
-            }
-
-            // Check if algorithm is applicable
-            if (!algorithm.isApplicable(request)) {
-                logger.warn("Algorithm {} not applicable for user {}, falling back to popular",
-                        request.getAlgorithm(), request.getUserId());
-                algorithm = algorithms.get("popular");
-            }
-
-            // Generate recommendations
-            List<Recommendation> recommendations = algorithm.generateRecommendations(request);
+            long startedAt = System.currentTimeMillis();
+            List<Recommendation> recommendations = recommendationGenerator.generate(request);
 
             if (recommendations.isEmpty()) {
                 logger.warn("No recommendations generated for user {} with algorithm {}",
@@ -106,10 +139,15 @@ public class RecommendationServiceImpl implements RecommendationService {
                 return new ArrayList<>();
             }
 
+            // Unfiltered results are the user's list for this algorithm: keep the store up to date
+            if (request.getGenre() == null || request.getGenre().isEmpty()) {
+                recommendationStore.write(request.getUserId(), request.getAlgorithm(), recommendations, startedAt);
+            }
+
             // Convert to response DTOs
-            List<RecommendationResponse> responses = recommendations.stream()
+            List<RecommendationResponse> responses = movieSummaries.enrich(recommendations.stream()
                     .map(this::convertToResponse)
-                    .collect(Collectors.toList());
+                    .collect(Collectors.toList()));
 
             logger.info("Successfully generated {} recommendations for user {}",
                     responses.size(), request.getUserId());
@@ -124,56 +162,160 @@ public class RecommendationServiceImpl implements RecommendationService {
     }
 
     @Override
-    @Cacheable(value = "recommendations", key = "#userId")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<RecommendationResponse> getPersonalizedRecommendations(String userId, String algorithm, Integer limit) {
+        if (!recommendationGenerator.supports(algorithm)) {
+            throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+
+        RecommendationStore.StoredList stored = recommendationStore.read(userId, algorithm, limit);
+        if (stored == null) {
+            // First request for this list: nothing to serve yet, so generate it inline once
+            logger.info("No stored {} recommendations for user {}, generating", algorithm, userId);
+            regenerate(userId, algorithm);
+            stored = recommendationStore.read(userId, algorithm, limit);
+            return stored != null ? toResponses(stored) : new ArrayList<>();
+        }
+
+        if (recommendationStore.isStale(userId, stored)) {
+            queueStoredListRefresh(userId, algorithm);
+        }
+        return toResponses(stored);
+    }
+
+    /**
+     * Regenerate a stored list on the background executor, unless a refresh of it is already pending.
+     * When the queue is full the stale list keeps being served and the next read tries again.
+     */
+    private void queueStoredListRefresh(String userId, String algorithm) {
+        if (!recommendationStore.tryStartRefresh(userId, algorithm)) {
+            return;
+        }
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    recommendationGenerator.regenerate(userId, algorithm);
+                } catch (Exception e) {
+                    logger.warn("Background refresh of {} recommendations for user {} failed: {}",
+                            algorithm, userId, e.getMessage());
+                } finally {
+                    recommendationStore.finishRefresh(userId, algorithm);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            recommendationStore.finishRefresh(userId, algorithm);
+            logger.warn("Background executor saturated, serving stale {} recommendations for user {}", algorithm, userId);
+        }
+    }
+
+    private List<RecommendationResponse> toResponses(RecommendationStore.StoredList stored) {
+        List<RecommendationResponse> responses = new ArrayList<>(stored.getRecommendations().size());
+        for (int i = 0; i < stored.getRecommendations().size(); i++) {
+            RecommendationResponse response = new RecommendationResponse(stored.getRecommendations().get(i));
+            response.setMovieTitle(stored.getMovieTitle(i));
+            response.setMovieRating(stored.getMovieRating(i));
+            responses.add(response);
+        }
+        // Title and rating come with the stored list; the year and poster from the summaries
+        return movieSummaries.enrich(responses);
+    }
+
+    @Override
+    @Cacheable(value = CacheConfig.RECOMMENDATIONS, keyGenerator = "userScopedKeyGenerator")
     @Transactional(readOnly = true)
     public Page<RecommendationResponse> getUserRecommendations(String userId, Pageable pageable) {
-        Page<Recommendation> recommendations = recommendationRepository.findByUserId(userId, pageable);
-        return recommendations.map(this::convertToResponse);
+        Page<RecommendationResponse> responses = recommendationRepository.findByUserId(userId, pageable)
+                .map(this::convertToResponse);
+        movieSummaries.enrich(responses.getContent());
+        return responses;
     }
 
     @Override
+    @Cacheable(value = CacheConfig.RECOMMENDATIONS, keyGenerator = "userScopedKeyGenerator")
     @Transactional(readOnly = true)
     public Page<RecommendationResponse> getUserRecommendationsByAlgorithm(String userId, String algorithm, Pageable pageable) {
-        Page<Recommendation> recommendations = recommendationRepository.findByUserIdAndAlgorithm(userId, algorithm, pageable);
-        return recommendations.map(this::convertToResponse);
+        Page<RecommendationResponse> responses = recommendationRepository.findByUserIdAndAlgorithm(userId, algorithm, pageable)
+                .map(this::convertToResponse);
+        movieSummaries.enrich(responses.getContent());
+        return responses;
     }
 
     @Override
-    @CacheEvict(value = "recommendations", key = "#userId")
     public void markRecommendationClicked(String userId, String movieId) {
         logger.info("Marking recommendation clicked for user {} and movie {}", userId, movieId);
+        interactionLog.recordInteraction(userId, movieId, "click", null);
 
-        recommendationRepository.updateClicked(userId, movieId, true)
-                .orElseThrow(() -> new IllegalArgumentException("Recommendation not found"));
+        if (recommendationRepository.updateClicked(userId, movieId, true) == 0) {
+            throw new IllegalArgumentException("Recommendation not found");
+        }
+        cacheInvalidator.evictUsers(Set.of(userId));
     }
 
     @Override
-    @CacheEvict(value = "recommendations", key = "#userId")
     public void markRecommendationWatched(String userId, String movieId) {
         logger.info("Marking recommendation watched for user {} and movie {}", userId, movieId);
+        interactionLog.recordInteraction(userId, movieId, "watch", null);
 
-        recommendationRepository.updateWatched(userId, movieId, true)
-                .orElseThrow(() -> new IllegalArgumentException("Recommendation not found"));
+        if (recommendationRepository.updateWatched(userId, movieId, true) == 0) {
+            throw new IllegalArgumentException("Recommendation not found");
+        }
+        cacheInvalidator.evictUsers(Set.of(userId));
     }
 
     @Override
-    @CacheEvict(value = "recommendations", key = "#userId")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<RecommendationResponse> refreshRecommendations(String userId, String algorithm, Integer limit) {
         logger.info("Refreshing recommendations for user {} with algorithm {}", userId, algorithm);
 
-        // Delete old recommendations to ensure fresh results
-        recommendationRepository.deleteAllByUserId(userId);
-
-        // Generate new recommendations
-        RecommendationRequest request = RecommendationRequest.builder()
-                .userId(userId)
+        // Regenerating replaces the stored list, so no separate delete is needed
+        List<Recommendation> recommendations = regenerate(userId, algorithm);
+        return movieSummaries.enrich(recommendations.stream()
                 .limit(limit)
-                .algorithm(algorithm)
-                .build();
-        return generateRecommendations(request);
+                .map(this::convertToResponse)
+                .collect(Collectors.toList()));
     }
 
     @Override
+    public void scheduleRefresh(String userId, String algorithm) {
+        if (!recommendationGenerator.supports(algorithm)) {
+            throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+        refreshDebouncer.request(userId, algorithm);
+    }
+
+    /**
+     * Regenerate the user's stored list, joining a regeneration of the same list already running.
+     */
+    private List<Recommendation> regenerate(String userId, String algorithm) {
+        SingleFlight.Result<List<Recommendation>> result = regenerateFlights.execute(userId + '|' + algorithm,
+                () -> recommendationGenerator.regenerate(userId, algorithm));
+        if (result.isShared()) {
+            coalescedCounter.increment();
+        }
+        return result.getValue();
+    }
+
+    /**
+     * Everything that changes the result of generateRecommendations. Genres are sorted so
+     * that the same filter in another order still coalesces.
+     */
+    private static String coalescingKey(RecommendationRequest request) {
+        List<String> genres = request.getGenre() != null ? new ArrayList<>(request.getGenre()) : new ArrayList<>();
+        Collections.sort(genres);
+        return String.join("|",
+                request.getUserId(),
+                request.getAlgorithm(),
+                String.valueOf(request.getLimit()),
+                String.join(",", genres),
+                String.valueOf(request.getSafeMinRating()),
+                String.valueOf(request.getSafeMinAverageMovieRating()),
+                String.valueOf(request.getIncludeWatched()),
+                String.valueOf(request.getFromYear()),
+                String.valueOf(request.getToYear()));
+    }
+
+    @Override
+    @Cacheable(value = CacheConfig.STATS, keyGenerator = "userScopedKeyGenerator")
     @Transactional(readOnly = true)
     public Object getRecommendationStats(String userId) {
         return recommendationRepository.getRecommendationStats(userId)
@@ -181,25 +323,28 @@ public class RecommendationServiceImpl implements RecommendationService {
     }
 
     @Override
+    @Cacheable(value = CacheConfig.SIMILAR_USERS, keyGenerator = "userScopedKeyGenerator")
     @Transactional(readOnly = true)
     public List<UserSimilarity> findSimilarUsers(String userId, Integer limit) {
-        return recommendationRepository.findSimilarUsers(userId, 3, 0.3, limit);
+        return collaborativeAlgorithm.findSimilarUsers(userId, limit);
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Cacheable(value = CacheConfig.GENERATED, keyGenerator = "userScopedKeyGenerator", unless = "#result.isEmpty()")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<RecommendationResponse> getTrendingRecommendations(String userId, Integer limit) {
-        // Get recommendations that are popular among similar users
+        // Movies with the most recent ratings, from the in-memory leaderboard
         RecommendationRequest request = RecommendationRequest.builder()
                 .limit(limit)
                 .userId(userId)
-                .algorithm("collaborative")
+                .algorithm("trending")
                 .build();
         return generateRecommendations(request);
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Cacheable(value = CacheConfig.GENERATED, keyGenerator = "userScopedKeyGenerator", unless = "#result.isEmpty()")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<RecommendationResponse> getRecommendationsByGenre(RecommendationRequest request) {
 //        RecommendationRequest request = RecommendationRequest.builder()
 //                .limit(limit)
@@ -211,126 +356,45 @@ public class RecommendationServiceImpl implements RecommendationService {
     }
 
     @Override
-    @Transactional(readOnly = true)
-    public List<RecommendationResponse> getNewUserRecommendations(Integer limit) {
-        // For new users, return popular movies
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<RecommendationResponse> getNewUserRecommendations(Integer limit, List<String> genres,
+                                                                  Integer fromYear, Integer toYear) {
+        if (coldStartCatalog.isReady()) {
+            return coldStartCatalog.recommend(limit, genres, fromYear, toYear);
+        }
+
+        // Catalog not built yet: popular movies straight from the popularity algorithm
         RecommendationRequest request = RecommendationRequest.builder()
                 .limit(limit)
                 .userId("")
                 .algorithm("popular")
-                .build();;
-
-//        RecommendationAlgorithm popularityAlgorithm = algorithms.get("popular");
-//        List<Recommendation> recommendations = popularityAlgorithm.generateRecommendations(request);
-//
-//        return recommendations.stream()
-//                .map(this::convertToResponse)
-//                .collect(Collectors.toList());
-        return null;
+                .genre(genres)
+                .fromYear(fromYear)
+                .toYear(toYear)
+                .build();
+        return movieSummaries.enrich(recommendationGenerator.generate(request).stream()
+                .map(this::convertToResponse)
+                .collect(Collectors.toList()));
     }
 
     @Override
-    @Transactional(readOnly = true)
     public Object calculateRecommendationMetrics(String userId) {
-        // This would calculate metrics like precision, recall, F1-score
-        // Based on user interactions with recommendations
-        Map<String, Object> metrics = new HashMap<>();
-        metrics.put("precision", 0.0);
-        metrics.put("recall", 0.0);
-        metrics.put("f1Score", 0.0);
-        metrics.put("clickThroughRate", 0.0);
-        metrics.put("conversionRate", 0.0);
-        return metrics;
+        // Live counters over the interaction log's sliding window, per algorithm and overall
+        return interactionLog.getMetrics();
     }
 
     @Override
-    @Async
-    public void batchGenerateRecommendations(List<String> userIds, String algorithm) {
-        logger.info("Starting batch recommendation generation for {} users with algorithm {}",
-                userIds.size(), algorithm);
-
-        for (String userId : userIds) {
-            try {
-                RecommendationRequest request = RecommendationRequest.builder()
-                        .limit(20)
-                        .userId(userId)
-                        .algorithm(algorithm)
-                        .build();
-                generateRecommendations(request);
-
-                // Small delay to avoid overwhelming the system
-                Thread.sleep(100);
-
-            } catch (Exception e) {
-                logger.error("Error generating recommendations for user {} in batch: {}",
-                        userId, e.getMessage());
-            }
-        }
-
-        logger.info("Completed batch recommendation generation for {} users", userIds.size());
-    }
-
-    @Override
-    public void cleanupOldRecommendations(Integer daysOld) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public RecommendationPurger.PurgeResult cleanupOldRecommendations(Integer daysOld) {
         logger.info("Cleaning up recommendations older than {} days", daysOld);
-
-        LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysOld);
-
-        // This would require a repository method to delete old recommendations
-        // For now, we'll just log the action
-        logger.info("Would delete recommendations older than {}", cutoffDate);
-    }
-
-    private List<Recommendation> saveRecommendations(List<Recommendation> recommendations) {
-        List<Recommendation> savedRecommendations = new ArrayList<>();
-
-        for (Recommendation recommendation : recommendations) {
-            try {
-                // Use custom save method to create RECOMMENDED relationship
-                Long id = recommendationRepository.saveRecommendation(
-                        recommendation.getUserId(),
-                        recommendation.getMovieId(),
-                        recommendation.getScore(),
-                        recommendation.getAlgorithm(),
-                        recommendation.getReason(),
-                        recommendation.getRecommendedAt().toString(),
-                        recommendation.getClicked(),
-                        recommendation.getWatched()
-                );
-
-                if (id != null) {
-                    recommendation.setId(id);
-                    savedRecommendations.add(recommendation);
-                    logger.debug("Saved recommendation with id {} for user {} and movie {}",
-                            id, recommendation.getUserId(), recommendation.getMovieId());
-                }
-            } catch (Exception e) {
-                logger.warn("Error saving recommendation for user {} and movie {}: {}",
-                        recommendation.getUserId(), recommendation.getMovieId(), e.getMessage(), e);
-            }
-        }
-
-        logger.info("Successfully saved {} out of {} recommendations",
-                savedRecommendations.size(), recommendations.size());
-        return savedRecommendations;
+        return recommendationPurger.purge(daysOld);
     }
 
+    /**
+     * Response without movie details; callers fill those for a whole list with movieSummaries.enrich.
+     */
     private RecommendationResponse convertToResponse(Recommendation recommendation) {
-        RecommendationResponse response = new RecommendationResponse(recommendation);
-
-        // Enhance with movie details if needed
-        try {
-            // This would typically fetch movie details from the movie repository
-            // For now, we'll use placeholder values
-            response.setMovieTitle("Movie Title"); // Would be fetched from movie service
-            response.setMovieRating(4.5); // Would be fetched from movie service
-
-        } catch (Exception e) {
-            logger.warn("Error fetching movie details for movie {}: {}",
-                    recommendation.getMovieId(), e.getMessage());
-        }
-
-        return response;
+        return new RecommendationResponse(recommendation);
     }
 
     private Object createEmptyStats() {
@@ -343,54 +407,32 @@ public class RecommendationServiceImpl implements RecommendationService {
     }
 
     @Override
-    @Transactional(readOnly = true)
     public List<RecommendationResponse> getSimilarMovies(String movieId, Integer limit) {
         logger.info("Getting similar movies for movie {} with limit {}", movieId, limit);
 
         try {
-            // Use repository method to find similar movies based on genres, directors, actors
-            List<Object[]> rawRecommendations = movieRepository.findSimilarMovies(movieId, limit);
+            List<SimilarMovieIndex.SimilarMovie> similarMovies = similarMovieIndex.findSimilar(movieId, limit);
+            if (similarMovies == null) {
+                return getSimilarMoviesFromGraph(movieId, limit);
+            }
 
             List<RecommendationResponse> recommendations = new ArrayList<>();
-
-            for (Object[] row : rawRecommendations) {
-                // row[0] is Movie object, row[1] is similarity score
-                Object movieObj = row[0];
-                Double similarityScore = row[1] != null ? ((Number) row[1]).doubleValue() : 0.0;
-
-                // Extract movie details using reflection or casting
-                String similarMovieId = "";
-                String movieTitle = "Unknown Movie";
-                Double movieRating = 0.0;
-
-                try {
-                    // Access Movie object properties
-                    similarMovieId = (String) movieObj.getClass().getMethod("getId").invoke(movieObj);
-                    movieTitle = (String) movieObj.getClass().getMethod("getTitle").invoke(movieObj);
-                    Object ratingObj = movieObj.getClass().getMethod("getAverageRating").invoke(movieObj);
-                    movieRating = ratingObj != null ? (Double) ratingObj : 0.0;
-                } catch (Exception e) {
-                    logger.warn("Error extracting movie details: {}", e.getMessage());
-                }
-
-                String reason = "Similar based on shared genres, directors, and actors";
-
+            for (SimilarMovieIndex.SimilarMovie similar : similarMovies) {
                 Recommendation recommendation = Recommendation.builder()
-                        .userId(similarMovieId)
-                        .score(normalizeScore(similarityScore))
+                        .movieId(similar.getMovieId())
+                        .score(similar.getSimilarity())
                         .algorithm("content")
-                        .reason(reason)
+                        .reason("Similar genres, directors, cast and era")
                         .build();
 
                 RecommendationResponse response = convertToResponse(recommendation);
-                response.setMovieTitle(movieTitle);
-                response.setMovieRating(movieRating);
-
+                response.setMovieTitle(similar.getTitle());
+                response.setMovieRating(similar.getAverageRating());
                 recommendations.add(response);
             }
 
             logger.info("Found {} similar movies for movie {}", recommendations.size(), movieId);
-            return recommendations;
+            return movieSummaries.enrich(recommendations);
 
         } catch (Exception e) {
             logger.error("Error getting similar movies for movie {}: {}", movieId, e.getMessage(), e);
@@ -398,6 +440,30 @@ public class RecommendationServiceImpl implements RecommendationService {
         }
     }
 
+    /**
+     * Similar movies by shared genres, directors and actors, computed in the database.
+     * Used until the similar movie index has finished its first build.
+     */
+    private List<RecommendationResponse> getSimilarMoviesFromGraph(String movieId, Integer limit) {
+        List<RecommendationResponse> recommendations = new ArrayList<>();
+        for (MovieRecommendationDTO row : movieRepository.findSimilarMovies(movieId, limit)) {
+            Recommendation recommendation = Recommendation.builder()
+                    .movieId(row.getMovie().getId())
+                    .score(normalizeScore(row.getScore()))
+                    .algorithm("content")
+                    .reason("Similar based on shared genres, directors, and actors")
+                    .build();
+
+            RecommendationResponse response = convertToResponse(recommendation);
+            response.setMovieTitle(row.getMovie().getTitle());
+            response.setMovieRating(row.getMovieRating());
+            recommendations.add(response);
+        }
+
+        logger.info("Found {} similar movies for movie {} (graph query)", recommendations.size(), movieId);
+        return movieSummaries.enrich(recommendations);
+    }
+
     /**
      * Normalize score to 0-1 range
      */
@@ -416,7 +482,7 @@ public class RecommendationServiceImpl implements RecommendationService {
 
         try {
             // Track the interaction based on action type
-            switch (interaction.getAction().toLowerCase()) {
+            switch (interaction.getAction().toLowerCase(Locale.ROOT)) {
                 case "view":
                 case "click":
                     markRecommendationClicked(interaction.getUserId(), interaction.getMovieId());
@@ -427,14 +493,24 @@ public class RecommendationServiceImpl implements RecommendationService {
                     break;
                 case "rate":
                     // Rating interactions are typically handled by the rating service
+                    interactionLog.recordInteraction(interaction.getUserId(), interaction.getMovieId(),
+                            interaction.getAction(), interaction.getValue());
                     logger.info("Rating interaction tracked for user {} on movie {} with value {}",
                             interaction.getUserId(), interaction.getMovieId(), interaction.getValue());
                     break;
-                case "like":
-                case "share":
                 case "watchlist_add":
                 case "watchlist_remove":
-                    // These interactions could be stored for future recommendation improvements
+                    interactionLog.recordInteraction(interaction.getUserId(), interaction.getMovieId(),
+                            interaction.getAction(), null);
+                    eventPublisher.publishEvent(new WatchlistChangedEvent(interaction.getUserId(),
+                            interaction.getMovieId(), "watchlist_add".equalsIgnoreCase(interaction.getAction())));
+                    logger.info("Interaction {} tracked for user {} on movie {}",
+                            interaction.getAction(), interaction.getUserId(), interaction.getMovieId());
+                    break;
+                case "like":
+                case "share":
+                    interactionLog.recordInteraction(interaction.getUserId(), interaction.getMovieId(),
+                            interaction.getAction(), null);
                     logger.info("Interaction {} tracked for user {} on movie {}",
                             interaction.getAction(), interaction.getUserId(), interaction.getMovieId());
                     break;
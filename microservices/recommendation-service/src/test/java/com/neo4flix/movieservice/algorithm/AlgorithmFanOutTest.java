@@ -0,0 +1,88 @@
+package com.neo4flix.movieservice.algorithm;
+
+import com.neo4flix.movieservice.model.Recommendation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AlgorithmFanOut on a single-thread pool
+ */
+class AlgorithmFanOutTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testDeadlineStartsWhenBranchRuns() throws Exception {
+        AlgorithmFanOut fanOut = new AlgorithmFanOut(executor, 300, 5000);
+        fanOut.submit("first", () -> sleep(200));
+
+        // Queued for about 200 ms, then runs for 200 ms: within its own 300 ms deadline
+        List<Recommendation> second = fanOut.submit("second", () -> sleep(200)).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, second.size());
+    }
+
+    @Test
+    void testTimedOutBranchIsInterrupted() throws Exception {
+        AlgorithmFanOut fanOut = new AlgorithmFanOut(executor, 100, 5000);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        List<Recommendation> result = fanOut.submit("slow", () -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return List.of(new Recommendation());
+        }).get(5, TimeUnit.SECONDS);
+
+        assertTrue(result.isEmpty());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "The branch should be interrupted");
+    }
+
+    @Test
+    void testBranchQueuedTooLongNeverRuns() throws Exception {
+        AlgorithmFanOut fanOut = new AlgorithmFanOut(executor, 5000, 100);
+        AtomicBoolean ran = new AtomicBoolean();
+        fanOut.submit("blocking", () -> sleep(400));
+
+        List<Recommendation> result = fanOut.submit("queued", () -> {
+            ran.set(true);
+            return List.of(new Recommendation());
+        }).get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertTrue(result.isEmpty());
+        assertFalse(ran.get());
+    }
+
+    private static List<Recommendation> sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return List.of(new Recommendation());
+    }
+}
@@ -0,0 +1,64 @@
+package com.neo4flix.movieservice.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static com.neo4flix.movieservice.cache.RecommendationCodecTest.response;
+import static com.neo4flix.movieservice.cache.TwoTierCacheTest.key;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for IndexedCaffeineCache
+ */
+class IndexedCaffeineCacheTest {
+
+    @Test
+    void testEvictUsersDropsOnlyTheirEntries() {
+        IndexedCaffeineCache cache = IndexedCaffeineCache.build("recommendations", Caffeine.newBuilder());
+        cache.put(key("user-1", 10), List.of(response("m1", "Heat")));
+        cache.put(key("user-1", 20), List.of(response("m1", "Heat")));
+        cache.put(key("user-2", 10), List.of(response("m2", "Ronin")));
+
+        assertEquals(2, cache.evictUsers(Set.of("user-1")));
+        assertNull(cache.get(key("user-1", 10)));
+        assertNotNull(cache.get(key("user-2", 10)));
+    }
+
+    @Test
+    void testEvictMovieDropsEntriesContainingIt() {
+        IndexedCaffeineCache cache = IndexedCaffeineCache.build("recommendations", Caffeine.newBuilder());
+        cache.put(key("user-1", 10), List.of(response("m1", "Heat"), response("m2", "Ronin")));
+        cache.get(key("user-2", 10), () -> List.of(response("m3", "Thief")));
+
+        assertEquals(1, cache.evictMovie("m2"));
+        assertNull(cache.get(key("user-1", 10)));
+        assertEquals(1, cache.evictMovie("m3"), "Loaded values should be indexed too");
+        assertEquals(0, cache.evictMovie("m1"), "Evicted entries should leave the index");
+    }
+
+    @Test
+    void testEvictNamedUsesStringForm() {
+        IndexedCaffeineCache cache = IndexedCaffeineCache.build("recommendations", Caffeine.newBuilder());
+        Object key = key("user-1", 10);
+        cache.put(key, List.of(response("m1", "Heat")));
+
+        assertEquals(1, cache.evictNamed(key.toString()));
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    void testSizeEvictionLeavesIndex() {
+        IndexedCaffeineCache cache = IndexedCaffeineCache.build("recommendations",
+                Caffeine.newBuilder().maximumSize(1).executor(Runnable::run));
+        cache.put(key("user-1", 10), List.of(response("m1", "Heat")));
+        cache.put(key("user-2", 10), List.of(response("m2", "Ronin")));
+        cache.getNativeCache().cleanUp();
+
+        assertEquals(1, cache.getNativeCache().estimatedSize());
+        assertEquals(1, cache.evictUsers(Set.of("user-1", "user-2")));
+        assertEquals(0, cache.getNativeCache().estimatedSize());
+    }
+}
@@ -0,0 +1,128 @@
+package com.neo4flix.movieservice.cache;
+
+import com.neo4flix.movieservice.dto.RecommendationResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RecommendationCodec
+ */
+class RecommendationCodecTest {
+
+    @Test
+    void testListRoundTripKeepsEveryField() {
+        RecommendationResponse full = response("m1", "Heat");
+        full.setId("r1");
+        full.setMoviePlot("A heist goes wrong");
+        full.setMovieYear(1995);
+        full.setMovieRating(4.2);
+        full.setMoviePosterUrl("http://posters/m1.jpg");
+        full.setReason("Because you liked Ronin");
+        full.setRecommendedAt(LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123456789));
+        full.setClicked(true);
+        full.setWatched(false);
+        RecommendationResponse sparse = new RecommendationResponse();
+        sparse.setMovieId("m2");
+
+        @SuppressWarnings("unchecked")
+        List<RecommendationResponse> decoded = (List<RecommendationResponse>) roundTrip(List.of(full, sparse));
+
+        assertEquals(2, decoded.size());
+        RecommendationResponse first = decoded.get(0);
+        assertEquals("r1", first.getId());
+        assertEquals("m1", first.getMovieId());
+        assertEquals("Heat", first.getMovieTitle());
+        assertEquals("A heist goes wrong", first.getMoviePlot());
+        assertEquals(1995, first.getMovieYear());
+        assertEquals(4.2, first.getMovieRating());
+        assertEquals("http://posters/m1.jpg", first.getMoviePosterUrl());
+        assertEquals(0.9, first.getScore());
+        assertEquals("hybrid", first.getAlgorithm());
+        assertEquals("Because you liked Ronin", first.getReason());
+        assertEquals(full.getRecommendedAt(), first.getRecommendedAt());
+        assertTrue(first.getClicked());
+        assertFalse(first.getWatched());
+
+        RecommendationResponse second = decoded.get(1);
+        assertEquals("m2", second.getMovieId());
+        assertNull(second.getMovieTitle(), "Null fields should stay null");
+        assertNull(second.getScore());
+        assertNull(second.getClicked());
+    }
+
+    @Test
+    void testPageRoundTripKeepsPageableAndTotal() {
+        Page<RecommendationResponse> page = new PageImpl<>(List.of(response("m1", "Heat")),
+                PageRequest.of(2, 10, Sort.by(Sort.Order.desc("score"), Sort.Order.asc("movieTitle"))), 57);
+
+        Page<?> decoded = (Page<?>) roundTrip(page);
+
+        assertEquals(57, decoded.getTotalElements());
+        assertEquals(2, decoded.getNumber());
+        assertEquals(10, decoded.getSize());
+        assertEquals(page.getSort(), decoded.getSort());
+        assertEquals("m1", ((RecommendationResponse) decoded.getContent().get(0)).getMovieId());
+    }
+
+    @Test
+    void testStringsLongerThan64KilobytesRoundTrip() {
+        char[] plot = new char[100_000];
+        Arrays.fill(plot, 'é');
+        RecommendationResponse response = response("m1", "Heat");
+        response.setMoviePlot(new String(plot));
+
+        List<?> decoded = (List<?>) roundTrip(List.of(response));
+
+        assertEquals(new String(plot), ((RecommendationResponse) decoded.get(0)).getMoviePlot());
+    }
+
+    @Test
+    void testOtherValuesAreNotEncoded() {
+        assertNull(RecommendationCodec.encode("text"));
+        assertNull(RecommendationCodec.encode(List.of("m1")));
+    }
+
+    @Test
+    void testOtherFormatVersionIsMiss() {
+        byte[] data = RecommendationCodec.encode(List.of(response("m1", "Heat")));
+        data[0]++;
+
+        assertNull(RecommendationCodec.decode(data, 0));
+    }
+
+    @Test
+    void testTruncatedDataFailsUnchecked() {
+        byte[] data = RecommendationCodec.encode(List.of(response("m1", "Heat")));
+        byte[] truncated = Arrays.copyOf(data, data.length - 3);
+
+        assertThrows(UncheckedIOException.class, () -> RecommendationCodec.decode(truncated, 0));
+    }
+
+    private static Object roundTrip(Object value) {
+        byte[] prefixed = new byte[3];
+        byte[] encoded = RecommendationCodec.encode(value);
+        assertNotNull(encoded);
+        byte[] data = Arrays.copyOf(prefixed, prefixed.length + encoded.length);
+        System.arraycopy(encoded, 0, data, prefixed.length, encoded.length);
+        return RecommendationCodec.decode(data, prefixed.length);
+    }
+
+    static RecommendationResponse response(String movieId, String title) {
+        RecommendationResponse response = new RecommendationResponse();
+        response.setMovieId(movieId);
+        response.setMovieTitle(title);
+        response.setScore(0.9);
+        response.setAlgorithm("hybrid");
+        return response;
+    }
+}
@@ -0,0 +1,138 @@
+package com.neo4flix.movieservice.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.neo4flix.movieservice.config.UserScopedKeyGenerator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TwoTierCache, with two replicas sharing one LocalFarCache store
+ */
+class TwoTierCacheTest {
+
+    private static final String CACHE = "recommendations";
+    private static final UserScopedKeyGenerator KEYS = new UserScopedKeyGenerator();
+
+    private static final Method RECOMMENDATIONS_OF;
+
+    static {
+        try {
+            RECOMMENDATIONS_OF = TwoTierCacheTest.class.getDeclaredMethod("recommendationsOf", String.class, int.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private LocalFarCache farA;
+    private TwoTierCache replicaA;
+    private TwoTierCache replicaB;
+
+    @BeforeEach
+    void setUp() {
+        LocalFarCache.Store store = new LocalFarCache.Store();
+        farA = new LocalFarCache(store);
+        replicaA = cache(farA);
+        replicaB = cache(new LocalFarCache(store));
+    }
+
+    @Test
+    void testSharedHitIsCopiedToLocalTier() {
+        Object key = key("user-1", 10);
+        replicaA.put(key, List.of(RecommendationCodecTest.response("m1", "Heat")));
+
+        List<?> value = replicaB.get(key, List.class);
+
+        assertEquals(1, value.size());
+        assertNotNull(replicaB.getNativeCache().getIfPresent(key), "Shared hit should be kept locally");
+    }
+
+    @Test
+    void testEvictIsBroadcast() {
+        Object key = key("user-1", 10);
+        replicaA.put(key, List.of(RecommendationCodecTest.response("m1", "Heat")));
+        replicaB.get(key);
+
+        replicaA.evict(key);
+
+        assertNull(replicaB.getNativeCache().getIfPresent(key));
+        assertNull(replicaB.get(key));
+    }
+
+    @Test
+    void testClearIsBroadcast() {
+        Object key = key("user-1", 10);
+        replicaA.put(key, List.of(RecommendationCodecTest.response("m1", "Heat")));
+        replicaB.get(key);
+
+        replicaA.clear();
+
+        assertNull(replicaB.get(key));
+    }
+
+    @Test
+    void testEvictScopesDropsOnlyThoseUsers() {
+        Object first = key("user-1", 10);
+        Object second = key("user-2", 10);
+        replicaA.put(first, List.of(RecommendationCodecTest.response("m1", "Heat")));
+        replicaA.put(second, List.of(RecommendationCodecTest.response("m2", "Ronin")));
+
+        replicaA.evictScopes(Set.of("user-1"));
+
+        assertNull(replicaA.get(first));
+        assertNull(replicaB.get(first), "The shared copy should be gone too");
+        assertNotNull(replicaB.get(second));
+    }
+
+    @Test
+    void testCorruptSharedDataIsMiss() {
+        Object key = key("user-1", 10);
+        byte[] corrupt = ByteBuffer.allocate(Long.BYTES + 4)
+                .putLong(System.currentTimeMillis())
+                .put(new byte[]{3, 1, 0, 0})
+                .array();
+        farA.put(CACHE, "user-1", key.toString(), corrupt, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        List<?> value = replicaB.get(key, () -> {
+            loads.incrementAndGet();
+            return List.of(RecommendationCodecTest.response("m1", "Heat"));
+        });
+
+        assertEquals(1, loads.get(), "Undecodable shared data should be recomputed");
+        assertEquals(1, value.size());
+    }
+
+    @Test
+    void testValuesTheCodecCannotEncodeStayLocal() {
+        Object key = key("user-1", 10);
+        replicaA.put(key, "not a list of responses");
+
+        assertEquals("not a list of responses", replicaA.get(key, String.class));
+        assertNull(replicaB.get(key));
+    }
+
+    private static TwoTierCache cache(FarCache far) {
+        return new TwoTierCache(CACHE, IndexedCaffeineCache.build(CACHE, Caffeine.newBuilder().expireAfterWrite(Duration.ofMinutes(10))),
+                far, new SimpleMeterRegistry());
+    }
+
+    static Object key(String userId, int limit) {
+        return KEYS.generate(null, RECOMMENDATIONS_OF, userId, limit);
+    }
+
+    // Stands in for the cached service method the keys are generated for
+    @SuppressWarnings("unused")
+    private static List<?> recommendationsOf(String userId, int limit) {
+        return List.of();
+    }
+}
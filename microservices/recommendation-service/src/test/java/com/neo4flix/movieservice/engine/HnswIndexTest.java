@@ -0,0 +1,131 @@
+package com.neo4flix.movieservice.engine;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for HnswIndex
+ */
+class HnswIndexTest {
+
+    private static final int DIMENSION = 16;
+    private static final int NODES = 2000;
+
+    private float[][] vectors;
+    private HnswIndex index;
+
+    @BeforeEach
+    void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        vectors = new float[NODES][];
+        index = new HnswIndex(DIMENSION, 16, 200, 7);
+        for (int node = 0; node < NODES; node++) {
+            vectors[node] = unitVector(random);
+            index.insert(node, vectors[node]);
+        }
+    }
+
+    @Test
+    void testRecallAgainstExactSearch() {
+        SplittableRandom random = new SplittableRandom(1);
+        int k = 10;
+        int found = 0;
+        int queries = 100;
+        for (int q = 0; q < queries; q++) {
+            float[] query = unitVector(random);
+            Set<Integer> exact = exactTop(query, k);
+            TopK approximate = index.search(query, k, 64, null);
+            for (int rank = 0; rank < approximate.size(); rank++) {
+                if (exact.contains(approximate.id(rank))) {
+                    found++;
+                }
+            }
+        }
+        double recall = (double) found / (queries * k);
+        assertTrue(recall >= 0.9, "Recall@10 should be at least 0.9, was " + recall);
+    }
+
+    @Test
+    void testRemovedNodeIsNotReturned() {
+        TopK before = index.search(vectors[5], 1, 64, null);
+        assertEquals(5, before.id(0), "A node should be its own nearest neighbour");
+
+        index.remove(5);
+
+        assertFalse(index.contains(5));
+        assertEquals(NODES - 1, index.size());
+        TopK after = index.search(vectors[5], 10, 64, null);
+        for (int rank = 0; rank < after.size(); rank++) {
+            assertNotEquals(5, after.id(rank));
+        }
+        assertEquals(10, after.size(), "Removed nodes should still route the search");
+    }
+
+    @Test
+    void testReinsertReplacesVector() {
+        index.remove(5);
+        index.insert(5, vectors[6]);
+
+        assertTrue(index.contains(5));
+        assertEquals(NODES, index.size());
+        assertArrayEquals(vectors[6], index.vector(5));
+        TopK top = index.search(vectors[6], 2, 64, null);
+        Set<Integer> ids = Set.of(top.id(0), top.id(1));
+        assertEquals(Set.of(5, 6), ids);
+    }
+
+    @Test
+    void testSnapshotRoundTrip() {
+        index.remove(3);
+        ByteBuffer buffer = ByteBuffer.allocate((int) index.serializedSize());
+        index.writeTo(buffer);
+        buffer.flip();
+
+        HnswIndex read = HnswIndex.readFrom(buffer);
+
+        assertEquals(index.size(), read.size());
+        assertFalse(read.contains(3));
+        float[] query = vectors[10];
+        TopK expected = index.search(query, 5, 64, null);
+        TopK actual = read.search(query, 5, 64, null);
+        for (int rank = 0; rank < expected.size(); rank++) {
+            assertEquals(expected.id(rank), actual.id(rank));
+        }
+    }
+
+    private Set<Integer> exactTop(float[] query, int k) {
+        TopK top = new TopK(k);
+        for (int node = 0; node < NODES; node++) {
+            float dot = 0f;
+            for (int i = 0; i < DIMENSION; i++) {
+                dot += query[i] * vectors[node][i];
+            }
+            top.offer(node, dot);
+        }
+        Set<Integer> ids = new HashSet<>();
+        for (int rank = 0; rank < top.size(); rank++) {
+            ids.add(top.id(rank));
+        }
+        return ids;
+    }
+
+    private static float[] unitVector(SplittableRandom random) {
+        float[] vector = new float[DIMENSION];
+        double norm = 0;
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] /= (float) Math.sqrt(norm);
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,77 @@
+package com.neo4flix.movieservice.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PreferenceProfile
+ */
+class PreferenceProfileTest {
+
+    @Test
+    void testEmptyProfileScoresZero() {
+        PreferenceProfile profile = new PreferenceProfile();
+
+        assertEquals(0f, profile.dot(new int[]{1, 2}, new float[]{0.6f, 0.8f}));
+        assertEquals(0, profile.ratings());
+    }
+
+    @Test
+    void testDotIsCosine() {
+        PreferenceProfile profile = new PreferenceProfile();
+        profile.add(new int[]{1, 2}, new float[]{1f, 1f}, 3f, 1);
+        profile.add(new int[]{2, 3}, new float[]{1f, 1f}, 1f, 1);
+        // Profile is {1: 3, 2: 4, 3: 1}
+
+        float cosine = profile.dot(new int[]{2, 3}, new float[]{0.6f, 0.8f});
+
+        double expected = (4 * 0.6 + 1 * 0.8) / Math.sqrt(9 + 16 + 1);
+        assertEquals(expected, cosine, 1e-6);
+        assertEquals(4f, profile.weight(2));
+        assertEquals(2, profile.ratings());
+    }
+
+    @Test
+    void testRemovingARatingUndoesIt() {
+        PreferenceProfile profile = new PreferenceProfile();
+        int[] features = {4, 7, 9};
+        float[] featureWeights = {0.5f, 0.25f, 1f};
+        profile.add(features, featureWeights, 2f, 1);
+        profile.add(new int[]{4}, new float[]{1f}, 1f, 1);
+
+        profile.add(features, featureWeights, 2f, -1);
+
+        assertEquals(1f, profile.weight(4), 1e-6);
+        assertEquals(0f, profile.weight(7), 1e-6);
+        assertEquals(1, profile.ratings());
+        assertEquals(1f, profile.dot(new int[]{4}, new float[]{1f}), 1e-6, "Only feature 4 should be left in the norm");
+    }
+
+    @Test
+    void testGrowsPastInitialCapacity() {
+        PreferenceProfile profile = new PreferenceProfile();
+        for (int feature = 0; feature < 500; feature++) {
+            profile.add(new int[]{feature * 31}, new float[]{1f}, feature + 1, 1);
+        }
+
+        assertEquals(500, profile.size());
+        for (int feature = 0; feature < 500; feature++) {
+            assertEquals(feature + 1, profile.weight(feature * 31));
+        }
+        assertEquals(0f, profile.weight(1));
+    }
+
+    @Test
+    void testCopyIsIndependent() {
+        PreferenceProfile profile = new PreferenceProfile();
+        profile.add(new int[]{1}, new float[]{1f}, 2f, 1);
+
+        PreferenceProfile copy = profile.copy();
+        profile.add(new int[]{1}, new float[]{1f}, 3f, 1);
+
+        assertEquals(2f, copy.weight(1));
+        assertEquals(1, copy.ratings());
+        assertEquals(5f, profile.weight(1));
+    }
+}
@@ -0,0 +1,102 @@
+package com.neo4flix.movieservice.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SingleFlight
+ */
+class SingleFlightTest {
+
+    private SingleFlight<String, Integer> singleFlight;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        singleFlight = new SingleFlight<>();
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentCallersShareOneComputation() throws Exception {
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<SingleFlight.Result<Integer>> first = executor.submit(() -> singleFlight.execute("user-1", () -> {
+            computations.incrementAndGet();
+            started.countDown();
+            await(release);
+            return 42;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<SingleFlight.Result<Integer>> second = executor.submit(() -> singleFlight.execute("user-1", () -> {
+            computations.incrementAndGet();
+            return 0;
+        }));
+        // Give the second caller time to find the running flight before it completes
+        Thread.sleep(200);
+        release.countDown();
+
+        assertEquals(42, first.get(5, TimeUnit.SECONDS).getValue());
+        assertFalse(first.get().isShared());
+        assertEquals(42, second.get(5, TimeUnit.SECONDS).getValue());
+        assertTrue(second.get().isShared());
+        assertEquals(1, computations.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void testFailureIsSharedAndKeyReleased() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<SingleFlight.Result<Integer>> first = executor.submit(() -> singleFlight.execute("user-1", () -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("boom");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<SingleFlight.Result<Integer>> second = executor.submit(() -> singleFlight.execute("user-1", () -> 0));
+        Thread.sleep(200);
+        release.countDown();
+
+        Exception firstError = assertThrows(Exception.class, () -> first.get(5, TimeUnit.SECONDS));
+        Exception secondError = assertThrows(Exception.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, firstError.getCause());
+        assertInstanceOf(IllegalStateException.class, secondError.getCause());
+
+        SingleFlight.Result<Integer> after = singleFlight.execute("user-1", () -> 7);
+        assertEquals(7, after.getValue());
+        assertFalse(after.isShared(), "A finished flight should not be reused");
+    }
+
+    @Test
+    void testDifferentKeysDoNotShare() {
+        assertEquals(1, singleFlight.execute("user-1", () -> 1).getValue());
+        assertEquals(2, singleFlight.execute("user-2", () -> 2).getValue());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
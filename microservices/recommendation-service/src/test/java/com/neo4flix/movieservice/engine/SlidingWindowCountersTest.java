@@ -0,0 +1,56 @@
+package com.neo4flix.movieservice.engine;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SlidingWindowCounters, with 4 buckets of 1000 ms
+ */
+class SlidingWindowCountersTest {
+
+    private SlidingWindowCounters counters;
+
+    @BeforeEach
+    void setUp() {
+        counters = new SlidingWindowCounters(2, 4, 1000);
+    }
+
+    @Test
+    void testSumsEveryBucketInTheWindow() {
+        counters.increment(0, 10_000);
+        counters.increment(0, 11_500);
+        counters.add(1, 5, 13_999);
+
+        assertArrayEquals(new long[]{2, 5}, counters.sums(13_999));
+        assertEquals(4000, counters.windowMs());
+    }
+
+    @Test
+    void testOldBucketsLeaveTheWindow() {
+        counters.increment(0, 10_000);
+        counters.increment(0, 12_000);
+
+        assertArrayEquals(new long[]{1, 0}, counters.sums(14_000), "Period 10 is 4 buckets old at period 14");
+        assertArrayEquals(new long[]{0, 0}, counters.sums(20_000));
+    }
+
+    @Test
+    void testReusedBucketIsClearedFirst() {
+        counters.add(0, 7, 10_000);
+        counters.add(1, 3, 10_500);
+
+        // Period 14 lands in the same ring slot as period 10
+        counters.increment(0, 14_000);
+
+        assertArrayEquals(new long[]{1, 0}, counters.sums(14_000));
+    }
+
+    @Test
+    void testFutureBucketsAreNotCounted() {
+        counters.increment(0, 12_000);
+
+        assertArrayEquals(new long[]{0, 0}, counters.sums(11_000));
+    }
+}
@@ -0,0 +1,62 @@
+package com.neo4flix.movieservice.engine;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SparseRatingMatrix and UserBasedScorer
+ */
+class SparseRatingMatrixTest {
+
+    private SparseRatingMatrix matrix;
+
+    @BeforeEach
+    void setUp() {
+        // user 0 rates movie 2 twice: the later rating (4) must win
+        int[] users = {0, 0, 0, 1, 1, 1, 2, 2, 0};
+        int[] movies = {2, 0, 1, 0, 1, 3, 0, 3, 2};
+        float[] ratings = {3, 5, 4, 5, 4, 5, 1, 2, 4};
+        matrix = SparseRatingMatrix.fromTriples(3, 4, users, movies, ratings, users.length);
+    }
+
+    @Test
+    void testDuplicateCellKeepsLastRating() {
+        assertEquals(8, matrix.nonZeros());
+        assertEquals(4.0f, matrix.rating(0, 2));
+        assertTrue(Float.isNaN(matrix.rating(1, 2)), "Missing cells should be NaN");
+    }
+
+    @Test
+    void testRowsAndColumnsAgree() {
+        assertEquals(3, matrix.ratingCountOfUser(0));
+        assertEquals(3, matrix.ratingCountOfMovie(0));
+        assertEquals(11.0f / 3.0f, matrix.meanRatingOfMovie(0), 1e-6);
+    }
+
+    @Test
+    void testWithUserRowsReplacesOnlyGivenUsers() {
+        SparseRatingMatrix updated = matrix.withUserRows(4, 5, new int[]{1},
+                new int[]{3}, new int[]{4}, new float[]{2}, 1);
+
+        assertEquals(0, updated.ratingCountOfUser(1), "Replaced user without new ratings should have an empty row");
+        assertEquals(2.0f, updated.rating(3, 4));
+        assertEquals(3, updated.ratingCountOfUser(0));
+        assertEquals(8, matrix.nonZeros(), "Original snapshot must not change");
+    }
+
+    @Test
+    void testSimilarUsersAndRecommendations() {
+        UserBasedScorer.Neighbours neighbours = UserBasedScorer.similarUsers(matrix, 0, 2, 0.1, 5);
+
+        // user 2 only shares one movie with user 0
+        assertEquals(1, neighbours.size());
+        assertEquals(1, neighbours.user(0));
+        assertEquals(2, neighbours.commonRatings(0));
+
+        TopK top = UserBasedScorer.recommend(matrix, 0, neighbours, 3.0f, 5, null);
+        assertEquals(1, top.size());
+        assertEquals(3, top.id(0), "Only movie 3 is unrated by user 0 and liked by a neighbour");
+    }
+}
@@ -0,0 +1,114 @@
+package com.neo4flix.movieservice.repository;
+
+import com.neo4flix.movieservice.config.DatabaseInitializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.GraphDatabase;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.summary.Plan;
+import org.springframework.data.neo4j.repository.query.Query;
+import org.springframework.data.repository.query.Param;
+import org.testcontainers.containers.Neo4jContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Plans the Rating-joining queries of RecommendationRepository against the schema
+ * created by DatabaseInitializer, and fails if any of them scans a whole label or
+ * builds a Cartesian product. Skipped when Docker is not available.
+ *
+ * getPopularRecommendations is left out: it ranks every movie, so it scans the Movie
+ * label by design, and is only used until PopularityLeaderboard is ready.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RecommendationQueryPlanTest {
+
+    private static final List<String> FORBIDDEN_OPERATORS = List.of("NodeByLabelScan", "CartesianProduct");
+
+    @Container
+    private static final Neo4jContainer<?> neo4j = new Neo4jContainer<>("neo4j:5").withoutAuthentication();
+
+    private static Driver driver;
+
+    @BeforeAll
+    static void createSchema() {
+        driver = GraphDatabase.driver(neo4j.getBoltUrl(), AuthTokens.none());
+        try (Session session = driver.session()) {
+            DatabaseInitializer.SCHEMA_STATEMENTS.forEach(statement -> session.run(statement).consume());
+            session.run("CALL db.awaitIndexes()").consume();
+        }
+    }
+
+    @AfterAll
+    static void closeDriver() {
+        driver.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "findSimilarUsers",
+            "getCollaborativeRecommendations",
+            "getCollaborativeRecommendationsWithGenreFilter",
+            "getDirectorBasedRecommendations",
+            "getDirectorBasedRecommendationsWithGenreFilter"
+    })
+    void testQueryPlanUsesIndexes(String methodName) {
+        Method method = Arrays.stream(RecommendationRepository.class.getMethods())
+                .filter(m -> m.getName().equals(methodName))
+                .findFirst()
+                .orElseThrow();
+
+        Plan plan;
+        try (Session session = driver.session()) {
+            plan = session.run("EXPLAIN " + method.getAnnotation(Query.class).value(), parametersOf(method))
+                    .consume()
+                    .plan();
+        }
+
+        List<String> operators = new ArrayList<>();
+        collectOperators(plan, operators);
+        for (String forbidden : FORBIDDEN_OPERATORS) {
+            assertTrue(operators.stream().noneMatch(operator -> operator.startsWith(forbidden)),
+                    methodName + " plans a " + forbidden + ": " + operators);
+        }
+    }
+
+    private static void collectOperators(Plan plan, List<String> operators) {
+        operators.add(plan.operatorType());
+        plan.children().forEach(child -> collectOperators(child, operators));
+    }
+
+    // Placeholder values of the right type, so that the query plans as it would in production
+    private static Map<String, Object> parametersOf(Method method) {
+        Map<String, Object> parameters = new HashMap<>();
+        for (Parameter parameter : method.getParameters()) {
+            Param param = parameter.getAnnotation(Param.class);
+            String name = param != null ? param.value() : parameter.getName();
+            Class<?> type = parameter.getType();
+            if (type == String.class) {
+                parameters.put(name, "user-1");
+            } else if (type == Integer.class || type == int.class) {
+                parameters.put(name, 10);
+            } else if (type == Double.class || type == double.class) {
+                parameters.put(name, 3.0);
+            } else if (List.class.isAssignableFrom(type)) {
+                parameters.put(name, List.of("Drama"));
+            }
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,99 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.dto.RecommendationResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.neo4j.driver.Driver;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for InteractionLog attribution and metrics; nothing is written to Neo4j
+ */
+class InteractionLogTest {
+
+    @Mock
+    private Driver neo4jDriver;
+
+    private SimpleMeterRegistry meterRegistry;
+    private InteractionLog log;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        log = new InteractionLog(neo4jDriver, meterRegistry, 4, "maximumSize=1000");
+        ReflectionTestUtils.setField(log, "precisionK", 2);
+        ReflectionTestUtils.setField(log, "windowBuckets", 60);
+        ReflectionTestUtils.setField(log, "bucketMs", 60_000L);
+    }
+
+    @Test
+    void testClickIsAttributedOncePerImpression() {
+        log.recordImpressions("user-1", shown("m1", "m2"), 0, "hybrid");
+
+        log.recordInteraction("user-1", "m1", "click", null);
+        log.recordInteraction("user-1", "m1", "CLICK", null);
+
+        Map<String, Object> hybrid = metricsOf("hybrid");
+        assertEquals(2L, hybrid.get("impressions"));
+        assertEquals(1L, hybrid.get("clicks"));
+        assertEquals(0.5, hybrid.get("clickThroughRate"));
+    }
+
+    @Test
+    void testPrecisionCountsOnlyTheTopK() {
+        log.recordImpressions("user-1", shown("m1", "m2", "m3", "m4"), 0, "hybrid");
+
+        log.recordInteraction("user-1", "m1", "like", null);
+        log.recordInteraction("user-1", "m4", "watch", null);
+
+        Map<String, Object> hybrid = metricsOf("hybrid");
+        assertEquals(0.5, hybrid.get("precisionAtK"), "One of the two impressions at rank < 2 was relevant");
+        assertEquals(0.25, hybrid.get("conversionRate"));
+    }
+
+    @Test
+    void testActionsGoToTheLatestImpressionsAlgorithm() {
+        log.recordImpressions("user-1", shown("m1"), 0, "popular");
+        log.recordImpressions("user-1", shown("m1"), 0, "collaborative");
+        log.recordInteraction("user-1", "m1", "view", null);
+        log.recordInteraction("user-2", "m1", "click", null);
+
+        assertEquals(0L, metricsOf("popular").get("clicks"));
+        assertEquals(1L, metricsOf("collaborative").get("clicks"));
+    }
+
+    @Test
+    void testFullRingDropsOldestEntries() {
+        log.recordImpressions("user-1", shown("m1", "m2", "m3"), 0, "hybrid");
+        log.recordInteraction("user-1", "m1", "click", null);
+        log.recordInteraction("user-1", "m2", "click", null);
+
+        assertEquals(1.0, meterRegistry.counter("neo4flix.interactions.dropped").count());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> metricsOf(String algorithm) {
+        Map<String, Object> algorithms = (Map<String, Object>) log.getMetrics().get("algorithms");
+        return (Map<String, Object>) algorithms.get(algorithm);
+    }
+
+    private static List<RecommendationResponse> shown(String... movieIds) {
+        List<RecommendationResponse> responses = new ArrayList<>();
+        for (String movieId : movieIds) {
+            RecommendationResponse response = new RecommendationResponse();
+            response.setMovieId(movieId);
+            responses.add(response);
+        }
+        return responses;
+    }
+}
@@ -0,0 +1,151 @@
+package com.neo4flix.movieservice.service;
+
+import com.neo4flix.movieservice.engine.IdInterner;
+import com.neo4flix.movieservice.engine.RankedList;
+import com.neo4flix.movieservice.event.RatingChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PopularityLeaderboard: rating deltas, and reconciling with mocked Rating nodes
+ */
+class PopularityLeaderboardTest {
+
+    private static final long RECONCILED_AT = 1_000_000L;
+
+    @Mock
+    private Driver neo4jDriver;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private RatingMatrixService ratingMatrixService;
+
+    private IdInterner movieIds;
+    private PopularityLeaderboard leaderboard;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        movieIds = new IdInterner();
+        when(ratingMatrixService.getMovieIds()).thenReturn(movieIds);
+        when(neo4jDriver.session()).thenReturn(session);
+
+        leaderboard = new PopularityLeaderboard(neo4jDriver, Runnable::run, ratingMatrixService);
+        ReflectionTestUtils.setField(leaderboard, "listSize", 10);
+        ReflectionTestUtils.setField(leaderboard, "trendingHalfLifeMs", 86_400_000L);
+        ReflectionTestUtils.setField(leaderboard, "trendingWindowMs", 604_800_000L);
+    }
+
+    @Test
+    void testNothingServedBeforeFirstChange() {
+        assertNull(leaderboard.getSnapshot());
+    }
+
+    @Test
+    void testDeltasUpdateAveragesAndRanking() {
+        leaderboard.onRatingChanged(rated("m1", null, 3.0, 1L));
+        leaderboard.onRatingChanged(rated("m2", null, 5.0, 2L));
+        leaderboard.onRatingChanged(rated("m2", null, 4.0, 3L));
+        leaderboard.rebuild();
+
+        PopularityLeaderboard.Snapshot snapshot = leaderboard.getSnapshot();
+        assertEquals(List.of("m2", "m1"), ids(snapshot.getPopular()));
+        assertEquals(4.5f, snapshot.averageRating(movieIds.indexOf("m2")), 1e-6);
+        assertEquals(2, snapshot.ratingCount(movieIds.indexOf("m2")));
+        assertEquals("m2", movieIds.idOf(snapshot.getTrending().id(0)), "Two new ratings should trend higher than one");
+    }
+
+    @Test
+    void testChangedAndDeletedRatingsReplaceThePreviousOne() {
+        leaderboard.onRatingChanged(rated("m1", null, 2.0, 1L));
+        leaderboard.onRatingChanged(rated("m1", null, 4.0, 2L));
+        leaderboard.onRatingChanged(rated("m1", 2.0, 5.0, 3L));
+        leaderboard.onRatingChanged(rated("m1", 4.0, null, 4L));
+        leaderboard.rebuild();
+
+        int movie = movieIds.indexOf("m1");
+        assertEquals(1, leaderboard.getSnapshot().ratingCount(movie));
+        assertEquals(5.0f, leaderboard.getSnapshot().averageRating(movie), 1e-6);
+    }
+
+    @Test
+    void testReconcileReplacesCountersAndSkipsCountedChanges() {
+        givenRatingNodes();
+        leaderboard.onRatingChanged(rated("m2", null, 1.0, 1L));
+
+        leaderboard.reconcile();
+        PopularityLeaderboard.Snapshot snapshot = leaderboard.getSnapshot();
+        assertEquals(0, snapshot.ratingCount(movieIds.indexOf("m2")), "Reconcile should replace the counters");
+        assertEquals(2, snapshot.ratingCount(movieIds.indexOf("m1")));
+        assertEquals(List.of("m1"), ids(snapshot.getPopularInGenre("Drama")));
+
+        // Read by the reconcile already, so counting it again would double it
+        leaderboard.onRatingChanged(rated("m1", null, 5.0, RECONCILED_AT));
+        leaderboard.rebuild();
+        assertEquals(2, leaderboard.getSnapshot().ratingCount(movieIds.indexOf("m1")));
+
+        leaderboard.onRatingChanged(rated("m1", null, 5.0, RECONCILED_AT + 1));
+        leaderboard.onRatingChanged(rated("m3", null, 5.0, null));
+        leaderboard.rebuild();
+        assertEquals(3, leaderboard.getSnapshot().ratingCount(movieIds.indexOf("m1")));
+        assertEquals(0, leaderboard.getSnapshot().ratingCount(movieIds.indexOf("m3")),
+                "Changes without a time are left to the next reconcile");
+    }
+
+    private void givenRatingNodes() {
+        Result totals = result(row(Map.of("movieId", Values.value("m1"), "total", Values.value(9.0),
+                "ratings", Values.value(2))));
+        Result recent = result();
+        Result now = result(row(Map.of("now", Values.value(RECONCILED_AT))));
+        Result genres = result(row(Map.of("movieId", Values.value("m1"), "genres", Values.value(List.of("Drama")))));
+
+        when(session.run(contains("sum(r.rating)"))).thenReturn(totals);
+        when(session.run(contains("r.ratedAt >= $since"), anyMap())).thenReturn(recent);
+        when(session.run(contains("epochMillis"))).thenReturn(now);
+        when(session.run(contains("IN_GENRE"))).thenReturn(genres);
+    }
+
+    private static Record row(Map<String, Value> values) {
+        Record record = mock(Record.class);
+        values.forEach((key, value) -> when(record.get(key)).thenReturn(value));
+        return record;
+    }
+
+    private static Result result(Record... rows) {
+        Result result = mock(Result.class);
+        Iterator<Record> iterator = List.of(rows).iterator();
+        when(result.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(result.next()).thenAnswer(invocation -> iterator.next());
+        when(result.single()).thenAnswer(invocation -> rows[0]);
+        doCallRealMethod().when(result).forEachRemaining(any());
+        return result;
+    }
+
+    private static RatingChangedEvent rated(String movieId, Double previous, Double rating, Long occurredAt) {
+        return new RatingChangedEvent("user-1", movieId, previous, rating, occurredAt);
+    }
+
+    private List<String> ids(RankedList list) {
+        return IntStream.range(0, list.size()).mapToObj(rank -> movieIds.idOf(list.id(rank))).toList();
+    }
+}
@@ -0,0 +1,118 @@
+package com.neo4flix.movieservice.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.neo4flix.movieservice.cache.FarCache;
+import com.neo4flix.movieservice.cache.IndexedCaffeineCache;
+import com.neo4flix.movieservice.cache.LocalFarCache;
+import com.neo4flix.movieservice.cache.TwoTierCache;
+import com.neo4flix.movieservice.config.CacheConfig;
+import com.neo4flix.movieservice.config.UserScopedKeyGenerator;
+import com.neo4flix.movieservice.dto.RecommendationResponse;
+import com.neo4flix.movieservice.event.MovieChangedEvent;
+import com.neo4flix.movieservice.event.RatingChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleCacheManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RecommendationCacheInvalidator across two replicas sharing one LocalFarCache store
+ */
+class RecommendationCacheInvalidatorTest {
+
+    private static final UserScopedKeyGenerator KEYS = new UserScopedKeyGenerator();
+
+    private Replica replicaA;
+    private Replica replicaB;
+
+    @BeforeEach
+    void setUp() {
+        LocalFarCache.Store store = new LocalFarCache.Store();
+        replicaA = new Replica(new LocalFarCache(store));
+        replicaB = new Replica(new LocalFarCache(store));
+    }
+
+    @Test
+    void testRatingChangeDropsTheUsersEntriesOnEveryReplica() throws Exception {
+        Object first = key("user-1");
+        Object second = key("user-2");
+        replicaA.generated().put(first, List.of(response("m1")));
+        replicaA.generated().put(second, List.of(response("m2")));
+        replicaB.generated().get(first);
+        replicaB.generated().get(second);
+
+        replicaA.invalidator.onRatingChanged(new RatingChangedEvent("user-1"));
+
+        assertNull(replicaB.generated().getNativeCache().getIfPresent(first), "Local copy on the other replica should be dropped");
+        assertNull(replicaB.generated().get(first));
+        assertNotNull(replicaB.generated().get(second), "Other users' entries should stay");
+    }
+
+    @Test
+    void testMovieChangeDropsEntriesContainingItOnEveryReplica() throws Exception {
+        Object withMovie = key("user-1");
+        Object withoutMovie = key("user-2");
+        replicaA.generated().put(withMovie, List.of(response("m1")));
+        replicaA.generated().put(withoutMovie, List.of(response("m2")));
+        replicaB.generated().get(withMovie);
+        replicaB.generated().get(withoutMovie);
+        Thread.sleep(2);
+
+        replicaA.invalidator.onMovieChanged(new MovieChangedEvent("m1"));
+
+        assertNull(replicaB.generated().getNativeCache().getIfPresent(withMovie));
+        assertNotNull(replicaB.generated().getNativeCache().getIfPresent(withoutMovie));
+        assertNull(replicaB.generated().get(withMovie), "Shared entries written before the change should expire");
+    }
+
+    private static Object key(String userId) {
+        try {
+            return KEYS.generate(null, RecommendationCacheInvalidatorTest.class.getDeclaredMethod("key", String.class), userId);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static RecommendationResponse response(String movieId) {
+        RecommendationResponse response = new RecommendationResponse();
+        response.setMovieId(movieId);
+        response.setScore(0.5);
+        return response;
+    }
+
+    /**
+     * The caches and invalidator of one replica.
+     */
+    private static final class Replica {
+
+        final SimpleCacheManager cacheManager = new SimpleCacheManager();
+        final RecommendationCacheInvalidator invalidator;
+
+        Replica(FarCache far) {
+            List<Cache> caches = List.of(
+                    twoTier(CacheConfig.RECOMMENDATIONS, far),
+                    twoTier(CacheConfig.GENERATED, far));
+            cacheManager.setCaches(caches);
+            cacheManager.afterPropertiesSet();
+            invalidator = new RecommendationCacheInvalidator(cacheManager,
+                    new StaticListableBeanFactory(Map.of("farCache", far)).getBeanProvider(FarCache.class));
+        }
+
+        TwoTierCache generated() {
+            return (TwoTierCache) cacheManager.getCache(CacheConfig.GENERATED);
+        }
+
+        private static TwoTierCache twoTier(String name, FarCache far) {
+            return new TwoTierCache(name, IndexedCaffeineCache.build(name, Caffeine.newBuilder().expireAfterWrite(Duration.ofMinutes(10))),
+                    far, new SimpleMeterRegistry());
+        }
+    }
+}
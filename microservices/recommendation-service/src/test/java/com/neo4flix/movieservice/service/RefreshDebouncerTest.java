@@ -0,0 +1,92 @@
+package com.neo4flix.movieservice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RefreshDebouncer, with refreshes run on the flushing thread
+ */
+class RefreshDebouncerTest {
+
+    @Mock
+    private RecommendationGenerator recommendationGenerator;
+
+    @Mock
+    private RecommendationStore recommendationStore;
+
+    private RefreshDebouncer debouncer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(recommendationStore.tryStartRefresh(anyString(), anyString())).thenReturn(true);
+        debouncer = new RefreshDebouncer(recommendationGenerator, recommendationStore, Runnable::run);
+    }
+
+    @Test
+    void testBurstIsRefreshedOnceWhenQuiet() {
+        configure(0, 60_000);
+        for (int i = 0; i < 10; i++) {
+            debouncer.request("user-1", "hybrid");
+        }
+        assertEquals(1, debouncer.pendingCount());
+
+        debouncer.flush();
+
+        verify(recommendationGenerator, times(1)).regenerate("user-1", "hybrid");
+        verify(recommendationStore).finishRefresh("user-1", "hybrid");
+        assertEquals(0, debouncer.pendingCount());
+    }
+
+    @Test
+    void testWaitsForQuietPeriodUnlessOverdue() {
+        configure(60_000, 60_000);
+        debouncer.request("user-1", "hybrid");
+
+        debouncer.flush();
+        verify(recommendationGenerator, never()).regenerate(anyString(), anyString());
+
+        configure(60_000, 0);
+        debouncer.flush();
+        verify(recommendationGenerator).regenerate("user-1", "hybrid");
+    }
+
+    @Test
+    void testRunningRefreshKeepsRequestPending() {
+        configure(0, 60_000);
+        when(recommendationStore.tryStartRefresh("user-1", "hybrid")).thenReturn(false);
+        debouncer.request("user-1", "hybrid");
+
+        debouncer.flush();
+
+        verify(recommendationGenerator, never()).regenerate(anyString(), anyString());
+        assertEquals(1, debouncer.pendingCount());
+    }
+
+    @Test
+    void testRejectedRefreshIsPutBack() {
+        debouncer = new RefreshDebouncer(recommendationGenerator, recommendationStore, task -> {
+            throw new TaskRejectedException("saturated");
+        });
+        configure(0, 60_000);
+        debouncer.request("user-1", "hybrid");
+
+        debouncer.flush();
+
+        verify(recommendationStore).finishRefresh("user-1", "hybrid");
+        assertEquals(1, debouncer.pendingCount());
+    }
+
+    private void configure(long quietMs, long maxDelayMs) {
+        ReflectionTestUtils.setField(debouncer, "quietMs", quietMs);
+        ReflectionTestUtils.setField(debouncer, "maxDelayMs", maxDelayMs);
+    }
+}